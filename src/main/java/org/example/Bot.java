@@ -1,33 +1,107 @@
 package org.example;
 
+import okhttp3.OkHttpClient;
 import org.example.DataMessage.Content;
 import org.example.DataMessage.KeyboardService;
+import org.example.DataMessage.MessageCoalescer;
+import org.example.Dispatch.AdmissionController;
+import org.example.Dispatch.CallbackDeduplicator;
+import org.example.Dispatch.PipelineStage;
+import org.example.Dispatch.UpdateIdTracker;
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+import org.example.Metrics.Counter;
+import org.example.Metrics.Histogram;
+import org.example.Metrics.MetricsRegistry;
+import org.example.Outbound.DeadLetterStore;
+import org.example.Outbound.OutboundSender;
+import org.example.Polling.UpdateFetcher;
+import org.example.Tracing.Span;
+import org.example.Tracing.Tracer;
+import org.example.Webhook.WebhookConfig;
+import org.example.Webhook.WebhookServer;
 import org.telegram.telegrambots.client.okhttp.OkHttpTelegramClient;
-import org.telegram.telegrambots.longpolling.TelegramBotsLongPollingApplication;
-import org.telegram.telegrambots.longpolling.util.LongPollingSingleThreadUpdateConsumer;
+import org.telegram.telegrambots.longpolling.interfaces.LongPollingUpdateConsumer;
+import org.telegram.telegrambots.meta.TelegramUrl;
 import org.telegram.telegrambots.meta.api.methods.commands.SetMyCommands;
+import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
+import org.telegram.telegrambots.meta.api.methods.botapimethods.BotApiMethod;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
 import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
 import org.telegram.telegrambots.meta.api.objects.commands.BotCommand;
 import org.telegram.telegrambots.meta.api.objects.commands.scope.BotCommandScopeDefault;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardRow;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.meta.generics.TelegramClient;
 
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Телеграм бот для проведения викторин.
  * Обрабатывает входящие сообщения и callback-запросы, управляет состоянием викторины.
- * Реализует интерфейс LongPollingSingleThreadUpdateConsumer для получения обновлений от Telegram.
+ * Пачки обновлений получает через {@link UpdateFetcher} (long polling с конвейером).
+ * Если задан WEBHOOK_URL, вместо long polling обновления принимаются через webhook.
+ * Обновления разных чатов обрабатываются параллельно, обновления одного чата - по порядку.
+ *
+ * Обработка разбита на стадии со своими очередями и потоками:
+ * decode (разбор обновления в Content, в потоке приема), handle (Producer: поиск пользователя,
+ * выбор и выполнение обработчика, на виртуальных потоках), render (объединение сообщений,
+ * клавиатуры и сборка запросов к Telegram API, на фиксированном пуле) и send ({@link OutboundSender}).
+ * Поэтому медленные запросы к ИИ не занимают потоки сборки ответов, а сборка - потоки отправки.
  */
-public class Bot implements LongPollingSingleThreadUpdateConsumer {
+public class Bot implements LongPollingUpdateConsumer {
+    private static final Logger log = LogManager.getLogger("BOT");
+
+    private static final MetricsRegistry metrics = MetricsRegistry.global();
+    private static final Histogram decodeTime = metrics.histogram(PipelineStage.SERVICE_TIME_METRIC,
+            PipelineStage.SERVICE_TIME_HELP, "stage", "decode");
+    private static final Counter duplicateUpdates = metrics.counter("quiz_bot_dropped_updates_total",
+            "Отброшенные до обработки обновления", "reason", "duplicate_update");
+    private static final Counter duplicateCallbacks = metrics.counter("quiz_bot_dropped_updates_total",
+            "Отброшенные до обработки обновления", "reason", "duplicate_callback");
+    private static final Tracer tracer = Tracer.global();
+
+    // Входящие обновления сверх лимита отсекает AdmissionController, запас - для событий таймеров
+    private static final int HANDLE_CAPACITY = 2 * AdmissionController.DEFAULT_MAX_PENDING;
+    private static final int RENDER_CAPACITY = 1000;
+    private static final int RENDER_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    // Сколько ответ или событие таймера ждет места в переполненной стадии до запасного пути
+    private static final long PUT_TIMEOUT_MS = 1000;
+    private static final long CHAT_TASK_RETRY_DELAY_MS = 100;
+
     private Producer producer;
     private final TelegramClient telegramClient;
     private final String botToken;
-    private TelegramBotsLongPollingApplication botsApplication;
+    private final TelegramUrl apiUrl;
+    // Обработчики в основном ждут ввода-вывода (ИИ, диск), сборка ответов только считает
+    private final PipelineStage handleStage = new PipelineStage("handle", HANDLE_CAPACITY, metrics);
+    private final PipelineStage renderStage = new PipelineStage("render", RENDER_CAPACITY,
+            PipelineStage.fixedPool("render", RENDER_THREADS), metrics);
+    private final CallbackDeduplicator callbackDeduplicator = new CallbackDeduplicator();
+    private final AdmissionController admission = new AdmissionController(handleStage::getQueueDepth);
+    private final UpdateIdTracker updateIds;
+    private final OutboundSender outboundSender;
+    private final MessageCoalescer coalescer = new MessageCoalescer();
+    // Повторная постановка событий таймеров, не дождавшихся места в стадии handle
+    private final ScheduledExecutorService chatTaskRetry = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "chat-task-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private UpdateFetcher updateFetcher;
+    private WebhookServer webhookServer;
     private final Map<String, InlineKeyboardMarkup> keyboardCache = new HashMap<>();
 
     /**
@@ -36,9 +110,87 @@ public class Bot implements LongPollingSingleThreadUpdateConsumer {
      * @param botToken токен бота полученный от BotFather
      */
     public Bot(String botToken) {
+        this(botToken, TelegramUrl.DEFAULT_URL);
+    }
+
+    /**
+     * Конструктор бота с адресом Bot API (например, локального сервера или заглушки для нагрузочных тестов).
+     *
+     * @param botToken токен бота полученный от BotFather
+     * @param apiUrl адрес Telegram Bot API
+     */
+    public Bot(String botToken, TelegramUrl apiUrl) {
+        this(botToken, apiUrl, Path.of(DeadLetterStore.DEFAULT_FILE),
+                new UpdateIdTracker(UpdateIdTracker.DEFAULT_WINDOW, Path.of(UpdateIdTracker.DEFAULT_FILE)));
+    }
+
+    /**
+     * Конструктор бота с адресом Bot API и файлом недоставленных сообщений.
+     * Обработанные update_id запоминаются только в памяти.
+     *
+     * @param botToken токен бота полученный от BotFather
+     * @param apiUrl адрес Telegram Bot API
+     * @param deadLettersFile файл, куда сохраняются недоставленные сообщения
+     */
+    public Bot(String botToken, TelegramUrl apiUrl, Path deadLettersFile) {
+        this(botToken, apiUrl, deadLettersFile, new UpdateIdTracker());
+    }
+
+    /**
+     * Конструктор бота с адресом Bot API, файлом недоставленных сообщений и отсевом повторных обновлений.
+     *
+     * @param botToken токен бота полученный от BotFather
+     * @param apiUrl адрес Telegram Bot API
+     * @param deadLettersFile файл, куда сохраняются недоставленные сообщения
+     * @param updateIds отсев повторно доставленных обновлений
+     */
+    public Bot(String botToken, TelegramUrl apiUrl, Path deadLettersFile, UpdateIdTracker updateIds) {
         this.botToken = botToken;
-        this.telegramClient = new OkHttpTelegramClient(botToken);
-        System.out.println("[BOT] Бот инициализирован с токеном: " + botToken.substring(0, 10) + "...");
+        this.apiUrl = apiUrl;
+        this.updateIds = updateIds;
+        this.telegramClient = new OkHttpTelegramClient(botToken, apiUrl);
+        this.outboundSender = new OutboundSender(method -> telegramClient.execute(method),
+                new DeadLetterStore(deadLettersFile));
+        registerMetrics();
+        log.info(() -> "Бот инициализирован с токеном: " + botToken.substring(0, 10) + "...");
+    }
+
+    /**
+     * Регистрирует счетчики компонентов бота в общем реестре метрик.
+     */
+    private void registerMetrics() {
+        metrics.gauge("quiz_dispatcher_active_chats", "Чаты с обновлениями в очереди", handleStage::getActiveKeyCount);
+        for (AdmissionController.ShedReason reason : AdmissionController.ShedReason.values()) {
+            metrics.counter("quiz_bot_dropped_updates_total", "Отброшенные до обработки обновления",
+                    () -> admission.getDroppedCount(reason), "reason", reason.name().toLowerCase());
+        }
+        metrics.gauge("quiz_outbound_queued", "Сообщения в очереди отправки", outboundSender::getQueuedCount);
+        metrics.gauge(PipelineStage.QUEUE_DEPTH_METRIC, PipelineStage.QUEUE_DEPTH_HELP,
+                outboundSender::getQueuedCount, "stage", "send");
+        metrics.counter("quiz_outbound_retries_total", "Повторные отправки сообщений", outboundSender::getRetriedCount);
+        metrics.counter("quiz_outbound_dead_letters_total", "Сообщения, сохраненные как недоставленные",
+                outboundSender::getDeadLetteredCount);
+        metrics.counter("quiz_outbound_coalesced_total", "Запросы, сэкономленные объединением сообщений",
+                coalescer::getSavedCalls);
+    }
+
+    /**
+     * Разбирает адрес Bot API вида "http://localhost:8081".
+     *
+     * @param url адрес или null
+     * @return адрес Bot API, при пустом значении - официальный сервер Telegram
+     * @throws IllegalArgumentException если адрес задан неверно
+     */
+    public static TelegramUrl parseApiUrl(String url) {
+        if (url == null || url.isBlank()) {
+            return TelegramUrl.DEFAULT_URL;
+        }
+        URI uri = URI.create(url.trim());
+        if (uri.getScheme() == null || uri.getHost() == null) {
+            throw new IllegalArgumentException("Неверный адрес Bot API: " + url);
+        }
+        int port = uri.getPort() != -1 ? uri.getPort() : ("https".equals(uri.getScheme()) ? 443 : 80);
+        return new TelegramUrl(uri.getScheme(), uri.getHost(), port);
     }
 
     /**
@@ -48,8 +200,31 @@ public class Bot implements LongPollingSingleThreadUpdateConsumer {
      */
     public void setProducer(Producer producer) {
         this.producer = producer;
-        System.out.println("[BOT] Установлен Producer");
+        log.info("Установлен Producer");
         initializeKeyboards();
+        producer.subscribeToQueue(this::sendQueuedMessage, this::deadLetterQueuedMessage);
+        // События таймеров выполняются в очередях чатов вместе с их обновлениями
+        producer.setChatExecutor(this::executeInChats);
+    }
+
+    /**
+     * Ставит событие таймера в очереди чатов.
+     * При переполненной стадии поток таймера ждет ограниченное время, затем событие ставится
+     * повторно из отдельного потока: поток таймеров не блокируется, а событие не теряется.
+     *
+     * @param chatIds чаты, данные которых меняет событие
+     * @param task событие
+     */
+    private void executeInChats(Collection<String> chatIds, Runnable task) {
+        if (handleStage.putAll(chatIds, task, PUT_TIMEOUT_MS)) {
+            return;
+        }
+        log.warn(() -> "Событие для " + chatIds + " будет поставлено повторно через " + CHAT_TASK_RETRY_DELAY_MS + " мс");
+        try {
+            chatTaskRetry.schedule(() -> executeInChats(chatIds, task), CHAT_TASK_RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.error(() -> "Событие для " + chatIds + " потеряно: бот остановлен");
+        }
     }
 
     /**
@@ -57,7 +232,7 @@ public class Bot implements LongPollingSingleThreadUpdateConsumer {
      */
     private void registerBotCommands() {
         try {
-            System.out.println("[BOT] Регистрация команд бота...");
+            log.info("Регистрация команд бота...");
             boolean success = telegramClient.execute(
                     SetMyCommands.builder()
                             .commands(Arrays.asList(
@@ -70,174 +245,335 @@ public class Bot implements LongPollingSingleThreadUpdateConsumer {
                             .build()
             );
 
-            System.out.println(success
-                    ? "[BOT] Команды бота успешно зарегистрированы"
-                    : "[BOT] Ошибка регистрации команд бота!"
-            );
+            log.info(success
+                    ? "Команды бота успешно зарегистрированы"
+                    : "Ошибка регистрации команд бота!");
 
         } catch (Exception e) {
-            System.err.println("[BOT] Ошибка регистрации команд");
-            e.printStackTrace(System.err);
+            log.error("Ошибка регистрации команд", e);
         }
     }
 
     /**
-     * Отправляет сообщение через Telegram API.
+     * Ставит сообщение в очередь отправки через Telegram API.
+     * Сама отправка выполняется асинхронно с соблюдением лимитов Telegram,
+     * поэтому обработка обновлений не ждет сетевых запросов.
+     * Сообщение, которое очередь не приняла, сохраняется в файл недоставленных.
      *
      * @param message сообщение для отправки
      */
     public void sendMessage(SendMessage message) {
         if (message == null) {
-            System.out.println("[BOT] Попытка отправить пустое сообщение");
+            log.info("Попытка отправить пустое сообщение");
             return;
         }
-        try {
-            System.out.println("[BOT] Отправка сообщения для " + message.getChatId());
-            telegramClient.execute(message);
-            System.out.println("[BOT] Сообщение успешно отправлено");
-        } catch (TelegramApiException e) {
-            System.err.println("[BOT] Ошибка отправки сообщения");
-            e.printStackTrace(System.err);
-        }
+        log.debug(() -> "Постановка сообщения в очередь для " + message.getChatId());
+        outboundSender.submitOrDeadLetter(message.getChatId(), message);
     }
 
     /**
-     * Обрабатывает входящее обновление от Telegram API.
-     * Получает обновления из телеграма и передает в Producer через Content.
-     * Также проверяет очередь сообщений от таймаутов.
+     * Ставит редактирование сообщения в очередь отправки через Telegram API.
      *
-     * @param update объект обновления от Telegram API
+     * @param edit запрос на редактирование сообщения
      */
-    @Override
-    public void consume(Update update) {
-        try {
-            Content[] responseContents = null;
-            String chatId;
-
-            System.out.println("[BOT] НОВОЕ ОБНОВЛЕНИЕ");
-
-            // СНАЧАЛА проверяем очередь сообщений от таймаутов
-            checkAndSendTimeoutMessages();
-
-            if (update.hasCallbackQuery()) {
-                // Обработка callback от кнопок
-                String callbackData = update.getCallbackQuery().getData();
-                chatId = String.valueOf(update.getCallbackQuery().getMessage().getChatId());
-
-                System.out.println("[BOT] Callback от " + chatId + ": " + callbackData);
+    public void editMessage(EditMessageText edit) {
+        log.debug(() -> "Постановка редактирования сообщения " + edit.getMessageId() + " в очередь для " + edit.getChatId());
+        outboundSender.submitOrDeadLetter(edit.getChatId(), edit);
+    }
 
-                Content content = new Content(false, chatId, callbackData, callbackData, null);
-                responseContents = producer.produce(content);
+    /**
+     * Отправляет запрос, полученный из Content: новое сообщение или редактирование.
+     *
+     * @param method запрос к Telegram API
+     */
+    private void send(BotApiMethod<?> method) {
+        if (method instanceof EditMessageText edit) {
+            editMessage(edit);
+        } else if (method instanceof SendMessage message) {
+            sendMessage(message);
+        }
+    }
 
-            } else if (update.hasMessage() && update.getMessage().hasText()) {
-                // Обработка текстового сообщения
-                String messageText = update.getMessage().getText();
-                chatId = String.valueOf(update.getMessage().getChatId());
+    /**
+     * Принимает пачку обновлений от Telegram API и раздает их диспетчеру.
+     * Обновления распределяются по chatId, поэтому медленная обработка
+     * в одном чате не задерживает остальные.
+     *
+     * @param updates список обновлений от Telegram API
+     */
+    @Override
+    public void consume(List<Update> updates) {
+        for (Update update : updates) {
+            dispatch(update);
+        }
+    }
 
-                System.out.println("[BOT] Сообщение от " + chatId + ": " + messageText);
+    /**
+     * Разбирает обновление (стадия decode) и передает его стадии handle для обработки в очереди его чата.
+     * Повторно доставленные Telegram обновления (тот же update_id) отбрасываются сразу.
+     * Нажатие кнопки сразу подтверждается, а повторные нажатия отбрасываются
+     * до запуска бизнес-логики. Обновления сверх лимитов чата и очереди
+     * отбрасываются {@link AdmissionController}.
+     *
+     * @param update объект обновления от Telegram API
+     */
+    private void dispatch(Update update) {
+        int updateId = update.getUpdateId();
+        if (!updateIds.firstSeen(updateId)) {
+            log.debug(() -> "Повторно доставленное обновление " + updateId + " отброшено");
+            duplicateUpdates.inc();
+            return;
+        }
 
-                Content content = new Content(false, chatId, messageText);
-                responseContents = producer.produce(content);
+        String chatKey = getChatKey(update);
+        boolean isCallback = update.hasCallbackQuery();
+
+        if (isCallback) {
+            CallbackQuery callback = update.getCallbackQuery();
+            answerCallback(callback.getId());
+            Integer messageId = callback.getMessage() != null ? callback.getMessage().getMessageId() : null;
+            String messageText = callback.getMessage() instanceof Message message ? message.getText() : null;
+            if (callbackDeduplicator.isDuplicate(chatKey, callback.getId(), callback.getData(), messageId, messageText)) {
+                log.debug(() -> "Повторное нажатие от " + chatKey + " отброшено: " + callback.getData());
+                duplicateCallbacks.inc();
+                updateIds.completed(updateId);
+                return;
             }
+        }
 
-            if (responseContents != null && responseContents.length > 0) {
-                System.out.println("[BOT] Producer вернул " + responseContents.length + " сообщений для отправки");
+        AdmissionController.ShedReason shed = admission.admit(chatKey, isCallback);
+        if (shed != null) {
+            log.warn(() -> "Обновление от " + chatKey + " отброшено: " + shed);
+            updateIds.completed(updateId);
+            return;
+        }
 
-                SendMessage[] messages = convertToSendMessages(responseContents);
-                for (SendMessage message : messages) {
-                    if (message != null) {
-                        sendMessage(message);
-                    }
+        long admittedAt = System.nanoTime();
+        Content content = decode(update);
+        decodeTime.observeSince(admittedAt);
+        if (content == null) {
+            log.debug(() -> "Обновление " + updateId + " без текста пропущено");
+            updateIds.completed(updateId);
+            return;
+        }
+
+        boolean accepted = handleStage.submit(chatKey, () -> {
+            try {
+                if (isCallback && admission.isStale(admittedAt)) {
+                    log.warn(() -> "Устаревшее нажатие от " + chatKey + " пропущено");
+                    return;
                 }
-            } else {
-                System.out.println("[BOT] Нет ответных сообщений для отправки");
+                handle(content);
+            } finally {
+                updateIds.completed(updateId);
             }
+        });
+        if (!accepted) {
+            updateIds.completed(updateId);
+        }
+    }
 
-            System.out.println("[BOT] ОБРАБОТКА ЗАВЕРШЕНА\n");
+    /**
+     * @return отсев повторно доставленных обновлений
+     */
+    public UpdateIdTracker getUpdateIdTracker() {
+        return updateIds;
+    }
 
+    /**
+     * @return счетчики входящего контроля (для метрик)
+     */
+    public AdmissionController getAdmission() {
+        return admission;
+    }
+
+    /**
+     * Подтверждает получение нажатия кнопки, чтобы клиент убрал индикатор загрузки.
+     * Запрос отправляется асинхронно в обход очереди сообщений:
+     * подтверждения не расходуют лимиты на сообщения в чат.
+     *
+     * @param callbackQueryId id callback-запроса
+     */
+    private void answerCallback(String callbackQueryId) {
+        try {
+            telegramClient.executeAsync(AnswerCallbackQuery.builder().callbackQueryId(callbackQueryId).build())
+                    .exceptionally(e -> {
+                        log.error(() -> "Ошибка подтверждения callback " + callbackQueryId + ": " + e.getMessage());
+                        return null;
+                    });
         } catch (Exception e) {
-            System.err.println("[BOT] Критическая ошибка обработки обновления");
-            e.printStackTrace(System.err);
+            log.error(() -> "Ошибка подтверждения callback " + callbackQueryId + ": " + e.getMessage());
         }
     }
 
     /**
-     * Проверяет и отправляет сообщения от таймаутов из очереди.
-     * Этот метод вызывается при каждом обновлении для обеспечения
-     * своевременной отправки сообщений о таймаутах.
+     * Определяет ключ упорядочивания для обновления.
+     *
+     * @param update объект обновления от Telegram API
+     * @return chatId обновления или служебный ключ, если чата нет
      */
-    private void checkAndSendTimeoutMessages() {
-        if (producer == null) {
-            System.out.println("[BOT] Producer не установлен, пропускаем проверку очереди");
-            return;
+    static String getChatKey(Update update) {
+        if (update.hasCallbackQuery() && update.getCallbackQuery().getMessage() != null) {
+            return String.valueOf(update.getCallbackQuery().getMessage().getChatId());
+        }
+        if (update.hasMessage()) {
+            return String.valueOf(update.getMessage().getChatId());
         }
+        return "update_" + update.getUpdateId();
+    }
 
-        try {
-            if (producer.hasQueuedMessages()) {
-                System.out.println("[BOT] Проверка очереди сообщений от таймаутов...");
+    /**
+     * Стадия decode: разбирает обновление от Telegram API во входящий Content.
+     *
+     * @param update объект обновления от Telegram API
+     * @return Content для Producer или null, если обновление не содержит текста или нажатия
+     */
+    static Content decode(Update update) {
+        if (update.hasCallbackQuery() && update.getCallbackQuery().getMessage() != null) {
+            // Обработка callback от кнопок
+            String callbackData = update.getCallbackQuery().getData();
+            String chatId = String.valueOf(update.getCallbackQuery().getMessage().getChatId());
+            log.info(() -> "Callback от " + chatId + ": " + callbackData);
+
+            Integer messageId = update.getCallbackQuery().getMessage().getMessageId();
+            return new Content(false, chatId, callbackData, callbackData, null, messageId);
+        }
+        if (update.hasMessage() && update.getMessage().hasText()) {
+            // Обработка текстового сообщения
+            String messageText = update.getMessage().getText();
+            String chatId = String.valueOf(update.getMessage().getChatId());
+            log.info(() -> "Сообщение от " + chatId + ": " + messageText);
 
-                Content[] timeoutMessages = producer.getQueuedMessages();
+            return new Content(false, chatId, messageText);
+        }
+        return null;
+    }
 
-                if (timeoutMessages != null && timeoutMessages.length > 0) {
-                    System.out.println("[BOT] Найдено " + timeoutMessages.length + " сообщений от таймаутов в очереди");
+    /**
+     * Стадия handle: передает входящее сообщение в Producer (пользователь, обработчик, текст ответа)
+     * и отдает ответы стадии render. Выполняется в очереди чата.
+     *
+     * @param content входящее сообщение
+     */
+    private void handle(Content content) {
+        String chatId = content.getChatId();
+        try (Span trace = tracer.startTrace("update", chatId)) {
+            log.debug("НОВОЕ ОБНОВЛЕНИЕ");
 
-                    SendMessage[] timeoutSendMessages = convertToSendMessages(timeoutMessages);
-                    int sentCount = 0;
+            Content[] responseContents = producer.produce(content);
+            if (responseContents != null && responseContents.length > 0) {
+                log.debug("Producer вернул " + responseContents.length + " сообщений для отправки");
+                render(chatId, responseContents);
+            } else {
+                log.debug("Нет ответных сообщений для отправки");
+            }
 
-                    for (SendMessage message : timeoutSendMessages) {
-                        if (message != null) {
-                            sendMessage(message);
-                            sentCount++;
-                        }
-                    }
+            log.debug("ОБРАБОТКА ЗАВЕРШЕНА");
 
-                    System.out.println("[BOT] Отправлено " + sentCount + " сообщений от таймаутов");
-                } else {
-                    System.out.println("[BOT] Очередь сообщений пуста");
+        } catch (Exception e) {
+            log.error("Критическая ошибка обработки обновления", e);
+        }
+    }
+
+    /**
+     * Стадия render: в очереди чата собирает запросы к Telegram API и ставит их в очередь отправки.
+     * Сборка продолжает трассу, в которой получены ответы.
+     * Ответ уже изменил данные пользователя, поэтому не отбрасывается: при переполненной стадии ждем места
+     * ограниченное время, а затем сохраняем ответ в файл недоставленных - он будет отправлен при следующем запуске.
+     *
+     * @param chatId чат, в очереди которого собираются ответы
+     * @param contents ответы Producer
+     */
+    private void render(String chatId, Content[] contents) {
+        String traceId = tracer.currentTraceId();
+        boolean accepted = renderStage.put(chatId, () -> {
+            try (Span trace = tracer.startTrace("render", chatId, traceId)) {
+                try (Span span = tracer.span("bot.send")) {
+                    for (BotApiMethod<?> method : convertToMethods(contents)) {
+                        send(method);
+                    }
                 }
             }
-        } catch (Exception e) {
-            System.err.println("[BOT] Ошибка при проверке очереди сообщений от таймаутов");
-            e.printStackTrace(System.err);
+        }, PUT_TIMEOUT_MS);
+        if (!accepted) {
+            for (BotApiMethod<?> method : convertToMethods(contents)) {
+                outboundSender.deadLetter(chatId, method, "стадия render переполнена");
+            }
+        }
+    }
+
+    /**
+     * Отправляет сообщение из очереди таймаутов.
+     * Вызывается очередью сразу при постановке сообщения,
+     * поэтому результат таймаута доходит до игрока без задержки.
+     * Сообщение проходит стадию render вместе с ответами на обновления того же чата.
+     *
+     * @param content сообщение от таймаута
+     */
+    private void sendQueuedMessage(Content content) {
+        log.info(() -> "Получено сообщение от таймаута для " + content.getChatId());
+        render(content.getChatId(), new Content[] {content});
+    }
+
+    /**
+     * Сохраняет сообщение таймаута, которое не удалось передать на отправку,
+     * в файл недоставленных: оно будет отправлено при следующем запуске.
+     *
+     * @param content сообщение от таймаута
+     */
+    private void deadLetterQueuedMessage(Content content) {
+        BotApiMethod<?> method = convertToMethod(content);
+        if (method != null) {
+            outboundSender.deadLetter(content.getChatId(), method, "сообщение таймаута не передано на отправку");
         }
     }
 
     /**
-     * Конвертирует объект Content в SendMessage для отправки через Telegram API.
+     * Конвертирует объект Content в запрос к Telegram API.
+     * Content с id сообщения превращается в EditMessageText (правка сообщения на месте),
+     * остальные - в SendMessage.
      *
      * @param content объект Content для конвертации
-     * @return объект SendMessage или null если конвертация невозможна
+     * @return запрос к Telegram API или null если конвертация невозможна
      */
-    private SendMessage convertToSendMessage(Content content) {
+    private BotApiMethod<?> convertToMethod(Content content) {
         if (!content.isOut()) {
             return null;
         }
 
-        System.out.println("[BOT] Конвертация Content в SendMessage");
-        SendMessage.SendMessageBuilder<?, ?> builder = SendMessage.builder()
-                .chatId(content.getChatId());
-
-        if (content.getText() != null && !content.getText().isEmpty()) {
-            builder.text(content.getText());
-        } else {
-            System.out.println("[BOT] Нет текста для отправки");
+        if (content.getText() == null || content.getText().isEmpty()) {
+            log.info("Нет текста для отправки");
             return null;
         }
 
         // Добавляем InlineKeyboard если указан тип клавиатуры
+        InlineKeyboardMarkup keyboard = null;
         if (content.hasKeyboard()) {
             String keyboardType = content.getKeyboardType();
-            System.out.println("[BOT] Добавление Inline клавиатуры типа: " + keyboardType);
+            log.debug(() -> "Добавление Inline клавиатуры типа: " + keyboardType);
 
-            InlineKeyboardMarkup keyboard = keyboardCache.get(keyboardType);
-            if (keyboard != null) {
-                builder.replyMarkup(keyboard);
-            } else {
-                System.out.println("[BOT] Клавиатура типа '" + keyboardType + "' не найдена в кэше");
+            keyboard = keyboardCache.get(keyboardType);
+            if (keyboard == null) {
+                log.info(() -> "Клавиатура типа '" + keyboardType + "' не найдена в кэше");
             }
         }
 
-        return builder.build();
+        if (content.isEdit()) {
+            log.debug("Конвертация Content в EditMessageText");
+            return EditMessageText.builder()
+                    .chatId(content.getChatId())
+                    .messageId(content.getMessageId())
+                    .text(content.getText())
+                    .replyMarkup(keyboard)
+                    .build();
+        }
+
+        log.debug("Конвертация Content в SendMessage");
+        return SendMessage.builder()
+                .chatId(content.getChatId())
+                .text(content.getText())
+                .replyMarkup(keyboard)
+                .build();
     }
 
     /**
@@ -285,24 +621,31 @@ public class Bot implements LongPollingSingleThreadUpdateConsumer {
     }
 
     /**
-     * Конвертирует массив Content в массив SendMessage.
+     * Конвертирует массив Content в список запросов к Telegram API.
+     * Подряд идущие сообщения одному чату предварительно объединяются.
      *
      * @param contents массив объектов Content для конвертации
-     * @return массив объектов SendMessage
+     * @return список запросов в порядке исходных Content
      */
-    private SendMessage[] convertToSendMessages(Content[] contents) {
+    private List<BotApiMethod<?>> convertToMethods(Content[] contents) {
+        List<BotApiMethod<?>> methods = new ArrayList<>();
         if (contents == null) {
-            return new SendMessage[0];
+            return methods;
+        }
+
+        Content[] coalesced = coalescer.coalesce(contents);
+        if (coalesced.length < contents.length) {
+            log.debug(() -> "Объединено сообщений: " + contents.length + " -> " + coalesced.length +
+                    " (всего сэкономлено запросов: " + coalescer.getSavedCalls() + ")");
         }
 
-        List<SendMessage> messages = new ArrayList<>();
-        for (Content content : contents) {
-            SendMessage message = convertToSendMessage(content);
-            if (message != null) {
-                messages.add(message);
+        for (Content content : coalesced) {
+            BotApiMethod<?> method = convertToMethod(content);
+            if (method != null) {
+                methods.add(method);
             }
         }
-        return messages.toArray(new SendMessage[0]);
+        return methods;
     }
 
     /**
@@ -310,13 +653,13 @@ public class Bot implements LongPollingSingleThreadUpdateConsumer {
      */
     private void initializeKeyboards() {
         if (producer == null) {
-            System.err.println("[BOT] Producer не установлен, невозможно инициализировать клавиатуры");
+            log.error("Producer не установлен, невозможно инициализировать клавиатуры");
             return;
         }
 
         KeyboardService keyboardService = producer.getKeyboardService();
         if (keyboardService == null) {
-            System.err.println("[BOT] KeyboardService не доступен");
+            log.error("KeyboardService не доступен");
             return;
         }
 
@@ -351,101 +694,146 @@ public class Bot implements LongPollingSingleThreadUpdateConsumer {
                     keyboardService.getModeSelection(),
                     new HashMap<>()));
 
-            System.out.println("[BOT] Кэш клавиатур инициализирован, создано " + keyboardCache.size() + " клавиатур");
+            log.info(() -> "Кэш клавиатур инициализирован, создано " + keyboardCache.size() + " клавиатур");
 
             for (String key : keyboardCache.keySet()) {
                 InlineKeyboardMarkup keyboard = keyboardCache.get(key);
                 int rowCount = keyboard.getKeyboard().size();
-                System.out.println("[BOT] Создана клавиатура: " + key + " (рядов: " + rowCount + ")");
+                log.debug(() -> "Создана клавиатура: " + key + " (рядов: " + rowCount + ")");
             }
 
         } catch (Exception e) {
-            System.err.println("[BOT] Ошибка инициализации клавиатур");
-            e.printStackTrace(System.err);
+            log.error("Ошибка инициализации клавиатур", e);
         }
     }
 
     /**
-     * Периодически проверяет очередь сообщений от таймаутов.
-     * Этот метод может быть запущен в отдельном потоке для гарантированной
-     * отправки сообщений о таймаутах, даже если пользователь ничего не делает.
+     * Возвращает количество запросов к Telegram API, сэкономленных объединением сообщений.
+     *
+     * @return число сэкономленных запросов
      */
-    public void startTimeoutChecker() {
-        System.out.println("[BOT] Запуск периодической проверки очереди таймаутов...");
-
-        Timer timer = new Timer(true);
-        timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                try {
-                    if (producer != null && producer.hasQueuedMessages()) {
-                        System.out.println("[BOT] [TIMER] Периодическая проверка очереди...");
-
-                        Content[] timeoutMessages = producer.getQueuedMessages();
-                        if (timeoutMessages != null && timeoutMessages.length > 0) {
-                            System.out.println("[BOT] [TIMER] Найдено " + timeoutMessages.length + " сообщений в очереди");
-
-                            // Отправляем сообщения
-                            SendMessage[] messages = convertToSendMessages(timeoutMessages);
-                            for (SendMessage message : messages) {
-                                if (message != null) {
-                                    sendMessage(message);
-                                }
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    System.err.println("[BOT] [TIMER] Ошибка в периодической проверке очереди");
-                    e.printStackTrace(System.err);
-                }
-            }
-        }, 30000, 30000); // Проверяем каждые 30 секунд
-
-        System.out.println("[BOT] Периодическая проверка очереди запущена (интервал: 30 сек)");
+    public long getCoalescedSavedCalls() {
+        return coalescer.getSavedCalls();
     }
 
     /**
      * Останавливает бота и освобождает ресурсы.
      */
     public void stop() {
-        System.out.println("[BOT] Остановка бота...");
-        if (botsApplication != null) {
-            try {
-                botsApplication.close();
-                System.out.println("[BOT] LongPollingApplication закрыт");
-            } catch (Exception e) {
-                System.err.println("[BOT] Ошибка при закрытии LongPollingApplication");
-                e.printStackTrace(System.err);
+        log.info("Остановка бота...");
+        stopIntake();
+        drain(20000);
+        log.info("Бот остановлен");
+    }
+
+    /**
+     * Прекращает прием новых обновлений (webhook или long polling).
+     * Уже полученные обновления остаются в очереди обработки.
+     */
+    public void stopIntake() {
+        if (webhookServer != null) {
+            webhookServer.stop(1);
+        }
+        if (updateFetcher != null) {
+            updateFetcher.stop(5000);
+        }
+    }
+
+    /**
+     * Дожидается обработки принятых обновлений и отправки ответов.
+     * Неотправленные к сроку сообщения сохраняются в файл недоставленных.
+     *
+     * @param timeoutMillis общий срок в миллисекундах
+     */
+    public void drain(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        // Стадии останавливаются по порядку, каждая - после того, как предыдущая отдала ей все задачи.
+        // Обработке - не больше половины срока, остальное - на сборку и отправку ответов
+        awaitStage(handleStage, timeoutMillis / 2);
+        awaitStage(renderStage, Math.max(0, deadline - System.currentTimeMillis()) / 2);
+        outboundSender.shutdown(Math.max(0, deadline - System.currentTimeMillis()));
+    }
+
+    private void awaitStage(PipelineStage stage, long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        try {
+            if (!stage.awaitIdle(timeoutMillis)) {
+                log.error(() -> "Стадия " + stage.getName() + " не завершила задачи за " + timeoutMillis + "мс");
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        System.out.println("[BOT] Бот остановлен");
+        stage.shutdown(Math.max(0, deadline - System.currentTimeMillis()));
     }
 
     /**
-     * Запускает бота в режиме long polling.
+     * Запускает бота в режиме webhook, если он настроен, иначе в режиме long polling.
      */
     public void start() {
         try {
-            System.out.println("[BOT] Запуск бота...");
-            botsApplication = new TelegramBotsLongPollingApplication();
-            botsApplication.registerBot(botToken, this);
-            System.out.println("[BOT] Бот зарегистрирован в LongPollingApplication");
+            log.info("Запуск бота...");
+            outboundSender.replayDeadLetters();
+            WebhookConfig webhookConfig = WebhookConfig.fromEnv();
+            if (webhookConfig.isEnabled()) {
+                startWebhook(webhookConfig);
+            } else {
+                startPolling();
+            }
 
             registerBotCommands();
 
-            startTimeoutChecker();
+            log.info("Бот успешно запущен и готов к работе");
+        } catch (Exception e) {
+            log.error("Фатальная ошибка запуска бота", e);
+        }
+    }
 
-            System.out.println("[BOT] Бот успешно запущен и готов к работе");
+    /**
+     * Запускает получение обновлений через getUpdates.
+     * Для long polling используется отдельный HTTP-клиент: запрос висит до
+     * {@link UpdateFetcher#LONG_POLL_TIMEOUT_SECONDS} секунд, что больше таймаута чтения обычного клиента.
+     */
+    private void startPolling() {
+        OkHttpClient pollingHttpClient = new OkHttpClient.Builder()
+                .readTimeout(Duration.ofSeconds(UpdateFetcher.LONG_POLL_TIMEOUT_SECONDS + 25))
+                .build();
+        TelegramClient pollingClient = new OkHttpTelegramClient(pollingHttpClient, botToken, apiUrl);
+        updateFetcher = new UpdateFetcher(pollingClient::execute, this::consume);
+        UpdateFetcher fetcher = updateFetcher;
+        metrics.counter("quiz_fetcher_requests_total", "Запросы getUpdates", fetcher::getFetchCount);
+        metrics.counter("quiz_fetcher_updates_total", "Полученные обновления", fetcher::getUpdateCount);
+        metrics.gauge("quiz_fetcher_in_flight", "Запросы getUpdates в полете", fetcher::getInFlightCount);
+        metrics.gauge("quiz_fetcher_limit", "Текущий размер пачки getUpdates", fetcher::getCurrentLimit);
+        updateFetcher.start();
+    }
 
-            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-                System.out.println("[BOT] Получен сигнал завершения работы...");
-                stop();
-            }));
+    /**
+     * @return получатель обновлений (для метрик) или null в режиме webhook
+     */
+    public UpdateFetcher getUpdateFetcher() {
+        return updateFetcher;
+    }
 
-            System.out.println("[BOT] Бот работает в фоновом режиме");
-        } catch (Exception e) {
-            System.err.println("[BOT] Фатальная ошибка запуска бота");
-            e.printStackTrace(System.err);
+    /**
+     * Запускает встроенный HTTP-сервер и регистрирует webhook в Telegram.
+     *
+     * @param config настройки webhook
+     * @throws Exception если не удалось запустить сервер или зарегистрировать webhook
+     */
+    private void startWebhook(WebhookConfig config) throws Exception {
+        webhookServer = new WebhookServer(config.getPort(), config.getPath(), config.getSecretToken(), this::dispatch);
+        WebhookServer server = webhookServer;
+        metrics.counter("quiz_webhook_accepted_total", "Принятые запросы webhook", server::getAcceptedCount);
+        metrics.counter("quiz_webhook_rejected_total", "Отклоненные запросы webhook", server::getRejectedCount);
+        webhookServer.start();
+
+        SetWebhook.SetWebhookBuilder<?, ?> setWebhook = SetWebhook.builder().url(config.getUrl());
+        if (config.getSecretToken() != null) {
+            setWebhook.secretToken(config.getSecretToken());
         }
+        boolean success = telegramClient.execute(setWebhook.build());
+        log.info(() -> success
+                ? "Webhook зарегистрирован: " + config.getUrl()
+                : "Ошибка регистрации webhook!");
     }
-}
\ No newline at end of file
+}
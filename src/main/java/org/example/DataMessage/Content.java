@@ -3,6 +3,8 @@ package org.example.DataMessage;
 /**
  * Класс для хранения и передачи контента между компонентами системы.
  * Содержит информацию о сообщении, пользователе и параметрах ответа, и кнопках.
+ * Для входящих callback хранит id сообщения с кнопками, для исходящих -
+ * id сообщения, которое нужно отредактировать вместо отправки нового.
  */
 public class Content {
     private final boolean out;
@@ -10,6 +12,7 @@ public class Content {
     private final String text;
     private final String userClick;
     private final String keyboardType;
+    private final Integer messageId;
 
     /**
      * Основной конструктор для создания полного контента.
@@ -19,13 +22,22 @@ public class Content {
      * @param text текст сообщения
      * @param userClick данные callback
      * @param keyboardType тип клавиатуры
+     * @param messageId id сообщения в чате (для редактирования) или null
      */
-    public Content(boolean out, String chatId, String text, String userClick, String keyboardType) {
+    public Content(boolean out, String chatId, String text, String userClick, String keyboardType, Integer messageId) {
         this.out = out;
         this.chatId = chatId;
         this.text = text;
         this.userClick = userClick;
         this.keyboardType = keyboardType;
+        this.messageId = messageId;
+    }
+
+    /**
+     * Конструктор для контента без привязки к сообщению.
+     */
+    public Content(boolean out, String chatId, String text, String userClick, String keyboardType) {
+        this(out, chatId, text, userClick, keyboardType, null);
     }
 
     /**
@@ -46,7 +58,7 @@ public class Content {
      * Конструктор для создания контента только с флагом направления.
      */
     public Content(boolean out) {
-        this(out, null, null, null, null);
+        this(out, null, null, null, null, null);
     }
 
     public boolean isOut() {
@@ -78,4 +90,18 @@ public class Content {
     public boolean hasKeyboard() {
         return keyboardType != null && !keyboardType.isEmpty();
     }
-}
\ No newline at end of file
+
+    /**
+     * Возвращает id сообщения в чате
+     */
+    public Integer getMessageId() {
+        return messageId;
+    }
+
+    /**
+     * Проверяет, нужно ли отредактировать существующее сообщение вместо отправки нового
+     */
+    public boolean isEdit() {
+        return out && messageId != null;
+    }
+}
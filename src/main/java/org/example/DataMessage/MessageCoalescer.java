@@ -0,0 +1,94 @@
+package org.example.DataMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Объединяет подряд идущие ответы одному чату в одно сообщение.
+ * Producer часто возвращает несколько Content подряд (например, "Выбрана тема" и первый вопрос),
+ * и каждый из них стал бы отдельным запросом к Telegram API.
+ *
+ * Правила объединения:
+ * - объединяются только исходящие сообщения одного чата, идущие подряд;
+ * - клавиатура может быть только у последнего сообщения группы,
+ *   поэтому сообщение с клавиатурой завершает группу;
+ * - редактирования существующих сообщений не объединяются;
+ * - длина итогового текста не превышает лимит Telegram (4096 символов).
+ */
+public class MessageCoalescer {
+
+    public static final int MAX_MESSAGE_LENGTH = 4096;
+    private static final String SEPARATOR = "\n\n";
+
+    private final AtomicLong savedCalls = new AtomicLong();
+
+    /**
+     * Объединяет ответы, где это возможно.
+     *
+     * @param contents ответы Producer в порядке отправки
+     * @return ответы после объединения (в том же порядке)
+     */
+    public Content[] coalesce(Content[] contents) {
+        if (contents == null || contents.length < 2) {
+            return contents;
+        }
+
+        List<Content> result = new ArrayList<>();
+        Content pending = null;
+
+        for (Content content : contents) {
+            if (content == null) {
+                continue;
+            }
+            if (pending != null && canMerge(pending, content)) {
+                pending = merge(pending, content);
+                savedCalls.incrementAndGet();
+            } else {
+                if (pending != null) {
+                    result.add(pending);
+                }
+                pending = content;
+            }
+        }
+        if (pending != null) {
+            result.add(pending);
+        }
+
+        return result.toArray(new Content[0]);
+    }
+
+    /**
+     * Проверяет, можно ли дописать следующее сообщение к текущему.
+     */
+    private boolean canMerge(Content current, Content next) {
+        return isMergeable(current)
+                && isMergeable(next)
+                && !current.hasKeyboard()
+                && current.getChatId().equals(next.getChatId())
+                && current.getText().length() + SEPARATOR.length() + next.getText().length() <= MAX_MESSAGE_LENGTH;
+    }
+
+    private boolean isMergeable(Content content) {
+        return content.isOut()
+                && !content.isEdit()
+                && content.getChatId() != null
+                && content.getText() != null
+                && !content.getText().isEmpty();
+    }
+
+    private Content merge(Content current, Content next) {
+        return new Content(true, current.getChatId(),
+                current.getText() + SEPARATOR + next.getText(),
+                null, next.getKeyboardType());
+    }
+
+    /**
+     * Возвращает количество сэкономленных запросов к Telegram API.
+     *
+     * @return число сообщений, вошедших в состав других
+     */
+    public long getSavedCalls() {
+        return savedCalls.get();
+    }
+}
@@ -1,15 +1,32 @@
 package org.example.DataMessage;
 
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Очередь для хранения сообщений, которые нужно отправить асинхронно.
  * Использует потокобезопасную ConcurrentLinkedQueue для хранения сообщений.
+ * Если у очереди есть подписчик, сообщения передаются ему сразу при добавлении,
+ * без ожидания периодической проверки.
+ * Если подписчик не принял сообщение за {@link #MAX_DELIVERY_ATTEMPTS} попыток, оно передается
+ * обработчику недоставленных сообщений (у бота - файл недоставленных OutboundSender).
  */
 public class MessageQueue {
+    private static final Logger log = LogManager.getLogger("MESSAGE_QUEUE");
+
     private final ConcurrentLinkedQueue<Content> messageQueue = new ConcurrentLinkedQueue<>();
+    public static final int MAX_DELIVERY_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MS = 50;
+
+    private Consumer<Content> subscriber;
+    private Consumer<Content> deadLetterHandler;
+    private final AtomicLong failedCount = new AtomicLong();
 
     /**
      * конструктор
@@ -18,12 +35,97 @@ public class MessageQueue {
 
     /**
      * Добавляет сообщение в очередь.
-     * Сообщение будет обработано при следующей проверке очереди.
+     * Если подписчик установлен, сообщение сразу передается ему,
+     * иначе оно будет обработано при следующей проверке очереди.
      *
      * @param content объект Content для добавления в очередь
      */
     public void addMessage(Content content) {
-        messageQueue.add(content);
+        Consumer<Content> current;
+        synchronized (this) {
+            current = subscriber;
+            if (current == null) {
+                messageQueue.add(content);
+                return;
+            }
+        }
+        deliver(current, content);
+    }
+
+    /**
+     * Устанавливает подписчика, которому сообщения передаются в момент добавления.
+     * Накопленные до подписки сообщения передаются подписчику сразу.
+     *
+     * @param subscriber получатель сообщений (например, конвейер отправки)
+     */
+    public void subscribe(Consumer<Content> subscriber) {
+        subscribe(subscriber, null);
+    }
+
+    /**
+     * Устанавливает подписчика и обработчик сообщений, которые подписчик так и не принял.
+     * Накопленные до подписки сообщения передаются подписчику сразу.
+     *
+     * @param subscriber получатель сообщений (например, конвейер отправки)
+     * @param deadLetterHandler получатель недоставленных сообщений или null, чтобы только логировать потерю
+     */
+    public void subscribe(Consumer<Content> subscriber, Consumer<Content> deadLetterHandler) {
+        List<Content> backlog;
+        synchronized (this) {
+            this.subscriber = subscriber;
+            this.deadLetterHandler = deadLetterHandler;
+            backlog = getAllMessages();
+        }
+        for (Content content : backlog) {
+            deliver(subscriber, content);
+        }
+    }
+
+    /**
+     * Передает сообщение подписчику с повторами. После подписки очередь никто не читает,
+     * поэтому не принятое сообщение не возвращается в нее, а передается обработчику недоставленных.
+     */
+    private void deliver(Consumer<Content> target, Content content) {
+        for (int attempt = 1; attempt <= MAX_DELIVERY_ATTEMPTS; attempt++) {
+            try {
+                target.accept(content);
+                return;
+            } catch (Exception e) {
+                int current = attempt;
+                log.warn(() -> "Ошибка передачи сообщения для " + content.getChatId() + " подписчику (попытка "
+                        + current + "/" + MAX_DELIVERY_ATTEMPTS + "): " + e.getMessage());
+            }
+            if (attempt < MAX_DELIVERY_ATTEMPTS) {
+                try {
+                    Thread.sleep(RETRY_DELAY_MS * attempt);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        failedCount.incrementAndGet();
+        Consumer<Content> handler;
+        synchronized (this) {
+            handler = deadLetterHandler;
+        }
+        if (handler == null) {
+            log.error(() -> "Сообщение для " + content.getChatId() + " потеряно: подписчик его не принял");
+            return;
+        }
+        try {
+            handler.accept(content);
+        } catch (Exception e) {
+            log.error("Не удалось сохранить недоставленное сообщение для " + content.getChatId(), e);
+        }
+    }
+
+    /**
+     * @return количество сообщений, которые подписчик не принял
+     */
+    public long getFailedCount() {
+        return failedCount.get();
     }
 
     /**
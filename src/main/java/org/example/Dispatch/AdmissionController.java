@@ -0,0 +1,150 @@
+package org.example.Dispatch;
+
+import org.example.Outbound.TokenBucket;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Контроль входящего потока обновлений перед постановкой в диспетчер.
+ * Ограничивает частоту нажатий кнопок в одном чате и общую глубину очереди,
+ * чтобы один пользователь, непрерывно нажимающий кнопки, не занимал обработку за сотни других.
+ *
+ * Политика сброса:
+ * - нажатия кнопок сверх лимита чата или при перегрузке очереди отбрасываются;
+ * - нажатия, которые прождали в очереди дольше допустимого, не обрабатываются -
+ *   сообщение с кнопками к этому времени уже устарело;
+ * - текстовые команды не отбрасываются, пока очередь не заполнена полностью.
+ * Каждый сброс учитывается в счетчике своей причины.
+ */
+public class AdmissionController {
+
+    public static final double DEFAULT_CHAT_RATE = 2.0;
+    public static final double DEFAULT_CHAT_BURST = 5.0;
+    public static final int DEFAULT_MAX_PENDING = 1000;
+    public static final long DEFAULT_STALE_MILLIS = 10_000;
+
+    private static final int MAX_TRACKED_CHATS = 10000;
+
+    /**
+     * Причина отказа в обработке обновления.
+     */
+    public enum ShedReason {
+        /** Превышен лимит нажатий в чате */
+        CHAT_RATE,
+        /** Очередь перегружена, нажатия кнопок не принимаются */
+        OVERLOADED,
+        /** Очередь заполнена полностью, не принимается ничего */
+        QUEUE_FULL,
+        /** Нажатие прождало в очереди слишком долго */
+        STALE
+    }
+
+    private final double chatRate;
+    private final double chatBurst;
+    private final int maxPending;
+    private final long staleNanos;
+    private final IntSupplier pendingCount;
+
+    private final Map<String, TokenBucket> chatBuckets = new ConcurrentHashMap<>();
+    private final Map<ShedReason, AtomicLong> dropped = new EnumMap<>(ShedReason.class);
+
+    /**
+     * Создает контроль с лимитами по умолчанию.
+     *
+     * @param pendingCount источник текущей глубины очереди
+     */
+    public AdmissionController(IntSupplier pendingCount) {
+        this(DEFAULT_CHAT_RATE, DEFAULT_CHAT_BURST, DEFAULT_MAX_PENDING, DEFAULT_STALE_MILLIS, pendingCount);
+    }
+
+    /**
+     * @param chatRate допустимая частота нажатий кнопок в одном чате (в секунду)
+     * @param chatBurst допустимый всплеск нажатий в одном чате
+     * @param maxPending глубина очереди, после которой нажатия кнопок отбрасываются;
+     *                   текстовые команды отбрасываются при вдвое большей глубине
+     * @param staleMillis время ожидания в очереди, после которого нажатие считается устаревшим
+     * @param pendingCount источник текущей глубины очереди
+     */
+    public AdmissionController(double chatRate, double chatBurst, int maxPending, long staleMillis,
+                               IntSupplier pendingCount) {
+        this.chatRate = chatRate;
+        this.chatBurst = chatBurst;
+        this.maxPending = maxPending;
+        this.staleNanos = TimeUnit.MILLISECONDS.toNanos(staleMillis);
+        this.pendingCount = pendingCount;
+        for (ShedReason reason : ShedReason.values()) {
+            dropped.put(reason, new AtomicLong());
+        }
+    }
+
+    /**
+     * Решает, принять ли обновление в очередь.
+     *
+     * @param chatId идентификатор чата
+     * @param callback true для нажатия кнопки, false для текстовой команды
+     * @return null если обновление принято, иначе причина отказа (уже учтенная в счетчиках)
+     */
+    public ShedReason admit(String chatId, boolean callback) {
+        int pending = pendingCount.getAsInt();
+        if (pending >= maxPending * 2) {
+            return shed(ShedReason.QUEUE_FULL);
+        }
+        if (!callback) {
+            return null;
+        }
+        if (pending >= maxPending) {
+            return shed(ShedReason.OVERLOADED);
+        }
+
+        if (chatBuckets.size() > MAX_TRACKED_CHATS) {
+            chatBuckets.values().removeIf(TokenBucket::isFull);
+        }
+        if (chatBuckets.computeIfAbsent(chatId, id -> new TokenBucket(chatBurst, chatRate)).tryAcquire() > 0) {
+            return shed(ShedReason.CHAT_RATE);
+        }
+        return null;
+    }
+
+    /**
+     * Проверяет перед обработкой, не устарело ли принятое нажатие.
+     *
+     * @param admittedAtNanos время приема обновления (System.nanoTime)
+     * @return true если нажатие нужно пропустить (учитывается в счетчике STALE)
+     */
+    public boolean isStale(long admittedAtNanos) {
+        if (System.nanoTime() - admittedAtNanos > staleNanos) {
+            shed(ShedReason.STALE);
+            return true;
+        }
+        return false;
+    }
+
+    private ShedReason shed(ShedReason reason) {
+        dropped.get(reason).incrementAndGet();
+        return reason;
+    }
+
+    /**
+     * @param reason причина отказа
+     * @return количество обновлений, отброшенных по этой причине
+     */
+    public long getDroppedCount(ShedReason reason) {
+        return dropped.get(reason).get();
+    }
+
+    /**
+     * @return общее количество отброшенных обновлений
+     */
+    public long getDroppedTotal() {
+        long total = 0;
+        for (AtomicLong counter : dropped.values()) {
+            total += counter.get();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.Dispatch;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Отсеивает повторные нажатия inline-кнопок до запуска бизнес-логики.
+ * Повтором считается:
+ * - callback с уже обработанным id (повторная доставка того же обновления);
+ * - нажатие той же кнопки того же сообщения в том же виде в течение короткого окна
+ *   (пользователь нажимает несколько раз, пока клиент показывает индикатор загрузки).
+ *
+ * Клавиатура викторины живет на одном сообщении, которое правится на месте, поэтому вид сообщения
+ * (текст, который видел пользователь при нажатии) входит в ключ: «A» на следующем вопросе или
+ * повторное «вперед» после смены страницы - новые нажатия, а не повторы.
+ */
+public class CallbackDeduplicator {
+
+    public static final long DEFAULT_WINDOW_MILLIS = 1500;
+
+    private static final int MAX_REMEMBERED_IDS = 10000;
+    private static final int MAX_TRACKED_CHATS = 10000;
+
+    /**
+     * Последнее нажатие в чате.
+     */
+    private record Tap(String data, Integer messageId, int messageHash, long atNanos) {
+
+        boolean sameAs(String data, Integer messageId, int messageHash) {
+            return Objects.equals(this.data, data) && Objects.equals(this.messageId, messageId)
+                    && this.messageHash == messageHash;
+        }
+    }
+
+    private final long windowNanos;
+    private final Map<String, Tap> lastTaps = new ConcurrentHashMap<>();
+
+    // Последние обработанные id callback (под собственной блокировкой)
+    private final Map<String, Boolean> recentIds = new LinkedHashMap<>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_REMEMBERED_IDS;
+        }
+    };
+
+    /**
+     * Создает фильтр с окном по умолчанию.
+     */
+    public CallbackDeduplicator() {
+        this(DEFAULT_WINDOW_MILLIS);
+    }
+
+    /**
+     * @param windowMillis окно, в течение которого повторное нажатие той же кнопки отбрасывается
+     */
+    public CallbackDeduplicator(long windowMillis) {
+        this.windowNanos = windowMillis * 1_000_000L;
+    }
+
+    /**
+     * Регистрирует нажатие и проверяет, является ли оно повтором.
+     *
+     * @param chatId идентификатор чата
+     * @param callbackId id callback-запроса от Telegram
+     * @param data данные нажатой кнопки
+     * @param messageId сообщение с кнопкой или null
+     * @param messageText текст сообщения в момент нажатия или null
+     * @return true если нажатие нужно отбросить
+     */
+    public boolean isDuplicate(String chatId, String callbackId, String data, Integer messageId, String messageText) {
+        if (callbackId != null) {
+            synchronized (recentIds) {
+                if (recentIds.putIfAbsent(callbackId, Boolean.TRUE) != null) {
+                    return true;
+                }
+            }
+        }
+
+        long now = System.nanoTime();
+        if (lastTaps.size() > MAX_TRACKED_CHATS) {
+            lastTaps.values().removeIf(tap -> now - tap.atNanos() > windowNanos);
+        }
+
+        int messageHash = Objects.hashCode(messageText);
+        boolean[] duplicate = new boolean[1];
+        lastTaps.compute(chatId, (id, previous) -> {
+            if (previous != null && previous.sameAs(data, messageId, messageHash)
+                    && now - previous.atNanos() <= windowNanos) {
+                duplicate[0] = true;
+                // Окно отсчитывается от первого нажатия серии
+                return previous;
+            }
+            return new Tap(data, messageId, messageHash, now);
+        });
+        return duplicate[0];
+    }
+}
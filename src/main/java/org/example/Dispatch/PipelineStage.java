@@ -0,0 +1,270 @@
+package org.example.Dispatch;
+
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+import org.example.Metrics.Histogram;
+import org.example.Metrics.MetricsRegistry;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Стадия конвейера обработки обновлений.
+ * Стадия владеет своим пулом потоков и ограниченной входной очередью:
+ * задачи одного чата выполняются по порядку (через {@link UpdateDispatcher}),
+ * а переполненная очередь заставляет предыдущую стадию подождать.
+ * Поэтому стадии с разной нагрузкой (обработка с запросами к ИИ, сборка запросов к Telegram)
+ * масштабируются независимо, а медленная стадия не копит неограниченную очередь.
+ * Глубина очереди и время выполнения задач выгружаются в метрики
+ * quiz_pipeline_queue_depth и quiz_pipeline_service_seconds с меткой stage.
+ */
+public class PipelineStage {
+    private static final Logger log = LogManager.getLogger("PIPELINE");
+
+    public static final String QUEUE_DEPTH_METRIC = "quiz_pipeline_queue_depth";
+    public static final String SERVICE_TIME_METRIC = "quiz_pipeline_service_seconds";
+    public static final String QUEUE_DEPTH_HELP = "Задачи в очереди стадии конвейера, включая выполняемые";
+    public static final String SERVICE_TIME_HELP = "Время выполнения задачи стадией конвейера";
+
+    private static final long SUBMIT_TIMEOUT_MS = 1000;
+
+    private final String name;
+    private final UpdateDispatcher dispatcher;
+    private final Semaphore capacity;
+    private final Histogram serviceTime;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+    // Выполняется ли в текущем потоке задача этой стадии
+    private final ThreadLocal<Boolean> inStage = ThreadLocal.withInitial(() -> false);
+
+    /**
+     * Создает стадию на виртуальных потоках (для задач, которые в основном ждут ввода-вывода).
+     *
+     * @param name имя стадии (метка stage в метриках)
+     * @param capacity максимальное количество задач в очереди стадии
+     * @param metrics реестр метрик
+     */
+    public PipelineStage(String name, int capacity, MetricsRegistry metrics) {
+        this(name, capacity, Executors.newVirtualThreadPerTaskExecutor(), metrics);
+    }
+
+    /**
+     * Создает стадию с указанным пулом потоков.
+     *
+     * @param name имя стадии (метка stage в метриках)
+     * @param capacity максимальное количество задач в очереди стадии
+     * @param executor пул потоков стадии
+     * @param metrics реестр метрик
+     */
+    public PipelineStage(String name, int capacity, ExecutorService executor, MetricsRegistry metrics) {
+        this.name = name;
+        this.dispatcher = new UpdateDispatcher(executor);
+        this.capacity = new Semaphore(capacity);
+        this.serviceTime = metrics.histogram(SERVICE_TIME_METRIC, SERVICE_TIME_HELP, "stage", name);
+        metrics.gauge(QUEUE_DEPTH_METRIC, QUEUE_DEPTH_HELP, this::getQueueDepth, "stage", name);
+        metrics.counter("quiz_pipeline_rejected_total", "Задачи, не принятые переполненной стадией конвейера",
+                rejected::get, "stage", name);
+    }
+
+    /**
+     * Создает стадию с фиксированным пулом из threads потоков (для задач, которые в основном считают).
+     *
+     * @param name имя стадии
+     * @param threads количество потоков
+     * @return пул потоков стадии
+     */
+    public static ExecutorService fixedPool(String name, int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "pipeline-" + name + "-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Ставит задачу в очередь чата.
+     * Если очередь стадии заполнена, ждет освобождения места не дольше секунды.
+     *
+     * @param key ключ упорядочивания (обычно chatId)
+     * @param task задача
+     * @return true если задача принята, false если очередь переполнена
+     */
+    public boolean submit(String key, Runnable task) {
+        if (!acquire(key, SUBMIT_TIMEOUT_MS)) {
+            return false;
+        }
+        release(dispatcher.dispatch(key, timed(task)), true);
+        return true;
+    }
+
+    /**
+     * Ставит задачу в очередь чата, дожидаясь места в очереди стадии не дольше timeoutMillis.
+     * Для ответов и событий таймеров: если место не освободилось, вызывающий передает задачу
+     * в свой запасной путь (очередь недоставленных, повторная постановка), а не теряет ее.
+     * Задача самой стадии принимается сразу, сверх лимита: место освобождается только выполнением ее задач.
+     *
+     * @param key ключ упорядочивания (обычно chatId)
+     * @param task задача
+     * @param timeoutMillis максимальное время ожидания места
+     * @return true если задача принята
+     */
+    public boolean put(String key, Runnable task, long timeoutMillis) {
+        if (inStage.get()) {
+            queued.incrementAndGet();
+            release(dispatcher.dispatch(key, timed(task)), false);
+            return true;
+        }
+        if (!acquire(key, timeoutMillis)) {
+            return false;
+        }
+        release(dispatcher.dispatch(key, timed(task)), true);
+        return true;
+    }
+
+    /**
+     * Ставит задачу сразу в очереди нескольких чатов, дожидаясь места в очереди стадии (см. {@link #put}).
+     *
+     * @param keys ключи упорядочивания
+     * @param task задача
+     * @param timeoutMillis максимальное время ожидания места
+     * @return true если задача принята
+     */
+    public boolean putAll(Collection<String> keys, Runnable task, long timeoutMillis) {
+        if (inStage.get()) {
+            queued.incrementAndGet();
+            release(dispatcher.dispatchAll(keys, timed(task)), false);
+            return true;
+        }
+        if (!acquire(String.join(",", keys), timeoutMillis)) {
+            return false;
+        }
+        release(dispatcher.dispatchAll(keys, timed(task)), true);
+        return true;
+    }
+
+    /**
+     * Ставит задачу сразу в очереди нескольких чатов (см. {@link UpdateDispatcher#dispatchAll}).
+     *
+     * @param keys ключи упорядочивания
+     * @param task задача
+     * @return true если задача принята, false если очередь переполнена
+     */
+    public boolean submitAll(Collection<String> keys, Runnable task) {
+        if (!acquire(String.join(",", keys), SUBMIT_TIMEOUT_MS)) {
+            return false;
+        }
+        release(dispatcher.dispatchAll(keys, timed(task)), true);
+        return true;
+    }
+
+    private boolean acquire(String key, long timeoutMillis) {
+        try {
+            if (capacity.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                queued.incrementAndGet();
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.incrementAndGet();
+        log.error(() -> "Очередь стадии " + name + " переполнена, задача для " + key + " не принята");
+        return false;
+    }
+
+    /**
+     * Освобождает место в очереди, когда задача завершится или диспетчер откажется ее выполнять:
+     * иначе невыполненная задача занимала бы место навсегда.
+     */
+    private void release(CompletableFuture<Void> done, boolean holdsPermit) {
+        done.whenComplete((result, error) -> {
+            queued.decrementAndGet();
+            if (holdsPermit) {
+                capacity.release();
+            }
+        });
+    }
+
+    private Runnable timed(Runnable task) {
+        return () -> {
+            long start = System.nanoTime();
+            inStage.set(true);
+            try {
+                task.run();
+            } finally {
+                inStage.remove();
+                serviceTime.observeSince(start);
+            }
+        };
+    }
+
+    /**
+     * @return имя стадии
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return количество принятых, но еще не завершенных задач стадии
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * @return количество чатов, у которых есть задачи в очереди стадии
+     */
+    public int getActiveKeyCount() {
+        return dispatcher.getActiveKeyCount();
+    }
+
+    /**
+     * @return количество задач, не принятых из-за переполнения очереди
+     */
+    public int getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * @return гистограмма времени выполнения задач стадии
+     */
+    public Histogram getServiceTime() {
+        return serviceTime;
+    }
+
+    /**
+     * Ожидает завершения всех принятых задач.
+     *
+     * @param timeoutMillis максимальное время ожидания в миллисекундах
+     * @return true если все задачи завершены, false если время вышло
+     */
+    public boolean awaitIdle(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        if (!dispatcher.awaitIdle(timeoutMillis)) {
+            return false;
+        }
+        // Место освобождается сразу после завершения задачи в диспетчере
+        while (queued.get() > 0) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    /**
+     * Останавливает прием задач и ожидает завершения принятых.
+     *
+     * @param timeoutMillis максимальное время ожидания в миллисекундах
+     */
+    public void shutdown(long timeoutMillis) {
+        dispatcher.shutdown(timeoutMillis);
+    }
+}
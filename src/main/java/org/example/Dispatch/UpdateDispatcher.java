@@ -0,0 +1,202 @@
+package org.example.Dispatch;
+
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Диспетчер обновлений с упорядочиванием по ключу.
+ * Задачи с разными ключами (chatId) выполняются параллельно,
+ * задачи с одинаковым ключом - строго по очереди в порядке поступления.
+ * По умолчанию использует виртуальные потоки: медленный запрос к ИИ
+ * или Telegram API в одном чате не блокирует остальные чаты.
+ * Задача может занимать сразу несколько ключей (например, таймаут дуэли двух игроков):
+ * она ждет задачи всех своих ключей, а следующие задачи этих ключей ждут ее.
+ */
+public class UpdateDispatcher {
+    private static final Logger log = LogManager.getLogger("DISPATCHER");
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    private final ExecutorService executor;
+
+    // Хвост цепочки задач для каждого ключа: key -> последняя поставленная задача
+    private final Map<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    // Постановка задач на несколько ключей: без нее две такие задачи могли бы ждать друг друга
+    private final Object multiKeyLock = new Object();
+
+    /**
+     * Создает диспетчер на виртуальных потоках.
+     */
+    public UpdateDispatcher() {
+        this(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Создает диспетчер с указанным пулом потоков.
+     *
+     * @param executor пул, в котором выполняются задачи
+     */
+    public UpdateDispatcher(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Ставит задачу в очередь ключа.
+     * Задача начнет выполняться только после завершения всех ранее
+     * поставленных задач с тем же ключом - даже если какая-то из них завершилась ошибкой.
+     *
+     * @param key ключ упорядочивания (обычно chatId)
+     * @param task задача для выполнения
+     * @return завершение задачи; завершается ошибкой, если задача не выполнялась (диспетчер остановлен)
+     */
+    public CompletableFuture<Void> dispatch(String key, Runnable task) {
+        pending.incrementAndGet();
+
+        CompletableFuture<Void> next = new CompletableFuture<>();
+        CompletableFuture<Void> previous = tails.put(key, next);
+        (previous == null ? DONE : previous).whenComplete((result, error) -> execute(key, task, next));
+
+        // Убираем хвост, если за ним не успели поставить новую задачу
+        next.whenComplete((result, error) -> {
+            tails.remove(key, next);
+            pending.decrementAndGet();
+        });
+        return next;
+    }
+
+    /**
+     * Ставит задачу в очереди сразу нескольких ключей.
+     * Задача начнет выполняться после всех ранее поставленных задач этих ключей,
+     * а задачи, поставленные позже в любой из этих ключей, дождутся ее завершения.
+     *
+     * @param keys ключи упорядочивания (обычно chatId участников)
+     * @param task задача для выполнения
+     * @return завершение задачи; завершается ошибкой, если задача не выполнялась (диспетчер остановлен)
+     */
+    public CompletableFuture<Void> dispatchAll(Collection<String> keys, Runnable task) {
+        Collection<String> unique = new TreeSet<>(keys);
+        if (unique.size() == 1) {
+            return dispatch(unique.iterator().next(), task);
+        }
+
+        pending.incrementAndGet();
+        String label = String.join(",", unique);
+        CompletableFuture<Void> next = new CompletableFuture<>();
+        CompletableFuture<?>[] previous = new CompletableFuture<?>[unique.size()];
+
+        synchronized (multiKeyLock) {
+            int i = 0;
+            for (String key : unique) {
+                // Задача становится хвостом ключа сразу, до того как станет известен хвост остальных ключей
+                CompletableFuture<Void> tail = tails.put(key, next);
+                previous[i++] = tail == null ? DONE : tail;
+            }
+        }
+        // allOf ждет все хвосты, даже если какой-то из них завершился ошибкой
+        CompletableFuture.allOf(previous).whenComplete((result, error) -> execute(label, task, next));
+
+        next.whenComplete((result, error) -> {
+            for (String key : unique) {
+                tails.remove(key, next);
+            }
+            pending.decrementAndGet();
+        });
+        return next;
+    }
+
+    /**
+     * Передает задачу в пул потоков и завершает next, когда она выполнится.
+     * Если пул уже остановлен, задача не выполняется: это записывается в лог, а next завершается ошибкой,
+     * чтобы цепочка ключа продолжилась и ожидающие освободили занятые ресурсы.
+     */
+    private void execute(String key, Runnable task, CompletableFuture<Void> next) {
+        try {
+            executor.execute(() -> {
+                try {
+                    runSafely(key, task);
+                } finally {
+                    next.complete(null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.error(() -> "Задача для " + key + " не выполнена: диспетчер остановлен");
+            next.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Выполняет задачу, не давая ошибке (в том числе Error) разорвать цепочку ключа.
+     */
+    private void runSafely(String key, Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable e) {
+            log.error(() -> "Ошибка обработки задачи для " + key, e);
+        }
+    }
+
+    /**
+     * Возвращает количество поставленных, но еще не завершенных задач.
+     *
+     * @return количество задач в работе
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * Возвращает количество ключей, у которых есть незавершенные задачи.
+     *
+     * @return количество активных ключей
+     */
+    public int getActiveKeyCount() {
+        return tails.size();
+    }
+
+    /**
+     * Ожидает завершения всех поставленных задач.
+     *
+     * @param timeoutMillis максимальное время ожидания в миллисекундах
+     * @return true если все задачи завершены, false если время вышло
+     */
+    public boolean awaitIdle(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (pending.get() > 0) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    /**
+     * Останавливает прием новых задач и ожидает завершения текущих.
+     *
+     * @param timeoutMillis максимальное время ожидания в миллисекундах
+     */
+    public void shutdown(long timeoutMillis) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                log.error(() -> "Не все задачи завершены за " + timeoutMillis + "мс");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package org.example.Dispatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Отсев повторно доставленных обновлений по update_id.
+ * Пачка getUpdates подтверждается только следующим запросом, поэтому после сбоя Telegram заново
+ * присылает последнюю полученную пачку, часть которой уже могла быть обработана; повторно присылает
+ * обновления и webhook, не получивший ответа. Без отсева они обработались бы второй раз
+ * (например, дважды начислив очки).
+ *
+ * Хранит скользящее окно последних id в кольцевом буфере: слот id % размер окна содержит id,
+ * занявший его последним. Отсеиваются только id, которые есть в окне.
+ * Telegram может начать последовательность update_id заново со случайного, в том числе меньшего, значения
+ * (после недели без обновлений), поэтому id ниже окна - не повтор, а начало новой последовательности:
+ * окно очищается. Обработанные id сохраняются в файл (не чаще раза в секунду и при остановке),
+ * поэтому после перезапуска повторная доставка тоже отсеивается; сохраненные id используются
+ * только для точного сравнения, а не как нижняя граница.
+ *
+ * Отсев не возвращает потерянные обновления: подтвержденную пачку Telegram больше не пришлет,
+ * даже если ее обработка прервалась сбоем.
+ */
+public class UpdateIdTracker {
+    private static final Logger log = LogManager.getLogger("UPDATE_IDS");
+
+    public static final String DEFAULT_FILE = "update_ids.json";
+    public static final int DEFAULT_WINDOW = 1024;
+
+    private static final long SAVE_INTERVAL_MS = 1000;
+
+    private final int window;
+    private final Path file;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    // Принятые в обработку id (для отсева повторов, пока обновление еще обрабатывается)
+    private final int[] seen;
+    // Обработанные id (сохраняются в файл)
+    private final int[] completed;
+    private int highestSeen = -1;
+    private int lastCompleted = -1;
+
+    private boolean dirty;
+    private long lastSaveMillis;
+
+    /**
+     * Создает отсев без сохранения на диск.
+     */
+    public UpdateIdTracker() {
+        this(DEFAULT_WINDOW, null);
+    }
+
+    /**
+     * Создает отсев и загружает сохраненное состояние, если файл существует.
+     *
+     * @param window размер окна (количество последних запоминаемых id)
+     * @param file файл состояния или null
+     */
+    public UpdateIdTracker(int window, Path file) {
+        this.window = window;
+        this.file = file;
+        this.seen = new int[window];
+        this.completed = new int[window];
+        Arrays.fill(seen, -1);
+        Arrays.fill(completed, -1);
+        load();
+    }
+
+    /**
+     * Регистрирует обновление перед обработкой.
+     *
+     * @param updateId id обновления
+     * @return true если обновление пришло впервые и его нужно обработать
+     */
+    public synchronized boolean firstSeen(int updateId) {
+        if (updateId <= highestSeen - window) {
+            log.warn(() -> "update_id " + updateId + " ниже окна (последний " + highestSeen
+                    + "): новая последовательность, окно очищено");
+            reset();
+        }
+        int slot = slot(updateId);
+        if (seen[slot] == updateId) {
+            return false;
+        }
+        seen[slot] = updateId;
+        highestSeen = Math.max(highestSeen, updateId);
+        return true;
+    }
+
+    /**
+     * Отмечает обновление обработанным.
+     *
+     * @param updateId id обновления
+     */
+    public void completed(int updateId) {
+        boolean saveNow;
+        synchronized (this) {
+            completed[slot(updateId)] = updateId;
+            lastCompleted = Math.max(lastCompleted, updateId);
+            dirty = true;
+            saveNow = file != null && System.currentTimeMillis() - lastSaveMillis >= SAVE_INTERVAL_MS;
+        }
+        if (saveNow) {
+            save();
+        }
+    }
+
+    /**
+     * @return последний обработанный update_id или -1
+     */
+    public synchronized int getLastCompleted() {
+        return lastCompleted;
+    }
+
+    /**
+     * Забывает все id: начинается новая последовательность update_id.
+     */
+    private void reset() {
+        Arrays.fill(seen, -1);
+        Arrays.fill(completed, -1);
+        highestSeen = -1;
+        lastCompleted = -1;
+        dirty = true;
+    }
+
+    private int slot(int updateId) {
+        return Math.floorMod(updateId, window);
+    }
+
+    /**
+     * Сохраняет обработанные id в файл (через временный файл).
+     */
+    public void save() {
+        if (file == null) {
+            return;
+        }
+        ObjectNode state;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            state = mapper.createObjectNode();
+            state.put("lastCompleted", lastCompleted);
+            ArrayNode ids = state.putArray("recent");
+            for (int id : completed) {
+                if (id >= 0) {
+                    ids.add(id);
+                }
+            }
+            dirty = false;
+            lastSaveMillis = System.currentTimeMillis();
+        }
+
+        try {
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            mapper.writeValue(tmp.toFile(), state);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Не удалось сохранить обработанные update_id в " + file, e);
+        }
+    }
+
+    private void load() {
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+        try {
+            JsonNode state = mapper.readTree(file.toFile());
+            lastCompleted = state.path("lastCompleted").asInt(-1);
+            for (JsonNode id : state.path("recent")) {
+                int value = id.asInt();
+                completed[slot(value)] = value;
+                seen[slot(value)] = value;
+            }
+            log.info(() -> "Загружено состояние update_id, последний обработанный: " + lastCompleted);
+        } catch (IOException e) {
+            log.error("Не удалось прочитать обработанные update_id из " + file, e);
+        }
+    }
+}
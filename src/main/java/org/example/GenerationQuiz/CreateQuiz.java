@@ -1,5 +1,7 @@
 package org.example.GenerationQuiz;
 
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
 import org.example.OpenRouter.OpenRouterClient;
 import org.example.Quiz.Memory.AiMemory;
 import org.example.Quiz.DataQuestion;
@@ -10,6 +12,8 @@ import org.json.JSONArray;
  * Класс для создания викторин с помощью ИИ
  */
 public class CreateQuiz {
+    private static final Logger log = LogManager.getLogger("CREATE_QUIZ");
+
     private final OpenRouterClient openRouterClient;
 
     public CreateQuiz(OpenRouterClient openRouterClient) {
@@ -33,7 +37,7 @@ public class CreateQuiz {
             return parseQuizResponse(aiResponse, topic);
 
         } catch (Exception e) {
-            System.err.println("[CREATE_QUIZ] Ошибка генерации викторины: " + e.getMessage());
+            log.error(() -> "Ошибка генерации викторины: " + e.getMessage());
             throw new RuntimeException("Не удалось сгенерировать викторину по теме: " + topic);
         }
     }
@@ -106,7 +110,7 @@ public class CreateQuiz {
 
         // Создаем и возвращаем AiMemory
         AiMemory aiMemory = new AiMemory(dataQuestions, topic);
-        System.out.println("[CREATE_QUIZ] Успешно сгенерирована викторина по теме: " + topic + ", вопросов: " + dataQuestions.length);
+        log.info(() -> "Успешно сгенерирована викторина по теме: " + topic + ", вопросов: " + dataQuestions.length);
 
         return aiMemory;
     }
@@ -0,0 +1,131 @@
+package org.example.Lifecycle;
+
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Согласованная остановка бота по фазам.
+ * Вместо нескольких независимых shutdown hook (порядок которых не определен)
+ * регистрируется один, который выполняет шаги строго по фазам:
+ * 1. прекратить прием новых обновлений;
+ * 2. дообработать входящую очередь и отправить исходящую;
+ * 3. сохранить данные на диск;
+ * 4. сохранить запланированные таймеры.
+ * Все шаги укладываются в общий срок: каждый получает оставшееся время.
+ * Ошибка одного шага не отменяет следующие.
+ */
+public class ShutdownCoordinator {
+    private static final Logger log = LogManager.getLogger("SHUTDOWN");
+
+    public static final long DEFAULT_DEADLINE_MS = 20_000;
+
+    /**
+     * Фазы остановки в порядке выполнения.
+     */
+    public enum Phase {
+        STOP_INTAKE,
+        DRAIN,
+        FLUSH,
+        PERSIST_TIMERS
+    }
+
+    /**
+     * Шаг остановки.
+     */
+    @FunctionalInterface
+    public interface Step {
+        /**
+         * @param remainingMillis сколько времени осталось до общего срока
+         */
+        void run(long remainingMillis) throws Exception;
+    }
+
+    private record NamedStep(String name, Step step) {}
+
+    private final long deadlineMillis;
+    private final Map<Phase, List<NamedStep>> steps = new EnumMap<>(Phase.class);
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    public ShutdownCoordinator() {
+        this(DEFAULT_DEADLINE_MS);
+    }
+
+    /**
+     * @param deadlineMillis общий срок остановки в миллисекундах
+     */
+    public ShutdownCoordinator(long deadlineMillis) {
+        this.deadlineMillis = deadlineMillis;
+        for (Phase phase : Phase.values()) {
+            steps.put(phase, new ArrayList<>());
+        }
+    }
+
+    /**
+     * Регистрирует шаг. Шаги одной фазы выполняются в порядке регистрации.
+     *
+     * @param phase фаза остановки
+     * @param name название шага для журнала
+     * @param step действие
+     */
+    public synchronized void register(Phase phase, String name, Step step) {
+        steps.get(phase).add(new NamedStep(name, step));
+    }
+
+    /**
+     * Регистрирует shutdown hook, выполняющий {@link #shutdown()}.
+     */
+    public void installHook() {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            log.info("Получен сигнал завершения работы...");
+            shutdown();
+        }, "shutdown-coordinator"));
+    }
+
+    /**
+     * Выполняет все шаги по фазам. Повторный вызов ничего не делает.
+     *
+     * @return true если все шаги завершились без ошибок и в срок
+     */
+    public boolean shutdown() {
+        if (!done.compareAndSet(false, true)) {
+            return true;
+        }
+
+        long start = System.currentTimeMillis();
+        long deadline = start + deadlineMillis;
+        boolean clean = true;
+
+        List<NamedStep> snapshot;
+        for (Phase phase : Phase.values()) {
+            synchronized (this) {
+                snapshot = List.copyOf(steps.get(phase));
+            }
+            for (NamedStep named : snapshot) {
+                long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                long stepStart = System.currentTimeMillis();
+                try {
+                    named.step().run(remaining);
+                    log.info(() -> phase + ": " + named.name() + " (" + (System.currentTimeMillis() - stepStart) + " мс)");
+                } catch (Exception e) {
+                    clean = false;
+                    log.error(phase + ": ошибка шага " + named.name(), e);
+                }
+            }
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        if (elapsed > deadlineMillis) {
+            clean = false;
+            log.warn(() -> "Остановка превысила срок: " + elapsed + " мс");
+        } else {
+            log.info(() -> "Остановка завершена за " + elapsed + " мс");
+        }
+        return clean;
+    }
+}
@@ -0,0 +1,197 @@
+package org.example.Logging;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Асинхронная запись логов.
+ * Потоки обработки только кладут запись в кольцевой буфер фиксированного размера
+ * и сразу продолжают работу; форматирование и ввод-вывод выполняет один фоновый поток.
+ * Если буфер переполнен, запись отбрасывается (счетчик отброшенных выводится в лог),
+ * чтобы логирование никогда не блокировало обработку обновлений.
+ */
+class AsyncAppender {
+
+    static final int DEFAULT_CAPACITY = 8192;
+    private static final int BATCH_SIZE = 512;
+
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private final BlockingQueue<LogEvent> buffer;
+    private final RollingFileWriter fileWriter;
+    private final boolean console;
+    private final Thread writerThread;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private long reportedDropped;
+
+    private volatile boolean running = true;
+    private volatile boolean closed;
+
+    /**
+     * @param fileWriter файл лога или null, если запись в файл отключена
+     * @param console дублировать ли записи в консоль
+     * @param capacity размер буфера
+     */
+    AsyncAppender(RollingFileWriter fileWriter, boolean console, int capacity) {
+        this.fileWriter = fileWriter;
+        this.console = console;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.writerThread = new Thread(this::writeLoop, "log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Кладет запись в буфер без блокировки.
+     * После остановки фонового потока (например, из других shutdown hook)
+     * записи пишутся сразу, чтобы не терять последние сообщения.
+     */
+    void append(LogEvent event) {
+        if (closed) {
+            synchronized (this) {
+                write(event);
+                if (fileWriter != null) {
+                    fileWriter.flush();
+                }
+            }
+            return;
+        }
+        if (buffer.offer(event)) {
+            enqueued.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+        }
+    }
+
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Дожидается записи всего, что было в буфере на момент вызова.
+     */
+    void flush(long timeoutMillis) {
+        long target = enqueued.get();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (written) {
+            while (written.get() < target && running) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) {
+                    return;
+                }
+                try {
+                    written.wait(left);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Записывает остаток буфера и останавливает фоновый поток.
+     */
+    void close(long timeoutMillis) {
+        flush(timeoutMillis);
+        running = false;
+        writerThread.interrupt();
+        try {
+            writerThread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            closed = true;
+            if (fileWriter != null) {
+                fileWriter.flush();
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<LogEvent> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || !buffer.isEmpty()) {
+            try {
+                LogEvent first = buffer.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                if (running) {
+                    continue;
+                }
+            }
+            buffer.drainTo(batch, BATCH_SIZE - batch.size());
+
+            reportDropped();
+            for (LogEvent event : batch) {
+                write(event);
+            }
+            if (fileWriter != null) {
+                fileWriter.flush();
+            }
+
+            synchronized (written) {
+                written.addAndGet(batch.size());
+                written.notifyAll();
+            }
+            batch.clear();
+        }
+    }
+
+    private void reportDropped() {
+        long total = dropped.get();
+        if (total > reportedDropped) {
+            write(new LogEvent(System.currentTimeMillis(), Level.WARN, "LOG", writerThread.getName(),
+                    "Буфер логов переполнен, отброшено записей: " + (total - reportedDropped), null));
+            reportedDropped = total;
+        }
+    }
+
+    private void write(LogEvent event) {
+        String line = format(event);
+        if (fileWriter != null) {
+            fileWriter.write(line);
+        }
+        if (console) {
+            if (event.level().compareTo(Level.WARN) >= 0) {
+                System.err.print(line);
+            } else {
+                System.out.print(line);
+            }
+        }
+    }
+
+    private static String format(LogEvent event) {
+        StringBuilder line = new StringBuilder(event.message() != null ? event.message().length() + 64 : 64);
+        line.append(TIME_FORMAT.format(Instant.ofEpochMilli(event.timestampMillis())))
+                .append(' ')
+                .append(String.format("%-5s", event.level()))
+                .append(" [").append(event.tag()).append("] ")
+                .append('(').append(event.threadName()).append(") ")
+                .append(event.message())
+                .append(System.lineSeparator());
+
+        if (event.error() != null) {
+            StringWriter trace = new StringWriter();
+            event.error().printStackTrace(new PrintWriter(trace));
+            line.append(trace);
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.Logging;
+
+/**
+ * Уровни логирования в порядке возрастания важности.
+ * OFF отключает логирование полностью.
+ */
+public enum Level {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF;
+
+    /**
+     * Разбирает уровень из строки настроек.
+     *
+     * @param value название уровня (без учета регистра)
+     * @param defaultLevel уровень, если строка пустая или некорректная
+     * @return уровень логирования
+     */
+    public static Level parse(String value, Level defaultLevel) {
+        if (value == null || value.isBlank()) {
+            return defaultLevel;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return defaultLevel;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package org.example.Logging;
+
+/**
+ * Запись лога, ожидающая записи фоновым потоком.
+ * Сообщение уже построено: форматирование времени и вывод выполняются вне потока запроса.
+ */
+record LogEvent(long timestampMillis, Level level, String tag, String threadName,
+                String message, Throwable error) {
+}
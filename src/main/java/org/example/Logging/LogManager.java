@@ -0,0 +1,118 @@
+package org.example.Logging;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Точка доступа к логгерам и общим настройкам логирования.
+ * Настройки читаются из системных свойств, затем из переменных окружения:
+ * log.level / LOG_LEVEL - минимальный уровень (по умолчанию INFO),
+ * log.file / LOG_FILE - файл лога (по умолчанию logs/bot.log, пустое значение отключает файл),
+ * log.console / LOG_CONSOLE - дублировать ли записи в консоль (по умолчанию true),
+ * log.maxBytes / LOG_MAX_BYTES - размер файла, после которого он ротируется (по умолчанию 10 МБ),
+ * log.backups / LOG_BACKUPS - количество хранимых старых файлов (по умолчанию 5).
+ */
+public final class LogManager {
+
+    private static final Map<String, Logger> loggers = new ConcurrentHashMap<>();
+    private static volatile Level level = Level.parse(setting("log.level", "LOG_LEVEL", null), Level.INFO);
+    private static volatile AsyncAppender appender;
+
+    private LogManager() {
+    }
+
+    /**
+     * Возвращает логгер компонента.
+     *
+     * @param tag тег компонента (например "BOT")
+     * @return логгер с указанным тегом
+     */
+    public static Logger getLogger(String tag) {
+        return loggers.computeIfAbsent(tag, Logger::new);
+    }
+
+    public static Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Меняет минимальный уровень логирования во время работы.
+     *
+     * @param newLevel новый уровень
+     */
+    public static void setLevel(Level newLevel) {
+        level = newLevel;
+    }
+
+    /**
+     * Дожидается записи всех накопленных сообщений.
+     *
+     * @param timeoutMillis максимальное время ожидания в миллисекундах
+     */
+    public static void flush(long timeoutMillis) {
+        AsyncAppender current = appender;
+        if (current != null) {
+            current.flush(timeoutMillis);
+        }
+    }
+
+    /**
+     * Возвращает количество сообщений, отброшенных из-за переполнения буфера.
+     *
+     * @return число отброшенных сообщений
+     */
+    public static long getDroppedCount() {
+        AsyncAppender current = appender;
+        return current != null ? current.getDroppedCount() : 0;
+    }
+
+    static void append(Level eventLevel, String tag, String message, Throwable error) {
+        getAppender().append(new LogEvent(System.currentTimeMillis(), eventLevel, tag,
+                Thread.currentThread().getName(), message, error));
+    }
+
+    private static AsyncAppender getAppender() {
+        AsyncAppender current = appender;
+        if (current == null) {
+            synchronized (LogManager.class) {
+                current = appender;
+                if (current == null) {
+                    current = createAppender();
+                    appender = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static AsyncAppender createAppender() {
+        String file = setting("log.file", "LOG_FILE", "logs/bot.log");
+        boolean console = Boolean.parseBoolean(setting("log.console", "LOG_CONSOLE", "true"));
+        long maxBytes = parseLong(setting("log.maxBytes", "LOG_MAX_BYTES", null), 10L * 1024 * 1024);
+        int backups = (int) parseLong(setting("log.backups", "LOG_BACKUPS", null), 5);
+
+        RollingFileWriter fileWriter = file.isBlank() ? null : RollingFileWriter.open(file, maxBytes, backups);
+        AsyncAppender created = new AsyncAppender(fileWriter, console, AsyncAppender.DEFAULT_CAPACITY);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> created.close(2000), "log-shutdown"));
+        return created;
+    }
+
+    private static String setting(String property, String env, String defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            value = System.getenv(env);
+        }
+        return value != null ? value : defaultValue;
+    }
+
+    private static long parseLong(String value, long defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.Logging;
+
+import java.util.function.Supplier;
+
+/**
+ * Логгер одного компонента (тег выводится в квадратных скобках, например [BOT]).
+ * Сообщения, переданные через Supplier, строятся только если уровень включен,
+ * поэтому конкатенация строк не выполняется при отключенном логировании.
+ * Запись выполняется асинхронно фоновым потоком {@link AsyncAppender}.
+ */
+public class Logger {
+    private final String tag;
+
+    Logger(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * Проверяет, будет ли записано сообщение указанного уровня.
+     *
+     * @param level уровень сообщения
+     * @return true если уровень включен
+     */
+    public boolean isEnabled(Level level) {
+        return level != Level.OFF && level.compareTo(LogManager.getLevel()) >= 0;
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public void debug(String message) {
+        log(Level.DEBUG, message, null);
+    }
+
+    public void debug(Supplier<String> message) {
+        log(Level.DEBUG, message, null);
+    }
+
+    public void info(String message) {
+        log(Level.INFO, message, null);
+    }
+
+    public void info(Supplier<String> message) {
+        log(Level.INFO, message, null);
+    }
+
+    public void warn(String message) {
+        log(Level.WARN, message, null);
+    }
+
+    public void warn(Supplier<String> message) {
+        log(Level.WARN, message, null);
+    }
+
+    public void error(String message) {
+        log(Level.ERROR, message, null);
+    }
+
+    public void error(Supplier<String> message) {
+        log(Level.ERROR, message, null);
+    }
+
+    public void error(String message, Throwable error) {
+        log(Level.ERROR, message, error);
+    }
+
+    public void error(Supplier<String> message, Throwable error) {
+        log(Level.ERROR, message, error);
+    }
+
+    private void log(Level level, String message, Throwable error) {
+        if (isEnabled(level)) {
+            LogManager.append(level, tag, message, error);
+        }
+    }
+
+    private void log(Level level, Supplier<String> message, Throwable error) {
+        if (isEnabled(level)) {
+            LogManager.append(level, tag, message.get(), error);
+        }
+    }
+}
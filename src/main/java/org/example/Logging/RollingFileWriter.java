@@ -0,0 +1,116 @@
+package org.example.Logging;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Файл лога с ротацией по размеру.
+ * Когда файл превышает заданный размер, он переименовывается в bot.log.1
+ * (старые копии сдвигаются: .1 -> .2 и т.д.), а запись продолжается в новый файл.
+ * Не синхронизирован: пишет фоновый поток {@link AsyncAppender},
+ * а после его остановки - вызывающие потоки под блокировкой appender.
+ */
+class RollingFileWriter {
+
+    private final Path file;
+    private final long maxBytes;
+    private final int backups;
+
+    private BufferedWriter writer;
+    private long size;
+
+    private RollingFileWriter(Path file, long maxBytes, int backups) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.backups = backups;
+    }
+
+    /**
+     * Открывает файл лога для дозаписи.
+     *
+     * @return writer или null, если файл открыть не удалось
+     */
+    static RollingFileWriter open(String path, long maxBytes, int backups) {
+        RollingFileWriter rolling = new RollingFileWriter(Path.of(path), maxBytes, backups);
+        try {
+            rolling.openWriter();
+            return rolling;
+        } catch (IOException e) {
+            System.err.println("[LOG] Не удалось открыть файл лога " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    void write(String line) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(line);
+            size += line.getBytes(StandardCharsets.UTF_8).length;
+            if (size >= maxBytes) {
+                roll();
+            }
+        } catch (IOException e) {
+            System.err.println("[LOG] Ошибка записи в файл лога: " + e.getMessage());
+        }
+    }
+
+    void flush() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            System.err.println("[LOG] Ошибка записи в файл лога: " + e.getMessage());
+        }
+    }
+
+    void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.err.println("[LOG] Ошибка закрытия файла лога: " + e.getMessage());
+        }
+        writer = null;
+    }
+
+    private void openWriter() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        size = Files.size(file);
+    }
+
+    private void roll() throws IOException {
+        writer.close();
+        for (int i = backups - 1; i >= 1; i--) {
+            Path older = backup(i);
+            if (Files.exists(older)) {
+                Files.move(older, backup(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (backups > 0) {
+            Files.move(file, backup(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(file);
+        }
+        openWriter();
+    }
+
+    private Path backup(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+}
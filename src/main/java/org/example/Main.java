@@ -1,25 +1,43 @@
 package org.example;
 
+import org.example.Lifecycle.ShutdownCoordinator;
+import org.example.Lifecycle.ShutdownCoordinator.Phase;
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+import org.example.Metrics.MetricsRegistry;
+import org.example.Metrics.MetricsServer;
 import org.example.ModeGame.Duel.DuelMatchmaker;
 import org.example.ModeGame.Duel.Timer.DuelTimeoutManager;
+import org.example.ModeGame.Duel.Timer.PendingTimeoutStore;
+import org.example.Quiz.QuestionRenderCache;
+import org.example.Quiz.UserJournal;
 import org.example.Quiz.Users;
+import org.example.Session.SessionManager;
 import org.example.Tokens.TokenInterface;
 import org.example.Tokens.Tokens;
+import org.example.Tracing.Tracer;
+
+import java.io.IOException;
+import java.nio.file.Path;
 
 /**
  * Главный класс приложения для запуска телеграм бота викторины.
  */
 public class Main {
+    private static final Logger log = LogManager.getLogger("MAIN");
+
     public static void main(String[] args) {
-        System.out.println("Запуск телеграм бота...");
+        log.info("Запуск телеграм бота...");
 
-        Users users = new Users();
+        // Изменения пользователей сразу пишутся в журнал и переживают падение процесса
+        Users users = new Users(Users.DEFAULT_FILE, Path.of(Users.DEFAULT_JOURNAL));
+        users.start(Users.DEFAULT_SNAPSHOT_INTERVAL_MS);
 
         TokenInterface token = new Tokens();
 
         if (token.getTelegramToken().isEmpty()) {
-            System.err.println("Ошибка: Токен бота не найден!");
-            System.err.println("Убедитесь, что файл bot_token.txt существует в ресурсах");
+            log.error("Ошибка: Токен бота не найден!");
+            log.error("Убедитесь, что файл bot_token.txt существует в ресурсах");
             return;
         }
 
@@ -32,12 +50,112 @@ public class Main {
 
         producer.startInitTimeoutNotifier();
 
+        // Сессии пользователей сохраняются в папку sessions и переживают перезапуск,
+        // брошенные викторины вытесняются из памяти
+        SessionManager sessions = new SessionManager(users, Path.of(SessionManager.DEFAULT_DIR));
+        producer.setSessionManager(sessions);
+
+        // Таймауты поиска соперника, не сработавшие до прошлой остановки
+        PendingTimeoutStore timeoutStore = new PendingTimeoutStore(Path.of(PendingTimeoutStore.DEFAULT_FILE));
+        timeoutManager.restore(timeoutStore.load());
+
         String botToken = token.getTelegramToken();
-        System.out.println(botToken);
-        Bot bot = new Bot(botToken);
+        // TELEGRAM_API_URL позволяет направить бота на локальный Bot API (например, заглушку для нагрузочных тестов)
+        Bot bot = new Bot(botToken, Bot.parseApiUrl(System.getenv("TELEGRAM_API_URL")));
         bot.setProducer(producer);
+        sessions.start(producer::executeInChats, SessionManager.DEFAULT_SWEEP_INTERVAL_MS,
+                SessionManager.DEFAULT_FLUSH_INTERVAL_MS);
+
+        registerMetrics(MetricsRegistry.global(), users, matchmaker, timeoutManager, sessions);
+        MetricsServer metricsServer = startMetricsServer();
 
-        System.out.println("Бот инициализирован, запуск...");
+        ShutdownCoordinator shutdown = new ShutdownCoordinator();
+        shutdown.register(Phase.STOP_INTAKE, "прием обновлений", remaining -> bot.stopIntake());
+        shutdown.register(Phase.STOP_INTAKE, "таймеры дуэлей", remaining -> timeoutManager.suspend());
+        shutdown.register(Phase.STOP_INTAKE, "вытеснение сессий", remaining -> sessions.stop());
+        shutdown.register(Phase.DRAIN, "очереди обработки и отправки", bot::drain);
+        shutdown.register(Phase.FLUSH, "данные пользователей", remaining -> users.flush());
+        shutdown.register(Phase.FLUSH, "снимки сессий", remaining -> sessions.flushNow());
+        shutdown.register(Phase.FLUSH, "обработанные update_id", remaining -> bot.getUpdateIdTracker().save());
+        shutdown.register(Phase.PERSIST_TIMERS, "таймауты поиска соперника",
+                remaining -> timeoutStore.save(timeoutManager.getPendingTimeouts()));
+        if (metricsServer != null) {
+            shutdown.register(Phase.PERSIST_TIMERS, "сервер метрик", remaining -> metricsServer.stop());
+        }
+        shutdown.installHook();
+
+        log.info("Бот инициализирован, запуск...");
         bot.start();
     }
-}
\ No newline at end of file
+
+    /**
+     * Регистрирует метрики компонентов, которые создаются в Main.
+     * Метрики бота и обработчиков регистрируются самими компонентами.
+     */
+    private static void registerMetrics(MetricsRegistry metrics, Users users, DuelMatchmaker matchmaker,
+                                        DuelTimeoutManager timeoutManager, SessionManager sessions) {
+        metrics.gauge("quiz_users", "Зарегистрированные пользователи", users::size);
+        UserJournal journal = users.getJournal();
+        if (journal != null) {
+            metrics.counter("quiz_users_journal_entries_total", "Записи журнала пользователей", journal::getAppendedCount);
+            metrics.counter("quiz_users_journal_syncs_total", "Пачки журнала пользователей, записанные с fsync",
+                    journal::getSyncCount);
+            metrics.counter("quiz_users_journal_failures_total", "Неудачные записи пачек журнала пользователей",
+                    journal::getFailedCount);
+            metrics.counter("quiz_users_compactions_total", "Сжатия журнала пользователей", users::getCompactionCount);
+        }
+        metrics.gauge("quiz_users_dirty", "Пользователи, измененные после последнего снимка", users::getDirtyCount);
+        metrics.counter("quiz_users_segments_total", "Записанные сегменты снимка пользователей", users::getSegmentCount);
+        metrics.counter("quiz_users_segment_users_total", "Пользователи, записанные в сегменты снимка",
+                users::getSegmentUserCount);
+        metrics.counter("quiz_users_merges_total", "Полные снимки пользователей (слияния сегментов)",
+                users::getMergeCount);
+        metrics.gauge("quiz_duel_waiting_players", "Игроки в очередях поиска дуэли", matchmaker::getWaitingTotal);
+        metrics.gauge("quiz_duel_active_players", "Игроки в активных дуэлях", matchmaker::getActivePlayerCount);
+        metrics.gauge("quiz_duel_active_timers", "Запущенные таймеры дуэлей", timeoutManager::getActiveTimerCount);
+        metrics.gauge("quiz_duel_active_searches", "Поиски соперника с таймаутом", timeoutManager::getActiveSearchCount);
+        metrics.gauge("quiz_sessions_active", "Сессии в памяти", sessions::getActiveCount);
+        metrics.counter("quiz_sessions_evicted_total", "Вытесненные сессии", sessions::getEvictedCount);
+        metrics.counter("quiz_sessions_resumed_total", "Восстановленные сессии", sessions::getResumedCount);
+        metrics.counter("quiz_sessions_snapshots_total", "Записанные снимки сессий", sessions::getSnapshotCount);
+        metrics.counter("quiz_sessions_interrupted_duels_total", "Дуэли, прерванные перезапуском",
+                sessions::getInterruptedDuelCount);
+        metrics.counter("quiz_render_cache_hits_total", "Тексты вопросов из кеша", QuestionRenderCache::getHitCount);
+        metrics.counter("quiz_render_cache_misses_total", "Тексты вопросов, отформатированные заново",
+                QuestionRenderCache::getMissCount);
+        metrics.counter("quiz_log_dropped_total", "Записи лога, отброшенные при переполнении буфера",
+                LogManager::getDroppedCount);
+        metrics.counter("quiz_traces_total", "Завершенные трассы", Tracer.global()::getTraceCount);
+        metrics.counter("quiz_traces_slow_total", "Трассы дольше порога", Tracer.global()::getSlowCount);
+    }
+
+    /**
+     * Запускает сервер метрик, если он не отключен.
+     * Кроме метрик сервер отдает самые долгие недавние трассы: GET /traces?slowest=N.
+     *
+     * @return сервер или null
+     */
+    private static MetricsServer startMetricsServer() {
+        int port = MetricsServer.portFromEnv();
+        if (port < 0) {
+            return null;
+        }
+        try {
+            MetricsServer server = new MetricsServer(port, MetricsRegistry.global());
+            server.addEndpoint("/traces", params -> Tracer.global().report(parseLimit(params.get("slowest"))));
+            server.start();
+            return server;
+        } catch (IOException e) {
+            log.error("Не удалось запустить сервер метрик на порту " + port, e);
+            return null;
+        }
+    }
+
+    private static int parseLimit(String value) {
+        try {
+            return value != null ? Integer.parseInt(value) : 10;
+        } catch (NumberFormatException e) {
+            return 10;
+        }
+    }
+}
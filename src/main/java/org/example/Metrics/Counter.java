@@ -0,0 +1,43 @@
+package org.example.Metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Монотонно растущий счетчик.
+ * Основан на LongAdder: увеличение из многих потоков не упирается в одну ячейку.
+ */
+public final class Counter implements LongSupplier {
+    private final LongAdder value = new LongAdder();
+
+    Counter() {
+    }
+
+    /**
+     * Увеличивает счетчик на 1.
+     */
+    public void inc() {
+        value.increment();
+    }
+
+    /**
+     * Увеличивает счетчик.
+     *
+     * @param amount неотрицательное приращение
+     */
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    /**
+     * @return текущее значение
+     */
+    public long get() {
+        return value.sum();
+    }
+
+    @Override
+    public long getAsLong() {
+        return get();
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.Metrics;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограмма задержек с фиксированными лог-линейными корзинами.
+ * Границы корзин - 1..9 * 10^k секунд для k от -5 до 1 (по 9 линейных корзин на порядок, от 10 мкс до 90 сек)
+ * и 100 сек, поэтому относительная погрешность не больше шага внутри порядка.
+ * Наблюдение - двоичный поиск по массиву границ и увеличение LongAdder, без выделения памяти.
+ */
+public final class Histogram {
+    static final long[] BOUNDS_NANOS;
+    static final String[] BOUND_LABELS;
+
+    static {
+        long[] bounds = new long[7 * 9 + 1];
+        int i = 0;
+        long decade = 10_000L; // 10 мкс
+        for (int k = 0; k < 7; k++) {
+            for (int m = 1; m <= 9; m++) {
+                bounds[i++] = m * decade;
+            }
+            decade *= 10;
+        }
+        bounds[i] = decade;
+        BOUNDS_NANOS = bounds;
+
+        BOUND_LABELS = new String[bounds.length];
+        for (int j = 0; j < bounds.length; j++) {
+            BOUND_LABELS[j] = BigDecimal.valueOf(bounds[j], 9).stripTrailingZeros().toPlainString();
+        }
+    }
+
+    // Последняя корзина - значения больше всех границ
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_NANOS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+
+    Histogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Учитывает длительность.
+     *
+     * @param nanos длительность в наносекундах
+     */
+    public void observeNanos(long nanos) {
+        buckets[bucketIndex(nanos)].increment();
+        count.increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * Учитывает длительность от момента start до текущего.
+     *
+     * @param startNanos значение System.nanoTime() в начале
+     */
+    public void observeSince(long startNanos) {
+        observeNanos(System.nanoTime() - startNanos);
+    }
+
+    static int bucketIndex(long nanos) {
+        int index = Arrays.binarySearch(BOUNDS_NANOS, nanos);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * @return количество наблюдений
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return сумма наблюдений в наносекундах
+     */
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    /**
+     * @return количества наблюдений по корзинам (не накопленные), последняя - больше всех границ
+     */
+    long[] snapshot() {
+        long[] result = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            result[i] = buckets[i].sum();
+        }
+        return result;
+    }
+}
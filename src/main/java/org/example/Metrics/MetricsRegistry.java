@@ -0,0 +1,187 @@
+package org.example.Metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Реестр метрик процесса: счетчики, значения (gauge) и гистограммы задержек.
+ * Метрика определяется именем и набором меток; повторная регистрация возвращает уже созданную метрику,
+ * а для метрик-функций заменяет источник значения (например, при пересоздании компонента).
+ *
+ * Счетчики и гистограммы, которые увеличиваются на горячем пути, нужно получать один раз
+ * (в поле класса), а не искать в реестре при каждом наблюдении.
+ * Значения, которые компоненты уже считают сами (AtomicLong, размеры очередей), регистрируются
+ * функциями и читаются только при выгрузке.
+ */
+public final class MetricsRegistry {
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+    enum Type {
+        COUNTER("counter"),
+        GAUGE("gauge"),
+        HISTOGRAM("histogram");
+
+        final String text;
+
+        Type(String text) {
+            this.text = text;
+        }
+    }
+
+    /**
+     * Метрики одного имени с разными метками.
+     */
+    static final class Family {
+        final String name;
+        final String help;
+        final Type type;
+        // Метки в формате Prometheus ({k="v"} или "") -> Counter, LongSupplier или Histogram
+        final Map<String, Object> series = new ConcurrentSkipListMap<>();
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * @return общий реестр процесса
+     */
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Возвращает счетчик, создавая его при первом обращении.
+     *
+     * @param name имя метрики
+     * @param help описание
+     * @param labels пары "метка", "значение"
+     * @return счетчик
+     */
+    public Counter counter(String name, String help, String... labels) {
+        Object metric = family(name, help, Type.COUNTER).series.computeIfAbsent(formatLabels(labels), key -> new Counter());
+        if (!(metric instanceof Counter counter)) {
+            throw new IllegalArgumentException("Метрика " + name + " уже зарегистрирована функцией");
+        }
+        return counter;
+    }
+
+    /**
+     * Регистрирует счетчик, значение которого считает сам компонент.
+     *
+     * @param name имя метрики
+     * @param help описание
+     * @param value источник значения
+     * @param labels пары "метка", "значение"
+     */
+    public void counter(String name, String help, LongSupplier value, String... labels) {
+        family(name, help, Type.COUNTER).series.put(formatLabels(labels), value);
+    }
+
+    /**
+     * Регистрирует текущее значение (размер очереди, количество активных объектов).
+     *
+     * @param name имя метрики
+     * @param help описание
+     * @param value источник значения
+     * @param labels пары "метка", "значение"
+     */
+    public void gauge(String name, String help, LongSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).series.put(formatLabels(labels), value);
+    }
+
+    /**
+     * Возвращает гистограмму задержек, создавая ее при первом обращении.
+     *
+     * @param name имя метрики (в секундах, с суффиксом _seconds)
+     * @param help описание
+     * @param labels пары "метка", "значение"
+     * @return гистограмма
+     */
+    public Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) family(name, help, Type.HISTOGRAM).series.computeIfAbsent(formatLabels(labels),
+                key -> new Histogram());
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Метрика " + name + " уже зарегистрирована как " + family.type.text);
+        }
+        return family;
+    }
+
+    /**
+     * Выгружает все метрики в текстовом формате Prometheus.
+     *
+     * @return текст выгрузки
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name).append(' ').append(escapeHelp(family.help)).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type.text).append('\n');
+            for (Map.Entry<String, Object> series : family.series.entrySet()) {
+                if (series.getValue() instanceof Histogram histogram) {
+                    writeHistogram(out, family.name, series.getKey(), histogram);
+                } else {
+                    long value = ((LongSupplier) series.getValue()).getAsLong();
+                    out.append(family.name).append(series.getKey()).append(' ').append(value).append('\n');
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private static void writeHistogram(StringBuilder out, String name, String labels, Histogram histogram) {
+        long[] buckets = histogram.snapshot();
+        long cumulative = 0;
+        for (int i = 0; i < Histogram.BOUND_LABELS.length; i++) {
+            cumulative += buckets[i];
+            out.append(name).append("_bucket").append(withLabel(labels, "le", Histogram.BOUND_LABELS[i]))
+                    .append(' ').append(cumulative).append('\n');
+        }
+        cumulative += buckets[buckets.length - 1];
+        out.append(name).append("_bucket").append(withLabel(labels, "le", "+Inf"))
+                .append(' ').append(cumulative).append('\n');
+        out.append(name).append("_sum").append(labels).append(' ')
+                .append(histogram.getSumNanos() / 1e9).append('\n');
+        // Счетчик берется по корзинам, чтобы выгрузка была согласованной
+        out.append(name).append("_count").append(labels).append(' ').append(cumulative).append('\n');
+    }
+
+    private static String withLabel(String labels, String key, String value) {
+        String label = key + "=\"" + value + "\"";
+        return labels.isEmpty() ? "{" + label + "}" : labels.substring(0, labels.length() - 1) + "," + label + "}";
+    }
+
+    static String formatLabels(String... labels) {
+        if (labels.length == 0) {
+            return "";
+        }
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Метки задаются парами");
+        }
+        StringBuilder result = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                result.append(',');
+            }
+            result.append(labels[i]).append("=\"").append(escapeLabel(labels[i + 1])).append('"');
+        }
+        return result.append('}').toString();
+    }
+
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,140 @@
+package org.example.Metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Встроенный HTTP-сервер выгрузки метрик в текстовом формате Prometheus (GET /metrics)
+ * и других служебных текстовых отчетов (см. {@link #addEndpoint}).
+ * Слушает только локальный адрес: метрики снимаются агентом на той же машине.
+ * Порт задается переменной окружения METRICS_PORT (по умолчанию 9464, "off" отключает сервер).
+ */
+public class MetricsServer {
+    private static final Logger log = LogManager.getLogger("METRICS");
+
+    private static final String PORT_ENV = "METRICS_PORT";
+    public static final int DEFAULT_PORT = 9464;
+    public static final String PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final String TEXT_TYPE = "text/plain; charset=utf-8";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "metrics-server");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Создает сервер (без запуска).
+     *
+     * @param port локальный порт (0 - выбрать свободный)
+     * @param registry реестр метрик
+     * @throws IOException если не удалось занять порт
+     */
+    public MetricsServer(int port, MetricsRegistry registry) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext(PATH, exchange -> respond(exchange, CONTENT_TYPE, params -> registry.scrape()));
+        this.server.setExecutor(executor);
+    }
+
+    /**
+     * Добавляет текстовый отчет (GET path?параметры).
+     *
+     * @param path путь отчета
+     * @param report построение отчета по параметрам запроса
+     */
+    public void addEndpoint(String path, Function<Map<String, String>, String> report) {
+        server.createContext(path, exchange -> respond(exchange, TEXT_TYPE, report));
+    }
+
+    /**
+     * Читает порт из переменной окружения METRICS_PORT.
+     *
+     * @return порт или -1, если сервер отключен
+     */
+    public static int portFromEnv() {
+        String value = System.getenv(PORT_ENV);
+        if (value == null || value.isBlank()) {
+            return DEFAULT_PORT;
+        }
+        if ("off".equalsIgnoreCase(value.trim())) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.error(() -> "Некорректный " + PORT_ENV + ": " + value + ", используется " + DEFAULT_PORT);
+            return DEFAULT_PORT;
+        }
+    }
+
+    /**
+     * Запускает прием запросов.
+     */
+    public void start() {
+        server.start();
+        log.info(() -> "Метрики доступны на http://localhost:" + getPort() + PATH);
+    }
+
+    /**
+     * Останавливает сервер.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    /**
+     * @return фактический порт сервера
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void respond(HttpExchange exchange, String contentType, Function<Map<String, String>, String> report) {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = report.apply(parseQuery(exchange.getRequestURI().getRawQuery()))
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (Exception e) {
+            log.error("Ошибка выгрузки " + exchange.getRequestURI().getPath(), e);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq >= 0 ? pair.substring(0, eq) : pair;
+            String value = eq >= 0 ? pair.substring(eq + 1) : "";
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+}
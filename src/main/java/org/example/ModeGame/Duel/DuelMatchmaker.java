@@ -1,6 +1,9 @@
 package org.example.ModeGame.Duel;
 
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
 import org.example.ModeGame.DuelMode;
+import org.example.Tracing.Tracer;
 import java.util.*;
 
 /**
@@ -8,6 +11,9 @@ import java.util.*;
  * Обеспечивает подбор игроков по выбранным темам и управление активными дуэлями.
  */
 public class DuelMatchmaker {
+    private static final Logger log = LogManager.getLogger("DUEL_MATCHMAKER");
+    private static final Tracer tracer = Tracer.global();
+    private static final String LOCK_WAIT_SPAN = "matchmaker.lock_wait";
 
     /**
      * Карта очередей ожидания по темам.
@@ -57,7 +63,9 @@ public class DuelMatchmaker {
 
         DuelPlayer player = new DuelPlayer(chatId, playerName, playerTopic);
 
+        long lockRequested = System.nanoTime();
         synchronized (this) {
+            tracer.record(LOCK_WAIT_SPAN, lockRequested);
             Queue<DuelPlayer> queue = waitingQueues.computeIfAbsent(
                     topicKey, k -> new LinkedList<>()
             );
@@ -140,17 +148,19 @@ public class DuelMatchmaker {
      * @return true если оба игрока завершили дуэль, false если только один игрок завершил
      */
     public boolean markPlayerCompleted(String duelId, String chatId) {
+        long lockRequested = System.nanoTime();
         synchronized (this) {
+            tracer.record(LOCK_WAIT_SPAN, lockRequested);
             // Находим пару
             DuelPair pair = findPairByDuelId(duelId);
             if (pair == null) {
-                System.out.println("[DUEL_MATCHMAKER] Пара не найдена для duelId: " + duelId);
+                log.info(() -> "Пара не найдена для duelId: " + duelId);
                 return false;
             }
 
             // Проверяем, является ли игрок участником этой дуэли
             if (!pair.containsPlayer(chatId)) {
-                System.out.println("[DUEL_MATCHMAKER] Игрок " + chatId + " не найден в дуэли " + duelId);
+                log.info(() -> "Игрок " + chatId + " не найден в дуэли " + duelId);
                 return false;
             }
 
@@ -160,17 +170,17 @@ public class DuelMatchmaker {
             if (count == null) {
                 // Первый завершивший
                 completedPlayers.put(duelId, 1);
-                System.out.println("[DUEL_MATCHMAKER] Первый игрок завершил: " + chatId + ", duelId: " + duelId);
+                log.info(() -> "Первый игрок завершил: " + chatId + ", duelId: " + duelId);
                 return false;
             } else if (count == 1) {
                 // Второй завершивший
                 completedPlayers.put(duelId, 2);
-                System.out.println("[DUEL_MATCHMAKER] Второй игрок завершил: " + chatId + ", duelId: " + duelId);
-                System.out.println("[DUEL_MATCHMAKER] Оба игрока завершили дуэль: " + duelId);
+                log.info(() -> "Второй игрок завершил: " + chatId + ", duelId: " + duelId);
+                log.info(() -> "Оба игрока завершили дуэль: " + duelId);
                 return true;
             } else {
                 // Уже оба завершили (count >= 2)
-                System.out.println("[DUEL_MATCHMAKER] Оба игрока уже завершили дуэль: " + duelId);
+                log.info(() -> "Оба игрока уже завершили дуэль: " + duelId);
                 return true;
             }
         }
@@ -187,19 +197,19 @@ public class DuelMatchmaker {
             Integer count = completedPlayers.get(duelId);
             if (count != null && count >= 2) {
                 // оба игрока завершили - удаляем пару
-                System.out.println("[DUEL_MATCHMAKER] Удаляем завершенную дуэль: " + duelId);
+                log.info(() -> "Удаляем завершенную дуэль: " + duelId);
 
                 Iterator<Map.Entry<String, DuelPair>> iterator = activePairs.entrySet().iterator();
                 while (iterator.hasNext()) {
                     Map.Entry<String, DuelPair> entry = iterator.next();
                     if (entry.getValue().getDuelId().equals(duelId)) {
-                        System.out.println("[DUEL_MATCHMAKER] Удаляем игрока: " + entry.getKey() + " из дуэли: " + duelId);
+                        log.info(() -> "Удаляем игрока: " + entry.getKey() + " из дуэли: " + duelId);
                         iterator.remove();
                     }
                 }
                 // Удаляем из счетчика завершивших
                 completedPlayers.remove(duelId);
-                System.out.println("[DUEL_MATCHMAKER] Дуэль полностью очищена: " + duelId);
+                log.info(() -> "Дуэль полностью очищена: " + duelId);
             }
         }
     }
@@ -212,21 +222,21 @@ public class DuelMatchmaker {
      */
     public void removeTimedOutPair(String duelId) {
         synchronized (this) {
-            System.out.println("[DUEL_MATCHMAKER] Удаляем дуэль по таймауту: " + duelId);
+            log.info(() -> "Удаляем дуэль по таймауту: " + duelId);
 
             // Найдем и удалим пару из activePairs
             Iterator<Map.Entry<String, DuelPair>> iterator = activePairs.entrySet().iterator();
             while (iterator.hasNext()) {
                 Map.Entry<String, DuelPair> entry = iterator.next();
                 if (entry.getValue().getDuelId().equals(duelId)) {
-                    System.out.println("[DUEL_MATCHMAKER] Удаляем игрока по таймауту: " + entry.getKey() + " из дуэли: " + duelId);
+                    log.info(() -> "Удаляем игрока по таймауту: " + entry.getKey() + " из дуэли: " + duelId);
                     iterator.remove();
                 }
             }
 
             // Удаляем из счетчика завершивших
             completedPlayers.remove(duelId);
-            System.out.println("[DUEL_MATCHMAKER] Дуэль по таймауту полностью очищена: " + duelId);
+            log.info(() -> "Дуэль по таймауту полностью очищена: " + duelId);
         }
     }
 
@@ -241,7 +251,9 @@ public class DuelMatchmaker {
     public void cancelSearch(String chatId, DuelMode.TopicType topicType, String topicValue) {
         String topicKey = createTopicKey(topicType, topicValue);
 
+        long lockRequested = System.nanoTime();
         synchronized (this) {
+            tracer.record(LOCK_WAIT_SPAN, lockRequested);
             Queue<DuelPlayer> queue = waitingQueues.get(topicKey);
             if (queue != null) {
                 queue.removeIf(player -> player.getChatId().equals(chatId));
@@ -260,7 +272,9 @@ public class DuelMatchmaker {
      * @return true если игрок находится в любой очереди ожидания, иначе false
      */
     public boolean isSearching(String chatId) {
+        long lockRequested = System.nanoTime();
         synchronized (this) {
+            tracer.record(LOCK_WAIT_SPAN, lockRequested);
             for (Queue<DuelPlayer> queue : waitingQueues.values()) {
                 for (DuelPlayer player : queue) {
                     if (player.getChatId().equals(chatId)) {
@@ -288,6 +302,32 @@ public class DuelMatchmaker {
         }
     }
 
+    /**
+     * Возвращает количество игроков, ожидающих дуэль по всем темам.
+     *
+     * @return суммарная длина очередей ожидания
+     */
+    public int getWaitingTotal() {
+        synchronized (this) {
+            int total = 0;
+            for (Queue<DuelPlayer> queue : waitingQueues.values()) {
+                total += queue.size();
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Возвращает количество игроков в активных дуэлях.
+     *
+     * @return количество игроков в парах
+     */
+    public int getActivePlayerCount() {
+        synchronized (this) {
+            return activePairs.size();
+        }
+    }
+
     /**
      * Удаляет дуэльную пару, завершенную по таймауту ожидания второго игрока.
      * Вызывается из DuelTimeoutManager при таймауте.
@@ -296,20 +336,20 @@ public class DuelMatchmaker {
      */
     public void removeTimedOutDuel(String duelId) {
         synchronized (this) {
-            System.out.println("[DUEL_MATCHMAKER] Удаляем дуэль по таймауту ожидания: " + duelId);
+            log.info(() -> "Удаляем дуэль по таймауту ожидания: " + duelId);
 
             Iterator<Map.Entry<String, DuelPair>> iterator = activePairs.entrySet().iterator();
             while (iterator.hasNext()) {
                 Map.Entry<String, DuelPair> entry = iterator.next();
                 if (entry.getValue().getDuelId().equals(duelId)) {
-                    System.out.println("[DUEL_MATCHMAKER] Удаляем игрока по таймауту ожидания: " +
+                    log.info(() -> "Удаляем игрока по таймауту ожидания: " +
                             entry.getKey() + " из дуэли: " + duelId);
                     iterator.remove();
                 }
             }
 
             completedPlayers.remove(duelId);
-            System.out.println("[DUEL_MATCHMAKER] Дуэль по таймауту ожидания полностью очищена: " + duelId);
+            log.info(() -> "Дуэль по таймауту ожидания полностью очищена: " + duelId);
         }
     }
 
@@ -1,5 +1,7 @@
 package org.example.ModeGame.Duel;
 
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
 import org.example.ModeGame.DuelMode;
 import java.util.UUID;
 import java.util.Random;
@@ -10,6 +12,8 @@ import java.util.Random;
  * Каждая дуэльная пара имеет уникальный идентификатор для отслеживания.
  */
 public class DuelPair {
+    private static final Logger log = LogManager.getLogger("DUEL_PAIR");
+
     private final DuelPlayer player1;
     private final DuelPlayer player2;
     private final String topic;
@@ -71,15 +75,15 @@ public class DuelPair {
         if (player1.getChatId().equals(chatId)) {
             player1Score = score;
             player1Time = time;
-            System.out.println("[DUEL_PAIR] Сохранены результаты игрока1 (" + chatId + "): " +
+            log.info(() -> "Сохранены результаты игрока1 (" + chatId + "): " +
                     score + "/5 за " + time + "мс");
         } else if (player2.getChatId().equals(chatId)) {
             player2Score = score;
             player2Time = time;
-            System.out.println("[DUEL_PAIR] Сохранены результаты игрока2 (" + chatId + "): " +
+            log.info(() -> "Сохранены результаты игрока2 (" + chatId + "): " +
                     score + "/5 за " + time + "мс");
         } else {
-            System.out.println("[DUEL_PAIR] Ошибка: игрок " + chatId + " не найден в дуэли " + duelId);
+            log.warn(() -> "Ошибка: игрок " + chatId + " не найден в дуэли " + duelId);
         }
     }
 
@@ -159,7 +163,7 @@ public class DuelPair {
         this.firstCompletedPlayerId = playerChatId;
         this.firstCompletionTime = System.currentTimeMillis();
         this.lastActivityTime = this.firstCompletionTime;
-        System.out.println("[DUEL_PAIR] Установлено время завершения для игрока " + playerChatId +
+        log.info(() -> "Установлено время завершения для игрока " + playerChatId +
                 ", время активности инициализировано: " + lastActivityTime);
     }
 
@@ -199,7 +203,7 @@ public class DuelPair {
                 !hasBothResults()) {
 
             this.lastActivityTime = System.currentTimeMillis();
-            System.out.println("[DUEL_PAIR] Обновлено время активности для " + chatId +
+            log.debug(() -> "Обновлено время активности для " + chatId +
                     ": " + lastActivityTime + " (дуэль: " + duelId + ")");
         }
     }
@@ -224,7 +228,7 @@ public class DuelPair {
         boolean expired = timeSinceLastActivity > 120000;
 
         if (expired) {
-            System.out.println("[DUEL_PAIR] Таймаут истек для дуэли " + duelId +
+            log.info(() -> "Таймаут истек для дуэли " + duelId +
                     ", бездействие: " + (timeSinceLastActivity/1000) + " секунд");
         }
 
@@ -236,7 +240,7 @@ public class DuelPair {
      */
     public void markAsTimedOut() {
         this.duelTimedOut = true;
-        System.out.println("[DUEL_PAIR] Дуэль " + duelId + " отмечена как завершенная по таймауту");
+        log.info(() -> "Дуэль " + duelId + " отмечена как завершенная по таймауту");
     }
 
     /**
@@ -1,10 +1,14 @@
 package org.example.ModeGame.Duel.Timer;
 
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
 import org.example.ModeGame.Duel.DuelMatchmaker;
 import org.example.ModeGame.Duel.DuelPair;
 
 import org.example.ModeGame.DuelMode;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -12,12 +16,22 @@ import java.util.TimerTask;
 /**
  * Класс для управления таймаутами дуэлей и поиска оппонентов.
  * Использует Timer для планирования задач таймаута.
+ * При остановке бота таймеры приостанавливаются ({@link #suspend()}),
+ * а таймауты поиска сохраняются и восстанавливаются при запуске ({@link #restore(List)}).
+ * Таймауты дуэлей не сохраняются: дуэль перезапуск не переживает,
+ * и игроки узнают о ее прерывании при следующем обращении.
  */
 public class DuelTimeoutManager {
-    private final Map<String, Timer> timeoutTimers = new HashMap<>();
+    private static final Logger log = LogManager.getLogger("TIMEOUT_MANAGER");
+
+    private final Map<String, Timer> timeoutTimers = new ConcurrentHashMap<>();
     private final DuelMatchmaker matchmaker;
 
-    private final Map<String, SearchInfo> searchInfoMap = new HashMap<>();
+    private final Map<String, SearchInfo> searchInfoMap = new ConcurrentHashMap<>();
+
+    // Запланированные таймауты со сроками (в том числе приостановленные)
+    private final Map<String, PendingTimeout> pending = new ConcurrentHashMap<>();
+    private volatile boolean suspended;
 
     private TimeoutNotifier notifier;
 
@@ -53,50 +67,45 @@ public class DuelTimeoutManager {
         stopTimeout(chatId);
 
         searchInfoMap.put(chatId, new SearchInfo(topicType, topicValue));
+        schedule(PendingTimeout.search(chatId, topicType, topicValue, System.currentTimeMillis() + timeoutMillis));
+        log.info(() -> "Запущен таймер поиска для " + chatId +
+                " на " + timeoutMillis + "мс, тема: " + topicType + ":" + topicValue);
+    }
 
-        Timer timer = new Timer(true);
-        TimerTask task = new TimerTask() {
-            @Override
-            public void run() {
-                System.out.println("[TIMEOUT_MANAGER] Таймаут поиска для игрока: " + chatId);
-
-                // Получаем сохраненную информацию о поиске
-                SearchInfo info = searchInfoMap.remove(chatId);
-                if (info != null) {
-                    // Преобразуем строку обратно в TopicType
-                    DuelMode.TopicType savedTopicType = info.getTopicType();
-                    String savedTopicValue = info.getTopicValue();
-
-                    // отменяем поиск с известной темой
-                    matchmaker.cancelSearch(chatId, savedTopicType, savedTopicValue);
-                    System.out.println("[TIMEOUT_MANAGER] Поиск отменен для " + chatId +
-                            ", тема: " + savedTopicType + ":" + savedTopicValue);
-
-                    // ВЫЗЫВАЕМ НОТИФИКАЦИЮ
-                    if (notifier != null) {
-                        notifier.notifySearchTimeout(chatId, savedTopicValue);
-                        System.out.println("[TIMEOUT_MANAGER] Вызвана нотификация поиска для " + chatId);
-                    }
-                } else {
-                    // Если информация потеряна, отменяем все
-                    matchmaker.cancelSearch(chatId, DuelMode.TopicType.LOCAL, "");
-                    matchmaker.cancelSearch(chatId, DuelMode.TopicType.GENERATED, "general");
-                    System.out.println("[TIMEOUT_MANAGER] Поиск отменен (без информации о теме) для " + chatId);
-
-                    // ВЫЗЫВАЕМ НОТИФИКАЦИЮ С ОБЩЕЙ ТЕМОЙ
-                    if (notifier != null) {
-                        notifier.notifySearchTimeout(chatId, "неизвестная тема");
-                    }
-                }
+    /**
+     * Обрабатывает истечение таймаута поиска.
+     */
+    private void fireSearchTimeout(String chatId) {
+        log.info(() -> "Таймаут поиска для игрока: " + chatId);
+
+        // Получаем сохраненную информацию о поиске
+        SearchInfo info = searchInfoMap.remove(chatId);
+        if (info != null) {
+            // Преобразуем строку обратно в TopicType
+            DuelMode.TopicType savedTopicType = info.getTopicType();
+            String savedTopicValue = info.getTopicValue();
 
-                timeoutTimers.remove(chatId);
+            // отменяем поиск с известной темой
+            matchmaker.cancelSearch(chatId, savedTopicType, savedTopicValue);
+            log.info(() -> "Поиск отменен для " + chatId +
+                    ", тема: " + savedTopicType + ":" + savedTopicValue);
+
+            // ВЫЗЫВАЕМ НОТИФИКАЦИЮ
+            if (notifier != null) {
+                notifier.notifySearchTimeout(chatId, savedTopicValue);
+                log.info(() -> "Вызвана нотификация поиска для " + chatId);
             }
-        };
+        } else {
+            // Если информация потеряна, отменяем все
+            matchmaker.cancelSearch(chatId, DuelMode.TopicType.LOCAL, "");
+            matchmaker.cancelSearch(chatId, DuelMode.TopicType.GENERATED, "general");
+            log.info(() -> "Поиск отменен (без информации о теме) для " + chatId);
 
-        timeoutTimers.put(chatId, timer);
-        timer.schedule(task, timeoutMillis);
-        System.out.println("[TIMEOUT_MANAGER] Запущен таймер поиска для " + chatId +
-                " на " + timeoutMillis + "мс, тема: " + topicType + ":" + topicValue);
+            // ВЫЗЫВАЕМ НОТИФИКАЦИЮ С ОБЩЕЙ ТЕМОЙ
+            if (notifier != null) {
+                notifier.notifySearchTimeout(chatId, "неизвестная тема");
+            }
+        }
     }
 
     /**
@@ -111,35 +120,120 @@ public class DuelTimeoutManager {
     public void startDuelTimeout(String duelId, String chatId1, String chatId2, long timeoutMillis) {
         stopTimeout(duelId);
 
+        schedule(PendingTimeout.duel(duelId, chatId1, chatId2, System.currentTimeMillis() + timeoutMillis));
+        log.info(() -> "Запущен таймер дуэли " + duelId +
+                " на " + timeoutMillis + "мс (ожидание " + chatId2 + ")");
+    }
+
+    /**
+     * Обрабатывает истечение таймаута дуэли.
+     */
+    private void fireDuelTimeout(PendingTimeout timeout) {
+        String duelId = timeout.id();
+        log.info(() -> "Таймаут дуэли: " + duelId);
+
+        // Получаем пару
+        DuelPair pair = matchmaker.getPairForPlayer(timeout.chatId1());
+        if (pair != null) {
+            pair.markAsTimedOut();
+            log.info(() -> "Дуэль " + duelId + " отмечена как завершенная по таймауту");
+
+            // ВЫЗЫВАЕМ НОТИФИКАЦИЮ ДЛЯ ДУЭЛИ
+            if (notifier != null) {
+                notifier.notifyDuelTimeout(duelId, timeout.chatId1(), timeout.chatId2());
+                log.info(() -> "Вызвана нотификация дуэли для " + duelId);
+            }
+        } else {
+            log.info(() -> "Пары не найдено для дуэли: " + duelId);
+        }
+    }
+
+    /**
+     * Планирует таймаут. Если таймеры приостановлены, таймаут только запоминается.
+     */
+    private void schedule(PendingTimeout timeout) {
+        String id = timeout.id();
+        pending.put(id, timeout);
+        if (suspended) {
+            return;
+        }
+
         Timer timer = new Timer(true);
         TimerTask task = new TimerTask() {
             @Override
             public void run() {
-                System.out.println("[TIMEOUT_MANAGER] Таймаут дуэли: " + duelId);
-
-                // Получаем пару
-                DuelPair pair = matchmaker.getPairForPlayer(chatId1);
-                if (pair != null) {
-                    pair.markAsTimedOut();
-                    System.out.println("[TIMEOUT_MANAGER] Дуэль " + duelId + " отмечена как завершенная по таймауту");
-
-                    // ВЫЗЫВАЕМ НОТИФИКАЦИЮ ДЛЯ ДУЭЛИ
-                    if (notifier != null) {
-                        notifier.notifyDuelTimeout(duelId, chatId1, chatId2);
-                        System.out.println("[TIMEOUT_MANAGER] Вызвана нотификация дуэли для " + duelId);
-                    }
-                } else {
-                    System.out.println("[TIMEOUT_MANAGER] Пары не найдено для дуэли: " + duelId);
+                // Снимаем таймер до нотификации, чтобы таймаут уже считался завершенным
+                // (перезапущенный таймер с тем же id не трогаем)
+                timeoutTimers.remove(id, timer);
+                timer.cancel();
+                if (!pending.remove(id, timeout)) {
+                    return;
                 }
 
-                timeoutTimers.remove(duelId);
+                if (timeout.kind() == PendingTimeout.Kind.SEARCH) {
+                    fireSearchTimeout(id);
+                } else {
+                    fireDuelTimeout(timeout);
+                }
             }
         };
 
-        timeoutTimers.put(duelId, timer);
-        timer.schedule(task, timeoutMillis);
-        System.out.println("[TIMEOUT_MANAGER] Запущен таймер дуэли " + duelId +
-                " на " + timeoutMillis + "мс (ожидание " + chatId2 + ")");
+        timeoutTimers.put(id, timer);
+        timer.schedule(task, Math.max(0, timeout.deadlineMillis() - System.currentTimeMillis()));
+    }
+
+    /**
+     * Приостанавливает все таймеры (при остановке бота).
+     * Таймауты не срабатывают: новые и уже запланированные только запоминаются,
+     * а таймауты поиска попадают в {@link #getPendingTimeouts()}.
+     */
+    public void suspend() {
+        suspended = true;
+        for (Timer timer : timeoutTimers.values()) {
+            timer.cancel();
+        }
+        timeoutTimers.clear();
+        log.info(() -> "Таймеры приостановлены, запланировано: " + pending.size());
+    }
+
+    /**
+     * Возвращает запланированные таймауты поиска для сохранения.
+     * Таймауты дуэлей не сохраняются: дуэль перезапуск не переживает,
+     * и восстановленный таймаут прислал бы итог дуэли, о прерывании которой игроки уже узнали.
+     *
+     * @return список таймаутов со сроками срабатывания
+     */
+    public List<PendingTimeout> getPendingTimeouts() {
+        List<PendingTimeout> result = new ArrayList<>();
+        for (PendingTimeout timeout : pending.values()) {
+            if (timeout.kind() == PendingTimeout.Kind.SEARCH) {
+                result.add(timeout);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Восстанавливает таймауты поиска, сохраненные при прошлой остановке.
+     * Просроченные срабатывают сразу. Таймауты дуэлей (из файлов прежних версий) отбрасываются.
+     *
+     * @param timeouts сохраненные таймауты
+     */
+    public void restore(List<PendingTimeout> timeouts) {
+        int restored = 0;
+        for (PendingTimeout timeout : timeouts) {
+            if (timeout.kind() != PendingTimeout.Kind.SEARCH) {
+                log.info(() -> "Таймаут дуэли " + timeout.id() + " не восстановлен: дуэль прервана перезапуском");
+                continue;
+            }
+            searchInfoMap.put(timeout.id(), new SearchInfo(timeout.topicType(), timeout.topicValue()));
+            schedule(timeout);
+            restored++;
+        }
+        if (restored > 0) {
+            int count = restored;
+            log.info(() -> "Восстановлено таймаутов: " + count);
+        }
     }
 
     /**
@@ -152,10 +246,11 @@ public class DuelTimeoutManager {
      * @param id ID игрока (для поиска) или duelId (для дуэли)
      */
     public void stopTimeout(String id) {
+        pending.remove(id);
         Timer timer = timeoutTimers.remove(id);
         if (timer != null) {
             timer.cancel();
-            System.out.println("[TIMEOUT_MANAGER] Остановлен таймер для: " + id);
+            log.info(() -> "Остановлен таймер для: " + id);
         }
 
         // Удаляем информацию о поиске (если это поиск)
@@ -170,7 +265,7 @@ public class DuelTimeoutManager {
      * @return true если есть активный таймаут, false в противном случае
      */
     public boolean hasActiveTimeout(String id) {
-        return timeoutTimers.containsKey(id);
+        return pending.containsKey(id);
     }
 
     /**
@@ -181,7 +276,7 @@ public class DuelTimeoutManager {
      * @return true если игрок в активном поиске, false в противном случае
      */
     public boolean hasActiveSearch(String chatId) {
-        return timeoutTimers.containsKey(chatId);
+        return pending.containsKey(chatId);
     }
 
     /**
@@ -203,6 +298,20 @@ public class DuelTimeoutManager {
         searchInfoMap.remove(chatId);
     }
 
+    /**
+     * @return количество запущенных таймеров (для метрик)
+     */
+    public int getActiveTimerCount() {
+        return timeoutTimers.size();
+    }
+
+    /**
+     * @return количество игроков в поиске соперника с таймаутом (для метрик)
+     */
+    public int getActiveSearchCount() {
+        return searchInfoMap.size();
+    }
+
     /**
      * Очищает все таймеры и информацию о поиске.
      * Используется при перезапуске приложения или сбросе состояния системы.
@@ -213,7 +322,8 @@ public class DuelTimeoutManager {
             timer.cancel();
         }
         timeoutTimers.clear();
+        pending.clear();
         searchInfoMap.clear();
-        System.out.println("[TIMEOUT_MANAGER] Все таймеры и информация очищены");
+        log.info("Все таймеры и информация очищены");
     }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package org.example.ModeGame.Duel.Timer;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.example.ModeGame.DuelMode;
+
+/**
+ * Запланированный таймаут, сохраняемый при остановке бота и восстанавливаемый при запуске.
+ * Лишние поля файлов прежних версий (результаты дуэли) при чтении пропускаются.
+ *
+ * @param kind вид таймаута
+ * @param id ID игрока (для поиска) или duelId (для дуэли)
+ * @param chatId1 игрок в поиске или игрок, уже завершивший дуэль
+ * @param chatId2 игрок, еще не завершивший дуэль (только для дуэли)
+ * @param topicType тип темы поиска (только для поиска)
+ * @param topicValue значение темы поиска (только для поиска)
+ * @param deadlineMillis момент срабатывания (миллисекунды с начала эпохи)
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record PendingTimeout(Kind kind, String id, String chatId1, String chatId2,
+                             DuelMode.TopicType topicType, String topicValue,
+                             long deadlineMillis) {
+
+    /**
+     * Вид таймаута.
+     */
+    public enum Kind {
+        SEARCH,
+        DUEL
+    }
+
+    static PendingTimeout search(String chatId, DuelMode.TopicType topicType, String topicValue, long deadlineMillis) {
+        return new PendingTimeout(Kind.SEARCH, chatId, chatId, null, topicType, topicValue, deadlineMillis);
+    }
+
+    static PendingTimeout duel(String duelId, String chatId1, String chatId2, long deadlineMillis) {
+        return new PendingTimeout(Kind.DUEL, duelId, chatId1, chatId2, null, null, deadlineMillis);
+    }
+}
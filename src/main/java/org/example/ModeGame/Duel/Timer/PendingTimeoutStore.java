@@ -0,0 +1,71 @@
+package org.example.ModeGame.Duel.Timer;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Файл запланированных таймаутов дуэлей.
+ * При остановке бота сюда записываются незавершенные таймауты,
+ * при запуске они читаются, а файл удаляется, чтобы не восстановить их повторно.
+ */
+public class PendingTimeoutStore {
+    private static final Logger log = LogManager.getLogger("TIMEOUT_STORE");
+
+    public static final String DEFAULT_FILE = "pending_timeouts.json";
+
+    private final Path file;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * @param file путь к файлу таймаутов
+     */
+    public PendingTimeoutStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Сохраняет таймауты (через временный файл, чтобы не оставить файл недописанным).
+     *
+     * @param timeouts запланированные таймауты
+     */
+    public void save(List<PendingTimeout> timeouts) {
+        if (timeouts.isEmpty()) {
+            return;
+        }
+        try {
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            mapper.writeValue(tmp.toFile(), timeouts);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info(() -> "Сохранено таймаутов: " + timeouts.size());
+        } catch (IOException e) {
+            log.error("Не удалось сохранить таймауты в " + file, e);
+        }
+    }
+
+    /**
+     * Читает сохраненные таймауты и удаляет файл.
+     *
+     * @return таймауты или пустой список
+     */
+    public List<PendingTimeout> load() {
+        if (!Files.exists(file)) {
+            return List.of();
+        }
+        try {
+            List<PendingTimeout> timeouts = mapper.readValue(file.toFile(), new TypeReference<List<PendingTimeout>>() {});
+            Files.delete(file);
+            return timeouts;
+        } catch (IOException e) {
+            log.error("Не удалось прочитать таймауты из " + file, e);
+            return List.of();
+        }
+    }
+}
@@ -24,4 +24,4 @@ public interface TimeoutNotifier {
      * @param player2ChatId идентификатор чата второго игрока (не успел завершить дуэль)
      */
     void notifyDuelTimeout(String duelId, String player1ChatId, String player2ChatId);
-}
\ No newline at end of file
+}
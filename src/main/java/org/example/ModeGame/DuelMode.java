@@ -1,10 +1,17 @@
 package org.example.ModeGame;
 
 import org.example.DataMessage.Content;
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
 import org.example.ModeGame.Duel.*;
 import org.example.ModeGame.Duel.Timer.DuelTimeoutManager;
 import org.example.Producer;
 import org.example.Quiz.UserData;
+import org.example.Quiz.UserState;
+
+import java.util.Set;
+
+import static org.example.DataMessage.Constants.DUEL_BUTTON;
 
 /**
  * Реализация режима дуэли между двумя игроками.
@@ -12,6 +19,14 @@ import org.example.Quiz.UserData;
  * Режим поддерживает как готовые темы из базы данных, так и генерацию тем с помощью ИИ.
  */
 public class DuelMode implements ModeSelector {
+    private static final Logger log = LogManager.getLogger("DUEL_MODE");
+
+    /**
+     * Описание режима для {@link ModeRegistry}: выбирается кнопкой "Дуэль"
+     * и владеет состояниями поиска соперника и игры в паре.
+     */
+    public static final ModeRegistry.ModeProvider PROVIDER = new ModeRegistry.ModeProvider("duel", Set.of(DUEL_BUTTON),
+            Set.of(UserState.DUEL_SEARCHING, UserState.DUEL_MATCHED, UserState.DUEL_WAITING_OPPONENT), DuelMode::new);
 
     /**
      * Тип темы для дуэли.
@@ -147,7 +162,7 @@ public class DuelMode implements ModeSelector {
     @Override
     public Content[] handleModeSelection() {
         userData.setGameMode("duel");
-        userData.setState("menu");
+        userData.setState(UserState.MENU);
 
         return new Content[] {
                 new Content(true, chatId,
@@ -184,7 +199,9 @@ public class DuelMode implements ModeSelector {
             );
 
             if (pair != null) {
-                return handleLocalMatchFound(pair, topicName);
+                // Начало дуэли меняет и данные ждавшего соперника - выполняем в очередях обоих игроков
+                return producer.executeForPlayers("duel.match_found", chatId, pair.getOpponentChatId(chatId),
+                        () -> handleLocalMatchFound(pair, topicName));
             } else {
                 return handleWaitingInQueue(TopicType.LOCAL, topicName);
             }
@@ -217,7 +234,9 @@ public class DuelMode implements ModeSelector {
             );
 
             if (pair != null) {
-                return handleGeneratedMatchFound(pair, topicRequest);
+                // Начало дуэли меняет и данные ждавшего соперника - выполняем в очередях обоих игроков
+                return producer.executeForPlayers("duel.match_found", chatId, pair.getOpponentChatId(chatId),
+                        () -> handleGeneratedMatchFound(pair, topicRequest));
             } else {
                 return handleWaitingInQueue(TopicType.GENERATED, topicRequest);
             }
@@ -243,7 +262,7 @@ public class DuelMode implements ModeSelector {
         String duelTopic = pair.getTopic();
 
         userData.setDuelTopic(duelTopic);
-        userData.setState("duel_matched");
+        userData.setState(UserState.DUEL_MATCHED);
 
         // Останавливаем таймер поиска
         timeoutManager.stopTimeout(chatId);
@@ -292,7 +311,7 @@ public class DuelMode implements ModeSelector {
         String opponentTopic = pair.getOpponentTopicRequest(chatId);
 
         userData.setDuelTopic(finalTopic);
-        userData.setState("duel_matched");
+        userData.setState(UserState.DUEL_MATCHED);
 
         timeoutManager.stopTimeout(chatId);
 
@@ -333,7 +352,7 @@ public class DuelMode implements ModeSelector {
         DuelMatchmaker matchmaker = producer.getDuelMatchmaker();
         int waitingCount = matchmaker.getWaitingCount(topicType,
                 topicType == TopicType.LOCAL ? topicValue : "general");
-        userData.setState("duel_searching");
+        userData.setState(UserState.DUEL_SEARCHING);
 
         // Запускаем таймер поиска (2 минуты) с указанием темы
         timeoutManager.startSearchTimeout(chatId, 120000, topicType,
@@ -368,7 +387,7 @@ public class DuelMode implements ModeSelector {
 
         timeoutManager.stopTimeout(chatId);
 
-        userData.setState("menu");
+        userData.setState(UserState.MENU);
 
         String topicDisplay = currentTopic != null ? currentTopic : "неизвестная тема";
 
@@ -418,7 +437,7 @@ public class DuelMode implements ModeSelector {
 
         pair.savePlayerResults(chatId, playerScore, playerTime);
 
-        System.out.println("[DUEL_MODE] Игрок " + chatId + " завершил дуэль " + duelId +
+        log.info(() -> "Игрок " + chatId + " завершил дуэль " + duelId +
                 " с результатом: " + playerScore + "/5 за " + playerTime + "мс");
 
         // Проверяем, первый ли это завершивший игрок
@@ -426,23 +445,23 @@ public class DuelMode implements ModeSelector {
         if (!opponentCompleted) {
             // Это первый завершивший игрок - сохраняем время завершения
             pair.setFirstPlayerCompletionTime(chatId);
-            System.out.println("[DUEL_MODE] Сохранено время завершения для первого игрока: " + chatId);
+            log.info(() -> "Сохранено время завершения для первого игрока: " + chatId);
         }
 
         // Отмечаем игрока как завершившего дуэль в matchmaker
         boolean bothCompleted = matchmaker.markPlayerCompleted(duelId, chatId);
-        System.out.println("[DUEL_MODE] bothCompleted после markPlayerCompleted: " + bothCompleted);
+        log.debug(() -> "bothCompleted после markPlayerCompleted: " + bothCompleted);
 
         // ВАЖНО: Проверяем результаты обоих игроков ДО возврата результата
         boolean hasBothResults = pair.hasBothResults();
-        System.out.println("[DUEL_MODE] hasBothResults в DuelPair: " + hasBothResults);
+        log.debug(() -> "hasBothResults в DuelPair: " + hasBothResults);
 
         if (hasBothResults) {
-            System.out.println("[DUEL_MODE] Оба игрока завершили дуэль - показываем результаты");
+            log.info("Оба игрока завершили дуэль - показываем результаты");
             // Оба игрока завершили - показываем результаты
             return handleBothPlayersCompleted(pair, playerScore, playerTime, duelId, matchmaker);
         } else {
-            System.out.println("[DUEL_MODE] Только один игрок завершил - показываем ожидание");
+            log.info("Только один игрок завершил - показываем ожидание");
             // Первый игрок завершил - показываем только ожидание
             return handleFirstPlayerCompleted(pair, playerScore, playerTime, opponentName, matchmaker);
         }
@@ -461,7 +480,7 @@ public class DuelMode implements ModeSelector {
      */
     private Content[] handleBothPlayersCompleted(DuelPair pair, int playerScore, long playerTime,
                                                  String duelId, DuelMatchmaker matchmaker) {
-        System.out.println("[DUEL_MODE] Оба игрока завершили дуэль " + duelId);
+        log.info(() -> "Оба игрока завершили дуэль " + duelId);
 
         // Останавливаем таймеры
         timeoutManager.stopTimeout(duelId);    // таймер дуэли (ожидание второго игрока)
@@ -476,7 +495,7 @@ public class DuelMode implements ModeSelector {
             int opponentScore = opponentResults.getScore();
             long opponentTime = opponentResults.getTime();
 
-            System.out.println("[DUEL_MODE] Результаты оппонента: " + opponentScore + "/5 за " + opponentTime + "мс");
+            log.info(() -> "Результаты оппонента: " + opponentScore + "/5 за " + opponentTime + "мс");
 
             String winnerMessage = determineWinner(playerScore, playerTime,
                     opponentScore, opponentTime, opponentName);
@@ -500,6 +519,10 @@ public class DuelMode implements ModeSelector {
             userData.clearDuelData();
             UserData opponentData = producer.getUserData(opponentChatId);
             if (opponentData != null) {
+                // Соперник ждал результатов: теперь дуэль завершена и для него
+                if (opponentData.getState() == UserState.DUEL_WAITING_OPPONENT) {
+                    opponentData.setState(UserState.DUEL_RESULTS);
+                }
                 opponentData.clearDuelData();
             }
 
@@ -508,7 +531,7 @@ public class DuelMode implements ModeSelector {
 
             return new Content[] { playerMessage, opponentMessage };
         } else {
-            System.out.println("[DUEL_MODE] Ошибка: результаты оппонента не найдены в DuelPair");
+            log.warn("Ошибка: результаты оппонента не найдены в DuelPair");
 
             // Отправляем хотя бы свои результаты
             String errorMessage = "❌ Ошибка: результаты оппонента не получены.\n" +
@@ -539,11 +562,11 @@ public class DuelMode implements ModeSelector {
     private Content[] handleFirstPlayerCompleted(DuelPair pair, int playerScore, long playerTime,
                                                  String opponentName, DuelMatchmaker matchmaker) {
 
-        userData.setState("duel_waiting_opponent");
+        userData.setState(UserState.DUEL_WAITING_OPPONENT);
         String playerMessageText = String.format(DUEL_COMPLETED_TEMPLATE,
                 playerScore, playerTime/1000.0, opponentName);
 
-        System.out.println("[DUEL_MODE] Первый игрок завершил, ждем оппонента: " + pair.getOpponentChatId(chatId));
+        log.info(() -> "Первый игрок завершил, ждем оппонента: " + pair.getOpponentChatId(chatId));
 
         // Запускаем таймер ожидания второго игрока (2 минуты)
         String duelId = userData.getDuelId();
@@ -657,4 +680,28 @@ public class DuelMode implements ModeSelector {
     public String getModeType() {
         return "duel";
     }
+
+    /**
+     * В дуэли выбранная тема запускает поиск соперника.
+     */
+    @Override
+    public Content[] startWithTopic(String topicFileName) {
+        return startLocalDuelSearch(topicFileName);
+    }
+
+    /**
+     * В дуэли введенная тема генерации запускает поиск соперника.
+     */
+    @Override
+    public Content[] startWithGeneratedTopic(String topic) {
+        return startGeneratedDuelSearch(topic);
+    }
+
+    /**
+     * Последний ответ в дуэли передает результат паре (см. {@link #finishDuel}).
+     */
+    @Override
+    public Content[] finishGame(int score, long timeMillis) {
+        return finishDuel(score, timeMillis);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,129 @@
+package org.example.ModeGame;
+
+import org.example.Producer;
+import org.example.Quiz.UserData;
+import org.example.Quiz.UserState;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Реестр игровых режимов.
+ * Каждый режим ({@link SoloMode}, {@link DuelMode} и будущие) описывает себя через {@link ModeProvider}:
+ * кнопки (callback), которые его выбирают, и состояния пользователя, которыми он владеет.
+ * При регистрации эти данные раскладываются в хеш-индексы, поэтому Producer находит режим
+ * по кнопке или состоянию одним обращением к таблице, а новый режим не требует правок Producer.
+ */
+public class ModeRegistry {
+
+    /**
+     * Создает экземпляр режима для пользователя.
+     */
+    @FunctionalInterface
+    public interface ModeFactory {
+        ModeSelector create(Producer producer, String chatId, UserData userData);
+    }
+
+    /**
+     * Описание режима.
+     *
+     * @param type тип режима (значение {@link ModeSelector#getModeType()})
+     * @param callbacks кнопки, выбирающие режим
+     * @param states состояния, которыми владеет режим: пока игра режима идет, новую игру начать нельзя
+     * @param factory создание экземпляра режима
+     */
+    public record ModeProvider(String type, Set<String> callbacks, Set<UserState> states, ModeFactory factory) {
+
+        /**
+         * Создает режим для пользователя.
+         */
+        public ModeSelector create(Producer producer, String chatId, UserData userData) {
+            return factory.create(producer, chatId, userData);
+        }
+    }
+
+    private final Map<String, ModeProvider> byType = new HashMap<>();
+    private final Map<String, ModeProvider> byCallback = new HashMap<>();
+    private final Map<UserState, ModeProvider> byState = new EnumMap<>(UserState.class);
+    private final List<ModeProvider> providers = new ArrayList<>();
+
+    /**
+     * @return реестр со всеми встроенными режимами
+     */
+    public static ModeRegistry withDefaults() {
+        return new ModeRegistry()
+                .register(SoloMode.PROVIDER)
+                .register(DuelMode.PROVIDER);
+    }
+
+    /**
+     * Регистрирует режим.
+     *
+     * @param provider описание режима
+     * @return этот реестр
+     * @throws IllegalArgumentException если тип, кнопка или состояние уже принадлежат другому режиму
+     */
+    public ModeRegistry register(ModeProvider provider) {
+        if (byType.containsKey(provider.type())) {
+            throw new IllegalArgumentException("Режим " + provider.type() + " уже зарегистрирован");
+        }
+        for (String callback : provider.callbacks()) {
+            ModeProvider owner = byCallback.get(callback);
+            if (owner != null) {
+                throw new IllegalArgumentException("Кнопка " + callback + " уже принадлежит режиму " + owner.type());
+            }
+        }
+        for (UserState state : provider.states()) {
+            ModeProvider owner = byState.get(state);
+            if (owner != null) {
+                throw new IllegalArgumentException("Состояние " + state + " уже принадлежит режиму " + owner.type());
+            }
+        }
+
+        byType.put(provider.type(), provider);
+        for (String callback : provider.callbacks()) {
+            byCallback.put(callback, provider);
+        }
+        for (UserState state : provider.states()) {
+            byState.put(state, provider);
+        }
+        providers.add(provider);
+        return this;
+    }
+
+    /**
+     * @param callback данные нажатой кнопки
+     * @return режим, который выбирает эта кнопка, или null
+     */
+    public ModeProvider forCallback(String callback) {
+        return byCallback.get(callback);
+    }
+
+    /**
+     * @param state состояние пользователя
+     * @return режим, которому принадлежит состояние, или null
+     */
+    public ModeProvider forState(UserState state) {
+        return byState.get(state);
+    }
+
+    /**
+     * @param type тип режима
+     * @return режим или null
+     */
+    public ModeProvider forType(String type) {
+        return type != null ? byType.get(type) : null;
+    }
+
+    /**
+     * @return зарегистрированные режимы в порядке регистрации
+     */
+    public List<ModeProvider> getProviders() {
+        return Collections.unmodifiableList(providers);
+    }
+}
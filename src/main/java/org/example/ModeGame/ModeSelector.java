@@ -3,8 +3,11 @@ package org.example.ModeGame;
 import org.example.DataMessage.Content;
 
 /**
- * Интерфейс для обработки выбора режима игры.
- * Только один метод - обработка выбора режима.
+ * Интерфейс игрового режима.
+ * Обязательны выбор режима и его тип; остальные методы - точки, в которых режим
+ * может заменить стандартную (одиночную) логику Producer. Возврат null означает,
+ * что режим этот шаг не переопределяет.
+ * Режимы регистрируются в {@link ModeRegistry}.
  */
 public interface ModeSelector {
 
@@ -19,4 +22,35 @@ public interface ModeSelector {
      * @return "solo" или "duel"
      */
     String getModeType();
-}
\ No newline at end of file
+
+    /**
+     * Начинает игру по выбранной готовой теме.
+     *
+     * @param topicFileName имя файла темы
+     * @return контент для ответа или null для обычной викторины
+     */
+    default Content[] startWithTopic(String topicFileName) {
+        return null;
+    }
+
+    /**
+     * Начинает игру по введенной теме генерации (тема уже проверена).
+     *
+     * @param topic тема генерации
+     * @return контент для ответа или null для обычной генерации викторины
+     */
+    default Content[] startWithGeneratedTopic(String topic) {
+        return null;
+    }
+
+    /**
+     * Завершает игру режима после последнего ответа.
+     *
+     * @param score количество правильных ответов
+     * @param timeMillis время прохождения в миллисекундах
+     * @return контент для ответа или null, если режим игру не ведет
+     */
+    default Content[] finishGame(int score, long timeMillis) {
+        return null;
+    }
+}
@@ -4,12 +4,23 @@ import org.example.DataMessage.Content;
 import org.example.Producer;
 import org.example.Quiz.UserData;
 
+import java.util.Set;
+
+import static org.example.DataMessage.Constants.SOLO_BUTTON;
+
 /**
  * Класс, реализующий режим "Соло" для прохождения викторин в одиночку.
  * Режим позволяет пользователю проходить викторины самостоятельно,
  * выбирать темы и соревноваться только с самим собой для улучшения личных результатов.
  */
 public class SoloMode implements ModeSelector {
+
+    /**
+     * Описание режима для {@link ModeRegistry}: выбирается кнопкой "Соло", собственных состояний нет.
+     */
+    public static final ModeRegistry.ModeProvider PROVIDER =
+            new ModeRegistry.ModeProvider("solo", Set.of(SOLO_BUTTON), Set.of(), SoloMode::new);
+
     private final Producer producer;
     private final String chatId;
     private final UserData userData;
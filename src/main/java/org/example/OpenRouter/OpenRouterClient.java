@@ -2,6 +2,13 @@ package org.example.OpenRouter;
 
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+import org.example.Metrics.Counter;
+import org.example.Metrics.Histogram;
+import org.example.Metrics.MetricsRegistry;
+import org.example.Tracing.Span;
+import org.example.Tracing.Tracer;
 
 import java.io.IOException;
 import java.net.URI;
@@ -14,6 +21,13 @@ import java.net.http.HttpResponse;
  */
 
 public class OpenRouterClient {
+    private static final Logger log = LogManager.getLogger("OPEN_ROUTER");
+
+    private static final Histogram requestLatency = MetricsRegistry.global().histogram(
+            "quiz_openrouter_request_seconds", "Время запроса к OpenRouter");
+    private static final Counter requestErrors = MetricsRegistry.global().counter(
+            "quiz_openrouter_errors_total", "Запросы к OpenRouter, завершившиеся ошибкой");
+
     private final String apiKey;
 
     public OpenRouterClient(String apiKey) {
@@ -34,10 +48,18 @@ public class OpenRouterClient {
         String requestBody = createRequestBody(userPrompt);
         HttpRequest request = createHttpRequest(requestBody);
 
-        HttpClient client = HttpClient.newHttpClient();
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
-        return processResponse(response);
+        long start = System.nanoTime();
+        try (Span span = Tracer.global().span("openrouter.request")) {
+            HttpClient client = HttpClient.newHttpClient();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+            return processResponse(response);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            requestErrors.inc();
+            throw e;
+        } finally {
+            requestLatency.observeSince(start);
+        }
     }
 
 
@@ -88,7 +110,7 @@ public class OpenRouterClient {
 
     private String processResponse(HttpResponse<String> response) throws JSONException {
         // если 400 какаято то впн значит отваллися
-        System.out.println("Status code: " + response.statusCode());
+        log.info(() -> "Status code: " + response.statusCode());
 
         JSONObject json = new JSONObject(response.body());
 
@@ -0,0 +1,159 @@
+package org.example.Outbound;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+import org.telegram.telegrambots.meta.api.methods.botapimethods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Файл недоставленных сообщений (dead letter).
+ * Сообщения, которые не удалось отправить за все попытки или не успели отправить до остановки,
+ * дописываются в конец файла по одной JSON-строке: чат, имя метода Telegram API и тело запроса.
+ * При следующем запуске файл вычитывается и сообщения ставятся в очередь отправки повторно.
+ */
+public class DeadLetterStore {
+    private static final Logger log = LogManager.getLogger("DEAD_LETTER");
+
+    public static final String DEFAULT_FILE = "outbound_dead_letters.jsonl";
+
+    // Поддерживаемые запросы: имя метода Telegram API -> класс запроса
+    private static final Map<String, Class<? extends BotApiMethod<?>>> METHOD_TYPES = Map.of(
+            SendMessage.PATH, SendMessage.class,
+            EditMessageText.PATH, EditMessageText.class
+    );
+
+    /**
+     * Запрос, восстановленный из файла.
+     *
+     * @param chatId чат-получатель
+     * @param method запрос к Telegram API
+     */
+    public record DeadLetter(String chatId, BotApiMethod<?> method) {}
+
+    private final Path file;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * @param file путь к файлу недоставленных сообщений
+     */
+    public DeadLetterStore(Path file) {
+        this.file = file;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Дописывает сообщение в файл и сбрасывает его на диск.
+     *
+     * @param message недоставленное сообщение
+     * @param reason причина (текст последней ошибки)
+     * @return true если запись сохранена
+     */
+    public synchronized boolean append(OutboundMessage message, String reason) {
+        if (!METHOD_TYPES.containsKey(message.getMethod().getMethod())) {
+            log.error(() -> "Метод " + message.getMethod().getMethod() + " не поддерживается, сообщение для "
+                    + message.getChatId() + " потеряно");
+            return false;
+        }
+
+        ObjectNode line = mapper.createObjectNode();
+        line.put("chatId", message.getChatId());
+        line.put("method", message.getMethod().getMethod());
+        line.set("payload", mapper.valueToTree(message.getMethod()));
+        line.put("attempts", message.getAttempts());
+        line.put("reason", reason);
+        line.put("failedAt", System.currentTimeMillis());
+
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (FileOutputStream out = new FileOutputStream(file.toFile(), true)) {
+                out.write((mapper.writeValueAsString(line) + "\n").getBytes(StandardCharsets.UTF_8));
+                out.getFD().sync();
+            }
+            return true;
+        } catch (IOException e) {
+            log.error("Не удалось записать недоставленное сообщение для " + message.getChatId(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Забирает все сохраненные сообщения и очищает файл.
+     * Файл сначала переименовывается, поэтому новые записи во время чтения не теряются.
+     * Поврежденные строки пропускаются.
+     *
+     * @return сообщения в порядке записи
+     */
+    public synchronized List<DeadLetter> drain() {
+        List<DeadLetter> letters = new ArrayList<>();
+        Path replaying = file.resolveSibling(file.getFileName() + ".replaying");
+
+        // Остаток от прерванного чтения (например, процесс упал во время повтора)
+        if (Files.exists(replaying)) {
+            readAndDelete(replaying, letters);
+        }
+        if (!Files.exists(file)) {
+            return letters;
+        }
+
+        try {
+            Files.move(file, replaying, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Не удалось забрать файл недоставленных сообщений " + file, e);
+            return letters;
+        }
+        readAndDelete(replaying, letters);
+        return letters;
+    }
+
+    private void readAndDelete(Path source, List<DeadLetter> letters) {
+        try {
+            for (String line : Files.readAllLines(source, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                DeadLetter letter = parse(line);
+                if (letter != null) {
+                    letters.add(letter);
+                }
+            }
+            Files.delete(source);
+        } catch (IOException e) {
+            log.error("Ошибка чтения файла недоставленных сообщений " + source, e);
+        }
+    }
+
+    private DeadLetter parse(String line) {
+        try {
+            JsonNode node = mapper.readTree(line);
+            Class<? extends BotApiMethod<?>> type = METHOD_TYPES.get(node.path("method").asText());
+            if (type == null) {
+                log.warn(() -> "Пропущена запись с неизвестным методом: " + node.path("method").asText());
+                return null;
+            }
+            return new DeadLetter(node.path("chatId").asText(), mapper.treeToValue(node.get("payload"), type));
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn(() -> "Пропущена поврежденная запись: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.Outbound;
+
+import org.example.Tracing.Tracer;
+import org.telegram.telegrambots.meta.api.methods.botapimethods.BotApiMethod;
+
+/**
+ * Исходящий запрос к Telegram API, ожидающий отправки.
+ * Хранит чат-получатель, сам запрос и количество сделанных попыток,
+ * а также трассу, в которой запрос поставлен в очередь, чтобы отправка попала в ту же трассу.
+ */
+public class OutboundMessage {
+    private final String chatId;
+    private final BotApiMethod<?> method;
+    private final String traceId = Tracer.global().currentTraceId();
+    private final long enqueuedNanos = System.nanoTime();
+    private int attempts;
+
+    /**
+     * @param chatId идентификатор чата-получателя
+     * @param method запрос к Telegram API (SendMessage и т.п.)
+     */
+    public OutboundMessage(String chatId, BotApiMethod<?> method) {
+        this.chatId = chatId;
+        this.method = method;
+    }
+
+    public String getChatId() {
+        return chatId;
+    }
+
+    public BotApiMethod<?> getMethod() {
+        return method;
+    }
+
+    /**
+     * @return ID трассы, в которой запрос поставлен в очередь, или null
+     */
+    public String getTraceId() {
+        return traceId;
+    }
+
+    /**
+     * @return значение System.nanoTime() при постановке в очередь
+     */
+    public long getEnqueuedNanos() {
+        return enqueuedNanos;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Увеличивает счетчик попыток отправки.
+     */
+    void markAttempt() {
+        attempts++;
+    }
+}
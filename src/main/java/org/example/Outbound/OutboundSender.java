@@ -0,0 +1,495 @@
+package org.example.Outbound;
+
+import org.telegram.telegrambots.meta.api.methods.botapimethods.BotApiMethod;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import org.example.Dispatch.PipelineStage;
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+import org.example.Metrics.Histogram;
+import org.example.Metrics.MetricsRegistry;
+import org.example.Tracing.Span;
+import org.example.Tracing.Tracer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Асинхронный конвейер исходящих сообщений.
+ * Обработка входящих обновлений только кладет запросы в ограниченную очередь,
+ * а отправкой в Telegram API занимается пул рабочих потоков.
+ * Соблюдает лимиты Telegram: общий (около 30 сообщений в секунду)
+ * и на чат (около 1 сообщения в секунду с небольшим всплеском).
+ * Ответ 429 с retry_after не теряет сообщение - чат откладывается на указанное время,
+ * а 429 без retry_after повторяется с экспоненциальной задержкой, как временная ошибка.
+ * Временные ошибки (сеть, 5xx) повторяются с экспоненциальной задержкой и случайным разбросом;
+ * после исчерпания попыток, а также при остановке с неотправленной очередью
+ * сообщения сохраняются в {@link DeadLetterStore} и могут быть отправлены повторно после перезапуска.
+ * Сообщения одного чата отправляются строго в порядке постановки.
+ */
+public class OutboundSender {
+    private static final Logger log = LogManager.getLogger("OUTBOUND");
+    private static final Tracer tracer = Tracer.global();
+    private static final Histogram sendTime = MetricsRegistry.global().histogram(
+            PipelineStage.SERVICE_TIME_METRIC, PipelineStage.SERVICE_TIME_HELP, "stage", "send");
+
+    /**
+     * Выполняет запрос к Telegram API.
+     */
+    @FunctionalInterface
+    public interface ApiExecutor {
+        void execute(BotApiMethod<?> method) throws TelegramApiException;
+    }
+
+    public static final int DEFAULT_WORKERS = 8;
+    public static final int DEFAULT_CAPACITY = 10000;
+    public static final double GLOBAL_RATE = 30.0;
+    public static final double CHAT_RATE = 1.0;
+    public static final double CHAT_BURST = 3.0;
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+    public static final long DEFAULT_BACKOFF_MS = 1000;
+
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1000;
+
+    private static final long SUBMIT_TIMEOUT_MS = 1000;
+    private static final long BUCKET_SWEEP_INTERVAL_MS = 60000;
+
+    private final ApiExecutor apiExecutor;
+    private final Semaphore capacity;
+    private final int maxCapacity;
+    private final TokenBucket globalBucket;
+    private final double chatRate;
+    private final double chatBurst;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final DeadLetterStore deadLetters;
+
+    // Очереди сообщений по чатам: chatId -> сообщения в порядке отправки (под lanes)
+    private final Map<String, ArrayDeque<OutboundMessage>> lanes = new HashMap<>();
+    // Чаты, готовые к отправке следующего сообщения
+    private final BlockingQueue<String> readyChats = new LinkedBlockingQueue<>();
+    private final Map<String, TokenBucket> chatBuckets = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "outbound-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<Thread> workers = new ArrayList<>();
+
+    private final AtomicLong retriedCount = new AtomicLong();
+    private final AtomicLong deadLetteredCount = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    /**
+     * Создает конвейер с лимитами Telegram по умолчанию без сохранения недоставленных сообщений.
+     *
+     * @param apiExecutor исполнитель запросов к Telegram API
+     */
+    public OutboundSender(ApiExecutor apiExecutor) {
+        this(apiExecutor, null);
+    }
+
+    /**
+     * Создает конвейер с лимитами Telegram и политикой повторов по умолчанию.
+     *
+     * @param apiExecutor исполнитель запросов к Telegram API
+     * @param deadLetters файл недоставленных сообщений или null
+     */
+    public OutboundSender(ApiExecutor apiExecutor, DeadLetterStore deadLetters) {
+        this(apiExecutor, DEFAULT_WORKERS, DEFAULT_CAPACITY, GLOBAL_RATE, CHAT_RATE, CHAT_BURST,
+                DEFAULT_MAX_ATTEMPTS, DEFAULT_BACKOFF_MS, deadLetters);
+    }
+
+    /**
+     * Создает конвейер с указанными лимитами и политикой повторов по умолчанию.
+     *
+     * @param apiExecutor исполнитель запросов к Telegram API
+     * @param workerCount количество рабочих потоков отправки
+     * @param queueCapacity максимальное количество сообщений в очереди
+     * @param globalRate общий лимит сообщений в секунду
+     * @param chatRate лимит сообщений в секунду для одного чата
+     * @param chatBurst допустимый всплеск сообщений для одного чата
+     */
+    public OutboundSender(ApiExecutor apiExecutor, int workerCount, int queueCapacity,
+                          double globalRate, double chatRate, double chatBurst) {
+        this(apiExecutor, workerCount, queueCapacity, globalRate, chatRate, chatBurst,
+                DEFAULT_MAX_ATTEMPTS, DEFAULT_BACKOFF_MS, null);
+    }
+
+    /**
+     * Создает конвейер с указанными параметрами.
+     *
+     * @param apiExecutor исполнитель запросов к Telegram API
+     * @param workerCount количество рабочих потоков отправки
+     * @param queueCapacity максимальное количество сообщений в очереди
+     * @param globalRate общий лимит сообщений в секунду
+     * @param chatRate лимит сообщений в секунду для одного чата
+     * @param chatBurst допустимый всплеск сообщений для одного чата
+     * @param maxAttempts максимальное количество попыток отправки при временных ошибках
+     * @param baseBackoffMillis задержка перед первым повтором (далее удваивается)
+     * @param deadLetters файл недоставленных сообщений или null
+     */
+    public OutboundSender(ApiExecutor apiExecutor, int workerCount, int queueCapacity,
+                          double globalRate, double chatRate, double chatBurst,
+                          int maxAttempts, long baseBackoffMillis, DeadLetterStore deadLetters) {
+        this.apiExecutor = apiExecutor;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.deadLetters = deadLetters;
+        this.maxCapacity = queueCapacity;
+        this.capacity = new Semaphore(queueCapacity);
+        this.globalBucket = new TokenBucket(globalRate, globalRate);
+        this.chatRate = chatRate;
+        this.chatBurst = chatBurst;
+
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = Thread.ofVirtual().name("outbound-worker-" + i).start(this::workerLoop);
+            workers.add(worker);
+        }
+
+        scheduler.scheduleWithFixedDelay(this::sweepIdleBuckets,
+                BUCKET_SWEEP_INTERVAL_MS, BUCKET_SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ставит запрос в очередь отправки.
+     * Если очередь заполнена, ждет освобождения места не дольше секунды.
+     *
+     * @param chatId идентификатор чата-получателя
+     * @param method запрос к Telegram API
+     * @return true если запрос принят, false если очередь переполнена или конвейер остановлен
+     */
+    public boolean submit(String chatId, BotApiMethod<?> method) {
+        if (!running) {
+            log.error(() -> "Конвейер остановлен, сообщение для " + chatId + " не принято");
+            return false;
+        }
+
+        try {
+            if (!capacity.tryAcquire(SUBMIT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                log.error(() -> "Очередь переполнена, сообщение для " + chatId + " не принято");
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        OutboundMessage message = new OutboundMessage(chatId, method);
+        synchronized (lanes) {
+            ArrayDeque<OutboundMessage> lane = lanes.get(chatId);
+            if (lane == null) {
+                lane = new ArrayDeque<>();
+                lanes.put(chatId, lane);
+                lane.add(message);
+                readyChats.add(chatId);
+            } else {
+                // Чат уже в работе - сообщение уйдет следом за предыдущими
+                lane.add(message);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Ставит запрос в очередь отправки, а если очередь его не приняла (переполнена или конвейер остановлен),
+     * сохраняет его в файл недоставленных: он будет отправлен при следующем запуске.
+     *
+     * @param chatId идентификатор чата-получателя
+     * @param method запрос к Telegram API
+     */
+    public void submitOrDeadLetter(String chatId, BotApiMethod<?> method) {
+        if (!submit(chatId, method)) {
+            deadLetter(chatId, method, running ? "очередь отправки переполнена" : "конвейер отправки остановлен");
+        }
+    }
+
+    /**
+     * Основной цикл рабочего потока: берет готовый чат и отправляет его первое сообщение.
+     */
+    private void workerLoop() {
+        while (running || getQueuedCount() > 0) {
+            String chatId;
+            try {
+                chatId = readyChats.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (chatId == null) {
+                continue;
+            }
+
+            OutboundMessage message;
+            synchronized (lanes) {
+                ArrayDeque<OutboundMessage> lane = lanes.get(chatId);
+                message = lane != null ? lane.peek() : null;
+            }
+            if (message == null) {
+                continue;
+            }
+
+            // Лимит чата: если исчерпан - откладываем чат, не занимая общий лимит
+            long chatWait = chatBuckets
+                    .computeIfAbsent(chatId, id -> new TokenBucket(chatBurst, chatRate))
+                    .tryAcquire();
+            if (chatWait > 0) {
+                reschedule(chatId, chatWait);
+                continue;
+            }
+
+            // Общий лимит: ждем свободный токен
+            long globalWait;
+            while ((globalWait = globalBucket.tryAcquire()) > 0) {
+                LockSupport.parkNanos(globalWait);
+            }
+
+            send(message);
+        }
+    }
+
+    /**
+     * Отправляет сообщение и решает, что делать с очередью чата дальше.
+     */
+    private void send(OutboundMessage message) {
+        String chatId = message.getChatId();
+        message.markAttempt();
+        try (Span trace = tracer.startTrace("telegram.send", chatId, message.getTraceId())) {
+            tracer.record("outbound.queue_wait", message.getEnqueuedNanos());
+            long start = System.nanoTime();
+            try (Span span = tracer.span("telegram.api")) {
+                apiExecutor.execute(message.getMethod());
+            } finally {
+                sendTime.observeSince(start);
+            }
+            complete(chatId);
+        } catch (TelegramApiRequestException e) {
+            Integer errorCode = e.getErrorCode();
+            Integer retryAfter = e.getParameters() != null ? e.getParameters().getRetryAfter() : null;
+            if (Integer.valueOf(429).equals(errorCode) && retryAfter != null) {
+                log.warn(() -> "429 для " + chatId + ", повтор через " + retryAfter + " сек");
+                reschedule(chatId, TimeUnit.SECONDS.toNanos(retryAfter));
+            } else if (Integer.valueOf(429).equals(errorCode)) {
+                // Лимит превышен, но срок не указан - повторяем с экспоненциальной задержкой
+                retryOrDeadLetter(message, e);
+            } else if (errorCode != null && errorCode >= 400 && errorCode < 500) {
+                // Ошибка в самом запросе (чат недоступен, сообщение не изменилось и т.п.) - повтор не поможет
+                log.error(() -> "Ошибка отправки сообщения для " + chatId + ": " + e.getMessage());
+                complete(chatId);
+            } else {
+                retryOrDeadLetter(message, e);
+            }
+        } catch (Exception e) {
+            retryOrDeadLetter(message, e);
+        }
+    }
+
+    /**
+     * Откладывает повтор временной ошибки или сохраняет сообщение,
+     * если попытки исчерпаны.
+     */
+    private void retryOrDeadLetter(OutboundMessage message, Exception error) {
+        String chatId = message.getChatId();
+        if (message.getAttempts() >= maxAttempts) {
+            log.error(() -> "Сообщение для " + chatId + " не отправлено за " + message.getAttempts()
+                    + " попыток: " + error.getMessage());
+            deadLetter(message, error.getMessage());
+            complete(chatId);
+            return;
+        }
+
+        long delayMillis = backoffMillis(message.getAttempts());
+        retriedCount.incrementAndGet();
+        log.warn(() -> "Ошибка отправки для " + chatId + " (попытка " + message.getAttempts() + "/" + maxAttempts
+                + "): " + error.getMessage() + ", повтор через " + delayMillis + " мс");
+        reschedule(chatId, TimeUnit.MILLISECONDS.toNanos(delayMillis));
+    }
+
+    /**
+     * Экспоненциальная задержка с разбросом: случайное значение от половины до полной задержки,
+     * чтобы чаты после общего сбоя не повторяли запросы одновременно.
+     */
+    private long backoffMillis(int attempt) {
+        long delay = Math.min(MAX_BACKOFF_MS, baseBackoffMillis << Math.min(attempt - 1, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    /**
+     * Сохраняет в файл недоставленных сообщение, которое не удалось поставить в очередь отправки
+     * (например, сообщение таймаута, которое не приняла стадия render).
+     * Такие сообщения повторяются при следующем запуске ({@link #replayDeadLetters()}).
+     *
+     * @param chatId чат получателя
+     * @param method запрос к Telegram API
+     * @param reason причина
+     */
+    public void deadLetter(String chatId, BotApiMethod<?> method, String reason) {
+        deadLetter(new OutboundMessage(chatId, method), reason);
+    }
+
+    private void deadLetter(OutboundMessage message, String reason) {
+        if (deadLetters != null && deadLetters.append(message, reason)) {
+            deadLetteredCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Ставит в очередь сообщения, сохраненные в файле недоставленных
+     * (например, при прошлом запуске).
+     *
+     * @return количество сообщений, поставленных в очередь
+     */
+    public int replayDeadLetters() {
+        if (deadLetters == null) {
+            return 0;
+        }
+        int replayed = 0;
+        for (DeadLetterStore.DeadLetter letter : deadLetters.drain()) {
+            if (submit(letter.chatId(), letter.method())) {
+                replayed++;
+            } else {
+                deadLetter(new OutboundMessage(letter.chatId(), letter.method()), "очередь переполнена при повторе");
+            }
+        }
+        int total = replayed;
+        if (total > 0) {
+            log.info(() -> "Повторно поставлено в очередь недоставленных сообщений: " + total);
+        }
+        return replayed;
+    }
+
+    /**
+     * Убирает отправленное сообщение из очереди чата
+     * и возвращает чат в работу, если у него есть еще сообщения.
+     */
+    private void complete(String chatId) {
+        synchronized (lanes) {
+            ArrayDeque<OutboundMessage> lane = lanes.get(chatId);
+            if (lane != null) {
+                lane.poll();
+                if (lane.isEmpty()) {
+                    lanes.remove(chatId);
+                } else {
+                    readyChats.add(chatId);
+                }
+            }
+        }
+        capacity.release();
+    }
+
+    /**
+     * Возвращает чат в очередь готовых через указанное время.
+     */
+    private void reschedule(String chatId, long delayNanos) {
+        try {
+            scheduler.schedule(() -> readyChats.add(chatId), delayNanos, TimeUnit.NANOSECONDS);
+        } catch (Exception e) {
+            // Планировщик уже остановлен - возвращаем чат сразу
+            readyChats.add(chatId);
+        }
+    }
+
+    /**
+     * Удаляет ограничители давно молчащих чатов.
+     */
+    private void sweepIdleBuckets() {
+        chatBuckets.entrySet().removeIf(entry -> {
+            synchronized (lanes) {
+                return !lanes.containsKey(entry.getKey()) && entry.getValue().isFull();
+            }
+        });
+    }
+
+    /**
+     * Возвращает количество сообщений, ожидающих отправки.
+     *
+     * @return размер очереди
+     */
+    public int getQueuedCount() {
+        return maxCapacity - capacity.availablePermits();
+    }
+
+    /**
+     * @return количество запланированных повторов после временных ошибок
+     */
+    public long getRetriedCount() {
+        return retriedCount.get();
+    }
+
+    /**
+     * @return количество сообщений, сохраненных в файл недоставленных
+     */
+    public long getDeadLetteredCount() {
+        return deadLetteredCount.get();
+    }
+
+    /**
+     * Останавливает прием новых сообщений и дожидается отправки очереди.
+     * Сообщения, которые не успели уйти, сохраняются в файл недоставленных.
+     *
+     * @param timeoutMillis максимальное время ожидания в миллисекундах
+     * @return true если очередь полностью отправлена
+     */
+    public boolean shutdown(long timeoutMillis) {
+        running = false;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        boolean drained = true;
+        for (Thread worker : workers) {
+            long left = deadline - System.currentTimeMillis();
+            try {
+                if (left <= 0 || !worker.join(java.time.Duration.ofMillis(left))) {
+                    drained = false;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                drained = false;
+                break;
+            }
+        }
+        if (!drained) {
+            log.error(() -> "Не отправлено сообщений: " + getQueuedCount());
+            workers.forEach(Thread::interrupt);
+            for (Thread worker : workers) {
+                try {
+                    worker.join(java.time.Duration.ofMillis(500));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            persistPending();
+        }
+        scheduler.shutdownNow();
+        return drained;
+    }
+
+    /**
+     * Сохраняет все оставшиеся в очередях сообщения в файл недоставленных.
+     */
+    private void persistPending() {
+        List<OutboundMessage> pending = new ArrayList<>();
+        synchronized (lanes) {
+            lanes.values().forEach(pending::addAll);
+            lanes.clear();
+        }
+        for (OutboundMessage message : pending) {
+            deadLetter(message, "остановка бота");
+        }
+        if (deadLetters != null && !pending.isEmpty()) {
+            log.info(() -> "Сохранено неотправленных сообщений: " + pending.size());
+        }
+    }
+}
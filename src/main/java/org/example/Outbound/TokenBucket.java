@@ -0,0 +1,76 @@
+package org.example.Outbound;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Ограничитель частоты по алгоритму "ведро с токенами".
+ * Ведро вмещает capacity токенов и пополняется со скоростью refillPerSecond.
+ * Каждая операция забирает один токен; если токенов нет, вызывающий
+ * узнает, сколько нужно подождать до появления следующего.
+ */
+public class TokenBucket {
+    private final double capacity;
+    private final double refillPerNano;
+    private final LongSupplier clock;
+
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * Создает полное ведро.
+     *
+     * @param capacity максимальное количество токенов (размер всплеска)
+     * @param refillPerSecond скорость пополнения в токенах в секунду
+     */
+    public TokenBucket(double capacity, double refillPerSecond) {
+        this(capacity, refillPerSecond, System::nanoTime);
+    }
+
+    /**
+     * Создает полное ведро с указанным источником времени (для тестов).
+     *
+     * @param capacity максимальное количество токенов
+     * @param refillPerSecond скорость пополнения в токенах в секунду
+     * @param clock источник времени в наносекундах
+     */
+    TokenBucket(double capacity, double refillPerSecond, LongSupplier clock) {
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / 1_000_000_000.0;
+        this.clock = clock;
+        this.tokens = capacity;
+        this.lastRefill = clock.getAsLong();
+    }
+
+    /**
+     * Пытается забрать один токен.
+     *
+     * @return 0 если токен получен, иначе время ожидания следующего токена в наносекундах
+     */
+    public synchronized long tryAcquire() {
+        refill();
+        if (tokens >= 1.0) {
+            tokens -= 1.0;
+            return 0;
+        }
+        return Math.max(1L, (long) Math.ceil((1.0 - tokens) / refillPerNano));
+    }
+
+    /**
+     * Проверяет, заполнено ли ведро полностью (ограничитель давно не использовался).
+     *
+     * @return true если ведро полное
+     */
+    public synchronized boolean isFull() {
+        refill();
+        return tokens >= capacity;
+    }
+
+    private void refill() {
+        long now = clock.getAsLong();
+        long elapsed = now - lastRefill;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * refillPerNano);
+            lastRefill = now;
+        }
+    }
+}
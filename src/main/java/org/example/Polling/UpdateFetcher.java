@@ -0,0 +1,262 @@
+package org.example.Polling;
+
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+import org.telegram.telegrambots.meta.api.methods.updates.GetUpdates;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Получение обновлений через getUpdates (long polling) с конвейером.
+ * Поток получения запрашивает следующую пачку, пока поток обработки разбирает текущую,
+ * поэтому при всплесках обновления не копятся на сервере Telegram.
+ * Между потоками - очередь на одну пачку: если обработка отстает, получение приостанавливается.
+ * Оба потока - демоны: запрос long polling нельзя прервать, поэтому остановка его не ждет,
+ * а пачку, полученную после остановки, не обрабатывает (она не подтверждена и придет снова).
+ *
+ * Параметры запроса подстраиваются под нагрузку:
+ * - пачка заполнена полностью - на сервере есть еще, limit растет, а timeout = 0 (не ждать);
+ * - пачка заполнена меньше чем наполовину (или пуста) - limit уменьшается;
+ * - пачка неполная - ожидание возвращается к полному timeout.
+ */
+public class UpdateFetcher {
+    private static final Logger log = LogManager.getLogger("FETCHER");
+
+    public static final int MIN_LIMIT = 10;
+    public static final int MAX_LIMIT = 100;
+    public static final int LONG_POLL_TIMEOUT_SECONDS = 50;
+
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    /**
+     * Выполняет запрос getUpdates к Telegram API.
+     */
+    @FunctionalInterface
+    public interface UpdateSource {
+        List<Update> fetch(GetUpdates request) throws TelegramApiException;
+    }
+
+    private final UpdateSource source;
+    private final Consumer<List<Update>> consumer;
+    private final int maxTimeoutSeconds;
+    private final BlockingQueue<List<Update>> handoff = new ArrayBlockingQueue<>(1);
+
+    private volatile boolean running;
+    private Thread fetchThread;
+    private Thread processThread;
+
+    // Состояние запроса (меняется только потоком получения)
+    private int offset;
+    private volatile int limit = MIN_LIMIT;
+    private volatile int timeoutSeconds;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong fetchCount = new AtomicLong();
+    private final AtomicLong updateCount = new AtomicLong();
+
+    /**
+     * Создает получатель с полным временем ожидания long polling.
+     *
+     * @param source исполнитель запроса getUpdates
+     * @param consumer обработчик пачки обновлений
+     */
+    public UpdateFetcher(UpdateSource source, Consumer<List<Update>> consumer) {
+        this(source, consumer, LONG_POLL_TIMEOUT_SECONDS);
+    }
+
+    /**
+     * @param source исполнитель запроса getUpdates
+     * @param consumer обработчик пачки обновлений (вызывается в одном потоке, в порядке получения)
+     * @param maxTimeoutSeconds время ожидания long polling при отсутствии обновлений
+     */
+    public UpdateFetcher(UpdateSource source, Consumer<List<Update>> consumer, int maxTimeoutSeconds) {
+        this.source = source;
+        this.consumer = consumer;
+        this.maxTimeoutSeconds = maxTimeoutSeconds;
+        this.timeoutSeconds = maxTimeoutSeconds;
+    }
+
+    /**
+     * Запускает потоки получения и обработки.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        processThread = Thread.ofPlatform().daemon().name("update-processor").start(this::processLoop);
+        fetchThread = Thread.ofPlatform().daemon().name("update-fetcher").start(this::fetchLoop);
+        log.info("Получение обновлений запущено");
+    }
+
+    private void fetchLoop() {
+        long backoffMillis = 0;
+        while (running) {
+            GetUpdates request = GetUpdates.builder()
+                    .offset(offset)
+                    .limit(limit)
+                    .timeout(timeoutSeconds)
+                    .build();
+
+            List<Update> updates;
+            try {
+                fetchCount.incrementAndGet();
+                updates = source.fetch(request);
+                backoffMillis = 0;
+            } catch (TelegramApiException e) {
+                if (!running) {
+                    break;
+                }
+                backoffMillis = backoffMillis == 0 ? 500 : Math.min(MAX_BACKOFF_MS, backoffMillis * 2);
+                long delay = backoffMillis;
+                log.error(() -> "Ошибка getUpdates: " + e.getMessage() + ", повтор через " + delay + " мс");
+                if (!sleep(delay)) {
+                    break;
+                }
+                continue;
+            }
+
+            if (!running) {
+                // Пачка не подтверждена следующим запросом: Telegram отдаст ее после перезапуска
+                break;
+            }
+            if (updates == null || updates.isEmpty()) {
+                adapt(0);
+                continue;
+            }
+
+            // Подтверждаем пачку следующим запросом, не дожидаясь ее обработки
+            offset = updates.get(updates.size() - 1).getUpdateId() + 1;
+            adapt(updates.size());
+            updateCount.addAndGet(updates.size());
+            inFlight.addAndGet(updates.size());
+
+            try {
+                handoff.put(updates);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Подстраивает limit и timeout под размер последней пачки.
+     */
+    private void adapt(int received) {
+        if (received >= limit) {
+            limit = Math.min(MAX_LIMIT, limit * 2);
+            timeoutSeconds = 0;
+        } else {
+            if (received < limit / 2) {
+                limit = Math.max(MIN_LIMIT, limit / 2);
+            }
+            // Очередь на сервере разобрана: Telegram ответит сразу при появлении обновления
+            timeoutSeconds = maxTimeoutSeconds;
+        }
+    }
+
+    private void processLoop() {
+        while (running || !handoff.isEmpty()) {
+            List<Update> updates;
+            try {
+                updates = handoff.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (updates == null) {
+                continue;
+            }
+
+            try {
+                consumer.accept(updates);
+            } catch (Exception e) {
+                log.error("Ошибка обработки пачки обновлений", e);
+            } finally {
+                inFlight.addAndGet(-updates.size());
+            }
+        }
+    }
+
+    private boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Останавливает получение и дожидается обработки уже полученных пачек.
+     * Выполняющийся запрос getUpdates не ждет: HTTP-вызов не прерывается,
+     * поток получения (демон) завершится, когда запрос вернется.
+     *
+     * @param timeoutMillis максимальное время ожидания в миллисекундах
+     */
+    public void stop(long timeoutMillis) {
+        Thread fetcher;
+        Thread processor;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            fetcher = fetchThread;
+            processor = processThread;
+        }
+        // Прерывает паузу после ошибки и ожидание места в очереди; запрос long polling прерывание не замечает
+        fetcher.interrupt();
+        try {
+            processor.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info(() -> "Получение обновлений остановлено, получено: " + updateCount.get());
+    }
+
+    /**
+     * @return количество полученных, но еще не обработанных обновлений
+     */
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return текущий limit запроса getUpdates
+     */
+    public int getCurrentLimit() {
+        return limit;
+    }
+
+    /**
+     * @return текущий timeout запроса getUpdates в секундах
+     */
+    public int getCurrentTimeout() {
+        return timeoutSeconds;
+    }
+
+    /**
+     * @return количество запросов getUpdates
+     */
+    public long getFetchCount() {
+        return fetchCount.get();
+    }
+
+    /**
+     * @return количество полученных обновлений
+     */
+    public long getUpdateCount() {
+        return updateCount.get();
+    }
+}
@@ -3,22 +3,32 @@ package org.example;
 import org.example.DataMessage.Content;
 import org.example.DataMessage.KeyboardService;
 import org.example.DataMessage.MessageQueue;
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+import org.example.Metrics.Histogram;
+import org.example.Metrics.MetricsRegistry;
+import org.example.Tracing.Span;
+import org.example.Tracing.Tracer;
 import org.example.ModeGame.Duel.DuelMatchmaker;
 import org.example.ModeGame.Duel.DuelPair;
 import org.example.ModeGame.Duel.Timer.DuelTimeoutManager;
 import org.example.ModeGame.Duel.Timer.TimeoutNotifier;
-import org.example.ModeGame.DuelMode;
+import org.example.ModeGame.ModeRegistry;
 import org.example.ModeGame.ModeSelector;
-import org.example.ModeGame.SoloMode;
 import org.example.Quiz.*;
 import org.example.Quiz.Memory.AiMemory;
 import org.example.Quiz.Memory.DiskMemory;
+import org.example.Session.SessionManager;
 import org.example.TopicSelector.TopicSelector;
 import org.example.GenerationQuiz.CreateQuiz;
 import org.example.OpenRouter.OpenRouterClient;
 
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import static org.example.DataMessage.Constants.*;
 
@@ -26,18 +36,64 @@ import static org.example.DataMessage.Constants.*;
  * Класс-производитель для обработки пользовательского контента и управления состоянием пользователей.
  * Обрабатывает входящие сообщения и возвращает соответствующий контент для ответа.
  * Управляет состояниями пользователей, обработкой команд и навигацией по викторине.
+ * Обработчик выбирается по таблице (состояние {@link UserState}, событие {@link UserEvent}).
+ * Кнопки и состояния игровых режимов берутся из {@link ModeRegistry}.
  */
 public class Producer {
+    private static final Logger log = LogManager.getLogger("PRODUCER");
+
+    private static final Tracer tracer = Tracer.global();
+
+    // Время обработчиков таблицы (состояние, событие) по событию и имена их участков в трассе
+    private static final Map<UserEvent, Histogram> handlerLatency = new EnumMap<>(UserEvent.class);
+    private static final Map<UserEvent, String> handlerSpans = new EnumMap<>(UserEvent.class);
+
+    static {
+        for (UserEvent event : UserEvent.values()) {
+            String handler = event.name().toLowerCase();
+            handlerLatency.put(event, MetricsRegistry.global().histogram("quiz_producer_handler_seconds",
+                    "Время обработки ввода пользователя по событию", "handler", handler));
+            handlerSpans.put(event, "handler." + handler);
+        }
+    }
+
+    /**
+     * Обработчик ввода пользователя в таблице (состояние, событие).
+     */
+    @FunctionalInterface
+    private interface InputHandler {
+        Content[] handle(String input, String chatId, Integer messageId, UserData userData);
+    }
+
+    /**
+     * Выполняет задачу в очереди указанных чатов - там же, где обрабатываются их обновления.
+     */
+    @FunctionalInterface
+    public interface ChatExecutor {
+        void execute(Collection<String> chatIds, Runnable task);
+    }
+
     private final Users users;
     private final KeyboardService keyboardService;
     private final CreateQuiz createQuiz;
     private final MessageQueue messageQueue;
     private DuelTimeoutManager timeoutManager;
     private DuelMatchmaker matchmaker;
+    // По умолчанию задача выполняется сразу в вызывающем потоке
+    private ChatExecutor chatExecutor = (chatIds, task) -> task.run();
+    private SessionManager sessionManager;
 
     // Кеш для вопросов дуэли: duelId -> AiMemory
     private final Map<String, AiMemory> duelQuestionsCache = new ConcurrentHashMap<>();
 
+    private final ModeRegistry modes = ModeRegistry.withDefaults();
+    private final Map<UserState, Map<UserEvent, InputHandler>> dispatchTable = buildDispatchTable();
+
+    private static final String DUEL_INTERRUPTED_MESSAGE = """
+            ⚠️ *Дуэль прервана перезапуском бота*
+
+            Незавершенная дуэль не продолжается и не засчитывается ни одному из игроков.""";
+
     private static final String DUEL_START_TEMPLATE =
             "⚔️ *ДУЭЛЬ НАЧАЛАСЬ!*\n" +
                     "Отвечайте быстро и точно! Удачи! 🚀";
@@ -116,7 +172,7 @@ public class Producer {
         OpenRouterClient openRouterClient = new OpenRouterClient(OpenRouterToken);
         this.createQuiz = new CreateQuiz(openRouterClient);
 
-        System.out.println("[PRODUCER] Producer создан с поддержкой очереди сообщений");
+        log.info("Producer создан с поддержкой очереди сообщений");
     }
 
     public void startInitTimeoutNotifier() {
@@ -128,6 +184,78 @@ public class Producer {
         this.timeoutManager = timeoutManager;
     }
 
+    /**
+     * Задает исполнителя для событий таймеров.
+     * Таймауты поиска и дуэли меняют данные игроков, поэтому должны выполняться
+     * в очереди их чатов, а не параллельно с обработкой их обновлений.
+     *
+     * @param chatExecutor исполнитель задач в очередях чатов
+     */
+    public void setChatExecutor(ChatExecutor chatExecutor) {
+        this.chatExecutor = chatExecutor;
+    }
+
+    /**
+     * Выполняет задачу в очереди указанных чатов.
+     *
+     * @param chatIds ID чатов
+     * @param task задача
+     */
+    public void executeInChats(Collection<String> chatIds, Runnable task) {
+        chatExecutor.execute(chatIds, task);
+    }
+
+    /**
+     * Выполняет обработку, меняющую данные обоих игроков дуэли, в очередях их чатов.
+     * Обновление одного игрока не должно менять данные соперника параллельно с обработкой
+     * обновления самого соперника. Ответ обработки всегда ставится в очередь сообщений, как у таймеров:
+     * исполнитель может выполнить ее и сразу, и позже, в очереди чата соперника.
+     *
+     * @param name имя трассы обработки
+     * @param chatId чат, обновление которого обрабатывается
+     * @param opponentChatId чат соперника
+     * @param handler обработка, возвращающая ответ обоим игрокам
+     * @return пустой массив: ответ придет через очередь сообщений
+     */
+    public Content[] executeForPlayers(String name, String chatId, String opponentChatId, Supplier<Content[]> handler) {
+        String traceId = tracer.currentTraceId();
+        chatExecutor.execute(List.of(chatId, opponentChatId), () -> {
+            Content[] result;
+            try (Span trace = tracer.startTrace(name, chatId, traceId)) {
+                result = handler.get();
+            }
+            markSessionsDirty(chatId, opponentChatId);
+            if (result != null) {
+                for (Content content : result) {
+                    messageQueue.addMessage(content);
+                }
+            }
+        });
+        return new Content[0];
+    }
+
+    /**
+     * Задает менеджер сессий: каждое обращение пользователя продлевает его сессию.
+     *
+     * @param sessionManager менеджер сессий
+     */
+    public void setSessionManager(SessionManager sessionManager) {
+        this.sessionManager = sessionManager;
+    }
+
+    /**
+     * Помечает сессии чатов измененными, чтобы их снимки были записаны.
+     * Обработка сообщения одного игрока дуэли может менять и данные соперника.
+     */
+    private void markSessionsDirty(String... chatIds) {
+        if (sessionManager == null) {
+            return;
+        }
+        for (String chatId : chatIds) {
+            sessionManager.markDirty(chatId);
+        }
+    }
+
     public void setDuelMatchmaker(DuelMatchmaker matchmaker) {
         this.matchmaker = matchmaker;
     }
@@ -142,51 +270,133 @@ public class Producer {
 
     /**
      * Инициализирует нотификатор для обработки таймаутов.
+     * Таймеры срабатывают в своих потоках, поэтому обработка передается в очереди чатов игроков.
      */
     private void initTimeoutNotifier() {
         timeoutManager.setNotifier(new TimeoutNotifier() {
             @Override
             public void notifySearchTimeout(String chatId, String topic) {
-                System.out.println("[PRODUCER] Таймаут поиска для " + chatId + ", тема: " + topic);
-
-                UserData userData = users.getOrCreate(chatId);
-                userData.setState("menu");
-                userData.clearDuelData();
-
-                // Cообщение о таймауте поиска
-                String message = "⏰ *Поиск оппонента отменен по таймауту*\n\n" +
-                        "Не удалось найти оппонента в течение 2 минут.\n" +
-                        "🎯 Тема: " + topic + "\n\n" +
-                        "Попробуйте поискать чуть позже или выберите другую тему.";
-
-                Content content = new Content(true, chatId, message, null, "go_menu");
-                messageQueue.addMessage(content);
-
-                System.out.println("[PRODUCER] Сообщение о таймауте поиска добавлено в очередь для " + chatId);
+                chatExecutor.execute(List.of(chatId), () -> {
+                    try (Span trace = tracer.startTrace("timer.search_timeout", chatId)) {
+                        handleSearchTimeoutEvent(chatId, topic);
+                    }
+                    markSessionsDirty(chatId);
+                });
             }
 
             @Override
             public void notifyDuelTimeout(String duelId, String player1ChatId, String player2ChatId) {
-                System.out.println("[PRODUCER] Таймаут дуэли: " + duelId);
+                log.info(() -> "Таймаут дуэли: " + duelId);
 
                 // Обрабатываем таймаут дуэли
-                handleDuelTimeout(duelId, player1ChatId, player2ChatId);
+                chatExecutor.execute(List.of(player1ChatId, player2ChatId), () -> {
+                    try (Span trace = tracer.startTrace("timer.duel_timeout", player1ChatId)) {
+                        handleDuelTimeout(duelId, player1ChatId, player2ChatId);
+                    }
+                    markSessionsDirty(player1ChatId, player2ChatId);
+                });
             }
         });
     }
 
+    /**
+     * Сбрасывает поиск дуэли по таймауту и ставит сообщение об этом в очередь.
+     *
+     * @param chatId игрок в поиске
+     * @param topic тема поиска
+     */
+    private void handleSearchTimeoutEvent(String chatId, String topic) {
+        log.info(() -> "Таймаут поиска для " + chatId + ", тема: " + topic);
+
+        UserData userData = users.getOrCreate(chatId);
+        userData.setState(UserState.MENU);
+        userData.clearDuelData();
+
+        // Cообщение о таймауте поиска
+        String message = "⏰ *Поиск оппонента отменен по таймауту*\n\n" +
+                "Не удалось найти оппонента в течение 2 минут.\n" +
+                "🎯 Тема: " + topic + "\n\n" +
+                "Попробуйте поискать чуть позже или выберите другую тему.";
+
+        Content content = new Content(true, chatId, message, null, "go_menu");
+        messageQueue.addMessage(content);
+
+        log.info(() -> "Сообщение о таймауте поиска добавлено в очередь для " + chatId);
+    }
+
+    /**
+     * Засчитывает победу по таймауту игроку, завершившему дуэль, и сообщает обоим игрокам.
+     *
+     * @param player1ChatId игрок, завершивший дуэль
+     * @param player2ChatId игрок, не успевший завершить дуэль
+     * @param player1Score правильных ответов первого игрока
+     * @param player1TimeMillis время прохождения первого игрока в миллисекундах
+     */
+    private void finishDuelByTimeout(String player1ChatId, String player2ChatId,
+                                     int player1Score, long player1TimeMillis) {
+        UserData player1Data = users.getOrCreate(player1ChatId);
+        UserData player2Data = users.getOrCreate(player2ChatId);
+
+        String player1Name = player1Data.getLeaderboardName();
+        String player2Name = player2Data.getLeaderboardName();
+
+        // Сообщение для игрока 1 (победитель по таймауту)
+        String player1Message = String.format(
+                """
+                        ⏰ *ПРОТИВНИК НЕ УСПЕЛ!*
+                        
+                        Ваш оппонент (%s) не завершил дуэль в течение 2-х минут.
+                        Ваши результаты:
+                        • Правильных ответов: %d/5
+                        • Время: %.1f сек
+                        
+                        ⚔️ *Вы получаете победу по умолчанию!*
+                        🏆 *Начислено баллов в общий счет: %d*""",
+                player2Name,
+                player1Score,
+                player1TimeMillis / 1000.0,
+                player1Score
+        );
+
+        // Добавляем очки в общий счет
+        users.updateUserScore(player1ChatId, player1Score);
+
+        // Сообщение для игрока 2 (проигравший по таймауту)
+        String player2Message = String.format(
+                """
+                        💀⏰ *ВЫ НЕ УСПЕЛИ!*
+                        
+                        Вы не завершили дуэль в течение 2-х минут.
+                        Ваш оппонент (%s) уже давно закончил и получил победу.
+                        
+                        😞 *Вы получаете 0 баллов за эту дуэль*
+                        📉 *В следующий раз отвечайте быстрее!*""",
+                player1Name
+        );
+
+        // Добавляем сообщения в очередь
+        Content content1 = new Content(true, player1ChatId, player1Message, null, "go_menu");
+        Content content2 = new Content(true, player2ChatId, player2Message, null, "go_menu");
+
+        messageQueue.addMessage(content1);
+        messageQueue.addMessage(content2);
+
+        // Очищаем данные дуэли
+        player1Data.clearDuelData();
+        player2Data.clearDuelData();
+        player1Data.setState(UserState.MENU);
+        player2Data.setState(UserState.MENU);
+    }
+
     /**
      * Обрабатывает таймаут дуэли (ожидание второго игрока).
      */
     private void handleDuelTimeout(String duelId, String player1ChatId, String player2ChatId) {
         try {
-            UserData player1Data = users.getOrCreate(player1ChatId);
-            UserData player2Data = users.getOrCreate(player2ChatId);
-
             DuelPair pair = matchmaker.getPairForPlayer(player1ChatId);
 
             if (pair == null) {
-                System.out.println("[PRODUCER] Дуэль не найдена: " + duelId);
+                log.info(() -> "Дуэль не найдена: " + duelId);
                 return;
             }
 
@@ -194,69 +404,20 @@ public class Producer {
             org.example.ModeGame.Duel.PlayerResults player1Results = pair.getPlayerResults(player1ChatId);
 
             if (player1Results == null || !player1Results.hasResults()) {
-                System.out.println("[PRODUCER] Результаты игрока 1 не найдены для дуэли: " + duelId);
+                log.info(() -> "Результаты игрока 1 не найдены для дуэли: " + duelId);
                 return;
             }
 
-            String player1Name = player1Data.getLeaderboardName();
-            String player2Name = player2Data.getLeaderboardName();
-
-            // Сообщение для игрока 1 (победитель по таймауту)
-            String player1Message = String.format(
-                    """
-                            ⏰ *ПРОТИВНИК НЕ УСПЕЛ!*
-                            
-                            Ваш оппонент (%s) не завершил дуэль в течение 2-х минут.
-                            Ваши результаты:
-                            • Правильных ответов: %d/5
-                            • Время: %.1f сек
-                            
-                            ⚔️ *Вы получаете победу по умолчанию!*
-                            🏆 *Начислено баллов в общий счет: %d*""",
-                    player2Name,
-                    player1Results.getScore(),
-                    player1Results.getTime() / 1000.0,
-                    player1Results.getScore()
-            );
-
-            // Добавляем очки в общий счет
-            users.updateUserScore(player1ChatId, player1Results.getScore());
-
-            // Сообщение для игрока 2 (проигравший по таймауту)
-            String player2Message = String.format(
-                    """
-                            💀⏰ *ВЫ НЕ УСПЕЛИ!*
-                            
-                            Вы не завершили дуэль в течение 2-х минут.
-                            Ваш оппонент (%s) уже давно закончил и получил победу.
-                            
-                            😞 *Вы получаете 0 баллов за эту дуэль*
-                            📉 *В следующий раз отвечайте быстрее!*""",
-                    player1Name
-            );
-
-            // Добавляем сообщения в очередь
-            Content content1 = new Content(true, player1ChatId, player1Message, null, "go_menu");
-            Content content2 = new Content(true, player2ChatId, player2Message, null, "go_menu");
-
-            messageQueue.addMessage(content1);
-            messageQueue.addMessage(content2);
-
-            // Очищаем данные дуэли
-            player1Data.clearDuelData();
-            player2Data.clearDuelData();
-            player1Data.setState("menu");
-            player2Data.setState("menu");
+            finishDuelByTimeout(player1ChatId, player2ChatId, player1Results.getScore(), player1Results.getTime());
 
             // Очищаем кеш вопросов и удаляем пару
             clearDuelCache(duelId);
             matchmaker.removeTimedOutDuel(duelId);
 
-            System.out.println("[PRODUCER] Сообщения о таймауте дуэли добавлены в очередь для обоих игроков");
+            log.info("Сообщения о таймауте дуэли добавлены в очередь для обоих игроков");
 
         } catch (Exception e) {
-            System.err.println("[PRODUCER] Ошибка обработки таймаута дуэли: " + e.getMessage());
-            e.printStackTrace();
+            log.error(() -> "Ошибка обработки таймаута дуэли: " + e.getMessage(), e);
         }
     }
 
@@ -268,13 +429,32 @@ public class Producer {
      */
     public Content[] produce(Content content) {
         String chatId = content.getChatId();
-        System.out.println("[PRODUCER] Обработка входящего сообщения от " + chatId);
+        log.debug(() -> "Обработка входящего сообщения от " + chatId);
 
         UserData userData = users.getOrCreate(chatId);
-        System.out.println("[PRODUCER] Текущее состояние пользователя: " + userData.getState());
+        if (sessionManager != null) {
+            boolean duelInterrupted;
+            try (Span span = tracer.span("session.touch")) {
+                duelInterrupted = sessionManager.touch(chatId, userData);
+            }
+            if (duelInterrupted) {
+                // Ввод относился к прерванной дуэли, поэтому не обрабатывается
+                markSessionsDirty(chatId);
+                return new Content[] {
+                        new Content(true, chatId, DUEL_INTERRUPTED_MESSAGE),
+                        handleMenuCommand(chatId, userData)[0]
+                };
+            }
+        }
+        log.debug(() -> "Текущее состояние пользователя: " + userData.getState());
 
-        Content[] result = processUserMessage(content, chatId, userData);
-        System.out.println("[PRODUCER] Данные пользователей сохранены");
+        String opponent = userData.getDuelOpponent();
+        Content[] result;
+        try (Span span = tracer.span("producer")) {
+            result = processUserMessage(content, chatId, userData);
+        }
+        markSessionsDirty(chatId, opponent, userData.getDuelOpponent());
+        log.debug("Данные пользователей сохранены");
 
         return result;
     }
@@ -285,7 +465,7 @@ public class Producer {
      */
     public Content[] getQueuedMessages() {
         java.util.List<Content> messages = messageQueue.getAllMessages();
-        System.out.println("[PRODUCER] Получено " + messages.size() + " сообщений из очереди");
+        log.debug(() -> "Получено " + messages.size() + " сообщений из очереди");
         return messages.toArray(new Content[0]);
     }
 
@@ -297,13 +477,33 @@ public class Producer {
         return messageQueue.hasMessages();
     }
 
+    /**
+     * Подписывает получателя на сообщения очереди (от таймаутов).
+     * Сообщения передаются получателю сразу при постановке в очередь.
+     * @param subscriber получатель сообщений
+     */
+    public void subscribeToQueue(java.util.function.Consumer<Content> subscriber) {
+        messageQueue.subscribe(subscriber);
+    }
+
+    /**
+     * Подписывает получателя на сообщения очереди (от таймаутов) с обработчиком недоставленных:
+     * сообщение, которое получатель так и не принял, передается обработчику, а не теряется.
+     * @param subscriber получатель сообщений
+     * @param deadLetterHandler получатель недоставленных сообщений
+     */
+    public void subscribeToQueue(java.util.function.Consumer<Content> subscriber,
+                                 java.util.function.Consumer<Content> deadLetterHandler) {
+        messageQueue.subscribe(subscriber, deadLetterHandler);
+    }
+
     /**
      * Обрабатывает ситуацию, когда поиск дуэли завершился по таймауту.
      */
     private Content[] handleSearchTimeout(String chatId, UserData userData) {
-        System.out.println("[PRODUCER] Обработка таймаута поиска для " + chatId);
+        log.info(() -> "Обработка таймаута поиска для " + chatId);
 
-        userData.setState("menu");
+        userData.setState(UserState.MENU);
         userData.clearDuelData();
 
         String message =
@@ -320,35 +520,152 @@ public class Producer {
 
     /**
      * Обрабатывает пользовательское сообщение в зависимости от состояния пользователя.
+     * Обработчик берется из таблицы по паре (состояние, событие); если пары нет,
+     * действие в этом состоянии недоступно и состояние не меняется.
      */
     private Content[] processUserMessage(Content content, String chatId, UserData userData) {
         String messageText = content.getText();
+        UserState state = userData.getState();
 
         // Проверка на просроченный поиск дуэли
-        if ("duel_searching".equals(userData.getState())) {
-            if (!timeoutManager.hasActiveSearch(chatId)) {
-                // Таймаут поиска истек
-                return handleSearchTimeout(chatId, userData);
-            }
+        if (state == UserState.DUEL_SEARCHING && !timeoutManager.hasActiveSearch(chatId)) {
+            // Таймаут поиска истек
+            return handleSearchTimeout(chatId, userData);
         }
 
-        // Обработка состояния ожидания имени для лидерборда
-        if ("waiting_leaderboard_name".equals(userData.getState())) {
-            return handleLeaderboardName(chatId, messageText, userData);
+        UserEvent event = modes.forCallback(messageText) != null ? UserEvent.MODE : UserEvent.of(messageText);
+        InputHandler handler = dispatchTable.get(state).get(event);
+        if (handler == null) {
+            log.info(() -> "Действие " + event + " недоступно в состоянии " + state + " для " + chatId);
+            return new Content[] {
+                    new Content(true, chatId, "❌ Сейчас это действие недоступно. Дождитесь окончания дуэли или вернитесь в меню.", null, "menu")
+            };
         }
+        long start = System.nanoTime();
+        try (Span span = tracer.span(handlerSpans.get(event))) {
+            return handler.handle(messageText, chatId, content.getMessageId(), userData);
+        } finally {
+            handlerLatency.get(event).observeSince(start);
+        }
+    }
 
-        // Обработка состояния ожидания темы для генерации
-        if ("waiting_generation_topic".equals(userData.getState())) {
-            ModeSelector currentMode = userData.getCurrentMode();
+    /**
+     * Строит таблицу обработчиков (состояние, событие).
+     * - при вводе имени или темы генерации любой ввод считается именем или темой;
+     * - кнопки во всех состояниях, кроме меню, требуют регистрации;
+     * - в ожидании соперника любая кнопка обновляет время активности в дуэли;
+     * - в состояниях, которыми владеет игровой режим (поиск и ожидание в дуэли), новую игру начать нельзя.
+     *
+     * @return таблица обработчиков
+     */
+    private Map<UserState, Map<UserEvent, InputHandler>> buildDispatchTable() {
+        Map<UserEvent, InputHandler> buttons = new EnumMap<>(UserEvent.class);
+        buttons.put(UserEvent.TOPIC_NAVIGATION, (input, chatId, messageId, userData) ->
+                handleTopicNavigationButtons(input, chatId, userData));
+        buttons.put(UserEvent.QUIZ_NAVIGATION, this::handleQuizNavigationButtons);
+        buttons.put(UserEvent.ANSWER, this::handleAnswerButtons);
+        buttons.put(UserEvent.AT_THE_TOP, (input, chatId, messageId, userData) -> handleAtTheTopButton(chatId, userData));
+        buttons.put(UserEvent.QUIZ, requireRegistration((input, chatId, messageId, userData) ->
+                startTopicSelection(chatId, userData)));
+        buttons.put(UserEvent.PLAY, requireRegistration((input, chatId, messageId, userData) ->
+                startQuizWithSelectedTopic(chatId, userData)));
+        buttons.put(UserEvent.MENU, (input, chatId, messageId, userData) -> handleMenuButton(chatId, userData));
+        buttons.put(UserEvent.MODE, requireRegistration((input, chatId, messageId, userData) ->
+                handleModeButton(input, chatId, userData)));
+        buttons.put(UserEvent.GENERATION, requireRegistration((input, chatId, messageId, userData) ->
+                generationQuiz(chatId, userData)));
+        buttons.put(UserEvent.END_QUIZ, (input, chatId, messageId, userData) -> handleQuizCompletion(chatId, userData));
+        buttons.put(UserEvent.UNKNOWN_BUTTON, (input, chatId, messageId, userData) -> {
+            log.info(() -> "Неизвестный callback: " + input);
+            return new Content[]{
+                    new Content(true, chatId, "Неизвестное действие", null, "menu")
+            };
+        });
 
-            if (currentMode instanceof DuelMode) {
-                return handleDuelGenerationTopic(chatId, messageText, userData);
-            } else {
-                return handleGenerationTopic(chatId, messageText, userData);
+        Map<UserState, Map<UserEvent, InputHandler>> table = new EnumMap<>(UserState.class);
+        for (UserState state : UserState.values()) {
+            Map<UserEvent, InputHandler> handlers = new EnumMap<>(UserEvent.class);
+            table.put(state, handlers);
+
+            if (state == UserState.WAITING_LEADERBOARD_NAME) {
+                for (UserEvent event : UserEvent.values()) {
+                    handlers.put(event, (input, chatId, messageId, userData) -> handleLeaderboardName(chatId, input, userData));
+                }
+                continue;
+            }
+            if (state == UserState.WAITING_GENERATION_TOPIC) {
+                for (UserEvent event : UserEvent.values()) {
+                    handlers.put(event, this::handleGenerationTopicInput);
+                }
+                continue;
+            }
+
+            handlers.put(UserEvent.COMMAND, (input, chatId, messageId, userData) -> handleCommand(input, chatId, userData));
+            handlers.put(UserEvent.TEXT, (input, chatId, messageId, userData) -> handleTextMessage(input, chatId, userData));
+
+            boolean gameInProgress = modes.forState(state) != null;
+            for (Map.Entry<UserEvent, InputHandler> button : buttons.entrySet()) {
+                if (gameInProgress && button.getKey().startsNewGame()) {
+                    continue;
+                }
+                InputHandler handler = button.getValue();
+                if (state != UserState.MENU) {
+                    handler = requireRegistration(handler);
+                }
+                if (state == UserState.DUEL_WAITING_OPPONENT) {
+                    handler = updatingDuelActivity(handler);
+                }
+                handlers.put(button.getKey(), handler);
             }
         }
+        return table;
+    }
+
+    /**
+     * Оборачивает обработчик проверкой регистрации.
+     */
+    private InputHandler requireRegistration(InputHandler handler) {
+        return (input, chatId, messageId, userData) -> {
+            Content[] registrationCheck = checkUserRegistration(chatId, userData);
+            return registrationCheck != null ? registrationCheck : handler.handle(input, chatId, messageId, userData);
+        };
+    }
 
-        return handleUserInput(messageText, chatId, userData);
+    /**
+     * Оборачивает обработчик обновлением времени активности игрока в дуэли,
+     * чтобы нажатия в ожидании соперника не считались бездействием.
+     */
+    private InputHandler updatingDuelActivity(InputHandler handler) {
+        return (input, chatId, messageId, userData) -> {
+            DuelPair pair = matchmaker.getPairForPlayer(chatId);
+            if (pair != null) {
+                pair.updateLastActivityTime(chatId);
+                log.debug(() -> "Обновлено время активности для игрока " + chatId +
+                        " в дуэли " + pair.getDuelId());
+            }
+            return handler.handle(input, chatId, messageId, userData);
+        };
+    }
+
+    /**
+     * Обрабатывает ввод темы генерации: проверяет тему и передает ее режиму
+     * (в дуэли - поиск соперника), а если режим шаг не переопределяет - генерирует викторину.
+     */
+    private Content[] handleGenerationTopicInput(String topic, String chatId, Integer messageId, UserData userData) {
+        topic = topic.trim();
+
+        if (topic.isEmpty() || topic.length() > 100) {
+            return new Content[] {
+                    new Content(true, chatId, """
+                        ❌ Неверная тема!
+                        Тема должна быть от 1 до 100 символов.
+                        Пожалуйста, введите тему еще раз:""")
+            };
+        }
+
+        ModeSelector currentMode = userData.getCurrentMode();
+        Content[] started = currentMode != null ? currentMode.startWithGeneratedTopic(topic) : null;
+        return started != null ? started : handleGenerationTopic(chatId, topic, userData);
     }
 
     /**
@@ -362,7 +679,7 @@ public class Producer {
         name = name.trim();
         if (!name.isEmpty() && name.length() <= 20) {
             users.setLeaderboardName(chatId, name);
-            userData.setState("menu");
+            userData.setState(UserState.MENU);
 
             return new Content[] {
                     new Content(true, chatId, "✅ Имя \"" + name + "\" успешно установлено!"),
@@ -379,19 +696,8 @@ public class Producer {
      * Обрабатывает ввод темы для генерации викторины
      */
     private Content[] handleGenerationTopic(String chatId, String topic, UserData userData) {
-        topic = topic.trim();
-
-        if (topic.isEmpty() || topic.length() > 100) {
-            return new Content[] {
-                    new Content(true, chatId, """
-                        ❌ Неверная тема!
-                        Тема должна быть от 1 до 100 символов.
-                        Пожалуйста, введите тему еще раз:""")
-            };
-        }
-
         try {
-            System.out.println("[PRODUCER] Генерация викторины по теме: " + topic);
+            log.info("Генерация викторины по теме: " + topic);
 
             // Генерируем викторину с помощью ИИ - теперь возвращает AiMemory
             AiMemory generatedMemory = createQuiz.generateQuiz(topic);
@@ -399,7 +705,7 @@ public class Producer {
             // Создаем квиз из сгенерированной памяти
             Quiz generatedQuiz = new Quiz(generatedMemory);
             userData.setCurrentQuiz(generatedQuiz);
-            userData.setState("quiz");
+            userData.setState(UserState.QUIZ);
 
             String firstQuestion = generatedQuiz.getCurrentQuestionText();
 
@@ -412,8 +718,8 @@ public class Producer {
             };
 
         } catch (Exception e) {
-            System.err.println("[PRODUCER] Ошибка генерации викторины: " + e.getMessage());
-            userData.setState("menu");
+            log.error(() -> "Ошибка генерации викторины: " + e.getMessage());
+            userData.setState(UserState.MENU);
 
             return new Content[] {
                     new Content(true, chatId, "❌ *Ошибка генерации викторины*\n\n" +
@@ -423,60 +729,6 @@ public class Producer {
         }
     }
 
-    /**
-     * Обрабатывает ввод темы для генерации дуэли
-     */
-    private Content[] handleDuelGenerationTopic(String chatId, String topic, UserData userData) {
-        topic = topic.trim();
-
-        if (topic.isEmpty() || topic.length() > 100) {
-            return new Content[] {
-                    new Content(true, chatId, """
-                        ❌ Неверная тема!
-                        Тема должна быть от 1 до 100 символов.
-                        Пожалуйста, введите тему еще раз:""")
-            };
-        }
-
-        // Получаем режим дуэли
-        ModeSelector currentMode = userData.getCurrentMode();
-        if (currentMode instanceof DuelMode duelMode) {
-
-            // Сразу начинаем поиск
-            return duelMode.startGeneratedDuelSearch(topic);
-        }
-
-        return new Content[] {
-                new Content(true, chatId, "❌ Ошибка режима", null, "menu")
-        };
-    }
-
-    /**
-     * Обрабатывает пользовательский ввод (команды и текстовые сообщения).
-     * @param inputText текст ввода пользователя
-     * @param chatId идентификатор чата
-     * @param userData данные пользователя
-     * @return массив контента для ответа
-     */
-    private Content[] handleUserInput(String inputText, String chatId, UserData userData) {
-        if (inputText.startsWith("/")) {
-            return handleCommand(inputText, chatId, userData);
-        } else if (isButtonCallback(inputText)) {
-            return handleButtonCallback(inputText, chatId, userData);
-        } else {
-            return handleTextMessage(inputText, chatId, userData);
-        }
-    }
-
-    /**
-     * Проверяет, является ли ввод callback от кнопки.
-     * @param inputText текст ввода
-     * @return true если это callback от кнопки, иначе false
-     */
-    private boolean isButtonCallback(String inputText) {
-        return inputText.endsWith("_button");
-    }
-
     /**
      * Проверяет доступ пользователя к функциям бота.
      * Если имя не установлено - блокирует все действия кроме регистрации.
@@ -487,7 +739,7 @@ public class Producer {
     private Content[] checkUserRegistration(String chatId, UserData userData) {
         String leaderboardName = userData.getLeaderboardName();
         if (leaderboardName == null || leaderboardName.isEmpty()) {
-            userData.setState("waiting_leaderboard_name");
+            userData.setState(UserState.WAITING_LEADERBOARD_NAME);
             return new Content[] {
                     new Content(true, chatId, REGISTRATION_MESSAGE)
             };
@@ -496,128 +748,32 @@ public class Producer {
     }
 
     /**
-     * Обрабатывает callback от кнопок.
-     * @param callbackData данные callback
+     * Обрабатывает кнопку возврата в меню: сбрасывает викторину, выбор темы и данные дуэли.
+     *
      * @param chatId идентификатор чата
      * @param userData данные пользователя
      * @return массив контента для ответа
      */
-    private Content[] handleButtonCallback(String callbackData, String chatId, UserData userData) {
-        System.out.println("[PRODUCER] Обработка callback: " + callbackData);
-
-        // ВАЖНО: Обновляем время активности для дуэли
-        // Если пользователь в состоянии ожидания оппонента и нажимает любую кнопку
-        if ("duel_waiting_opponent".equals(userData.getState())) {
-            DuelPair pair = matchmaker.getPairForPlayer(chatId);
-            if (pair != null) {
-                pair.updateLastActivityTime(chatId);
-                System.out.println("[PRODUCER] Обновлено время активности для игрока " + chatId +
-                        " в дуэли " + pair.getDuelId());
-            }
-        }
-
-        // Проверяем регистрацию для всех действий кроме /start
-        if (!"menu".equals(userData.getState()) && !"waiting_leaderboard_name".equals(userData.getState())) {
-            Content[] registrationCheck = checkUserRegistration(chatId, userData);
-            if (registrationCheck != null) {
-                return registrationCheck;
-            }
-        }
-
-        // Навигационные кнопки в выборе темы
-        switch (callbackData) {
-            case TOPIC_FORWARDS_BUTTON, TOPIC_BACKWARDS_BUTTON -> {
-                return handleTopicNavigationButtons(callbackData, chatId, userData);
-            }
-
-            // Навигационные кнопки в викторине
-            case QUIZ_FORWARDS_BUTTON, QUIZ_BACKWARDS_BUTTON -> {
-                return handleQuizNavigationButtons(callbackData, chatId, userData);
-            }
-
-            // Кнопки ответов
-            case A_BUTTON, B_BUTTON, C_BUTTON, D_BUTTON -> {
-                return handleAnswerButtons(callbackData, chatId, userData);
-            }
-
-            // Кнопка перехода к первому вопросу
-            case AT_THE_TOP_BUTTON -> {
-                return handleAtTheTopButton(chatId, userData);
-            }
-
-            // Остальные кнопки
-            default -> {
-                switch (callbackData) {
-                    case QUIZ_BUTTON:
-                        // Проверяем регистрацию
-                        Content[] check = checkUserRegistration(chatId, userData);
-                        if (check != null) return check;
-                        return startTopicSelection(chatId, userData);
-
-                    case PLAY_BUTTON:
-                        check = checkUserRegistration(chatId, userData);
-                        if (check != null) return check;
-                        return startQuizWithSelectedTopic(chatId, userData);
-
-                    case MENU_BUTTON:
-                        userData.setState("menu");
-                        userData.setCurrentQuiz(null);
-                        userData.setTopicSelector(null);
-                        userData.clearDuelData();
-                        return handleStartMenuCommand(chatId, userData);
-
-                    case DUEL_BUTTON:
-                        check = checkUserRegistration(chatId, userData);
-                        if (check != null) return check;
-                        return handleDuelButton(chatId, userData);
-
-                    case SOLO_BUTTON:
-                        check = checkUserRegistration(chatId, userData);
-                        if (check != null) return check;
-                        return handleSoloButton(chatId, userData);
-
-                    case GENERATION_BUTTON:
-                        check = checkUserRegistration(chatId, userData);
-                        if (check != null) return check;
-                        return generationQuiz(chatId, userData);
-
-                    case END_QUIZ_BUTTON:
-                        return handleQuizCompletion(chatId, userData);
-
-                    default:
-                        System.out.println("[PRODUCER] Неизвестный callback: " + callbackData);
-                        return new Content[]{
-                                new Content(true, chatId, "Неизвестное действие", null, "menu")
-                        };
-                }
-            }
-        }
-    }
-
-    /**
-     * Обрабатывает выбор режима "Соло".
-     *
-     * @param chatId ID чата пользователя
-     * @param userData данные пользователя
-     * @return контент для ответа
-     */
-    private Content[] handleSoloButton(String chatId, UserData userData) {
-        ModeSelector soloMode = new SoloMode(this, chatId, userData);
-        userData.setCurrentMode(soloMode);
-        return soloMode.handleModeSelection();
+    private Content[] handleMenuButton(String chatId, UserData userData) {
+        userData.setState(UserState.MENU);
+        userData.setCurrentQuiz(null);
+        userData.setTopicSelector(null);
+        userData.clearDuelData();
+        return handleStartMenuCommand(chatId, userData);
     }
 
     /**
-     * Обрабатывает выбор режима "Дуэль".
+     * Обрабатывает выбор игрового режима: создает режим, зарегистрированный за нажатой кнопкой.
      *
+     * @param callback данные нажатой кнопки
      * @param chatId ID чата пользователя
      * @param userData данные пользователя
      * @return контент для ответа
      */
-    private Content[] handleDuelButton(String chatId, UserData userData) {
-        ModeSelector duelMode = new DuelMode(this, chatId, userData);
-        userData.setCurrentMode(duelMode);
-        return duelMode.handleModeSelection();
+    private Content[] handleModeButton(String callback, String chatId, UserData userData) {
+        ModeSelector mode = modes.forCallback(callback).create(this, chatId, userData);
+        userData.setCurrentMode(mode);
+        return mode.handleModeSelection();
     }
 
     /**
@@ -629,10 +785,10 @@ public class Producer {
      * @return массив контента для ответа с инструкциями по вводу темы
      */
     private Content[] generationQuiz(String chatId, UserData userData) {
-        System.out.println("[PRODUCER] Запуск генерации викторины для " + chatId);
+        log.info(() -> "Запуск генерации викторины для " + chatId);
 
         // Устанавливаем состояние ожидания темы
-        userData.setState("waiting_generation_topic");
+        userData.setState(UserState.WAITING_GENERATION_TOPIC);
 
         return new Content[] {
                 new Content(true, chatId, """
@@ -681,7 +837,7 @@ public class Producer {
      * @return массив контента для ответа
      */
     private Content[] handleTopicNavigationButtons(String callbackData, String chatId, UserData userData) {
-        if (userData.getTopicSelector() != null && "topic_selection".equals(userData.getState())) {
+        if (userData.getTopicSelector() != null && userData.getState() == UserState.TOPIC_SELECTION) {
             if (callbackData.equals(TOPIC_FORWARDS_BUTTON)) {
                 userData.getTopicSelector().next();
             } else {
@@ -698,13 +854,15 @@ public class Producer {
     }
 
     /**
-     * Обрабатывает навигационные кнопки в викторине
+     * Обрабатывает навигационные кнопки в викторине.
+     * Если известно сообщение с кнопками, вопрос показывается в нем же (редактированием).
      * @param callbackData данные callback
      * @param chatId идентификатор чата
+     * @param messageId id сообщения с нажатой кнопкой или null
      * @param userData данные пользователя
      * @return массив контента для ответа
      */
-    private Content[] handleQuizNavigationButtons(String callbackData, String chatId, UserData userData) {
+    private Content[] handleQuizNavigationButtons(String callbackData, String chatId, Integer messageId, UserData userData) {
         Quiz quiz = userData.getCurrentQuiz();
         if (quiz == null) {
             return new Content[] {
@@ -733,7 +891,7 @@ public class Producer {
         userData.setCurrentQuiz(quiz);
 
         return new Content[] {
-                new Content(true, chatId, message, null, keyboardType)
+                new Content(true, chatId, message, null, keyboardType, messageId)
         };
     }
 
@@ -741,13 +899,14 @@ public class Producer {
      * Обрабатывает кнопки ответов (A, B, C, D) с обновлением сообщения
      * @param callbackData данные callback
      * @param chatId идентификатор чата
+     * @param messageId id сообщения с нажатой кнопкой или null
      * @param userData данные пользователя
      * @return массив контента для ответа
      */
-    private Content[] handleAnswerButtons(String callbackData, String chatId, UserData userData) {
+    private Content[] handleAnswerButtons(String callbackData, String chatId, Integer messageId, UserData userData) {
         if (userData.getCurrentQuiz() != null) {
             String cleanAnswer = callbackData.replace("_button", "");
-            return processQuizAnswerWithUpdate(cleanAnswer, chatId, userData);
+            return processQuizAnswerWithUpdate(cleanAnswer, chatId, messageId, userData);
         } else {
             return new Content[] {
                     new Content(true, chatId, "❌ Викторина не активна. Начните викторину сначала.", null, "menu")
@@ -756,13 +915,16 @@ public class Producer {
     }
 
     /**
-     * Обрабатывает ответ в викторине с обновлением сообщения
+     * Обрабатывает ответ в викторине с обновлением сообщения.
+     * Если известно сообщение с вопросом, результат ответа и следующий вопрос
+     * показываются в нем же одним редактированием, иначе отправляются два сообщения.
      * @param answerText текст ответа
      * @param chatId идентификатор чата
+     * @param messageId id сообщения с вопросом или null
      * @param userData данные пользователя
      * @return массив контента для ответа
      */
-    private Content[] processQuizAnswerWithUpdate(String answerText, String chatId, UserData userData) {
+    private Content[] processQuizAnswerWithUpdate(String answerText, String chatId, Integer messageId, UserData userData) {
         Quiz quiz = userData.getCurrentQuiz();
 
         if (quiz == null) {
@@ -789,6 +951,12 @@ public class Producer {
 
         userData.setCurrentQuiz(quiz);
 
+        if (messageId != null) {
+            return new Content[] {
+                    new Content(true, chatId, resultMessage + "\n\n" + nextMessage, null, keyboardType, messageId)
+            };
+        }
+
         return new Content[] {
                 new Content(true, chatId, resultMessage),
                 new Content(true, chatId, nextMessage, null, keyboardType)
@@ -809,7 +977,7 @@ public class Producer {
             case "/leaderboard" -> handleLeaderboardCommand(chatId);
             case "/menu" -> handleStartMenuCommand(chatId, userData);
             default -> {
-                System.out.println("[PRODUCER] Неизвестная команда: " + command);
+                log.info(() -> "Неизвестная команда: " + command);
                 yield new Content[]{
                         new Content(true, chatId, "Неизвестная команда. Используйте /help для списка команд.")
                 };
@@ -825,11 +993,6 @@ public class Producer {
      * @return массив контента для ответа
      */
     private Content[] handleTextMessage(String messageText, String chatId, UserData userData) {
-        // Если пользователь в состоянии ожидания имени - обрабатываем как имя
-        if ("waiting_leaderboard_name".equals(userData.getState())) {
-            return handleLeaderboardName(chatId, messageText, userData);
-        }
-
         // Проверяем регистрацию для остальных действий
         Content[] registrationCheck = checkUserRegistration(chatId, userData);
         if (registrationCheck != null) {
@@ -837,7 +1000,7 @@ public class Producer {
         }
 
         if (userData.getCurrentQuiz() != null) {
-            return processQuizAnswerWithUpdate(messageText, chatId, userData);
+            return processQuizAnswerWithUpdate(messageText, chatId, null, userData);
         }
 
         return new Content[] {
@@ -852,8 +1015,8 @@ public class Producer {
      * @return массив контента для ответа
      */
     private Content[] handleStartCommand(String chatId, UserData userData) {
-        System.out.println("[PRODUCER] Обработка команды /start");
-        userData.setState("menu");
+        log.debug("Обработка команды /start");
+        userData.setState(UserState.MENU);
         userData.clearDuelData();
 
         Content[] response = new Content[] {
@@ -864,7 +1027,7 @@ public class Producer {
         String leaderboardName = userData.getLeaderboardName();
         if (leaderboardName == null || leaderboardName.isEmpty()) {
             // Если имени нет - запрашиваем регистрацию
-            userData.setState("waiting_leaderboard_name");
+            userData.setState(UserState.WAITING_LEADERBOARD_NAME);
             return new Content[] {
                     new Content(true, chatId, START_MESSAGE),
                     new Content(true, chatId, REGISTRATION_MESSAGE)
@@ -880,7 +1043,7 @@ public class Producer {
      * @return массив контента для ответа
      */
     private Content[] handleHelpCommand(String chatId) {
-        System.out.println("[PRODUCER] Обработка команды помощи");
+        log.debug("Обработка команды помощи");
         return new Content[] { new Content(true, chatId, HELP_MESSAGE) };
     }
 
@@ -890,14 +1053,14 @@ public class Producer {
      * @return массив контента для ответа
      */
     private Content[] handleLeaderboardCommand(String chatId) {
-        System.out.println("[PRODUCER] Обработка команды лидерборда");
+        log.debug("Обработка команды лидерборда");
 
         // Показываем лидерборд только если пользователь зарегистрирован
         UserData userData = users.getOrCreate(chatId);
         String leaderboardName = userData.getLeaderboardName();
 
         if (leaderboardName == null || leaderboardName.isEmpty()) {
-            userData.setState("waiting_leaderboard_name");
+            userData.setState(UserState.WAITING_LEADERBOARD_NAME);
             return new Content[] {
                     new Content(true, chatId, REGISTRATION_MESSAGE)
             };
@@ -914,20 +1077,20 @@ public class Producer {
      * @return массив контента для ответа
      */
     public Content[] handleStartMenuCommand(String chatId, UserData userData) {
-        System.out.println("[PRODUCER] Обработка команды меню");
+        log.debug("Обработка команды меню");
 
         // Проверяем регистрацию
         String leaderboardName = userData.getLeaderboardName();
         if (leaderboardName == null || leaderboardName.isEmpty()) {
             // Если не авторизован - просим авторизацию
-            userData.setState("waiting_leaderboard_name");
+            userData.setState(UserState.WAITING_LEADERBOARD_NAME);
             return new Content[] {
                     new Content(true, chatId,REGISTRATION_MESSAGE)
             };
         }
 
         // Если авторизован - показываем меню
-        userData.setState("menu");
+        userData.setState(UserState.MENU);
         userData.clearDuelData();
         return new Content[] {
                 new Content(true, chatId, START_MENU_MASSAGE, null, "mode_selection")
@@ -943,14 +1106,14 @@ public class Producer {
      * @return массив контента для ответа со списком тем
      */
     public Content[] startTopicSelection(String chatId, UserData userData) {
-        System.out.println("[PRODUCER] Запуск выбора темы для " + chatId);
+        log.info(() -> "Запуск выбора темы для " + chatId);
 
         DiskMemory memory = new DiskMemory();
         memory.reConnect("/choose.json");
         memory.read();
 
         if (!memory.hasData() || memory.getData().length == 0) {
-            System.err.println("[PRODUCER] Ошибка: choose.json не загружен или пуст");
+            log.error("Ошибка: choose.json не загружен или пуст");
             return new Content[] {
                     new Content(true, chatId, "❌ Нет доступных тем для викторины", null, "menu")
             };
@@ -959,10 +1122,10 @@ public class Producer {
         TopicSelector topicSelector = new TopicSelector();
         topicSelector.initializeFromMemory(memory);
         userData.setTopicSelector(topicSelector);
-        userData.setState("topic_selection");
+        userData.setState(UserState.TOPIC_SELECTION);
 
         String displayMessage = topicSelector.getDisplayMessage();
-        System.out.println("[PRODUCER] Пользователь " + chatId + " начал выбор темы, доступно тем: " + topicSelector.getTopicCount());
+        log.info(() -> "Пользователь " + chatId + " начал выбор темы, доступно тем: " + topicSelector.getTopicCount());
 
         return new Content[] {
                 new Content(true, chatId, displayMessage, null, "choice_quiz")
@@ -984,22 +1147,20 @@ public class Producer {
             };
         }
 
-        // Проверяем режим
+        // Режим может начать игру по теме сам (дуэль - поиск соперника)
+        String selectedTopicFileName = userData.getTopicSelector().getCurrentTopic();
         ModeSelector currentMode = userData.getCurrentMode();
-
-        if (currentMode instanceof DuelMode duelMode) {
-            // ДУЭЛЬ: начинаем поиск по выбранной теме
-            String selectedTopicFileName = userData.getTopicSelector().getCurrentTopic();
-            return duelMode.startLocalDuelSearch(selectedTopicFileName);
+        Content[] started = currentMode != null ? currentMode.startWithTopic(selectedTopicFileName) : null;
+        if (started != null) {
+            return started;
         }
 
         // СОЛО: обычная логика
-        String selectedTopicFileName = userData.getTopicSelector().getCurrentTopic();
         String displayMessage = userData.getTopicSelector().getDisplayMessage();
         String[] lines = displayMessage.split("\n");
         String selectedTopicDisplayName = lines.length >= 3 ? lines[2].trim() : selectedTopicFileName;
 
-        System.out.println("[PRODUCER] Запуск викторины по теме: " + selectedTopicFileName);
+        log.info(() -> "Запуск викторины по теме: " + selectedTopicFileName);
 
         DiskMemory memory = new DiskMemory();
         memory.reConnect("/" + selectedTopicFileName + ".json");
@@ -1012,7 +1173,7 @@ public class Producer {
         }
 
         userData.setCurrentQuiz(new Quiz(memory));
-        userData.setState("quiz");
+        userData.setState(UserState.QUIZ);
         userData.setTopicSelector(null);
 
         String firstQuestion = userData.getCurrentQuiz().getCurrentQuestionText();
@@ -1059,7 +1220,7 @@ public class Producer {
      */
     private Content[] handleSoloCompletion(String chatId, UserData userData, String results) {
         userData.setCurrentQuiz(null);
-        userData.setState("menu");
+        userData.setState(UserState.MENU);
 
         return new Content[] {
                 new Content(true, chatId, results, null, "go_menu")
@@ -1080,28 +1241,55 @@ public class Producer {
 
         long playerTime = userData.markDuelCompletion();
 
-        System.out.println("[PRODUCER] Дуэль завершена для " + chatId +
+        log.info(() -> "Дуэль завершена для " + chatId +
                 ": score=" + playerScore + "/5, time=" + playerTime + "мс (" + (playerTime/1000.0) + "сек)");
 
         String results = quiz.getResults();
 
-        // Получаем DuelMode для обработки результатов
+        // Результаты обрабатывает режим, который ведет дуэль
         ModeSelector currentMode = userData.getCurrentMode();
-        if (currentMode instanceof DuelMode) {
-            DuelMode duelMode = (DuelMode) currentMode;
-
+        if (currentMode != null) {
             userData.setCurrentQuiz(null);
-            userData.setState("duel_results");
+        }
 
-            // Передаем СКОР и ФИНАЛЬНОЕ ВРЕМЯ ЭТОГО игрока
-            return duelMode.finishDuel(playerScore, playerTime);
-        } else {
-            userData.setState("menu");
-            return new Content[] {
-                    new Content(true, chatId, "🏆 *ДУЭЛЬ ЗАВЕРШЕНА!*\n\n" + results),
-                    handleMenuCommand(chatId, userData)[0]
-            };
+        // Завершение меняет и данные соперника, поэтому выполняется в очередях обоих игроков
+        DuelPair pair = matchmaker != null ? matchmaker.getPairForPlayer(chatId) : null;
+        if (currentMode != null && pair != null) {
+            return executeForPlayers("duel.finish", chatId, pair.getOpponentChatId(chatId),
+                    () -> finishDuelWithMode(chatId, userData, currentMode, playerScore, playerTime, results));
         }
+        return finishDuelWithMode(chatId, userData, currentMode, playerScore, playerTime, results);
+    }
+
+    /**
+     * Передает результаты игрока режиму дуэли; без режима показывает только результаты викторины.
+     *
+     * @param chatId идентификатор чата
+     * @param userData данные пользователя
+     * @param currentMode режим, который ведет дуэль, или null
+     * @param playerScore количество правильных ответов игрока
+     * @param playerTime время прохождения в миллисекундах
+     * @param results текстовые результаты викторины
+     * @return массив контента для ответа с результатами дуэли
+     */
+    private Content[] finishDuelWithMode(String chatId, UserData userData, ModeSelector currentMode,
+                                         int playerScore, long playerTime, String results) {
+        if (currentMode != null) {
+            // Передаем СКОР и ФИНАЛЬНОЕ ВРЕМЯ ЭТОГО игрока.
+            // Состояние выбирает режим: первый завершивший переходит в ожидание соперника
+            Content[] finished = currentMode.finishGame(playerScore, playerTime);
+            if (finished != null) {
+                if (userData.getState() == UserState.QUIZ) {
+                    userData.setState(UserState.DUEL_RESULTS);
+                }
+                return finished;
+            }
+        }
+        userData.setState(UserState.MENU);
+        return new Content[] {
+                new Content(true, chatId, "🏆 *ДУЭЛЬ ЗАВЕРШЕНА!*\n\n" + results),
+                handleMenuCommand(chatId, userData)[0]
+        };
     }
 
     /**
@@ -1119,7 +1307,7 @@ public class Producer {
     public Content[] startDuelQuizWithTopicForBothPlayers(String player1ChatId, UserData player1Data,
                                                           String player2ChatId, UserData player2Data,
                                                           String topic, String duelId) {
-        System.out.println("[PRODUCER] Запуск дуэли для обоих игроков, тема: " + topic + ", duelId: " + duelId);
+        log.info(() -> "Запуск дуэли для обоих игроков, тема: " + topic + ", duelId: " + duelId);
 
         DiskMemory memory = new DiskMemory();
         memory.reConnect("/" + topic + ".json");
@@ -1147,14 +1335,14 @@ public class Producer {
 
         // Настраиваем первого игрока
         player1Data.setCurrentQuiz(duelQuiz1);
-        player1Data.setState("quiz");
+        player1Data.setState(UserState.QUIZ);
         player1Data.setQuizMode("duel");
         player1Data.setDuelId(duelId);
         player1Data.markDuelStartTime(); // Старт таймера дуэли
 
         // Настраиваем второго игрока
         player2Data.setCurrentQuiz(duelQuiz2);
-        player2Data.setState("quiz");
+        player2Data.setState(UserState.QUIZ);
         player2Data.setQuizMode("duel");
         player2Data.setDuelId(duelId);
         player2Data.markDuelStartTime(); // Старт таймера дуэли
@@ -1187,7 +1375,7 @@ public class Producer {
                                                            String player2ChatId, UserData player2Data,
                                                            String topic, String duelId) {
         try {
-            System.out.println("[PRODUCER] Запуск дуэли с генерацией для обоих игроков, тема: " + topic + ", duelId: " + duelId);
+            log.info(() -> "Запуск дуэли с генерацией для обоих игроков, тема: " + topic + ", duelId: " + duelId);
 
             AiMemory generatedMemory = duelQuestionsCache.get(duelId);
 
@@ -1195,9 +1383,9 @@ public class Producer {
                 // Генерируем викторину с помощью ИИ (ОДИН РАЗ!)
                 generatedMemory = createQuiz.generateQuiz(topic);
                 duelQuestionsCache.put(duelId, generatedMemory);
-                System.out.println("[PRODUCER] Шаблон вопросов сгенерирован и закеширован, duelId: " + duelId);
+                log.info(() -> "Шаблон вопросов сгенерирован и закеширован, duelId: " + duelId);
             } else {
-                System.out.println("[PRODUCER] Используем закешированный шаблон вопросов, duelId: " + duelId);
+                log.info(() -> "Используем закешированный шаблон вопросов, duelId: " + duelId);
             }
 
             // СОЗДАЕМ ГЛУБОКИЕ КОПИИ для каждого игрока вплодь до квиз даты
@@ -1205,12 +1393,12 @@ public class Producer {
             AiMemory memory2 = generatedMemory.copy();
 
             // Проверяем, что это разные объекты
-            System.out.println("[PRODUCER] memory1 == memory2: " + (memory1 == memory2));
-            System.out.println("[PRODUCER] memory1.getData() == memory2.getData(): " +
+            log.debug(() -> "memory1 == memory2: " + (memory1 == memory2));
+            log.debug(() -> "memory1.getData() == memory2.getData(): " +
                     (memory1.getData() == memory2.getData()));
 
             if (memory1.getData().length > 0 && memory2.getData().length > 0) {
-                System.out.println("[PRODUCER] memory1.getData()[0] == memory2.getData()[0]: " +
+                log.debug(() -> "memory1.getData()[0] == memory2.getData()[0]: " +
                         (memory1.getData()[0] == memory2.getData()[0]));
             }
 
@@ -1220,14 +1408,14 @@ public class Producer {
 
             // Настраиваем первого игрока
             player1Data.setCurrentQuiz(duelQuiz1);
-            player1Data.setState("quiz");
+            player1Data.setState(UserState.QUIZ);
             player1Data.setQuizMode("duel");
             player1Data.setDuelId(duelId);
             player1Data.markDuelStartTime();
 
             // Настраиваем второго игрока
             player2Data.setCurrentQuiz(duelQuiz2);
-            player2Data.setState("quiz");
+            player2Data.setState(UserState.QUIZ);
             player2Data.setQuizMode("duel");
             player2Data.setDuelId(duelId);
             player2Data.markDuelStartTime();
@@ -1236,7 +1424,7 @@ public class Producer {
             String firstQuestion1 = duelQuiz1.getCurrentQuestionText();
             String firstQuestion2 = duelQuiz2.getCurrentQuestionText();
 
-            System.out.println("[PRODUCER] Дуэль начата: " +
+            log.info(() -> "Дуэль начата: " +
                     player1ChatId + " и " + player2ChatId +
                     ", шаблон один, но ответы изолированы");
 
@@ -1248,12 +1436,11 @@ public class Producer {
             };
 
         } catch (Exception e) {
-            System.err.println("[PRODUCER] Ошибка генерации викторины для дуэли: " + e.getMessage());
-            e.printStackTrace();
+            log.error(() -> "Ошибка генерации викторины для дуэли: " + e.getMessage(), e);
 
             // Сбрасываем состояния обоих игроков в случае ошибки
-            player1Data.setState("menu");
-            player2Data.setState("menu");
+            player1Data.setState(UserState.MENU);
+            player2Data.setState(UserState.MENU);
             player1Data.clearDuelData();
             player2Data.clearDuelData();
 
@@ -1280,7 +1467,7 @@ public class Producer {
     public void clearDuelCache(String duelId) {
         if (duelId != null) {
             duelQuestionsCache.remove(duelId);
-            System.out.println("[PRODUCER] Кеш вопросов дуэли очищен, duelId: " + duelId);
+            log.info(() -> "Кеш вопросов дуэли очищен, duelId: " + duelId);
         }
     }
 
@@ -1321,8 +1508,8 @@ public class Producer {
      * @return массив контента для ответа с меню
      */
     public Content[] handleMenuCommand(String chatId, UserData userData) {
-        System.out.println("[PRODUCER] Обработка команды меню");
-        userData.setState("menu");
+        log.debug("Обработка команды меню");
+        userData.setState(UserState.MENU);
         userData.clearDuelData();
         return new Content[] {
                 new Content(true, chatId, MENU_MESSAGE, null, "menu")
@@ -17,6 +17,15 @@ abstract public class AbstractMemory {
         this.data = data != null ? data : new DataQuestion[0];
     }
 
+    /**
+     * Возвращает ключ неизменного источника вопросов (например, файла темы).
+     * Вопросы с ключом одинаковы у всех игроков, и их тексты можно кешировать.
+     * @return ключ источника или null, если вопросы уникальны для этой викторины
+     */
+    public String getSourceKey() {
+        return null;
+    }
+
     /**
      * Проверяет, есть ли загруженные данные.
      * @return true если данные загружены, false иначе
@@ -1,5 +1,7 @@
 package org.example.Quiz.Memory;
 
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
 import org.example.Quiz.DataQuestion;
 
 /**
@@ -7,13 +9,13 @@ import org.example.Quiz.DataQuestion;
  * Просто хранит данные и пишет логи.
  */
 public class AiMemory extends AbstractMemory {
-    private final String name = "AI_MEMORY";
+    private static final Logger log = LogManager.getLogger("AI_MEMORY");
 
     /**
      * Создаёт пустую память.
      */
     public AiMemory() {
-        System.out.println("[" + name + "] Создана пустая память");
+        log.debug("Создана пустая память");
     }
 
     /**
@@ -23,7 +25,7 @@ public class AiMemory extends AbstractMemory {
      */
     public AiMemory(DataQuestion[] data, String topic) {
         setData(data);
-        System.out.println("[" + name + "] Создана память с " + getData().length +
+        log.debug(() -> "Создана память с " + getData().length +
                 " вопросами по теме: " + topic);
     }
 
@@ -43,10 +45,10 @@ public class AiMemory extends AbstractMemory {
             }
 
             this.setData(copiedData);
-            System.out.println("[" + name + "] Создана ГЛУБОКАЯ копия памяти с " +
+            log.debug(() -> "Создана ГЛУБОКАЯ копия памяти с " +
                     copiedData.length + " вопросами");
         } else {
-            System.out.println("[" + name + "] Создана пустая копия памяти");
+            log.debug("Создана пустая копия памяти");
         }
     }
 
@@ -57,7 +59,7 @@ public class AiMemory extends AbstractMemory {
     @Override
     public void setData(DataQuestion[] data) {
         super.setData(data);
-        System.out.println("[" + name + "] Установлено " + super.getData().length + " вопросов");
+        log.debug(() -> "Установлено " + super.getData().length + " вопросов");
     }
 
     /**
@@ -72,7 +74,7 @@ public class AiMemory extends AbstractMemory {
      */
     @Override
     public DataQuestion[] getData() {
-        System.out.println("[" + name + "] Вернула " + super.getData().length + " вопросов");
+        log.debug(() -> "Вернула " + super.getData().length + " вопросов");
         return super.getData();
     }
 
@@ -1,7 +1,11 @@
 package org.example.Quiz.Memory;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
 import org.example.Quiz.DataQuestion;
+import org.example.Tracing.Span;
+import org.example.Tracing.Tracer;
 
 import java.io.IOException;
 
@@ -10,9 +14,12 @@ import java.io.IOException;
  * Загружает данные при инициализации.
  */
 public class DiskMemory extends AbstractMemory {
-    private final String name = "MEMORY";
+    private static final Logger log = LogManager.getLogger("MEMORY");
+
     private final ObjectMapper mapper = new ObjectMapper();
     private String filePath = "/choose.json";
+    // Файл, из которого загружены текущие данные; null если данные заданы вручную
+    private String loadedFrom;
 
     /**
      * Конструктор по умолчанию - загружает choose.json.
@@ -42,22 +49,37 @@ public class DiskMemory extends AbstractMemory {
      * Загружает данные из текущего файла.
      */
     public void read() {
-        try {
+        try (Span span = Tracer.global().span("disk.read")) {
             DataQuestion[] arr = mapper.readValue(getClass().getResourceAsStream(filePath), DataQuestion[].class);
             setData(arr);
-            System.out.println("[" + name + "] Загружено " + getData().length + " вопросов из " + filePath);
+            loadedFrom = filePath;
+            log.info(() -> "Загружено " + getData().length + " вопросов из " + filePath);
         } catch (IOException e) {
-            System.err.println("[" + name + "] Ошибка загрузки данных из " + filePath + ": " + e.getMessage());
+            log.error(() -> "Ошибка загрузки данных из " + filePath + ": " + e.getMessage());
             setData(new DataQuestion[0]);
         } catch (NullPointerException e) {
-            System.err.println("[" + name + "] Файл не найден: " + filePath);
+            log.error(() -> "Файл не найден: " + filePath);
             setData(new DataQuestion[0]);
         }
     }
 
+    @Override
+    public void setData(DataQuestion[] data) {
+        loadedFrom = null;
+        super.setData(data);
+    }
+
+    /**
+     * @return файл темы, если данные загружены из него
+     */
+    @Override
+    public String getSourceKey() {
+        return loadedFrom;
+    }
+
     @Override
     public DataQuestion[] getData() {
-        System.out.println("[" + name + "] Вернула " + super.getData().length + " вопросов");
+        log.debug(() -> "Вернула " + super.getData().length + " вопросов");
         return super.getData();
     }
 
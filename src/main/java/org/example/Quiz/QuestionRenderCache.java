@@ -0,0 +1,130 @@
+package org.example.Quiz;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кеш готовых текстов вопросов из банка тем.
+ * Текст вопроса из файла темы зависит только от (тема, номер вопроса, выбранный ответ),
+ * поэтому при первом показе вопроса сразу готовятся все варианты: без ответа и с ответом A-D.
+ * Строки неизменяемы и общие для всех игроков темы: показ, навигация и ответ сводятся к поиску в таблице.
+ *
+ * Вопросы без темы (сгенерированные ИИ) и ответы, введенные текстом, форматируются без кеша.
+ * Размер кеша ограничен банком тем: по пять строк на вопрос.
+ */
+public final class QuestionRenderCache {
+    private static final String[] LETTERS = {"A", "B", "C", "D"};
+
+    private record Key(String source, int index) {}
+
+    private static final Map<Key, String[]> CACHE = new ConcurrentHashMap<>();
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    private QuestionRenderCache() {
+    }
+
+    /**
+     * Возвращает текст вопроса темы из кеша, при первом обращении готовит все его варианты.
+     *
+     * @param source тема (файл банка вопросов)
+     * @param index индекс вопроса
+     * @param total количество вопросов в теме
+     * @param question вопрос
+     * @param userAnswer выбранный ответ или null
+     * @return текст вопроса
+     */
+    static String get(String source, int index, int total, DataQuestion question, String userAnswer) {
+        int slot = answerSlot(userAnswer);
+        if (slot < 0) {
+            misses.incrementAndGet();
+            return render(question, index, total, userAnswer);
+        }
+
+        String[] variants = CACHE.get(new Key(source, index));
+        if (variants == null) {
+            misses.incrementAndGet();
+            variants = CACHE.computeIfAbsent(new Key(source, index), key -> renderAll(question, index, total));
+        } else {
+            hits.incrementAndGet();
+        }
+        return variants[slot];
+    }
+
+    /**
+     * Форматирует вопрос с навигацией и вариантами ответов.
+     *
+     * @param question вопрос
+     * @param index индекс вопроса
+     * @param total количество вопросов
+     * @param userAnswer выбранный ответ или null
+     * @return текст вопроса
+     */
+    static String render(DataQuestion question, int index, int total, String userAnswer) {
+        StringBuilder result = new StringBuilder();
+
+        result.append("🎯 Вопрос ").append(index + 1)
+                .append(" из ").append(total)
+                .append("\n\n");
+
+        result.append(question.getQuestion()).append("\n\n");
+
+        String[] options = question.getOptions();
+        for (int i = 0; i < options.length; i++) {
+            String letter = i < LETTERS.length ? LETTERS[i] : "?";
+            result.append(letter).append(") ").append(options[i]).append("\n");
+        }
+
+        if (userAnswer != null && !userAnswer.isEmpty()) {
+            result.append("\n📝 Ваш ответ: ").append(userAnswer);
+        }
+
+        return result.toString();
+    }
+
+    private static String[] renderAll(DataQuestion question, int index, int total) {
+        String[] variants = new String[LETTERS.length + 1];
+        variants[0] = render(question, index, total, null);
+        for (int i = 0; i < LETTERS.length; i++) {
+            variants[i + 1] = render(question, index, total, LETTERS[i]);
+        }
+        return variants;
+    }
+
+    /**
+     * @return 0 - без ответа, 1-4 - ответ A-D, -1 - ответ не из кнопок
+     */
+    private static int answerSlot(String userAnswer) {
+        if (userAnswer == null || userAnswer.isEmpty()) {
+            return 0;
+        }
+        for (int i = 0; i < LETTERS.length; i++) {
+            if (LETTERS[i].equals(userAnswer)) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return количество показов, взятых из кеша (для метрик)
+     */
+    public static long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return количество показов, отформатированных заново (для метрик)
+     */
+    public static long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return количество закешированных вопросов
+     */
+    public static int size() {
+        return CACHE.size();
+    }
+}
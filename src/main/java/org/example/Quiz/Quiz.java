@@ -1,5 +1,7 @@
 package org.example.Quiz;
 
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
 import org.example.Quiz.Memory.AbstractMemory;
 import org.example.Quiz.Memory.DiskMemory;
 
@@ -10,6 +12,8 @@ import org.example.Quiz.Memory.DiskMemory;
  * подсчета очков и управления прогрессом викторины.
  */
 public class Quiz {
+    private static final Logger log = LogManager.getLogger("QUIZ");
+
     private AbstractMemory memory;
     private int currentQuestionIndex = 0;
     private int score = 0;
@@ -20,7 +24,7 @@ public class Quiz {
      */
     public Quiz(AbstractMemory memory) {
         this.memory = memory;
-        System.out.println("[QUIZ] Создан Quiz, вопросов=" + memory.getData().length);
+        log.debug(() -> "Создан Quiz, вопросов=" + memory.getData().length);
     }
 
     /**
@@ -158,7 +162,7 @@ public class Quiz {
      */
     public String processAnswer(String answerText) {
         DataQuestion[] data = memory.getData();
-        System.out.println("[QUIZ] Обработка ответа '" + answerText + "' на вопрос " + (currentQuestionIndex + 1));
+        log.debug(() -> "Обработка ответа '" + answerText + "' на вопрос " + (currentQuestionIndex + 1));
 
         if (currentQuestionIndex >= data.length) {
             return "❌ Викторина завершена!";
@@ -177,13 +181,13 @@ public class Quiz {
                     score++;
                 }
                 result = "✅ Ваш ответ \"" + answerText + "\" успешно сохранен!";
-                System.out.println("[QUIZ] Правильный ответ! Счет: " + score);
+                log.debug(() -> "Правильный ответ! Счет: " + score);
             } else {
                 if (previousAnswer != null && currentDataQuestion.validAnswer(convertAnswerToIndex(previousAnswer))) {
                     score--;
                 }
                 result = "✅ Ваш ответ \"" + answerText + "\" успешно сохранен!";
-                System.out.println("[QUIZ] Ответ сохранен. Счет: " + score);
+                log.debug(() -> "Ответ сохранен. Счет: " + score);
             }
         } else {
             result = "ℹ️ Вы уже выбрали этот ответ";
@@ -216,7 +220,7 @@ public class Quiz {
         } else if (currentQuestionIndex == data.length - 1) {
             currentQuestionIndex = data.length;
         }
-        System.out.println("[QUIZ] Переход к позиции: " + currentQuestionIndex);
+        log.debug(() -> "Переход к позиции: " + currentQuestionIndex);
     }
 
     /**
@@ -234,7 +238,7 @@ public class Quiz {
         } else {
             currentQuestionIndex = data.length - 1;
         }
-        System.out.println("[QUIZ] Переход к позиции: " + currentQuestionIndex);
+        log.debug(() -> "Переход к позиции: " + currentQuestionIndex);
     }
 
     /**
@@ -242,7 +246,7 @@ public class Quiz {
      */
     public void goToFinalMessage() {
         currentQuestionIndex = memory.getData().length;
-        System.out.println("[QUIZ] Переход к финальному сообщению");
+        log.debug("Переход к финальному сообщению");
     }
 
     /**
@@ -253,7 +257,7 @@ public class Quiz {
         DataQuestion[] data = memory.getData();
         if (data.length > 0) {
             currentQuestionIndex = 0;
-            System.out.println("[QUIZ] Переход к первому вопросу с сохраненными ответами");
+            log.debug("Переход к первому вопросу с сохраненными ответами");
         }
     }
 
@@ -267,39 +271,23 @@ public class Quiz {
         for (DataQuestion dataQuestion : memory.getData()) {
             dataQuestion.setUserAnswer(null);
         }
-        System.out.println("[QUIZ] Состояние викторины сброшено");
+        log.debug("Состояние викторины сброшено");
     }
 
     /**
      * Форматирует вопрос с навигацией и вариантами ответов.
+     * Вопросы из банка тем берутся из {@link QuestionRenderCache}.
      * @param dataQuestion объект вопроса
      * @param questionIndex индекс вопроса
      * @return форматированная строка с вопросом
      */
     private String formatQuestionWithNavigation(DataQuestion dataQuestion, int questionIndex) {
-        StringBuilder result = new StringBuilder();
-        DataQuestion[] data = memory.getData();
-
-        result.append("🎯 Вопрос ").append(questionIndex + 1)
-                .append(" из ").append(data.length)
-                .append("\n\n");
-
-        result.append(dataQuestion.getQuestion()).append("\n\n");
-
-        String[] options = dataQuestion.getOptions();
-        String userAnswer = dataQuestion.getUserAnswer();
-
-        for (int i = 0; i < options.length; i++) {
-            String letter = convertIndexToLetter(i);
-            String optionText = options[i];
-            result.append(letter).append(") ").append(optionText).append("\n");
-        }
-
-        if (userAnswer != null && !userAnswer.isEmpty()) {
-            result.append("\n📝 Ваш ответ: ").append(userAnswer);
+        int total = memory.getData().length;
+        String source = memory.getSourceKey();
+        if (source != null) {
+            return QuestionRenderCache.get(source, questionIndex, total, dataQuestion, dataQuestion.getUserAnswer());
         }
-
-        return result.toString();
+        return QuestionRenderCache.render(dataQuestion, questionIndex, total, dataQuestion.getUserAnswer());
     }
 
     /**
@@ -332,19 +320,4 @@ public class Quiz {
             default -> -1;
         };
     }
-
-    /**
-     * Конвертирует индекс варианта в букву.
-     * @param index индекс варианта (0-3)
-     * @return буква варианта (A, B, C, D) или "?" если индекс невалидный
-     */
-    private String convertIndexToLetter(int index) {
-        return switch (index) {
-            case 0 -> "A";
-            case 1 -> "B";
-            case 2 -> "C";
-            case 3 -> "D";
-            default -> "?";
-        };
-    }
 }
\ No newline at end of file
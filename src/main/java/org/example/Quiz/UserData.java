@@ -1,17 +1,27 @@
 package org.example.Quiz;
 
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
 import org.example.TopicSelector.TopicSelector;
 import org.example.ModeGame.ModeSelector;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Класс для хранения данных пользователя.
  */
 public class UserData {
-    private String state;
-    private int score;
+    private static final Logger log = LogManager.getLogger("USER_DATA");
+
+    // Строгая проверка переходов (исключение вместо предупреждения) включается в тестах
+    private static volatile boolean strictTransitions = Boolean.getBoolean("state.strict");
+
+    // Загружается из файла напрямую, минуя проверку переходов
+    @JsonProperty("state")
+    private UserState state;
+    private volatile int score;
     private Map<String, Integer> allScore;
     private String leaderboardName;
 
@@ -44,27 +54,90 @@ public class UserData {
     @JsonIgnore
     private transient long searchStartTime;
 
+    // Уведомляет Users об изменении сохраняемых полей (пользователь попадает в ближайший сегмент снимка)
+    @JsonIgnore
+    private transient Runnable changeListener;
+
     /**
      * Конструктор по умолчанию для Jackson
      */
     public UserData() {
-        this.state = "menu";
+        this.state = UserState.MENU;
         this.score = 0;
-        this.allScore = new HashMap<>();
+        this.allScore = new ConcurrentHashMap<>();
     }
 
     // Геттеры и сеттеры для основных полей
-    public String getState() { return state; }
-    public void setState(String state) { this.state = state; }
+    public UserState getState() { return state; }
+
+    /**
+     * Переводит пользователя в новое состояние.
+     * Переход, которого нет в таблице {@link UserState}, отклоняется с предупреждением в логе:
+     * пользователь остается в текущем состоянии, а обработка обновления продолжается.
+     *
+     * @param state новое состояние
+     * @return true если состояние изменено
+     * @throws IllegalStateException если переход не разрешен и включена строгая проверка
+     */
+    @JsonIgnore
+    public boolean setState(UserState state) {
+        UserState current = this.state;
+        if (!current.canTransitionTo(state)) {
+            if (strictTransitions) {
+                throw new IllegalStateException("Недопустимый переход состояния: " + current + " -> " + state);
+            }
+            log.warn(() -> "Недопустимый переход состояния " + current + " -> " + state + " отклонен");
+            return false;
+        }
+        this.state = state;
+        changed();
+        return true;
+    }
+
+    /**
+     * Включает строгую проверку переходов: недопустимый переход бросает исключение.
+     * По умолчанию задается системным свойством state.strict (включено в тестах).
+     *
+     * @param strict true - бросать исключение, false - только предупреждать
+     */
+    public static void setStrictTransitions(boolean strict) {
+        strictTransitions = strict;
+    }
 
     public int getScore() { return score; }
-    public void setScore(int score) { this.score = score; }
+    public void setScore(int score) {
+        this.score = score;
+        changed();
+    }
 
     public Map<String, Integer> getAllScore() { return allScore; }
-    public void setAllScore(Map<String, Integer> allScore) { this.allScore = allScore; }
+    // Историю читает сохранение на диск, пока очередь чата ее дополняет
+    public void setAllScore(Map<String, Integer> allScore) {
+        this.allScore = allScore != null ? new ConcurrentHashMap<>(allScore) : new ConcurrentHashMap<>();
+        changed();
+    }
 
     public String getLeaderboardName() { return leaderboardName; }
-    public void setLeaderboardName(String leaderboardName) { this.leaderboardName = leaderboardName; }
+    public void setLeaderboardName(String leaderboardName) {
+        this.leaderboardName = leaderboardName;
+        changed();
+    }
+
+    /**
+     * Задает обработчик изменений сохраняемых полей (состояние, счет, история результатов, имя).
+     * Историю результатов Users дополняет только вместе с {@link #setScore}.
+     *
+     * @param changeListener обработчик или null
+     */
+    @JsonIgnore
+    public void setChangeListener(Runnable changeListener) { this.changeListener = changeListener; }
+
+    private void changed() {
+        Runnable listener = changeListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
 
     // Геттеры для только для внутреннего использования
     @JsonIgnore
@@ -116,6 +189,8 @@ public class UserData {
     @JsonIgnore
     public long getDuelStartTime() { return duelStartTime; }
     @JsonIgnore
+    public void setDuelStartTime(long duelStartTime) { this.duelStartTime = duelStartTime; }
+    @JsonIgnore
     public long getDuelEndTime() { return duelEndTime; }
 
     @JsonIgnore
@@ -200,33 +275,33 @@ public class UserData {
 
     @JsonIgnore
     public boolean isInMenu() {
-        return "menu".equals(state);
+        return state == UserState.MENU;
     }
 
     @JsonIgnore
     public boolean isInQuiz() {
-        return state != null && state.contains("quiz");
+        return state == UserState.QUIZ;
     }
 
     @JsonIgnore
     public boolean isInTopicSelection() {
-        return state != null && state.contains("topic_selection");
+        return state == UserState.TOPIC_SELECTION;
     }
 
     public void resetSession() {
-        this.state = "menu";
+        this.state = UserState.MENU;
         this.clearDuelData();
         this.currentQuiz = null;
         this.topicSelector = null;
         this.currentMode = null;
     }
 
-    public void addScore(int points) {
+    public synchronized void addScore(int points) {
         this.score += points;
     }
 
     public void updateTopicScore(String topicName, int points) {
-        allScore.put(topicName, allScore.getOrDefault(topicName, 0) + points);
+        allScore.merge(topicName, points, Integer::sum);
     }
 
     @JsonIgnore
@@ -240,6 +315,6 @@ public class UserData {
     @Override
     public String toString() {
         return String.format("UserData{state='%s', score=%d, leaderboardName='%s'}",
-                state, score, leaderboardName);
+                state.getCode(), score, leaderboardName);
     }
 }
\ No newline at end of file
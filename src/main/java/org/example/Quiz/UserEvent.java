@@ -0,0 +1,70 @@
+package org.example.Quiz;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.example.DataMessage.Constants.*;
+
+/**
+ * Событие от пользователя: команда, текст или нажатие конкретной кнопки.
+ * Вместе с {@link UserState} задает ключ таблицы обработчиков в Producer.
+ * Кнопки выбора игрового режима здесь не перечисляются: их регистрируют сами режимы
+ * в {@link org.example.ModeGame.ModeRegistry}, а Producer сводит их к событию {@link #MODE}.
+ */
+public enum UserEvent {
+    COMMAND,
+    TEXT,
+    QUIZ,
+    PLAY,
+    MENU,
+    MODE,
+    GENERATION,
+    END_QUIZ,
+    TOPIC_NAVIGATION,
+    QUIZ_NAVIGATION,
+    ANSWER,
+    AT_THE_TOP,
+    UNKNOWN_BUTTON;
+
+    private static final Map<String, UserEvent> BY_CALLBACK = new HashMap<>();
+
+    static {
+        BY_CALLBACK.put(QUIZ_BUTTON, QUIZ);
+        BY_CALLBACK.put(PLAY_BUTTON, PLAY);
+        BY_CALLBACK.put(MENU_BUTTON, MENU);
+        BY_CALLBACK.put(GENERATION_BUTTON, GENERATION);
+        BY_CALLBACK.put(END_QUIZ_BUTTON, END_QUIZ);
+        BY_CALLBACK.put(TOPIC_FORWARDS_BUTTON, TOPIC_NAVIGATION);
+        BY_CALLBACK.put(TOPIC_BACKWARDS_BUTTON, TOPIC_NAVIGATION);
+        BY_CALLBACK.put(QUIZ_FORWARDS_BUTTON, QUIZ_NAVIGATION);
+        BY_CALLBACK.put(QUIZ_BACKWARDS_BUTTON, QUIZ_NAVIGATION);
+        BY_CALLBACK.put(A_BUTTON, ANSWER);
+        BY_CALLBACK.put(B_BUTTON, ANSWER);
+        BY_CALLBACK.put(C_BUTTON, ANSWER);
+        BY_CALLBACK.put(D_BUTTON, ANSWER);
+        BY_CALLBACK.put(AT_THE_TOP_BUTTON, AT_THE_TOP);
+    }
+
+    /**
+     * Определяет событие по тексту ввода.
+     *
+     * @param input текст сообщения или данные callback
+     * @return команда (начинается с "/"), кнопка (оканчивается на "_button") или текст
+     */
+    public static UserEvent of(String input) {
+        if (input.startsWith("/")) {
+            return COMMAND;
+        }
+        if (input.endsWith("_button")) {
+            return BY_CALLBACK.getOrDefault(input, UNKNOWN_BUTTON);
+        }
+        return TEXT;
+    }
+
+    /**
+     * @return true если событие начинает новую игру или выбор режима
+     */
+    public boolean startsNewGame() {
+        return this == QUIZ || this == PLAY || this == MODE || this == GENERATION;
+    }
+}
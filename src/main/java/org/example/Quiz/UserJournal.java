@@ -0,0 +1,369 @@
+package org.example.Quiz;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+import org.example.Metrics.Histogram;
+import org.example.Metrics.MetricsRegistry;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Журнал упреждающей записи (write-ahead log) изменений пользователей.
+ * Каждое изменение (новый пользователь, начисление баллов, имя для лидерборда) дописывается
+ * в конец файла одной JSON-строкой, поэтому стоимость записи пропорциональна изменению, а не числу пользователей.
+ *
+ * Записи пишет один фоновый поток пачками: все изменения, накопившиеся за время предыдущей записи,
+ * попадают в файл одной операцией и одним fsync (group commit). Вызывающий поток
+ * при необходимости ждет, пока его запись окажется на диске ({@link #awaitDurable}).
+ *
+ * Записи идемпотентны (начисление баллов помечено ID викторины), поэтому повторное применение
+ * журнала к снимку, который уже содержит часть изменений, безопасно. На этом построено сжатие:
+ * журнал переименовывается ({@link #rotate()}), пишется полный снимок, переименованный журнал удаляется.
+ */
+public class UserJournal {
+    private static final Logger log = LogManager.getLogger("USER_JOURNAL");
+    private static final Histogram fsyncLatency = MetricsRegistry.global().histogram(
+            "quiz_users_journal_fsync_seconds", "Время записи и fsync пачки журнала пользователей");
+
+    private static final long RETRY_DELAY_MS = 100;
+
+    /**
+     * Запись журнала.
+     *
+     * @param op тип изменения: {@link #NEW_USER}, {@link #SCORE} или {@link #NAME}
+     * @param chatId пользователь
+     * @param delta начисленные баллы (для SCORE)
+     * @param quizId ID викторины в истории результатов (для SCORE)
+     * @param name имя для лидерборда (для NAME)
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Entry(String op, String chatId, Integer delta, String quizId, String name) {}
+
+    public static final String NEW_USER = "new";
+    public static final String SCORE = "score";
+    public static final String NAME = "name";
+
+    private final Path file;
+    private final Path rotated;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Thread writer;
+
+    // Очередь записей, ожидающих записи (под lock)
+    private final Object lock = new Object();
+    private List<byte[]> pending = new ArrayList<>();
+    private long appendedSeq;
+    private long durableSeq;
+    private boolean running = true;
+
+    // Открытый файл журнала: пишет только поток записи и rotate, оба под channelLock
+    private final Object channelLock = new Object();
+    private FileChannel channel;
+
+    private final AtomicLong entriesSinceRotate = new AtomicLong();
+    private final AtomicLong appendedCount = new AtomicLong();
+    private final AtomicLong syncCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /**
+     * Открывает журнал на дозапись и запускает поток записи.
+     *
+     * @param file файл журнала
+     * @throws IOException если файл не удалось открыть
+     */
+    public UserJournal(Path file) throws IOException {
+        this.file = file;
+        this.rotated = rotatedFile(file);
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = open(file);
+        this.writer = Thread.ofPlatform().daemon().name("users-journal").start(this::writeLoop);
+    }
+
+    /**
+     * Читает записи журнала, оставшиеся после прошлого запуска: сначала журнал прерванного сжатия,
+     * затем основной. Оборванная при падении последняя строка и поврежденные строки пропускаются.
+     *
+     * @param file файл журнала
+     * @param consumer получатель записей в порядке записи
+     * @return количество прочитанных записей
+     */
+    public static int replay(Path file, Consumer<Entry> consumer) {
+        ObjectMapper mapper = new ObjectMapper();
+        int count = 0;
+        for (Path source : List.of(rotatedFile(file), file)) {
+            if (!Files.exists(source)) {
+                continue;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        consumer.accept(mapper.readValue(line, Entry.class));
+                        count++;
+                    } catch (IOException e) {
+                        log.warn(() -> "Пропущена поврежденная запись журнала " + source + ": " + e.getMessage());
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Ошибка чтения журнала " + source, e);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Удаляет файлы журнала после того, как их записи вошли в снимок.
+     *
+     * @param file файл журнала
+     * @throws IOException если файлы не удалось удалить
+     */
+    public static void delete(Path file) throws IOException {
+        Files.deleteIfExists(rotatedFile(file));
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Ставит запись в очередь журнала. Не ждет записи на диск.
+     *
+     * @param entry запись
+     * @return порядковый номер записи для {@link #awaitDurable}, 0 если журнал закрыт
+     */
+    public long append(Entry entry) {
+        byte[] line;
+        try {
+            line = (mapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.error("Не удалось сериализовать запись журнала для " + entry.chatId(), e);
+            return 0;
+        }
+        synchronized (lock) {
+            if (!running) {
+                log.error(() -> "Журнал закрыт, запись для " + entry.chatId() + " не сохранена");
+                return 0;
+            }
+            pending.add(line);
+            appendedCount.incrementAndGet();
+            entriesSinceRotate.incrementAndGet();
+            lock.notifyAll();
+            return ++appendedSeq;
+        }
+    }
+
+    /**
+     * Ждет, пока запись с указанным номером (и все предыдущие) окажется на диске.
+     *
+     * @param seq номер записи из {@link #append}
+     * @param timeoutMillis максимальное время ожидания
+     * @return true если запись на диске
+     */
+    public boolean awaitDurable(long seq, long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (lock) {
+            while (durableSeq < seq) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    return false;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(lock, left);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Ждет записи на диск всех поставленных записей.
+     *
+     * @param timeoutMillis максимальное время ожидания
+     * @return true если все записи на диске
+     */
+    public boolean sync(long timeoutMillis) {
+        long seq;
+        synchronized (lock) {
+            seq = appendedSeq;
+        }
+        return awaitDurable(seq, timeoutMillis);
+    }
+
+    /**
+     * Основной цикл потока записи: забирает все накопившиеся записи и пишет их одной пачкой.
+     */
+    private void writeLoop() {
+        while (true) {
+            List<byte[]> batch;
+            long batchSeq;
+            synchronized (lock) {
+                while (pending.isEmpty() && running) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+                batchSeq = appendedSeq;
+            }
+
+            while (!write(batch)) {
+                failedCount.incrementAndGet();
+                try {
+                    Thread.sleep(RETRY_DELAY_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+
+            synchronized (lock) {
+                durableSeq = batchSeq;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private boolean write(List<byte[]> batch) {
+        long start = System.nanoTime();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(batch.size() * 96);
+        for (byte[] line : batch) {
+            bytes.writeBytes(line);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        synchronized (channelLock) {
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+                syncCount.incrementAndGet();
+                return true;
+            } catch (IOException e) {
+                log.error("Ошибка записи журнала " + file + ", повтор через " + RETRY_DELAY_MS + " мс", e);
+                return false;
+            } finally {
+                fsyncLatency.observeSince(start);
+            }
+        }
+    }
+
+    /**
+     * Начинает новый файл журнала: текущий файл переименовывается и ждет удаления в {@link #deleteRotated()}.
+     * Записи, поставленные после переименования, попадают в новый файл.
+     * Изменения в памяти применяются до записи в журнал, поэтому снимок,
+     * снятый после вызова, содержит все изменения из переименованного файла.
+     *
+     * Если прошлое сжатие не удалило свой файл, новый не начинается: записи остаются
+     * в текущем файле и войдут в следующий снимок.
+     *
+     * @throws IOException если файл не удалось переименовать или открыть
+     */
+    public void rotate() throws IOException {
+        synchronized (channelLock) {
+            if (Files.exists(rotated)) {
+                return;
+            }
+            channel.force(false);
+            channel.close();
+            Files.move(file, rotated, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = open(file);
+            entriesSinceRotate.set(0);
+        }
+    }
+
+    /**
+     * Удаляет файл, переименованный {@link #rotate()}, после записи снимка.
+     *
+     * @throws IOException если файл не удалось удалить
+     */
+    public void deleteRotated() throws IOException {
+        Files.deleteIfExists(rotated);
+    }
+
+    /**
+     * Дописывает оставшиеся записи и закрывает журнал.
+     *
+     * @param timeoutMillis максимальное время ожидания записи
+     */
+    public void close(long timeoutMillis) {
+        sync(timeoutMillis);
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+        try {
+            writer.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (channelLock) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.error("Ошибка закрытия журнала " + file, e);
+            }
+        }
+    }
+
+    /**
+     * @return количество записей с последнего сжатия
+     */
+    public long getEntriesSinceRotate() {
+        return entriesSinceRotate.get();
+    }
+
+    /**
+     * @return количество поставленных записей
+     */
+    public long getAppendedCount() {
+        return appendedCount.get();
+    }
+
+    /**
+     * @return количество fsync (пачек); отношение записей к пачкам показывает эффект group commit
+     */
+    public long getSyncCount() {
+        return syncCount.get();
+    }
+
+    /**
+     * @return количество неудачных попыток записи пачки
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static Path rotatedFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".compacting");
+    }
+}
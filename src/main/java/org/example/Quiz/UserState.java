@@ -0,0 +1,95 @@
+package org.example.Quiz;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Состояние пользователя в диалоге с ботом.
+ * В файле пользователей хранится строковым кодом (совместимым с прежним форматом).
+ *
+ * Таблица переходов задает, в какие состояния можно перейти из каждого:
+ * - в меню и к вводу имени можно перейти из любого состояния;
+ * - свободные состояния (меню, выбор темы, ввод темы, ввод имени, итоги дуэли) и викторина
+ *   позволяют начать новую игру;
+ * - во время поиска и ожидания в дуэли допустимы только ее продолжение и выход в меню.
+ */
+public enum UserState {
+    MENU("menu"),
+    TOPIC_SELECTION("topic_selection"),
+    WAITING_LEADERBOARD_NAME("waiting_leaderboard_name"),
+    WAITING_GENERATION_TOPIC("waiting_generation_topic"),
+    QUIZ("quiz"),
+    DUEL_SEARCHING("duel_searching"),
+    DUEL_MATCHED("duel_matched"),
+    DUEL_WAITING_OPPONENT("duel_waiting_opponent"),
+    DUEL_RESULTS("duel_results");
+
+    private static final Map<String, UserState> BY_CODE = new HashMap<>();
+    private static final Map<UserState, Set<UserState>> TRANSITIONS = new EnumMap<>(UserState.class);
+
+    static {
+        for (UserState state : values()) {
+            BY_CODE.put(state.code, state);
+        }
+
+        Set<UserState> newGame = EnumSet.of(TOPIC_SELECTION, WAITING_GENERATION_TOPIC, QUIZ, DUEL_SEARCHING, DUEL_MATCHED);
+        for (UserState idle : EnumSet.of(MENU, TOPIC_SELECTION, WAITING_LEADERBOARD_NAME, WAITING_GENERATION_TOPIC, DUEL_RESULTS)) {
+            allow(idle, newGame);
+        }
+        allow(QUIZ, newGame);
+        allow(QUIZ, EnumSet.of(DUEL_WAITING_OPPONENT, DUEL_RESULTS));
+        allow(DUEL_SEARCHING, EnumSet.of(QUIZ));
+        allow(DUEL_MATCHED, EnumSet.of(QUIZ));
+        allow(DUEL_WAITING_OPPONENT, EnumSet.of(DUEL_RESULTS));
+
+        for (UserState state : values()) {
+            allow(state, EnumSet.of(state, MENU, WAITING_LEADERBOARD_NAME));
+        }
+    }
+
+    private static void allow(UserState from, Set<UserState> to) {
+        TRANSITIONS.computeIfAbsent(from, s -> EnumSet.noneOf(UserState.class)).addAll(to);
+    }
+
+    private final String code;
+
+    UserState(String code) {
+        this.code = code;
+    }
+
+    /**
+     * @return строковый код состояния (для файла пользователей)
+     */
+    @JsonValue
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * Проверяет, разрешен ли переход в указанное состояние.
+     *
+     * @param target целевое состояние
+     * @return true если переход есть в таблице
+     */
+    public boolean canTransitionTo(UserState target) {
+        return TRANSITIONS.get(this).contains(target);
+    }
+
+    /**
+     * Находит состояние по строковому коду.
+     *
+     * @param code код из файла пользователей
+     * @return состояние, для неизвестного кода - {@link #MENU}
+     */
+    @JsonCreator
+    public static UserState fromCode(String code) {
+        UserState state = code != null ? BY_CODE.get(code) : null;
+        return state != null ? state : MENU;
+    }
+}
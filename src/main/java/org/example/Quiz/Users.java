@@ -2,40 +2,120 @@ package org.example.Quiz;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+import org.example.Metrics.Histogram;
+import org.example.Metrics.MetricsRegistry;
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Класс для управления пользователями викторины.
  * Обеспечивает хранение, загрузку и сохранение данных пользователей в JSON формате.
- * Автоматически сохраняет данные при завершении работы приложения.
+ * Сохранение при завершении работы выполняет ShutdownCoordinator (фаза FLUSH).
+ * Коллекция потокобезопасна: обновления разных чатов обрабатываются параллельно.
+ *
+ * С журналом ({@link UserJournal}) каждое изменение (новый пользователь, баллы, имя) сразу дописывается
+ * в журнал, и начисление баллов и смена имени возвращаются только после fsync своей записи,
+ * поэтому падение процесса не теряет результаты. Файл данных при этом служит снимком:
+ * при запуске к нему применяется журнал, а фоновое сжатие сохраняет снимок,
+ * когда журнал вырастает до {@link #COMPACT_THRESHOLD} записей.
+ *
+ * Снимок инкрементальный: {@link UserData} сообщает об изменении сохраняемых полей, и измененные
+ * пользователи попадают в набор «грязных». {@link #writeSegment()} пишет только их в файл сегмента
+ * ({@code <файл>.seg-000001}, ...), поэтому время записи зависит от числа изменений, а не от числа
+ * пользователей. Когда сегментов становится {@link #MERGE_THRESHOLD}, {@link #merge()} переписывает
+ * файл данных целиком и удаляет сегменты. При загрузке к файлу данных применяются сегменты по порядку.
+ * Сегмент пишется периодически (с журналом - при сжатии) и всегда при остановке ({@link #flush()}).
+ * Все файлы пишутся во временный файл, сбрасываются на диск (fsync) и атомарно переименовываются.
  */
 public class Users {
+    private static final Logger log = LogManager.getLogger("USERS");
+    private static final Histogram saveLatency = MetricsRegistry.global().histogram(
+            "quiz_users_save_seconds", "Время записи полного снимка пользователей");
+    private static final Histogram segmentLatency = MetricsRegistry.global().histogram(
+            "quiz_users_segment_seconds", "Время записи сегмента измененных пользователей");
+
+    public static final String DEFAULT_FILE = "users_data.json";
+    public static final String DEFAULT_JOURNAL = "users_data.journal";
+    public static final long COMPACT_THRESHOLD = 10_000;
+    public static final int MERGE_THRESHOLD = 16;
+    public static final long DEFAULT_SNAPSHOT_INTERVAL_MS = 10_000;
+
+    // Сколько изменение ждет fsync журнала, прежде чем продолжить без подтверждения
+    private static final long DURABLE_TIMEOUT_MS = 1000;
+    private static final long FLUSH_TIMEOUT_MS = 5000;
+
     private Map<String, UserData> users;
     private final String filePath;
+    private final Path dataFile;
+    // Полный снимок, записанный слиянием, но еще не замененный им файл данных
+    private final Path mergedFile;
+    private final Pattern segmentPattern;
     private final ObjectMapper mapper = new ObjectMapper();
+    private final UserJournal journal;
+    private ScheduledExecutorService snapshotter;
+
+    // Пользователи, измененные после последнего сегмента или слияния
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    // Номер следующего сегмента; сегменты пишутся под монитором Users
+    private long nextSegment = 1;
+
+    private final AtomicLong compactionCount = new AtomicLong();
+    private final AtomicLong segmentCount = new AtomicLong();
+    private final AtomicLong segmentUserCount = new AtomicLong();
+    private final AtomicLong mergeCount = new AtomicLong();
 
     /**
      * Конструктор класса Users с путем к файлу.
      * Инициализирует коллекцию пользователей, настраивает ObjectMapper
-     * и загружает данные с диска. Регистрирует shutdown hook для автоматического сохранения.
+     * и загружает данные с диска.
      *
      * @param filePath путь к файлу для сохранения/загрузки данных
      */
     public Users(String filePath) {
+        this(filePath, null);
+    }
+
+    /**
+     * Конструктор класса Users с файлом данных и журналом изменений.
+     * Загружает снимок и его сегменты, применяет к ним записи журнала, оставшиеся после прошлого запуска,
+     * и, если они были, сразу переписывает снимок и очищает журнал.
+     * Фоновая запись снимков запускается отдельно ({@link #start(long)}).
+     *
+     * @param filePath путь к файлу данных (снимку)
+     * @param journalFile путь к журналу изменений или null, чтобы сохранять только файл данных
+     */
+    public Users(String filePath, Path journalFile) {
         this.filePath = filePath;
-        users = new HashMap<>();
+        this.dataFile = Paths.get(filePath).toAbsolutePath();
+        this.mergedFile = dataFile.resolveSibling(dataFile.getFileName() + ".merged");
+        this.segmentPattern = Pattern.compile(Pattern.quote(dataFile.getFileName().toString()) + "\\.seg-(\\d+)");
+        users = new ConcurrentHashMap<>();
 
-        mapper.enable(SerializationFeature.INDENT_OUTPUT);
         mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
         loadFromDisk();
-        Runtime.getRuntime().addShutdownHook(new Thread(this::saveToDisk));
+        users.forEach(this::track);
+
+        this.journal = journalFile != null ? openJournal(journalFile) : null;
     }
 
     /**
@@ -43,7 +123,105 @@ public class Users {
      * Использует путь по умолчанию "users_data.json".
      */
     public Users() {
-        this("users_data.json");
+        this(DEFAULT_FILE);
+    }
+
+    /**
+     * Запускает фоновую запись снимков. Без журнала каждые {@code intervalMillis} пишется сегмент
+     * измененных пользователей; с журналом сегмент пишется при сжатии журнала и при остановке.
+     *
+     * @param intervalMillis интервал в миллисекундах
+     */
+    public synchronized void start(long intervalMillis) {
+        if (snapshotter != null) {
+            return;
+        }
+        snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "users-snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotter.scheduleWithFixedDelay(() -> {
+            try {
+                compactIfNeeded();
+            } catch (Exception e) {
+                log.error("Ошибка записи снимка пользователей", e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Подписывается на изменения пользователя.
+     */
+    private void track(String chatId, UserData user) {
+        user.setChangeListener(() -> dirty.add(chatId));
+    }
+
+    /**
+     * Применяет журнал прошлого запуска и открывает журнал на дозапись.
+     */
+    private UserJournal openJournal(Path journalFile) {
+        int replayed = UserJournal.replay(journalFile, this::apply);
+        if (replayed > 0) {
+            log.info(() -> "Из журнала " + journalFile + " применено изменений: " + replayed);
+            try {
+                mergeSnapshot();
+                UserJournal.delete(journalFile);
+            } catch (IOException e) {
+                // Журнал остается: при следующем запуске он будет применен повторно
+                log.error("Не удалось переписать снимок после применения журнала", e);
+            }
+        }
+        try {
+            return new UserJournal(journalFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал пользователей " + journalFile, e);
+        }
+    }
+
+    /**
+     * Применяет запись журнала. Повторное применение записи не меняет результат.
+     */
+    private void apply(UserJournal.Entry entry) {
+        if (entry.chatId() == null) {
+            return;
+        }
+        UserData user = users.computeIfAbsent(entry.chatId(), id -> {
+            UserData created = new UserData();
+            track(id, created);
+            dirty.add(id);
+            return created;
+        });
+        switch (entry.op()) {
+            case UserJournal.SCORE -> {
+                if (entry.quizId() != null && entry.delta() != null && !user.getAllScore().containsKey(entry.quizId())) {
+                    user.setScore(user.getScore() + entry.delta());
+                    user.getAllScore().put(entry.quizId(), entry.delta());
+                }
+            }
+            case UserJournal.NAME -> user.setLeaderboardName(entry.name());
+            default -> {
+                // NEW_USER: пользователь уже создан
+            }
+        }
+    }
+
+    /**
+     * Пишет запись в журнал, если он включен.
+     *
+     * @return номер записи для ожидания fsync или 0
+     */
+    private long appendJournal(String op, String chatId, Integer delta, String quizId, String name) {
+        return journal != null ? journal.append(new UserJournal.Entry(op, chatId, delta, quizId, name)) : 0;
+    }
+
+    /**
+     * Ждет fsync записи журнала.
+     */
+    private void awaitDurable(long seq, String chatId) {
+        if (seq > 0 && !journal.awaitDurable(seq, DURABLE_TIMEOUT_MS)) {
+            log.warn(() -> "Изменение пользователя " + chatId + " не записано на диск за " + DURABLE_TIMEOUT_MS + " мс");
+        }
     }
 
     /**
@@ -61,12 +239,16 @@ public class Users {
      * @return объект UserData для указанного пользователя
      */
     public UserData getOrCreate(String chatId) {
-        if (!has(chatId)) {
-            UserData newUser = new UserData();
-            users.put(chatId, newUser);
-            System.out.println("[USERS] Создан новый пользователь: " + chatId);
-        }
-        return users.get(chatId);
+        return users.computeIfAbsent(chatId, id -> {
+            log.info(() -> "Создан новый пользователь: " + id);
+            UserData user = new UserData();
+            track(id, user);
+            // Отмечаем до записи в журнал: сегмент, снятый после сжатия журнала, должен включить пользователя
+            dirty.add(id);
+            // fsync не ждем: запись уйдет на диск с ближайшей пачкой журнала
+            appendJournal(UserJournal.NEW_USER, id, null, null, null);
+            return user;
+        });
     }
 
     /**
@@ -87,8 +269,13 @@ public class Users {
     public void setLeaderboardName(String chatId, String name) {
         UserData user = users.get(chatId);
         if (user != null) {
-            user.setLeaderboardName(name);
-            System.out.println("[USERS] Установлено имя для лидерборда: " + chatId + " -> " + name);
+            long seq;
+            synchronized (user) {
+                user.setLeaderboardName(name);
+                seq = appendJournal(UserJournal.NAME, chatId, null, null, name);
+            }
+            awaitDurable(seq, chatId);
+            log.info(() -> "Установлено имя для лидерборда: " + chatId + " -> " + name);
         }
     }
 
@@ -101,13 +288,23 @@ public class Users {
     public void updateUserScore(String chatId, int quizScore) {
         UserData user = users.get(chatId);
         if (user != null) {
-            int oldScore = user.getScore();
-            user.setScore(oldScore + quizScore);
-
-            String quizId = "quiz_" + System.currentTimeMillis();
-            user.getAllScore().put(quizId, quizScore);
+            int oldScore;
+            long seq;
+            // Счет могут обновлять очередь чата и таймер дуэли: чтение и запись - под монитором пользователя
+            synchronized (user) {
+                oldScore = user.getScore();
+                user.setScore(oldScore + quizScore);
+
+                String quizId = "quiz_" + System.currentTimeMillis();
+                for (int n = 1; user.getAllScore().containsKey(quizId); n++) {
+                    quizId = "quiz_" + System.currentTimeMillis() + "_" + n;
+                }
+                user.getAllScore().put(quizId, quizScore);
+                seq = appendJournal(UserJournal.SCORE, chatId, quizScore, quizId, null);
+            }
+            awaitDurable(seq, chatId);
 
-            System.out.println("[USERS] Обновлен счет пользователя " + chatId +
+            log.info(() -> "Обновлен счет пользователя " + chatId +
                     ": +" + quizScore + " баллов (было: " + oldScore + ", стало: " + user.getScore() + ")");
         }
     }
@@ -168,94 +365,349 @@ public class Users {
     }
 
     /**
-     * Сохраняет всех пользователей на диск в JSON формате.
-     * Выполняет проверку данных перед сохранением и логирует процесс.
-     * В случае ошибки выводит подробную информацию в консоль.
+     * Пишет сегмент снимка: только пользователей, измененных после предыдущего сегмента или слияния.
+     * Каждый пользователь копируется под своим монитором, чтобы счет и история результатов были согласованы.
+     * Если запись не удалась, пользователи остаются измененными и войдут в следующий сегмент.
+     *
+     * @return количество записанных пользователей (0, если изменений не было)
+     * @throws IOException если сегмент не удалось записать
+     */
+    public synchronized int writeSegment() throws IOException {
+        if (dirty.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        List<String> written = new ArrayList<>();
+        ObjectNode root = mapper.createObjectNode();
+        for (Iterator<String> it = dirty.iterator(); it.hasNext(); ) {
+            String chatId = it.next();
+            UserData user = users.get(chatId);
+            if (user == null) {
+                // Пользователь отмечен в getOrCreate, но еще не добавлен в коллекцию: войдет в следующий сегмент
+                continue;
+            }
+            // Изменение после удаления из набора снова отметит пользователя
+            it.remove();
+            written.add(chatId);
+            synchronized (user) {
+                root.set(chatId, mapper.valueToTree(user));
+            }
+        }
+        if (written.isEmpty()) {
+            return 0;
+        }
+
+        Path segment = segmentFile(nextSegment);
+        try {
+            writeAtomically(segment, mapper.writeValueAsBytes(root));
+        } catch (IOException e) {
+            dirty.addAll(written);
+            throw e;
+        } finally {
+            segmentLatency.observeSince(start);
+        }
+        nextSegment++;
+        segmentCount.incrementAndGet();
+        segmentUserCount.addAndGet(written.size());
+        log.debug(() -> "Записан сегмент " + segment.getFileName() + ", пользователей: " + written.size());
+        return written.size();
+    }
+
+    /**
+     * Сливает сегменты в файл данных: записывает полный снимок и удаляет сегменты.
+     * Без журнала это полное сохранение на диск.
+     */
+    public synchronized void merge() {
+        long start = System.nanoTime();
+        try {
+            int segments = mergeSnapshot();
+            log.info(() -> "Снимок пользователей записан целиком (слито сегментов: " + segments + ", пользователей: "
+                    + users.size() + ") за " + (System.nanoTime() - start) / 1_000_000 + " мс");
+        } catch (IOException e) {
+            log.error("Ошибка записи снимка пользователей " + filePath, e);
+        } finally {
+            saveLatency.observeSince(start);
+        }
+    }
+
+    /**
+     * Записывает полный снимок и удаляет сегменты, которые в него вошли.
+     * Снимок сначала становится файлом {@code .merged}: если процесс упадет до удаления сегментов,
+     * загрузка возьмет его и не применит к нему устаревшие сегменты.
+     *
+     * @return количество удаленных сегментов
+     */
+    private synchronized int mergeSnapshot() throws IOException {
+        // Снимаем отметки до копирования: изменение во время записи снова отметит пользователя
+        List<String> drained = new ArrayList<>(dirty);
+        dirty.removeAll(drained);
+
+        ObjectNode root = mapper.createObjectNode();
+        for (Map.Entry<String, UserData> entry : users.entrySet()) {
+            UserData user = entry.getValue();
+            synchronized (user) {
+                root.set(entry.getKey(), mapper.valueToTree(user));
+            }
+        }
+        try {
+            writeAtomically(mergedFile, mapper.writeValueAsBytes(root));
+        } catch (IOException e) {
+            dirty.addAll(drained);
+            throw e;
+        }
+        int segments = finishMerge();
+        mergeCount.incrementAndGet();
+        return segments;
+    }
+
+    /**
+     * Завершает слияние: удаляет сегменты и заменяет файл данных файлом {@code .merged}.
+     * Все сегменты на диске старше этого файла: новые пишутся только после завершения слияния.
+     */
+    private int finishMerge() throws IOException {
+        List<Path> segments = listSegments();
+        for (Path segment : segments) {
+            Files.deleteIfExists(segment);
+        }
+        Files.move(mergedFile, dataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return segments.size();
+    }
+
+    /**
+     * Сохраняет изменения при завершении работы: пишет сегмент измененных пользователей,
+     * а с журналом еще дожидается fsync его последних записей. Сегмент нужен и с журналом:
+     * журнал хранит только баллы и имена, а состояние пользователя есть только в снимке.
+     * Объем записи пропорционален изменениям.
+     */
+    public void flush() {
+        try {
+            int written = writeSegment();
+            log.info(() -> "Изменения пользователей сохранены, пользователей в сегменте: " + written);
+        } catch (IOException e) {
+            log.error("Ошибка сохранения изменений пользователей", e);
+        }
+        if (journal == null) {
+            return;
+        }
+        if (journal.sync(FLUSH_TIMEOUT_MS)) {
+            log.info("Журнал пользователей записан на диск");
+        } else {
+            log.error(() -> "Журнал пользователей не записан на диск за " + FLUSH_TIMEOUT_MS + " мс");
+        }
+    }
+
+    /**
+     * Периодическая задача: без журнала пишет сегмент на каждом шаге,
+     * с журналом - только когда журнал вырос до порога.
+     */
+    private void compactIfNeeded() {
+        if (journal == null || journal.getEntriesSinceRotate() >= COMPACT_THRESHOLD) {
+            compact();
+        }
+    }
+
+    /**
+     * Сохраняет изменения в сегмент и сливает сегменты, когда их накопилось {@link #MERGE_THRESHOLD}.
+     * С журналом сначала начинается новый файл журнала, а старый удаляется после записи сегмента:
+     * изменения в памяти применяются до записи в журнал, поэтому сегмент содержит все его записи.
+     * Обработка обновлений при этом не останавливается: изменения во время записи попадают
+     * в новый файл журнала и в набор измененных пользователей.
      */
-    public synchronized void saveToDisk() {
+    public synchronized void compact() {
+        long start = System.nanoTime();
         try {
-            System.out.println("[USERS-DEBUG] Начало сохранения, users size: " + users.size());
-
-            if (users.isEmpty()) {
-                System.out.println("[USERS-DEBUG] Нет пользователей для сохранения");
-                // Создаем пустой JSON объект
-                try (FileOutputStream fos = new FileOutputStream(filePath, false); // false = перезапись
-                     OutputStreamWriter osw = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
-                     BufferedWriter writer = new BufferedWriter(osw)) {
-                    writer.write("{}");
+            if (journal != null) {
+                journal.rotate();
+            }
+            writeSegment();
+            if (journal != null) {
+                journal.deleteRotated();
+                compactionCount.incrementAndGet();
+                log.info(() -> "Журнал пользователей сжат за " + (System.nanoTime() - start) / 1_000_000 + " мс");
+            }
+        } catch (IOException e) {
+            // Переименованный журнал остается и будет применен при запуске или удален следующим сжатием
+            log.error("Ошибка записи сегмента пользователей", e);
+            return;
+        }
+        if (listSegments().size() >= MERGE_THRESHOLD) {
+            merge();
+        }
+    }
+
+    /**
+     * Записывает данные во временный файл, сбрасывает его на диск и атомарно заменяет им целевой файл.
+     */
+    private static void writeAtomically(Path target, byte[] bytes) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path segmentFile(long number) {
+        return dataFile.resolveSibling(String.format("%s.seg-%06d", dataFile.getFileName(), number));
+    }
+
+    /**
+     * @return файлы сегментов в порядке записи
+     */
+    private List<Path> listSegments() {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dataFile.getParent())) {
+            for (Path path : stream) {
+                if (segmentPattern.matcher(path.getFileName().toString()).matches()) {
+                    segments.add(path);
                 }
-                return;
             }
+        } catch (IOException e) {
+            log.error("Не удалось прочитать список сегментов пользователей", e);
+        }
+        segments.sort(Comparator.comparingLong(this::segmentNumber));
+        return segments;
+    }
+
+    private long segmentNumber(Path segment) {
+        Matcher matcher = segmentPattern.matcher(segment.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : 0;
+    }
 
-            for (Map.Entry<String, UserData> entry : users.entrySet()) {
-                UserData user = entry.getValue();
-                System.out.println("[USERS-DEBUG] " + entry.getKey() +
-                        " -> state: " + user.getState() +
-                        ", score: " + user.getScore());
+    /**
+     * Останавливает фоновую запись снимков и закрывает журнал (для тестов и повторного открытия).
+     */
+    public void close() {
+        synchronized (this) {
+            if (snapshotter != null) {
+                snapshotter.shutdownNow();
+                snapshotter = null;
             }
+        }
+        if (journal != null) {
+            journal.close(FLUSH_TIMEOUT_MS);
+        }
+    }
+
+    /**
+     * @return журнал изменений или null, если он выключен
+     */
+    public UserJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * @return количество выполненных сжатий журнала
+     */
+    public long getCompactionCount() {
+        return compactionCount.get();
+    }
+
+    /**
+     * @return количество записанных сегментов
+     */
+    public long getSegmentCount() {
+        return segmentCount.get();
+    }
 
-            String json = mapper.writeValueAsString(users);
-            System.out.println("[USERS-DEBUG] Сгенерированный JSON (первые 200 символов): " +
-                    (json.length() > 200 ? json.substring(0, 200) + "..." : json));
+    /**
+     * @return количество пользователей, записанных в сегменты; вместе с {@link #getSegmentCount()}
+     * показывает, сколько пользователей в среднем меняется между снимками
+     */
+    public long getSegmentUserCount() {
+        return segmentUserCount.get();
+    }
 
-            // используем FileOutputStream с append = false
-            try (FileOutputStream fos = new FileOutputStream(filePath, false); // false = ПЕРЕЗАПИСЬ
-                 OutputStreamWriter osw = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
-                 BufferedWriter writer = new BufferedWriter(osw)) {
+    /**
+     * @return количество полных снимков (слияний сегментов)
+     */
+    public long getMergeCount() {
+        return mergeCount.get();
+    }
 
-                writer.write(json);
-                writer.flush();
+    /**
+     * @return количество пользователей, измененных после последнего снимка
+     */
+    public int getDirtyCount() {
+        return dirty.size();
+    }
 
-                System.out.println("[USERS-DEBUG] Файл полностью перезаписан, размер: " + json.length() + " байт");
+    /**
+     * @return количество пользователей
+     */
+    public int size() {
+        return users.size();
+    }
 
+    /**
+     * Загружает пользователей с диска: файл данных, затем сегменты по порядку
+     * (более поздняя запись пользователя заменяет ранние).
+     * Если прошлое слияние прервалось после записи полного снимка, сначала завершает его.
+     */
+    private void loadFromDisk() {
+        if (Files.exists(mergedFile)) {
+            try {
+                finishMerge();
+                log.info("Завершено прерванное слияние снимка пользователей");
             } catch (IOException e) {
-                System.err.println("[USERS-ERROR] Ошибка записи файла: " + e.getMessage());
-                throw e;
+                log.error("Не удалось завершить прерванное слияние снимка пользователей", e);
             }
+        }
+        loadDataFile();
 
-            System.out.println("[USERS] Данные успешно сохранены");
-
-        } catch (Exception e) {
-            System.err.println("[USERS-ERROR] Критическая ошибка сохранения: " + e.getMessage());
-            e.printStackTrace();
+        for (Path segment : listSegments()) {
+            nextSegment = segmentNumber(segment) + 1;
+            try {
+                Map<String, UserData> changed = mapper.readValue(segment.toFile(),
+                        new TypeReference<Map<String, UserData>>() {});
+                users.putAll(changed);
+                log.debug(() -> "Применен сегмент " + segment.getFileName() + ", пользователей: " + changed.size());
+            } catch (IOException e) {
+                // Сегменты пишутся атомарно, поэтому поврежденный сегмент - внешняя порча; остальные применяем
+                log.error("Пропущен поврежденный сегмент пользователей " + segment, e);
+            }
         }
     }
 
     /**
-     * Загружает пользователей с диска из JSON файла.
+     * Загружает файл данных.
      * В случае повреждения файла автоматически создает новую коллекцию
      * и удаляет поврежденный файл.
      */
-    private void loadFromDisk() {
+    private void loadDataFile() {
         try {
             if (Files.exists(Paths.get(filePath))) {
                 String json = new String(Files.readAllBytes(Paths.get(filePath)));
 
                 // Проверяем валидность JSON
                 if (json.trim().isEmpty()) {
-                    System.out.println("[USERS] Файл пуст, создана новая коллекция");
-                    users = new HashMap<>();
+                    log.info("Файл пуст, создана новая коллекция");
+                    users = new ConcurrentHashMap<>();
                     return;
                 }
 
-                users = mapper.readValue(json, new TypeReference<Map<String, UserData>>() {});
-                System.out.println("[USERS] Данные пользователей загружены из файла: " + filePath +
+                users = new ConcurrentHashMap<>(mapper.readValue(json, new TypeReference<Map<String, UserData>>() {}));
+                log.info(() -> "Данные пользователей загружены из файла: " + filePath +
                         ", пользователей: " + users.size());
             } else {
-                System.out.println("[USERS] Файл с данными пользователей не найден, создана новая коллекция");
-                users = new HashMap<>();
+                log.info("Файл с данными пользователей не найден, создана новая коллекция");
+                users = new ConcurrentHashMap<>();
             }
         } catch (Exception e) {
-            System.err.println("[USERS] Ошибка при загрузке данных пользователей: " + e.getMessage());
-            System.out.println("[USERS] Удаляю поврежденный файл и создаю новую коллекцию");
+            log.error(() -> "Ошибка при загрузке данных пользователей: " + e.getMessage());
+            log.info("Удаляю поврежденный файл и создаю новую коллекцию");
 
             try {
                 Files.deleteIfExists(Paths.get(filePath));
             } catch (IOException deleteError) {
-                System.err.println("[USERS] Не удалось удалить поврежденный файл: " + deleteError.getMessage());
+                log.error(() -> "Не удалось удалить поврежденный файл: " + deleteError.getMessage());
             }
 
-            users = new HashMap<>();
+            users = new ConcurrentHashMap<>();
         }
     }
 }
\ No newline at end of file
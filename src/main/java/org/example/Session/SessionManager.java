@@ -0,0 +1,364 @@
+package org.example.Session;
+
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+import org.example.Producer;
+import org.example.Quiz.Quiz;
+import org.example.Quiz.UserData;
+import org.example.Quiz.UserState;
+import org.example.Quiz.Users;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Вытеснение неактивных сессий из памяти.
+ * Сессия - временные данные пользователя (текущая викторина, выбор темы, режим),
+ * которые иначе живут в UserData, пока пользователь не нажмет что-то другое.
+ *
+ * Раз в интервал вытесняются сессии:
+ * - неактивные дольше TTL;
+ * - самые давние сверх максимального количества сессий.
+ * Пользователи в дуэли не вытесняются: на их данные ссылаются подбор соперника и таймеры.
+ * Вытеснение выполняется в очереди чата, поэтому не пересекается с обработкой его обновлений.
+ *
+ * Сессии также переживают перезапуск бота: после изменения сессия помечается измененной,
+ * и раз в интервал снимки измененных сессий записываются в {@link SessionSnapshotStore}
+ * (в очереди чата), а при остановке - все оставшиеся.
+ * Снимок восстанавливается лениво, при первом обращении пользователя после запуска или вытеснения.
+ * Дуэли перезапуск не переживают (см. {@link SessionSnapshotStore}).
+ */
+public class SessionManager {
+    private static final Logger log = LogManager.getLogger("SESSIONS");
+
+    public static final String DEFAULT_DIR = "sessions";
+    public static final long DEFAULT_TTL_MS = 30 * 60 * 1000L;
+    public static final int DEFAULT_MAX_SESSIONS = 10_000;
+    public static final long DEFAULT_SWEEP_INTERVAL_MS = 60 * 1000L;
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 5 * 1000L;
+    // Сколько хранятся сгенерированные вопросы сохраненных сессий
+    private static final long GENERATED_TTL_MS = 7 * 24 * 60 * 60 * 1000L;
+
+    private final Users users;
+    private final long ttlMillis;
+    private final int maxSessions;
+    private final SessionSnapshotStore store;
+
+    // chatId -> время последнего обращения
+    private final Map<String, Long> lastAccess = new ConcurrentHashMap<>();
+    // Сессии, измененные после последнего снимка
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService sweeper;
+
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong spilledCount = new AtomicLong();
+    private final AtomicLong resumedCount = new AtomicLong();
+    private final AtomicLong snapshotCount = new AtomicLong();
+    private final AtomicLong interruptedDuelCount = new AtomicLong();
+
+    /**
+     * Создает менеджер с настройками по умолчанию.
+     *
+     * @param users пользователи
+     * @param spillDir папка снимков сессий или null
+     */
+    public SessionManager(Users users, Path spillDir) {
+        this(users, DEFAULT_TTL_MS, DEFAULT_MAX_SESSIONS, spillDir);
+    }
+
+    /**
+     * @param users пользователи
+     * @param ttlMillis время неактивности, после которого сессия вытесняется
+     * @param maxSessions максимальное количество сессий в памяти
+     * @param spillDir папка снимков сессий или null (не сохранять)
+     */
+    public SessionManager(Users users, long ttlMillis, int maxSessions, Path spillDir) {
+        this.users = users;
+        this.ttlMillis = ttlMillis;
+        this.maxSessions = maxSessions;
+        this.store = spillDir != null ? new SessionSnapshotStore(spillDir) : null;
+    }
+
+    /**
+     * Отмечает обращение пользователя. Вызывается в очереди чата.
+     * При первом обращении после запуска или вытеснения сессия восстанавливается из снимка,
+     * а если снимка нет - состояние, которому нужны потерянные данные сессии, сбрасывается в меню.
+     * Дуэль, прерванная перезапуском, не восстанавливается: игрок возвращается в меню.
+     *
+     * @param chatId ID чата
+     * @param userData данные пользователя
+     * @return true если дуэль игрока прервана перезапуском и ему нужно об этом сообщить
+     */
+    public boolean touch(String chatId, UserData userData) {
+        boolean firstAccess = lastAccess.put(chatId, System.currentTimeMillis()) == null;
+        if (!firstAccess || userData.getCurrentQuiz() != null || userData.getDuelId() != null) {
+            return false;
+        }
+        if (store != null && store.dropDuel(chatId)) {
+            // После завершения дуэли игрок уже в меню или в результатах - тогда снимок просто устарел
+            UserState state = userData.getState();
+            if (state == UserState.MENU || state == UserState.DUEL_RESULTS) {
+                return false;
+            }
+            userData.clearDuelData();
+            userData.setState(UserState.MENU);
+            interruptedDuelCount.incrementAndGet();
+            return true;
+        }
+        if (store != null && store.restore(chatId, userData)) {
+            if (userData.getState() == UserState.MENU) {
+                userData.setState(UserState.QUIZ);
+            }
+            resumedCount.incrementAndGet();
+            log.info(() -> "Сессия " + chatId + " восстановлена");
+            return false;
+        }
+        UserState state = userData.getState();
+        if (userData.getCurrentQuiz() == null && userData.getTopicSelector() == null && state != UserState.MENU
+                && state != UserState.WAITING_LEADERBOARD_NAME && state != UserState.WAITING_GENERATION_TOPIC) {
+            log.info(() -> "Сессия " + chatId + " потеряна, состояние " + state + " сброшено в меню");
+            userData.setState(UserState.MENU);
+        }
+        return false;
+    }
+
+    /**
+     * Помечает сессию измененной: ее снимок будет записан при следующем сбросе.
+     *
+     * @param chatId ID чата
+     */
+    public void markDirty(String chatId) {
+        if (store != null && chatId != null) {
+            dirty.add(chatId);
+        }
+    }
+
+    /**
+     * Ставит запись снимков измененных сессий в очереди их чатов.
+     *
+     * @param chatExecutor исполнитель задач в очередях чатов
+     */
+    public void flushDirty(Producer.ChatExecutor chatExecutor) {
+        for (String chatId : List.copyOf(dirty)) {
+            dirty.remove(chatId);
+            chatExecutor.execute(List.of(chatId), () -> snapshot(chatId));
+        }
+    }
+
+    /**
+     * Записывает снимки всех измененных сессий в текущем потоке.
+     * Вызывается при остановке, после того как очереди чатов опустели.
+     */
+    public void flushNow() {
+        int count = dirty.size();
+        for (String chatId : List.copyOf(dirty)) {
+            dirty.remove(chatId);
+            snapshot(chatId);
+        }
+        log.info(() -> "Сохранено снимков сессий: " + count);
+    }
+
+    /**
+     * Записывает снимок сессии в памяти или удаляет его, если сессия завершена.
+     * Сессии, которых нет в памяти (вытесненные или еще не восстановленные), не трогаются:
+     * их снимок на диске актуальнее.
+     *
+     * @param chatId ID чата
+     */
+    void snapshot(String chatId) {
+        UserData userData = users.get(chatId);
+        if (store == null || userData == null || !lastAccess.containsKey(chatId)) {
+            return;
+        }
+        if (store.save(chatId, userData)) {
+            snapshotCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Запускает периодическое вытеснение и запись снимков.
+     *
+     * @param chatExecutor исполнитель задач в очередях чатов
+     * @param intervalMillis интервал проверки в миллисекундах
+     * @param flushIntervalMillis интервал записи снимков в миллисекундах
+     */
+    public synchronized void start(Producer.ChatExecutor chatExecutor, long intervalMillis, long flushIntervalMillis) {
+        if (sweeper != null) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                sweep(chatExecutor);
+            } catch (Exception e) {
+                log.error("Ошибка вытеснения сессий", e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        if (store != null) {
+            sweeper.scheduleWithFixedDelay(() -> {
+                try {
+                    flushDirty(chatExecutor);
+                } catch (Exception e) {
+                    log.error("Ошибка записи снимков сессий", e);
+                }
+            }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        log.info(() -> "Вытеснение сессий запущено: TTL " + ttlMillis / 1000 + " сек, максимум " + maxSessions);
+    }
+
+    /**
+     * Останавливает периодическое вытеснение и запись снимков.
+     */
+    public synchronized void stop() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+
+    /**
+     * Выбирает сессии для вытеснения и ставит вытеснение каждой в очередь ее чата.
+     *
+     * @param chatExecutor исполнитель задач в очередях чатов
+     */
+    public void sweep(Producer.ChatExecutor chatExecutor) {
+        long now = System.currentTimeMillis();
+        for (String chatId : selectForEviction(now)) {
+            chatExecutor.execute(List.of(chatId), () -> evict(chatId, now));
+        }
+        if (store != null) {
+            store.purgeGenerated(now - GENERATED_TTL_MS);
+        }
+    }
+
+    /**
+     * Выбирает сессии старше TTL и самые давние сверх максимального количества.
+     *
+     * @param now текущее время в миллисекундах
+     * @return ID чатов для вытеснения
+     */
+    List<String> selectForEviction(long now) {
+        List<Map.Entry<String, Long>> sessions = new ArrayList<>(lastAccess.entrySet());
+        sessions.sort(Map.Entry.comparingByValue(Comparator.naturalOrder()));
+
+        List<String> selected = new ArrayList<>();
+        int overflow = sessions.size() - maxSessions;
+        for (Map.Entry<String, Long> session : sessions) {
+            boolean expired = now - session.getValue() >= ttlMillis;
+            if (!expired && overflow <= 0) {
+                // Остальные сессии свежее
+                break;
+            }
+            selected.add(session.getKey());
+            overflow--;
+        }
+        return selected;
+    }
+
+    /**
+     * Вытесняет сессию, если с момента выбора к ней никто не обращался.
+     * Вызывается в очереди чата.
+     *
+     * @param chatId ID чата
+     * @param selectedAt время выбора сессии для вытеснения
+     * @return true если сессия вытеснена
+     */
+    boolean evict(String chatId, long selectedAt) {
+        Long accessed = lastAccess.get(chatId);
+        if (accessed == null || accessed > selectedAt) {
+            return false;
+        }
+        UserData userData = users.get(chatId);
+        if (userData == null) {
+            lastAccess.remove(chatId);
+            return false;
+        }
+        if (isInDuel(userData)) {
+            return false;
+        }
+
+        Quiz quiz = userData.getCurrentQuiz();
+        if (quiz != null && store != null && store.save(chatId, userData)) {
+            spilledCount.incrementAndGet();
+        }
+        dirty.remove(chatId);
+
+        userData.setCurrentQuiz(null);
+        userData.setTopicSelector(null);
+        userData.setCurrentMode(null);
+        // Состояния, которым нужны вытесненные данные, возвращаются в меню
+        UserState state = userData.getState();
+        if (state == UserState.QUIZ || state == UserState.TOPIC_SELECTION) {
+            userData.setState(UserState.MENU);
+        }
+        lastAccess.remove(chatId, accessed);
+        evictedCount.incrementAndGet();
+        log.debug(() -> "Сессия " + chatId + " вытеснена");
+        return true;
+    }
+
+    private boolean isInDuel(UserData userData) {
+        UserState state = userData.getState();
+        return userData.getDuelId() != null
+                || "duel".equals(userData.getQuizMode())
+                || state == UserState.DUEL_SEARCHING
+                || state == UserState.DUEL_MATCHED
+                || state == UserState.DUEL_WAITING_OPPONENT;
+    }
+
+    /**
+     * @return количество сессий в памяти
+     */
+    public int getActiveCount() {
+        return lastAccess.size();
+    }
+
+    /**
+     * @return количество вытесненных сессий
+     */
+    public long getEvictedCount() {
+        return evictedCount.get();
+    }
+
+    /**
+     * @return количество викторин, сохраненных на диск при вытеснении
+     */
+    public long getSpilledCount() {
+        return spilledCount.get();
+    }
+
+    /**
+     * @return количество восстановленных сессий
+     */
+    public long getResumedCount() {
+        return resumedCount.get();
+    }
+
+    /**
+     * @return количество записанных снимков сессий
+     */
+    public long getSnapshotCount() {
+        return snapshotCount.get();
+    }
+
+    /**
+     * @return количество дуэлей, прерванных перезапуском
+     */
+    public long getInterruptedDuelCount() {
+        return interruptedDuelCount.get();
+    }
+}
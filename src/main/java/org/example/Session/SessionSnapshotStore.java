@@ -0,0 +1,298 @@
+package org.example.Session;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+import org.example.Quiz.DataQuestion;
+import org.example.Quiz.Memory.AbstractMemory;
+import org.example.Quiz.Memory.AiMemory;
+import org.example.Quiz.Memory.DiskMemory;
+import org.example.Quiz.Quiz;
+import org.example.Quiz.UserData;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Снимки сессий пользователей: по файлу на чат в папке сессий.
+ *
+ * Снимок компактный и не содержит текстов вопросов:
+ * - для темы из банка - файл темы, вопросы при восстановлении берутся из банка;
+ * - для сгенерированной викторины - ID вопросов, сами вопросы один раз пишутся в generated/ID.json
+ *   (ID зависит от содержимого, поэтому оба игрока дуэли ссылаются на один файл);
+ * - номер вопроса, счет и ответы пользователя.
+ *
+ * Сессия дуэли не восстанавливается: пара соперников, таймеры и режим дуэли живут только в памяти,
+ * и без них игра не может завершиться для обоих игроков. Для дуэли в снимке хранится только ее ID,
+ * чтобы после перезапуска сообщить игроку, что дуэль прервана ({@link #dropDuel}).
+ */
+public class SessionSnapshotStore {
+    private static final Logger log = LogManager.getLogger("SESSION_STORE");
+
+    private static final String GENERATED_DIR = "generated";
+
+    /**
+     * Снимок сессии.
+     *
+     * @param topic файл темы из банка или null
+     * @param generated ID сгенерированных вопросов или null
+     * @param answers ответы пользователя по номерам вопросов (null - нет ответа)
+     * @param duel ID дуэли, в которой был игрок, или null
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record SessionSnapshot(String topic, String generated, int index, int score,
+                           String[] answers, String duel) {}
+
+    /**
+     * Сгенерированный вопрос.
+     */
+    record GeneratedQuestion(String question, String[] options, int answer) {}
+
+    private final Path dir;
+    private final Path generatedDir;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * @param dir папка снимков
+     */
+    public SessionSnapshotStore(Path dir) {
+        this.dir = dir;
+        this.generatedDir = dir.resolve(GENERATED_DIR);
+    }
+
+    /**
+     * Записывает снимок сессии или удаляет его, если сохранять нечего.
+     *
+     * @param chatId ID чата
+     * @param userData данные пользователя
+     * @return true если снимок записан
+     */
+    public boolean save(String chatId, UserData userData) {
+        Quiz quiz = userData.getCurrentQuiz();
+        String duel = userData.getDuelId();
+        if (quiz == null && duel == null) {
+            delete(chatId);
+            return false;
+        }
+
+        try {
+            Files.createDirectories(dir);
+            SessionSnapshot snapshot = duel == null
+                    ? snapshotOf(quiz)
+                    : new SessionSnapshot(null, null, 0, 0, null, duel);
+            writeAtomically(file(chatId), snapshot);
+            return true;
+        } catch (IOException e) {
+            log.error("Не удалось сохранить сессию " + chatId, e);
+            return false;
+        }
+    }
+
+    /**
+     * Восстанавливает викторину из снимка.
+     * Снимок остается на диске до следующей записи, чтобы сессия пережила и повторный перезапуск.
+     *
+     * @param chatId ID чата
+     * @param userData данные пользователя
+     * @return true если сессия восстановлена
+     */
+    public boolean restore(String chatId, UserData userData) {
+        SessionSnapshot snapshot = read(chatId);
+        if (snapshot == null || snapshot.duel() != null) {
+            return false;
+        }
+        try {
+            Quiz quiz = quizOf(snapshot);
+            if (quiz == null) {
+                log.warn(() -> "Сессия " + chatId + " не восстановлена: вопросы изменились");
+                delete(chatId);
+                return false;
+            }
+            userData.setCurrentQuiz(quiz);
+            return true;
+        } catch (IOException e) {
+            log.error("Не удалось восстановить сессию " + chatId, e);
+            return false;
+        }
+    }
+
+    /**
+     * Удаляет снимок сессии дуэли: дуэль после перезапуска не продолжается.
+     *
+     * @param chatId ID чата
+     * @return true если у чата был снимок дуэли
+     */
+    public boolean dropDuel(String chatId) {
+        SessionSnapshot snapshot = read(chatId);
+        if (snapshot == null || snapshot.duel() == null) {
+            return false;
+        }
+        log.info(() -> "Дуэль " + snapshot.duel() + " игрока " + chatId + " прервана перезапуском");
+        delete(chatId);
+        return true;
+    }
+
+    private SessionSnapshot read(String chatId) {
+        Path file = file(chatId);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return mapper.readValue(file.toFile(), SessionSnapshot.class);
+        } catch (IOException e) {
+            log.error("Не удалось прочитать сессию " + chatId, e);
+            return null;
+        }
+    }
+
+    /**
+     * Удаляет снимок сессии.
+     *
+     * @param chatId ID чата
+     */
+    public void delete(String chatId) {
+        try {
+            Files.deleteIfExists(file(chatId));
+        } catch (IOException e) {
+            log.error("Не удалось удалить сессию " + chatId, e);
+        }
+    }
+
+    /**
+     * Удаляет сгенерированные вопросы, записанные раньше указанного времени.
+     *
+     * @param olderThanMillis граница времени записи
+     * @return количество удаленных файлов
+     */
+    public int purgeGenerated(long olderThanMillis) {
+        if (!Files.isDirectory(generatedDir)) {
+            return 0;
+        }
+        int purged = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(generatedDir, "*.json")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toMillis() < olderThanMillis) {
+                    Files.deleteIfExists(file);
+                    purged++;
+                }
+            }
+        } catch (IOException e) {
+            log.error("Не удалось очистить сгенерированные вопросы", e);
+        }
+        return purged;
+    }
+
+    private SessionSnapshot snapshotOf(Quiz quiz) throws IOException {
+        AbstractMemory memory = quiz.getMemory();
+        DataQuestion[] questions = memory.getData();
+        String[] answers = new String[questions.length];
+        for (int i = 0; i < questions.length; i++) {
+            answers[i] = questions[i].getUserAnswer();
+        }
+
+        String topic = memory.getSourceKey();
+        String generated = topic == null ? saveGenerated(questions) : null;
+        return new SessionSnapshot(topic, generated, quiz.getCurrentQuestionIndex(), quiz.getScore(), answers, null);
+    }
+
+    private Quiz quizOf(SessionSnapshot snapshot) throws IOException {
+        AbstractMemory memory;
+        if (snapshot.topic() != null) {
+            memory = new DiskMemory(snapshot.topic());
+        } else {
+            Path file = generatedFile(snapshot.generated());
+            if (!Files.exists(file)) {
+                return null;
+            }
+            GeneratedQuestion[] generated = mapper.readValue(file.toFile(), GeneratedQuestion[].class);
+            DataQuestion[] questions = new DataQuestion[generated.length];
+            for (int i = 0; i < generated.length; i++) {
+                questions[i] = new DataQuestion(generated[i].question(), generated[i].options(), generated[i].answer());
+            }
+            memory = new AiMemory(questions, "восстановленная сессия");
+        }
+
+        DataQuestion[] questions = memory.getData();
+        String[] answers = snapshot.answers();
+        if (answers == null || questions.length != answers.length) {
+            return null;
+        }
+        for (int i = 0; i < questions.length; i++) {
+            questions[i].setUserAnswer(answers[i]);
+        }
+
+        Quiz quiz = new Quiz(memory);
+        quiz.setCurrentQuestionIndex(snapshot.index());
+        quiz.setScore(snapshot.score());
+        return quiz;
+    }
+
+    /**
+     * Записывает сгенерированные вопросы, если их еще нет на диске.
+     *
+     * @return ID вопросов
+     */
+    private String saveGenerated(DataQuestion[] questions) throws IOException {
+        String id = generatedId(questions);
+        Path file = generatedFile(id);
+        if (!Files.exists(file)) {
+            Files.createDirectories(generatedDir);
+            GeneratedQuestion[] generated = new GeneratedQuestion[questions.length];
+            for (int i = 0; i < questions.length; i++) {
+                generated[i] = new GeneratedQuestion(questions[i].getQuestion(), questions[i].getOptions(),
+                        questions[i].getAnswer());
+            }
+            writeAtomically(file, List.of(generated));
+        }
+        return id;
+    }
+
+    /**
+     * ID вопросов - начало SHA-256 от их содержимого.
+     */
+    private static String generatedId(DataQuestion[] questions) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (DataQuestion question : questions) {
+                update(digest, question.getQuestion());
+                for (String option : question.getOptions()) {
+                    update(digest, option);
+                }
+                update(digest, Integer.toString(question.getAnswer()));
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 12);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+
+    private void writeAtomically(Path file, Object value) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        mapper.writeValue(tmp.toFile(), value);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path file(String chatId) {
+        return dir.resolve(chatId + ".json");
+    }
+
+    private Path generatedFile(String id) {
+        return generatedDir.resolve(id + ".json");
+    }
+}
@@ -1,6 +1,11 @@
 package org.example.Tokens;
 
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+
+
 public class TokensENV implements TokenInterface {
+    private static final Logger log = LogManager.getLogger("TOKENS");
 
     private static final String TELEGRAM_ENV = "TELEGRAM_TOKEN";
     private static final String OPEN_ROUTER_ENV = "OPEN_ROUTER_TOKEN";
@@ -25,11 +30,11 @@ public class TokensENV implements TokenInterface {
 
         String envToken = System.getenv(envName);
         if (envToken != null && !envToken.trim().isEmpty()) {
-            System.out.println(logPrefix + " Загружен из ENV");
+            log.info(() -> logPrefix + " Загружен из ENV");
             return envToken.trim();
         }
         else  {
-            System.out.println(logPrefix + " Токен не найден в ENV");
+            log.info(() -> logPrefix + " Токен не найден в ENV");
         }
         return null;
     }
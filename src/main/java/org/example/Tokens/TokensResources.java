@@ -1,11 +1,15 @@
 package org.example.Tokens;
 
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 
 public class TokensResources implements TokenInterface {
+    private static final Logger log = LogManager.getLogger("TOKENS");
 
     private final String TelegramToken;
     private final String OpenRouterToken;
@@ -27,20 +31,20 @@ public class TokensResources implements TokenInterface {
 
         try (InputStream is = getClass().getResourceAsStream(resourceFile)) {
             if (is == null) {
-                System.err.println(logPrefix + " Файл не найден: " + resourceFile);
+                log.error(() -> logPrefix + " Файл не найден: " + resourceFile);
                 return "";
             }
 
             try (BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
                 String token = reader.readLine();
                 if (token != null && !token.trim().isEmpty()) {
-                    System.out.println(logPrefix + " Загружен из файла");
+                    log.info(() -> logPrefix + " Загружен из файла");
                     return token.trim();
                 }
             }
 
         } catch (IOException e) {
-            System.err.println(logPrefix + " Ошибка чтения файла: " + e.getMessage());
+            log.error(() -> logPrefix + " Ошибка чтения файла: " + e.getMessage());
         }
 
         return "";
@@ -1,5 +1,7 @@
 package org.example.TopicSelector;
 
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
 import org.example.Quiz.DataQuestion;
 import org.example.Quiz.Memory.DiskMemory;
 
@@ -10,6 +12,8 @@ import java.util.List;
  * Класс для выбора темы викторины со скроллингом
  */
 public class TopicSelector {
+    private static final Logger log = LogManager.getLogger("TOPIC_SELECTOR");
+
     private final List<Topic> topics;
     private int currentIndex;
 
@@ -31,14 +35,14 @@ public class TopicSelector {
                     ,memory.getData()[0].getOptions()
                     ,memory.getData()[0].getAnswer());
             String[] options = chooseDataQuestion.getOptions();
-            System.out.println("[TOPIC_SELECTOR]Тема №1 "+ options[0]);
+            log.debug(() -> "Тема №1 "+ options[0]);
             for (String topicFileName : options) {
                 String displayName = getDisplayName(topicFileName);
                 topics.add(new Topic(topicFileName, displayName));
-                System.out.println("[TOPIC_SELECTOR] Добавлена тема: " + topicFileName + " -> " + displayName);
+                log.debug(() -> "Добавлена тема: " + topicFileName + " -> " + displayName);
             }
         }
-        System.out.println("[TOPIC_SELECTOR] Инициализировано тем: " + topics.size());
+        log.info(() -> "Инициализировано тем: " + topics.size());
     }
 
 
@@ -61,7 +65,7 @@ public class TopicSelector {
     public void next() {
         if (topics.isEmpty()) return;
         currentIndex = (currentIndex + 1) % topics.size();
-        System.out.println("[TOPIC_SELECTOR] Переход к теме: " + getCurrentTopic());
+        log.debug(() -> "Переход к теме: " + getCurrentTopic());
     }
 
     /**
@@ -70,7 +74,7 @@ public class TopicSelector {
     public void previous() {
         if (topics.isEmpty()) return;
         currentIndex = (currentIndex - 1 + topics.size()) % topics.size();
-        System.out.println("[TOPIC_SELECTOR] Переход к теме: " + getCurrentTopic());
+        log.debug(() -> "Переход к теме: " + getCurrentTopic());
     }
 
     /**
@@ -0,0 +1,33 @@
+package org.example.Tracing;
+
+/**
+ * Открытый участок трассы. Закрывается в try-with-resources:
+ * <pre>
+ * try (Span span = tracer.span("disk.read")) {
+ *     ...
+ * }
+ * </pre>
+ * Вне трассы возвращается {@link #NOOP}, который ничего не записывает.
+ */
+public class Span implements AutoCloseable {
+
+    /**
+     * Участок вне трассы.
+     */
+    public static final Span NOOP = new Span(null, -1);
+
+    private final Tracer.ActiveTrace trace;
+    private final int index;
+
+    Span(Tracer.ActiveTrace trace, int index) {
+        this.trace = trace;
+        this.index = index;
+    }
+
+    @Override
+    public void close() {
+        if (trace != null) {
+            trace.close(index);
+        }
+    }
+}
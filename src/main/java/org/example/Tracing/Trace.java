@@ -0,0 +1,56 @@
+package org.example.Tracing;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Завершенная трасса: корневой участок и вложенные в него участки.
+ *
+ * @param id ID трассы (общий для обработки обновления и отправки ответов на него)
+ * @param name имя корневого участка
+ * @param chatId чат или null
+ * @param startMillis время начала (epoch millis)
+ * @param durationNanos длительность корневого участка
+ * @param spans вложенные участки в порядке открытия
+ * @param droppedSpans участки сверх лимита, которые не записаны
+ */
+public record Trace(String id, String name, String chatId, long startMillis, long durationNanos,
+                    List<SpanData> spans, int droppedSpans) {
+
+    /**
+     * Участок трассы.
+     *
+     * @param name имя
+     * @param depth вложенность (1 - непосредственно в корне)
+     * @param offsetNanos начало относительно начала трассы
+     * @param durationNanos длительность (-1 - участок не был закрыт)
+     */
+    public record SpanData(String name, int depth, long offsetNanos, long durationNanos) {}
+
+    /**
+     * Форматирует трассу деревом участков.
+     *
+     * @return текст трассы
+     */
+    public String format() {
+        StringBuilder out = new StringBuilder();
+        out.append("trace ").append(id).append(' ').append(name);
+        if (chatId != null) {
+            out.append(" chat=").append(chatId);
+        }
+        out.append(' ').append(Instant.ofEpochMilli(startMillis)).append(' ').append(millis(durationNanos)).append('\n');
+        for (SpanData span : spans) {
+            out.append("  ".repeat(span.depth())).append(span.name()).append(' ')
+                    .append(span.durationNanos() >= 0 ? millis(span.durationNanos()) : "не закрыт")
+                    .append(" (+").append(millis(span.offsetNanos())).append(")\n");
+        }
+        if (droppedSpans > 0) {
+            out.append("  ... еще участков: ").append(droppedSpans).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f мс", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,301 @@
+package org.example.Tracing;
+
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Трассировка обработки обновлений внутри процесса.
+ * Трасса открывается на входе (обработка обновления, событие таймера, отправка сообщения)
+ * и привязана к потоку: вложенные участки открываются через {@link #span(String)} в любом слое,
+ * которому не нужно знать, кто его вызвал. Вне трассы участки ничего не стоят, кроме чтения ThreadLocal.
+ *
+ * Завершенные трассы хранятся в кольцевом буфере последних N трасс,
+ * трассы дольше порога дописываются в файл медленных трасс (фоновым потоком).
+ * Настройки читаются из системных свойств, затем из переменных окружения:
+ * trace.buffer / TRACE_BUFFER - размер буфера (по умолчанию 1024),
+ * trace.slowMs / TRACE_SLOW_MS - порог медленной трассы в мс (по умолчанию 1000),
+ * trace.file / TRACE_FILE - файл медленных трасс (по умолчанию logs/slow_traces.log, пустое значение отключает файл).
+ */
+public final class Tracer {
+    private static final Logger log = LogManager.getLogger("TRACER");
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final long DEFAULT_SLOW_MS = 1000;
+    // Участки сверх лимита одной трассы не записываются, чтобы циклы не раздували трассу
+    static final int MAX_SPANS = 256;
+
+    private static final Tracer GLOBAL = createGlobal();
+
+    /**
+     * Трасса, открытая в текущем потоке.
+     */
+    static final class ActiveTrace {
+        final Tracer tracer;
+        final String id;
+        final String name;
+        final String chatId;
+        final long startMillis = System.currentTimeMillis();
+        final long startNanos = System.nanoTime();
+        final List<String> names = new ArrayList<>();
+        final List<long[]> timings = new ArrayList<>(); // {depth, start, duration}
+        int depth;
+        int dropped;
+
+        ActiveTrace(Tracer tracer, String id, String name, String chatId) {
+            this.tracer = tracer;
+            this.id = id;
+            this.name = name;
+            this.chatId = chatId;
+        }
+
+        Span open(String spanName) {
+            if (names.size() >= MAX_SPANS) {
+                dropped++;
+                return Span.NOOP;
+            }
+            depth++;
+            names.add(spanName);
+            timings.add(new long[] {depth, System.nanoTime() - startNanos, -1});
+            return new Span(this, names.size() - 1);
+        }
+
+        void add(String spanName, long startNanos, long endNanos) {
+            if (names.size() >= MAX_SPANS) {
+                dropped++;
+                return;
+            }
+            names.add(spanName);
+            timings.add(new long[] {depth + 1, startNanos - this.startNanos, endNanos - startNanos});
+        }
+
+        void close(int index) {
+            if (index < 0) {
+                // Корневой участок
+                tracer.finish(this, System.nanoTime() - startNanos);
+                return;
+            }
+            long[] timing = timings.get(index);
+            if (timing[2] < 0) {
+                timing[2] = System.nanoTime() - startNanos - timing[1];
+                depth--;
+            }
+        }
+
+        Trace toTrace(long durationNanos) {
+            List<Trace.SpanData> spans = new ArrayList<>(names.size());
+            for (int i = 0; i < names.size(); i++) {
+                long[] timing = timings.get(i);
+                spans.add(new Trace.SpanData(names.get(i), (int) timing[0], timing[1], timing[2]));
+            }
+            return new Trace(id, name, chatId, startMillis, durationNanos, List.copyOf(spans), dropped);
+        }
+    }
+
+    private final ThreadLocal<ActiveTrace> current = new ThreadLocal<>();
+    private final AtomicReferenceArray<Trace> buffer;
+    private final AtomicLong written = new AtomicLong();
+    private final long slowNanos;
+    private final Path slowFile;
+    private final ExecutorService slowWriter;
+    private final AtomicLong slowCount = new AtomicLong();
+
+    /**
+     * @param capacity размер буфера последних трасс
+     * @param slowMillis порог медленной трассы в миллисекундах
+     * @param slowFile файл медленных трасс или null
+     */
+    public Tracer(int capacity, long slowMillis, Path slowFile) {
+        this.buffer = new AtomicReferenceArray<>(capacity);
+        this.slowNanos = slowMillis * 1_000_000;
+        this.slowFile = slowFile;
+        this.slowWriter = slowFile == null ? null : Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "slow-trace-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return общий трассировщик процесса
+     */
+    public static Tracer global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Открывает трассу в текущем потоке. Если трасса уже открыта, открывает вложенный участок.
+     *
+     * @param name имя корневого участка
+     * @param chatId чат или null
+     * @return корневой участок; его закрытие завершает трассу
+     */
+    public Span startTrace(String name, String chatId) {
+        return startTrace(name, chatId, null);
+    }
+
+    /**
+     * Открывает трассу, продолжающую другую (например, отправку ответа на обновление).
+     *
+     * @param name имя корневого участка
+     * @param chatId чат или null
+     * @param traceId ID продолжаемой трассы или null для новой
+     * @return корневой участок; его закрытие завершает трассу
+     */
+    public Span startTrace(String name, String chatId, String traceId) {
+        if (current.get() != null) {
+            return span(name);
+        }
+        String id = traceId != null ? traceId : Long.toHexString(ThreadLocalRandom.current().nextLong());
+        ActiveTrace trace = new ActiveTrace(this, id, name, chatId);
+        current.set(trace);
+        return new Span(trace, -1);
+    }
+
+    /**
+     * Открывает вложенный участок текущей трассы.
+     *
+     * @param name имя участка
+     * @return участок или {@link Span#NOOP}, если трасса не открыта
+     */
+    public Span span(String name) {
+        ActiveTrace trace = current.get();
+        return trace != null ? trace.open(name) : Span.NOOP;
+    }
+
+    /**
+     * Записывает уже завершившийся участок (например, ожидание блокировки) от startNanos до текущего момента.
+     *
+     * @param name имя участка
+     * @param startNanos значение System.nanoTime() в начале участка
+     */
+    public void record(String name, long startNanos) {
+        ActiveTrace trace = current.get();
+        if (trace != null) {
+            trace.add(name, startNanos, System.nanoTime());
+        }
+    }
+
+    /**
+     * @return ID трассы текущего потока или null
+     */
+    public String currentTraceId() {
+        ActiveTrace trace = current.get();
+        return trace != null ? trace.id : null;
+    }
+
+    private void finish(ActiveTrace active, long durationNanos) {
+        current.remove();
+        Trace trace = active.toTrace(durationNanos);
+        long slot = written.getAndIncrement();
+        buffer.set((int) (slot % buffer.length()), trace);
+
+        if (durationNanos >= slowNanos) {
+            slowCount.incrementAndGet();
+            if (slowWriter != null) {
+                slowWriter.execute(() -> appendSlow(trace));
+            }
+        }
+    }
+
+    private void appendSlow(Trace trace) {
+        try {
+            Path parent = slowFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Files.writeString(slowFile, trace.format() + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.error("Не удалось записать медленную трассу в " + slowFile, e);
+        }
+    }
+
+    /**
+     * Возвращает самые долгие из трасс в буфере.
+     *
+     * @param limit количество трасс
+     * @return трассы по убыванию длительности
+     */
+    public List<Trace> slowest(int limit) {
+        List<Trace> traces = new ArrayList<>(buffer.length());
+        for (int i = 0; i < buffer.length(); i++) {
+            Trace trace = buffer.get(i);
+            if (trace != null) {
+                traces.add(trace);
+            }
+        }
+        traces.sort(Comparator.comparingLong(Trace::durationNanos).reversed());
+        return traces.subList(0, Math.min(Math.max(limit, 0), traces.size()));
+    }
+
+    /**
+     * Форматирует самые долгие трассы из буфера (ответ на запрос /traces?slowest=N).
+     *
+     * @param limit количество трасс
+     * @return текст трасс
+     */
+    public String report(int limit) {
+        List<Trace> traces = slowest(limit);
+        StringBuilder out = new StringBuilder();
+        out.append("# Самые долгие трассы: ").append(traces.size())
+                .append(" из последних ").append(Math.min(written.get(), buffer.length())).append("\n\n");
+        for (Trace trace : traces) {
+            out.append(trace.format()).append('\n');
+        }
+        return out.toString();
+    }
+
+    /**
+     * @return количество завершенных трасс
+     */
+    public long getTraceCount() {
+        return written.get();
+    }
+
+    /**
+     * @return количество трасс дольше порога
+     */
+    public long getSlowCount() {
+        return slowCount.get();
+    }
+
+    private static Tracer createGlobal() {
+        int capacity = (int) parseLong(setting("trace.buffer", "TRACE_BUFFER", null), DEFAULT_CAPACITY);
+        long slowMillis = parseLong(setting("trace.slowMs", "TRACE_SLOW_MS", null), DEFAULT_SLOW_MS);
+        String file = setting("trace.file", "TRACE_FILE", "logs/slow_traces.log");
+        return new Tracer(Math.max(capacity, 1), slowMillis, file.isBlank() ? null : Path.of(file));
+    }
+
+    private static String setting(String property, String env, String defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            value = System.getenv(env);
+        }
+        return value != null ? value : defaultValue;
+    }
+
+    private static long parseLong(String value, long defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.Webhook;
+
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+
+
+/**
+ * Настройки режима webhook.
+ * Загружаются из переменных окружения:
+ * WEBHOOK_URL - публичный адрес, на который Telegram будет присылать обновления
+ * (если не задан, бот работает в режиме long polling),
+ * WEBHOOK_PORT - локальный порт HTTP-сервера (по умолчанию 8443),
+ * WEBHOOK_PATH - путь приема обновлений (по умолчанию /webhook),
+ * WEBHOOK_SECRET - секрет, который Telegram передает в заголовке запроса.
+ */
+public class WebhookConfig {
+    private static final Logger log = LogManager.getLogger("WEBHOOK");
+
+    private static final String URL_ENV = "WEBHOOK_URL";
+    private static final String PORT_ENV = "WEBHOOK_PORT";
+    private static final String PATH_ENV = "WEBHOOK_PATH";
+    private static final String SECRET_ENV = "WEBHOOK_SECRET";
+
+    public static final int DEFAULT_PORT = 8443;
+    public static final String DEFAULT_PATH = "/webhook";
+
+    private final String url;
+    private final int port;
+    private final String path;
+    private final String secretToken;
+
+    /**
+     * @param url публичный адрес webhook или null для режима long polling
+     * @param port локальный порт HTTP-сервера
+     * @param path путь приема обновлений
+     * @param secretToken секрет для проверки запросов или null
+     */
+    public WebhookConfig(String url, int port, String path, String secretToken) {
+        this.url = url;
+        this.port = port;
+        this.path = path;
+        this.secretToken = secretToken;
+    }
+
+    /**
+     * Загружает настройки из переменных окружения.
+     *
+     * @return настройки webhook
+     */
+    public static WebhookConfig fromEnv() {
+        String url = env(URL_ENV);
+        String path = env(PATH_ENV);
+        String port = env(PORT_ENV);
+
+        int parsedPort = DEFAULT_PORT;
+        if (port != null) {
+            try {
+                parsedPort = Integer.parseInt(port);
+            } catch (NumberFormatException e) {
+                log.error(() -> "Некорректный " + PORT_ENV + ": " + port + ", используется " + DEFAULT_PORT);
+            }
+        }
+
+        return new WebhookConfig(url, parsedPort, path != null ? path : DEFAULT_PATH, env(SECRET_ENV));
+    }
+
+    private static String env(String name) {
+        String value = System.getenv(name);
+        return value != null && !value.trim().isEmpty() ? value.trim() : null;
+    }
+
+    /**
+     * @return true если задан адрес webhook и бот должен работать в этом режиме
+     */
+    public boolean isEnabled() {
+        return url != null;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getSecretToken() {
+        return secretToken;
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.Webhook;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.example.Logging.LogManager;
+import org.example.Logging.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Встроенный HTTP-сервер для приема обновлений Telegram в режиме webhook.
+ * Каждый POST-запрос разбирается в {@link Update}, сразу подтверждается ответом 200
+ * и передается получателю, который должен только поставить обновление в очередь
+ * (например, в UpdateDispatcher), не выполняя обработку в потоке запроса.
+ * Запросы обслуживаются виртуальными потоками.
+ */
+public class WebhookServer {
+    private static final Logger log = LogManager.getLogger("WEBHOOK");
+
+    public static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    private static final int MAX_BODY_BYTES = 1024 * 1024;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Consumer<Update> updateConsumer;
+    private final String path;
+    private final String secretToken;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final AtomicLong acceptedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * Создает сервер (без запуска).
+     *
+     * @param port локальный порт (0 - выбрать свободный)
+     * @param path путь приема обновлений
+     * @param secretToken ожидаемый секрет из заголовка или null, если проверка не нужна
+     * @param updateConsumer получатель разобранных обновлений
+     * @throws IOException если не удалось занять порт
+     */
+    public WebhookServer(int port, String path, String secretToken, Consumer<Update> updateConsumer) throws IOException {
+        this.path = path;
+        this.secretToken = secretToken;
+        this.updateConsumer = updateConsumer;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.server.createContext(path, this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    /**
+     * Запускает прием запросов.
+     */
+    public void start() {
+        server.start();
+        log.info(() -> "Сервер запущен на порту " + getPort() + ", путь " + path);
+    }
+
+    /**
+     * Останавливает сервер, давая текущим запросам завершиться.
+     *
+     * @param delaySeconds максимальное время ожидания в секундах
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        log.info(() -> "Сервер остановлен, принято обновлений: " + acceptedCount.get());
+    }
+
+    /**
+     * @return фактический порт сервера
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public long getAcceptedCount() {
+        return acceptedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Обрабатывает запрос Telegram: проверяет метод и секрет, разбирает тело,
+     * подтверждает получение и передает обновление дальше.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                reject(exchange, 405);
+                return;
+            }
+
+            if (secretToken != null
+                    && !secretToken.equals(exchange.getRequestHeaders().getFirst(SECRET_HEADER))) {
+                log.error(() -> "Запрос с неверным секретом от " + exchange.getRemoteAddress());
+                reject(exchange, 401);
+                return;
+            }
+
+            Update update;
+            try (InputStream body = exchange.getRequestBody()) {
+                byte[] bytes = body.readNBytes(MAX_BODY_BYTES);
+                update = objectMapper.readValue(bytes, Update.class);
+            } catch (IOException e) {
+                log.error(() -> "Не удалось разобрать обновление: " + e.getMessage());
+                reject(exchange, 400);
+                return;
+            }
+
+            // Подтверждаем сразу, чтобы Telegram не ждал обработки
+            exchange.sendResponseHeaders(200, -1);
+            acceptedCount.incrementAndGet();
+
+            try {
+                updateConsumer.accept(update);
+            } catch (Exception e) {
+                log.error(() -> "Ошибка передачи обновления " + update.getUpdateId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void reject(HttpExchange exchange, int status) throws IOException {
+        rejectedCount.incrementAndGet();
+        exchange.sendResponseHeaders(status, -1);
+    }
+}
@@ -0,0 +1,74 @@
+package org.example;
+
+import org.example.Dispatch.AdmissionController;
+import org.example.Dispatch.AdmissionController.ShedReason;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Тестовый класс для проверки функциональности {@link AdmissionController}.
+ * Проверяет лимит чата, перегрузку очереди и политику сброса.
+ */
+public class AdmissionControllerTest {
+
+    /**
+     * Тестирует, что нажатия сверх лимита чата отбрасываются, а другие чаты не затрагиваются.
+     */
+    @Test
+    public void testCallbacksOverChatLimitAreShed() {
+        AdmissionController admission = new AdmissionController(0.001, 3, 100, 10_000, () -> 0);
+
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertNull(admission.admit("chat1", true), "Всплеск в пределах лимита принимается");
+        }
+        Assertions.assertEquals(ShedReason.CHAT_RATE, admission.admit("chat1", true));
+        Assertions.assertNull(admission.admit("chat2", true), "Лимит одного чата не влияет на другие");
+        Assertions.assertEquals(1, admission.getDroppedCount(ShedReason.CHAT_RATE));
+    }
+
+    /**
+     * Тестирует, что текстовые команды не ограничиваются лимитом чата.
+     */
+    @Test
+    public void testTextCommandsAreKept() {
+        AdmissionController admission = new AdmissionController(0.001, 1, 100, 10_000, () -> 0);
+
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertNull(admission.admit("chat1", false), "Текстовые команды не отбрасываются");
+        }
+        Assertions.assertEquals(0, admission.getDroppedTotal());
+    }
+
+    /**
+     * Тестирует поведение при перегрузке: сначала отбрасываются нажатия, затем все.
+     */
+    @Test
+    public void testGlobalQueueDepthLimit() {
+        AtomicInteger pending = new AtomicInteger(10);
+        AdmissionController admission = new AdmissionController(100, 100, 10, 10_000, pending::get);
+
+        Assertions.assertEquals(ShedReason.OVERLOADED, admission.admit("chat1", true));
+        Assertions.assertNull(admission.admit("chat1", false), "Текст принимается при умеренной перегрузке");
+
+        pending.set(20);
+        Assertions.assertEquals(ShedReason.QUEUE_FULL, admission.admit("chat1", false));
+
+        pending.set(0);
+        Assertions.assertNull(admission.admit("chat1", true), "После разгрузки нажатия снова принимаются");
+        Assertions.assertEquals(2, admission.getDroppedTotal());
+    }
+
+    /**
+     * Тестирует пропуск нажатий, прождавших в очереди слишком долго.
+     */
+    @Test
+    public void testStaleCallbackIsDetected() {
+        AdmissionController admission = new AdmissionController(1, 1, 10, 50, () -> 0);
+
+        Assertions.assertFalse(admission.isStale(System.nanoTime()));
+        Assertions.assertTrue(admission.isStale(System.nanoTime() - 1_000_000_000L));
+        Assertions.assertEquals(1, admission.getDroppedCount(ShedReason.STALE));
+    }
+}
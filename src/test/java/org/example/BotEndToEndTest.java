@@ -0,0 +1,73 @@
+package org.example;
+
+import org.example.Quiz.Users;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.example.DataMessage.Constants.SOLO_BUTTON;
+
+/**
+ * Сквозной тест бота на локальной заглушке Bot API ({@link FakeTelegramApi}).
+ * Проверяет полный путь: long polling, обработку, отправку и подтверждение нажатий.
+ */
+public class BotEndToEndTest {
+
+    private FakeTelegramApi api;
+    private Bot bot;
+    private final LinkedBlockingQueue<FakeTelegramApi.Sent> sent = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    public void setUp(@TempDir Path dir) throws Exception {
+        api = new FakeTelegramApi();
+        api.setListener(sent::add);
+        api.start();
+
+        Path usersFile = dir.resolve("users.json");
+        Files.writeString(usersFile, "{}");
+        Producer producer = new Producer(new Users(usersFile.toString()), "");
+
+        bot = new Bot("0000000000:test", api.getApiUrl(), dir.resolve("dead_letters.jsonl"));
+        bot.setProducer(producer);
+        bot.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        bot.stop();
+        api.stop();
+    }
+
+    private FakeTelegramApi.Sent awaitReply() throws InterruptedException {
+        FakeTelegramApi.Sent reply = sent.poll(5, TimeUnit.SECONDS);
+        Assertions.assertNotNull(reply, "Бот должен ответить");
+        return reply;
+    }
+
+    /**
+     * Тестирует регистрацию и выбор режима через заглушку Bot API.
+     */
+    @Test
+    public void testRegistrationAndModeSelection() throws Exception {
+        api.pushText(42, "/start");
+        FakeTelegramApi.Sent start = awaitReply();
+        Assertions.assertEquals(42, start.chatId());
+        Assertions.assertEquals("sendmessage", start.method());
+
+        api.pushText(42, "Тестер");
+        FakeTelegramApi.Sent registered = awaitReply();
+        Assertions.assertTrue(registered.text().contains("Тестер"), "Имя должно подтвердиться");
+
+        api.pushCallback(42, registered.messageId(), SOLO_BUTTON);
+        FakeTelegramApi.Sent solo = awaitReply();
+        Assertions.assertTrue(solo.text().contains("Соло"), "Режим должен выбраться");
+        Assertions.assertEquals(1, api.getCallCount("answerCallbackQuery"), "Нажатие должно подтверждаться");
+    }
+}
@@ -0,0 +1,250 @@
+package org.example;
+
+import org.example.ModeGame.Duel.DuelMatchmaker;
+import org.example.ModeGame.Duel.Timer.DuelTimeoutManager;
+import org.example.Quiz.Users;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.example.DataMessage.Constants.*;
+
+/**
+ * Сквозной нагрузочный тест бота на локальной заглушке Bot API ({@link FakeTelegramApi}).
+ * Бот работает целиком: long polling, диспетчер, Producer, очередь отправки с лимитами Telegram.
+ * Каждый чат проходит сценарий пользователя и ждет ответа бота на каждый шаг:
+ * - соло: /start, регистрация имени, выбор режима, выбор темы в TopicSelector, 5 ответов, выход в меню;
+ * - дуэль (каждый четвертый чат): /start, регистрация, выбор дуэли и темы, постановка в очередь поиска, выход в меню.
+ * Задержка шага - время от постановки обновления до первого ответа бота в этот чат.
+ *
+ * Пропускная способность ограничена лимитами отправки (OutboundSender.GLOBAL_RATE сообщений в секунду
+ * на весь бот, CHAT_RATE на чат) так же, как в реальном Telegram.
+ *
+ * Запуск: java -cp target/classes:target/test-classes:... org.example.BotLoadBenchmark [chats] [thinkMs] [rampMs]
+ */
+public class BotLoadBenchmark {
+
+    private static final long REPLY_TIMEOUT_MS = 30_000;
+
+    /**
+     * Итоги прогона.
+     *
+     * @param chats количество чатов
+     * @param steps количество шагов, получивших ответ
+     * @param timeouts количество шагов без ответа
+     * @param elapsedNanos длительность прогона
+     * @param latenciesNanos задержки шагов (отсортированы)
+     * @param botMessages количество исходящих сообщений бота
+     */
+    public record Report(int chats, long steps, long timeouts, long elapsedNanos,
+                         long[] latenciesNanos, long botMessages) {
+
+        public double percentileMillis(double percentile) {
+            if (latenciesNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * latenciesNanos.length) - 1;
+            return latenciesNanos[Math.max(0, Math.min(index, latenciesNanos.length - 1))] / 1e6;
+        }
+
+        public double stepsPerSecond() {
+            return steps / (elapsedNanos / 1e9);
+        }
+
+        public double messagesPerSecond() {
+            return botMessages / (elapsedNanos / 1e9);
+        }
+    }
+
+    /**
+     * Шаг сценария: текст или нажатие кнопки.
+     */
+    private record Step(String text, String callback) {
+        static Step text(String text) {
+            return new Step(text, null);
+        }
+
+        static Step tap(String callback) {
+            return new Step(null, callback);
+        }
+    }
+
+    /**
+     * Сторона пользователя в одном чате: входящие сообщения бота и последнее сообщение с кнопками.
+     */
+    private static class ChatClient {
+        final long chatId;
+        final LinkedBlockingQueue<FakeTelegramApi.Sent> inbox = new LinkedBlockingQueue<>();
+        volatile int lastMessageId;
+
+        ChatClient(long chatId) {
+            this.chatId = chatId;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int chats = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long thinkMillis = args.length > 1 ? Long.parseLong(args[1]) : 300;
+        long rampMillis = args.length > 2 ? Long.parseLong(args[2]) : 5000;
+
+        Path logDir = Files.createTempDirectory("load_logs");
+        System.setProperty("log.file", logDir.resolve("bot.log").toString());
+        System.setProperty("log.console", "false");
+
+        Report report = run(chats, thinkMillis, rampMillis);
+
+        System.out.printf("%n[BENCHMARK] Чатов: %d, пауза пользователя: %d мс, разгон: %d мс%n",
+                report.chats(), thinkMillis, rampMillis);
+        System.out.printf("[BENCHMARK] Шагов: %d, без ответа: %d, длительность: %.1f сек%n",
+                report.steps(), report.timeouts(), report.elapsedNanos() / 1e9);
+        System.out.printf("[BENCHMARK] Задержка ответа: p50 %.0f мс, p90 %.0f мс, p99 %.0f мс, max %.0f мс%n",
+                report.percentileMillis(50), report.percentileMillis(90),
+                report.percentileMillis(99), report.percentileMillis(100));
+        System.out.printf("[BENCHMARK] Пропускная способность: %.1f шагов/сек, %.1f сообщений бота/сек%n",
+                report.stepsPerSecond(), report.messagesPerSecond());
+        System.exit(0);
+    }
+
+    /**
+     * Запускает бота на заглушке Bot API и прогоняет сценарии для указанного количества чатов.
+     *
+     * @param chats количество чатов
+     * @param thinkMillis пауза пользователя между шагами
+     * @param rampMillis интервал, на который равномерно распределяется старт чатов
+     * @return итоги прогона
+     */
+    public static Report run(int chats, long thinkMillis, long rampMillis) throws Exception {
+        FakeTelegramApi api = new FakeTelegramApi();
+        Map<Long, ChatClient> clients = new ConcurrentHashMap<>();
+        AtomicLong botMessages = new AtomicLong();
+        api.setListener(sent -> {
+            botMessages.incrementAndGet();
+            ChatClient client = clients.get(sent.chatId());
+            if (client != null) {
+                client.lastMessageId = sent.messageId();
+                client.inbox.add(sent);
+            }
+        });
+        api.start();
+
+        Path usersFile = Files.createTempFile("load_users", ".json");
+        Files.writeString(usersFile, "{}");
+        Producer producer = new Producer(new Users(usersFile.toString()), "");
+        DuelMatchmaker matchmaker = new DuelMatchmaker();
+        producer.setDuelMatchmaker(matchmaker);
+        producer.setDuelTimeoutManager(new DuelTimeoutManager(matchmaker));
+        producer.startInitTimeoutNotifier();
+
+        // Отдельный файл недоставленных: сообщения фиктивным чатам не должны попасть в рабочий бот
+        Path deadLetters = Files.createTempFile("load_dead_letters", ".jsonl");
+        Bot bot = new Bot("0000000000:load-test", api.getApiUrl(), deadLetters);
+        bot.setProducer(producer);
+        bot.start();
+
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicLong timeouts = new AtomicLong();
+
+        long start = System.nanoTime();
+        try (ExecutorService users = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < chats; i++) {
+                ChatClient client = new ChatClient(1_000_000L + i);
+                clients.put(client.chatId, client);
+                long delay = chats > 1 ? rampMillis * i / (chats - 1) : 0;
+                List<Step> scenario = i % 4 == 3 ? duelScenario(client.chatId) : soloScenario(client.chatId);
+                users.submit(() -> {
+                    sleep(delay);
+                    play(api, client, scenario, thinkMillis, latencies, timeouts);
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        bot.stop();
+        api.stop();
+        Files.deleteIfExists(usersFile);
+        Files.deleteIfExists(deadLetters);
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return new Report(chats, sorted.length, timeouts.get(), elapsed, sorted, botMessages.get());
+    }
+
+    private static List<Step> soloScenario(long chatId) {
+        List<Step> steps = new ArrayList<>(List.of(
+                Step.text("/start"),
+                Step.text("Игрок" + chatId % 100000),
+                Step.tap(SOLO_BUTTON),
+                Step.tap(QUIZ_BUTTON),
+                Step.tap(TOPIC_FORWARDS_BUTTON),
+                Step.tap(PLAY_BUTTON)));
+        String[] answers = {A_BUTTON, B_BUTTON, C_BUTTON, D_BUTTON};
+        String answer = answers[(int) (chatId % answers.length)];
+        for (int i = 0; i < 5; i++) {
+            steps.add(Step.tap(answer));
+        }
+        steps.add(Step.tap(MENU_BUTTON));
+        return steps;
+    }
+
+    private static List<Step> duelScenario(long chatId) {
+        return List.of(
+                Step.text("/start"),
+                Step.text("Дуэлянт" + chatId % 100000),
+                Step.tap(DUEL_BUTTON),
+                Step.tap(QUIZ_BUTTON),
+                Step.tap(PLAY_BUTTON),
+                Step.tap(MENU_BUTTON));
+    }
+
+    /**
+     * Проходит сценарий: отправляет шаг, ждет первого ответа бота, делает паузу.
+     */
+    private static void play(FakeTelegramApi api, ChatClient client, List<Step> scenario, long thinkMillis,
+                             ConcurrentLinkedQueue<Long> latencies, AtomicLong timeouts) {
+        for (Step step : scenario) {
+            client.inbox.clear();
+            long sentAt = System.nanoTime();
+            if (step.text() != null) {
+                api.pushText(client.chatId, step.text());
+            } else {
+                api.pushCallback(client.chatId, client.lastMessageId, step.callback());
+            }
+
+            FakeTelegramApi.Sent reply;
+            try {
+                reply = client.inbox.poll(REPLY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (reply == null) {
+                timeouts.incrementAndGet();
+            } else {
+                latencies.add(reply.atNanos() - sentAt);
+            }
+            sleep(thinkMillis);
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
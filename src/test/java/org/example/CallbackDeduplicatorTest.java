@@ -0,0 +1,77 @@
+package org.example;
+
+import org.example.Dispatch.CallbackDeduplicator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+/**
+ * Тестовый класс для проверки функциональности {@link CallbackDeduplicator}.
+ * Проверяет отсев повторных нажатий кнопок.
+ */
+public class CallbackDeduplicatorTest {
+
+    /**
+     * Тестирует отсев повторной доставки callback с тем же id.
+     */
+    @Test
+    public void testSameCallbackIdIsDuplicate() {
+        CallbackDeduplicator deduplicator = new CallbackDeduplicator(0);
+
+        Assertions.assertFalse(deduplicator.isDuplicate("chat1", "cb1", "A_button", 7, "Вопрос 1"));
+        Assertions.assertTrue(deduplicator.isDuplicate("chat1", "cb1", "A_button", 7, "Вопрос 1"),
+                "Повторная доставка callback должна отбрасываться");
+    }
+
+    /**
+     * Тестирует отсев быстрого повторного нажатия той же кнопки.
+     */
+    @Test
+    public void testRepeatedTapWithinWindowIsDuplicate() {
+        CallbackDeduplicator deduplicator = new CallbackDeduplicator(5000);
+
+        Assertions.assertFalse(deduplicator.isDuplicate("chat1", "cb1", "A_button", 7, "Вопрос 1"));
+        Assertions.assertTrue(deduplicator.isDuplicate("chat1", "cb2", "A_button", 7, "Вопрос 1"),
+                "Повторное нажатие в окне должно отбрасываться");
+    }
+
+    /**
+     * Тестирует, что другие кнопки и другие чаты не считаются повтором.
+     */
+    @Test
+    public void testDifferentDataOrChatIsNotDuplicate() {
+        CallbackDeduplicator deduplicator = new CallbackDeduplicator(5000);
+
+        Assertions.assertFalse(deduplicator.isDuplicate("chat1", "cb1", "A_button", 7, "Вопрос 1"));
+        Assertions.assertFalse(deduplicator.isDuplicate("chat1", "cb2", "B_button", 7, "Вопрос 1"), "Другая кнопка не повтор");
+        Assertions.assertFalse(deduplicator.isDuplicate("chat2", "cb3", "B_button", 7, "Вопрос 1"), "Другой чат не повтор");
+    }
+
+    /**
+     * Тестирует, что после окна то же нажатие снова принимается.
+     */
+    @Test
+    public void testTapAfterWindowIsAccepted() throws Exception {
+        CallbackDeduplicator deduplicator = new CallbackDeduplicator(50);
+
+        Assertions.assertFalse(deduplicator.isDuplicate("chat1", "cb1", "quiz_forwards_button", 7, "Вопрос 1"));
+        Thread.sleep(100);
+        Assertions.assertFalse(deduplicator.isDuplicate("chat1", "cb2", "quiz_forwards_button", 7, "Вопрос 1"),
+                "После окна нажатие должно обрабатываться");
+    }
+
+    /**
+     * Тестирует, что та же кнопка на измененном сообщении (следующий вопрос на том же сообщении)
+     * не считается повтором.
+     */
+    @Test
+    public void testSameButtonOnEditedMessageIsNotDuplicate() {
+        CallbackDeduplicator deduplicator = new CallbackDeduplicator(5000);
+
+        Assertions.assertFalse(deduplicator.isDuplicate("chat1", "cb1", "A_button", 7, "Вопрос 1"));
+        Assertions.assertFalse(deduplicator.isDuplicate("chat1", "cb2", "A_button", 7, "Вопрос 2"),
+                "Ответ на следующий вопрос не повтор");
+        Assertions.assertTrue(deduplicator.isDuplicate("chat1", "cb3", "A_button", 7, "Вопрос 2"));
+        Assertions.assertFalse(deduplicator.isDuplicate("chat1", "cb4", "A_button", 8, "Вопрос 2"),
+                "Кнопка другого сообщения не повтор");
+    }
+}
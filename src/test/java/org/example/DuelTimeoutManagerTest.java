@@ -2,12 +2,19 @@ package org.example;
 
 import org.example.ModeGame.Duel.DuelMatchmaker;
 import org.example.ModeGame.Duel.Timer.DuelTimeoutManager;
+import org.example.ModeGame.Duel.Timer.PendingTimeout;
+import org.example.ModeGame.Duel.Timer.PendingTimeoutStore;
 import org.example.ModeGame.Duel.Timer.SearchInfo;
 import org.example.ModeGame.Duel.Timer.TimeoutNotifier;
 import org.example.ModeGame.DuelMode;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -262,4 +269,100 @@ public class DuelTimeoutManagerTest {
         // Таймер должен остаться активным
         Assertions.assertTrue(timeoutManager.hasActiveTimeout("chatInfo"));
     }
-}
\ No newline at end of file
+
+    /**
+     * Тестирует, что приостановленные таймеры не срабатывают, но остаются запланированными,
+     * а для сохранения отдаются только таймауты поиска.
+     */
+    @Test
+    public void testSuspendKeepsPendingTimeouts() throws Exception {
+        CountDownLatch fired = new CountDownLatch(1);
+        timeoutManager.setNotifier(new TimeoutNotifier() {
+            @Override
+            public void notifySearchTimeout(String chatId, String topic) {
+                fired.countDown();
+            }
+
+            @Override
+            public void notifyDuelTimeout(String duelId, String player1ChatId, String player2ChatId) {
+                fired.countDown();
+            }
+        });
+
+        timeoutManager.startSearchTimeout("chatSuspend", 300, DuelMode.TopicType.LOCAL, "history");
+        timeoutManager.suspend();
+        // Таймаут, запущенный во время остановки, тоже только запоминается
+        timeoutManager.startDuelTimeout("duelSuspend", "player1", "player2", 300);
+
+        Assertions.assertFalse(fired.await(600, TimeUnit.MILLISECONDS), "Приостановленные таймеры не должны срабатывать");
+        List<PendingTimeout> pending = timeoutManager.getPendingTimeouts();
+        Assertions.assertEquals(1, pending.size(), "Таймаут дуэли не должен сохраняться");
+        Assertions.assertEquals("chatSuspend", pending.get(0).id());
+        Assertions.assertTrue(timeoutManager.hasActiveSearch("chatSuspend"));
+        Assertions.assertTrue(timeoutManager.hasActiveTimeout("duelSuspend"));
+    }
+
+    /**
+     * Тестирует сохранение таймаутов в файл и их срабатывание после восстановления.
+     */
+    @Test
+    public void testRestoredSearchTimeoutFires(@TempDir Path dir) throws Exception {
+        timeoutManager.startSearchTimeout("chatRestore", 1000, DuelMode.TopicType.LOCAL, "science");
+        timeoutManager.suspend();
+
+        PendingTimeoutStore store = new PendingTimeoutStore(dir.resolve("timeouts.json"));
+        store.save(timeoutManager.getPendingTimeouts());
+
+        // Новый запуск
+        DuelTimeoutManager restarted = new DuelTimeoutManager(new DuelMatchmaker());
+        CountDownLatch fired = new CountDownLatch(1);
+        final String[] notifiedTopic = new String[1];
+        restarted.setNotifier(new TimeoutNotifier() {
+            @Override
+            public void notifySearchTimeout(String chatId, String topic) {
+                notifiedTopic[0] = topic;
+                fired.countDown();
+            }
+
+            @Override
+            public void notifyDuelTimeout(String duelId, String player1ChatId, String player2ChatId) {
+            }
+        });
+        restarted.restore(store.load());
+
+        Assertions.assertTrue(restarted.hasActiveSearch("chatRestore"));
+        Assertions.assertTrue(fired.await(3, TimeUnit.SECONDS), "Восстановленный таймаут должен сработать");
+        Assertions.assertEquals("science", notifiedTopic[0]);
+        Assertions.assertTrue(store.load().isEmpty(), "Файл таймаутов должен удаляться после чтения");
+    }
+
+    /**
+     * Тестирует, что таймауты дуэлей из файла прежней версии не восстанавливаются:
+     * дуэль прервана перезапуском, и итог по таймауту противоречил бы сообщению о прерывании.
+     */
+    @Test
+    public void testSavedDuelTimeoutIsDropped(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("timeouts.json");
+        Files.writeString(file, """
+                [{"kind":"DUEL","id":"duelOld","chatId1":"player1","chatId2":"player2",
+                  "deadlineMillis":4102444800000,"score":4,"timeMillis":30000},
+                 {"kind":"SEARCH","id":"chatOld","chatId1":"chatOld","topicType":"LOCAL",
+                  "topicValue":"science","deadlineMillis":0}]""");
+
+        CountDownLatch searchFired = new CountDownLatch(1);
+        timeoutManager.setNotifier(new TimeoutNotifier() {
+            @Override
+            public void notifySearchTimeout(String chatId, String topic) {
+                searchFired.countDown();
+            }
+
+            @Override
+            public void notifyDuelTimeout(String duelId, String player1ChatId, String player2ChatId) {
+            }
+        });
+        timeoutManager.restore(new PendingTimeoutStore(file).load());
+
+        Assertions.assertFalse(timeoutManager.hasActiveTimeout("duelOld"), "Таймаут прерванной дуэли не должен восстанавливаться");
+        Assertions.assertTrue(searchFired.await(3, TimeUnit.SECONDS), "Таймаут поиска должен восстановиться");
+    }
+}
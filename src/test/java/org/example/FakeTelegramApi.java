@@ -0,0 +1,243 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.telegram.telegrambots.meta.TelegramUrl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Локальная заглушка Telegram Bot API для сквозных и нагрузочных тестов.
+ * Реализует getUpdates (long polling), sendMessage, editMessageText и answerCallbackQuery,
+ * на остальные методы отвечает успехом. Обновления от "пользователей" ставятся в очередь
+ * методами pushText/pushCallback, исходящие сообщения бота передаются слушателю.
+ *
+ * Бот подключается через {@link Bot#Bot(String, TelegramUrl)} с адресом {@link #getApiUrl()}.
+ */
+public class FakeTelegramApi {
+
+    /**
+     * Исходящее сообщение бота (отправка или редактирование).
+     *
+     * @param chatId чат-получатель
+     * @param method имя метода в нижнем регистре
+     * @param messageId id созданного или измененного сообщения
+     * @param text текст сообщения
+     * @param atNanos время получения запроса (System.nanoTime)
+     */
+    public record Sent(long chatId, String method, int messageId, String text, long atNanos) {}
+
+    private static final int MAX_BODY_BYTES = 1024 * 1024;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Неподтвержденные обновления в порядке update_id (под блокировкой самого списка)
+    private final List<ObjectNode> updates = new ArrayList<>();
+    private final AtomicInteger nextUpdateId = new AtomicInteger(1);
+    private final AtomicInteger nextMessageId = new AtomicInteger(1);
+    private final AtomicLong nextCallbackId = new AtomicLong(1);
+
+    private final Map<String, LongAdder> calls = new ConcurrentHashMap<>();
+    // Текущий текст отправленных и отредактированных сообщений: Telegram передает его в нажатиях
+    private final Map<Integer, String> messageTexts = new ConcurrentHashMap<>();
+    private volatile Consumer<Sent> listener = sent -> {};
+
+    /**
+     * Создает заглушку на свободном локальном порту (без запуска).
+     *
+     * @throws IOException если не удалось занять порт
+     */
+    public FakeTelegramApi() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        synchronized (updates) {
+            updates.notifyAll();
+        }
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return адрес заглушки для {@link Bot}
+     */
+    public TelegramUrl getApiUrl() {
+        return new TelegramUrl("http", "127.0.0.1", server.getAddress().getPort());
+    }
+
+    /**
+     * @param listener получатель исходящих сообщений бота (вызывается в потоке запроса)
+     */
+    public void setListener(Consumer<Sent> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param method имя метода Bot API
+     * @return количество вызовов метода
+     */
+    public long getCallCount(String method) {
+        LongAdder counter = calls.get(method.toLowerCase());
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Ставит в очередь текстовое сообщение пользователя.
+     *
+     * @param chatId чат пользователя
+     * @param text текст сообщения
+     */
+    public void pushText(long chatId, String text) {
+        ObjectNode message = messageNode(chatId, nextMessageId.getAndIncrement(), text);
+        message.set("from", userNode(chatId));
+        ObjectNode update = mapper.createObjectNode();
+        update.set("message", message);
+        push(update);
+    }
+
+    /**
+     * Ставит в очередь нажатие inline-кнопки.
+     *
+     * @param chatId чат пользователя
+     * @param messageId сообщение с кнопкой
+     * @param data данные кнопки
+     */
+    public void pushCallback(long chatId, int messageId, String data) {
+        ObjectNode callback = mapper.createObjectNode();
+        callback.put("id", String.valueOf(nextCallbackId.getAndIncrement()));
+        callback.set("from", userNode(chatId));
+        callback.put("chat_instance", String.valueOf(chatId));
+        callback.put("data", data);
+        callback.set("message", messageNode(chatId, messageId, messageTexts.get(messageId)));
+        ObjectNode update = mapper.createObjectNode();
+        update.set("callback_query", callback);
+        push(update);
+    }
+
+    private void push(ObjectNode update) {
+        synchronized (updates) {
+            update.put("update_id", nextUpdateId.getAndIncrement());
+            updates.add(update);
+            updates.notifyAll();
+        }
+    }
+
+    private ObjectNode messageNode(long chatId, int messageId, String text) {
+        ObjectNode chat = mapper.createObjectNode();
+        chat.put("id", chatId);
+        chat.put("type", "private");
+        ObjectNode message = mapper.createObjectNode();
+        message.put("message_id", messageId);
+        message.put("date", System.currentTimeMillis() / 1000);
+        message.set("chat", chat);
+        if (text != null) {
+            message.put("text", text);
+        }
+        return message;
+    }
+
+    private ObjectNode userNode(long chatId) {
+        ObjectNode user = mapper.createObjectNode();
+        user.put("id", chatId);
+        user.put("is_bot", false);
+        user.put("first_name", "user" + chatId);
+        return user;
+    }
+
+    /**
+     * Разбирает запрос вида /bot{token}/{method} и отвечает в формате Bot API.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String[] segments = exchange.getRequestURI().getPath().split("/");
+            String method = segments.length > 0 ? segments[segments.length - 1].toLowerCase() : "";
+            calls.computeIfAbsent(method, m -> new LongAdder()).increment();
+
+            JsonNode body;
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] bytes = in.readNBytes(MAX_BODY_BYTES);
+                body = bytes.length == 0 ? mapper.createObjectNode() : mapper.readTree(bytes);
+            }
+
+            JsonNode result = switch (method) {
+                case "getupdates" -> getUpdates(body);
+                case "sendmessage" -> sent(body, method, nextMessageId.getAndIncrement());
+                case "editmessagetext" -> sent(body, method, body.path("message_id").asInt());
+                default -> mapper.getNodeFactory().booleanNode(true);
+            };
+
+            ObjectNode response = mapper.createObjectNode();
+            response.put("ok", true);
+            response.set("result", result);
+            byte[] bytes = mapper.writeValueAsBytes(response);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Отдает обновления начиная с offset, ожидая их появления не дольше timeout секунд.
+     */
+    private JsonNode getUpdates(JsonNode body) {
+        int offset = body.path("offset").asInt(0);
+        int limit = body.path("limit").asInt(100);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(body.path("timeout").asInt(0));
+
+        ArrayNode result = mapper.createArrayNode();
+        synchronized (updates) {
+            // Обновления с id меньше offset подтверждены ботом
+            updates.removeIf(update -> update.get("update_id").asInt() < offset);
+            long remaining;
+            while (updates.isEmpty() && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(updates, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            for (int i = 0; i < updates.size() && i < limit; i++) {
+                result.add(updates.get(i));
+            }
+        }
+        return result;
+    }
+
+    private JsonNode sent(JsonNode body, String method, int messageId) {
+        long chatId = body.path("chat_id").asLong();
+        String text = body.path("text").asText();
+        messageTexts.put(messageId, text);
+        listener.accept(new Sent(chatId, method, messageId, text, System.nanoTime()));
+        return messageNode(chatId, messageId, text);
+    }
+}
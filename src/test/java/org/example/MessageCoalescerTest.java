@@ -0,0 +1,95 @@
+package org.example;
+
+import org.example.DataMessage.Content;
+import org.example.DataMessage.MessageCoalescer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+/**
+ * Тестовый класс для проверки функциональности {@link MessageCoalescer}.
+ * Проверяет правила объединения сообщений одного чата.
+ */
+public class MessageCoalescerTest {
+
+    private MessageCoalescer coalescer;
+
+    @BeforeEach
+    public void setUp() {
+        coalescer = new MessageCoalescer();
+    }
+
+    /**
+     * Тестирует объединение текста с последующим вопросом с клавиатурой.
+     */
+    @Test
+    public void testTextAndQuestionAreMerged() {
+        Content[] result = coalescer.coalesce(new Content[] {
+                new Content(true, "chat1", "🎯 Выбрана тема"),
+                new Content(true, "chat1", "Вопрос 1", null, "test_answer")
+        });
+
+        Assertions.assertEquals(1, result.length, "Сообщения должны объединиться");
+        Assertions.assertEquals("🎯 Выбрана тема\n\nВопрос 1", result[0].getText());
+        Assertions.assertEquals("test_answer", result[0].getKeyboardType(), "Клавиатура последнего сообщения сохраняется");
+        Assertions.assertEquals(1, coalescer.getSavedCalls());
+    }
+
+    /**
+     * Тестирует, что сообщение с клавиатурой не объединяется со следующим.
+     */
+    @Test
+    public void testKeyboardEndsGroup() {
+        Content[] result = coalescer.coalesce(new Content[] {
+                new Content(true, "chat1", "Меню", null, "menu"),
+                new Content(true, "chat1", "Подсказка")
+        });
+
+        Assertions.assertEquals(2, result.length, "Клавиатура должна оставаться у своего сообщения");
+        Assertions.assertEquals(0, coalescer.getSavedCalls());
+    }
+
+    /**
+     * Тестирует, что сообщения разных чатов не объединяются.
+     */
+    @Test
+    public void testDifferentChatsAreNotMerged() {
+        Content[] result = coalescer.coalesce(new Content[] {
+                new Content(true, "chat1", "Результат"),
+                new Content(true, "chat2", "Результат"),
+                new Content(true, "chat2", "Меню", null, "go_menu")
+        });
+
+        Assertions.assertEquals(2, result.length);
+        Assertions.assertEquals("chat1", result[0].getChatId());
+        Assertions.assertEquals("Результат\n\nМеню", result[1].getText());
+    }
+
+    /**
+     * Тестирует соблюдение лимита длины сообщения Telegram.
+     */
+    @Test
+    public void testLengthLimitIsRespected() {
+        String longText = "а".repeat(3000);
+        Content[] result = coalescer.coalesce(new Content[] {
+                new Content(true, "chat1", longText),
+                new Content(true, "chat1", longText)
+        });
+
+        Assertions.assertEquals(2, result.length, "Слишком длинный текст не должен объединяться");
+    }
+
+    /**
+     * Тестирует, что редактирования не объединяются.
+     */
+    @Test
+    public void testEditsAreNotMerged() {
+        Content[] result = coalescer.coalesce(new Content[] {
+                new Content(true, "chat1", "Текст"),
+                new Content(true, "chat1", "Вопрос", null, "test_answer", 10)
+        });
+
+        Assertions.assertEquals(2, result.length);
+        Assertions.assertTrue(result[1].isEdit());
+    }
+}
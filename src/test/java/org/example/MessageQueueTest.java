@@ -0,0 +1,109 @@
+package org.example;
+
+import org.example.DataMessage.Content;
+import org.example.DataMessage.MessageQueue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Тестовый класс для проверки функциональности {@link MessageQueue}.
+ * Проверяет накопление сообщений и мгновенную доставку подписчику.
+ */
+public class MessageQueueTest {
+
+    private MessageQueue queue;
+
+    @BeforeEach
+    public void setUp() {
+        queue = new MessageQueue();
+    }
+
+    /**
+     * Тестирует, что без подписчика сообщения накапливаются в очереди.
+     */
+    @Test
+    public void testMessagesAccumulateWithoutSubscriber() {
+        queue.addMessage(new Content(true, "chat1", "Таймаут"));
+
+        Assertions.assertTrue(queue.hasMessages());
+        Assertions.assertEquals(1, queue.getAllMessages().size());
+        Assertions.assertFalse(queue.hasMessages(), "После получения очередь должна быть пустой");
+    }
+
+    /**
+     * Тестирует, что подписчик получает сообщение в момент добавления.
+     */
+    @Test
+    public void testSubscriberReceivesMessageImmediately() {
+        List<Content> received = Collections.synchronizedList(new ArrayList<>());
+        queue.subscribe(received::add);
+
+        queue.addMessage(new Content(true, "chat1", "Соперник не успел"));
+
+        Assertions.assertEquals(1, received.size(), "Сообщение должно быть доставлено сразу");
+        Assertions.assertEquals("chat1", received.get(0).getChatId());
+        Assertions.assertFalse(queue.hasMessages(), "Доставленное сообщение не должно оставаться в очереди");
+    }
+
+    /**
+     * Тестирует, что накопленные до подписки сообщения передаются подписчику.
+     */
+    @Test
+    public void testBacklogDeliveredOnSubscribe() {
+        queue.addMessage(new Content(true, "chat1", "Первое"));
+        queue.addMessage(new Content(true, "chat2", "Второе"));
+
+        List<Content> received = new ArrayList<>();
+        queue.subscribe(received::add);
+
+        Assertions.assertEquals(2, received.size());
+        Assertions.assertEquals("Первое", received.get(0).getText());
+        Assertions.assertFalse(queue.hasMessages());
+    }
+
+    /**
+     * Тестирует, что при ошибке подписчика доставка повторяется,
+     * а сообщение, которое так и не принято, передается обработчику недоставленных.
+     */
+    @Test
+    public void testFailedDeliveryIsRetriedThenDeadLettered() {
+        List<Content> deadLetters = new ArrayList<>();
+        int[] attempts = {0};
+        queue.subscribe(content -> {
+            attempts[0]++;
+            throw new IllegalStateException("Тестовая ошибка");
+        }, deadLetters::add);
+
+        queue.addMessage(new Content(true, "chat1", "Таймаут"));
+
+        Assertions.assertEquals(MessageQueue.MAX_DELIVERY_ATTEMPTS, attempts[0]);
+        Assertions.assertEquals(1, deadLetters.size());
+        Assertions.assertEquals(1, queue.getFailedCount());
+        Assertions.assertFalse(queue.hasMessages(), "Сообщение не должно оставаться в очереди, которую никто не читает");
+    }
+
+    /**
+     * Тестирует, что временная ошибка подписчика не теряет сообщение.
+     */
+    @Test
+    public void testTransientFailureIsRetried() {
+        List<Content> received = new ArrayList<>();
+        int[] attempts = {0};
+        queue.subscribe(content -> {
+            if (attempts[0]++ == 0) {
+                throw new IllegalStateException("Тестовая ошибка");
+            }
+            received.add(content);
+        }, content -> Assertions.fail("Сообщение не должно считаться недоставленным"));
+
+        queue.addMessage(new Content(true, "chat1", "Таймаут"));
+
+        Assertions.assertEquals(1, received.size());
+        Assertions.assertEquals(0, queue.getFailedCount());
+    }
+}
@@ -0,0 +1,101 @@
+package org.example;
+
+import org.example.Metrics.Counter;
+import org.example.Metrics.Histogram;
+import org.example.Metrics.MetricsRegistry;
+import org.example.Metrics.MetricsServer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Тестовый класс для проверки {@link MetricsRegistry} и {@link MetricsServer}.
+ * Проверяет формат выгрузки Prometheus, корзины гистограмм и HTTP-выгрузку.
+ */
+public class MetricsTest {
+
+    /**
+     * Тестирует выгрузку счетчиков и значений с метками и повторную регистрацию.
+     */
+    @Test
+    public void testCountersAndGaugesAreScraped() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter duplicates = registry.counter("test_dropped_total", "Отброшенные", "reason", "duplicate");
+        duplicates.inc();
+        registry.counter("test_dropped_total", "Отброшенные", "reason", "duplicate").add(2);
+
+        AtomicLong queued = new AtomicLong(7);
+        registry.gauge("test_queued", "Очередь", queued::get);
+        registry.counter("test_dropped_total", "Отброшенные", () -> 4, "reason", "say \"hi\"");
+
+        String text = registry.scrape();
+
+        Assertions.assertTrue(text.contains("# TYPE test_dropped_total counter\n"));
+        Assertions.assertTrue(text.contains("test_dropped_total{reason=\"duplicate\"} 3\n"),
+                "Повторная регистрация возвращает тот же счетчик");
+        Assertions.assertTrue(text.contains("test_dropped_total{reason=\"say \\\"hi\\\"\"} 4\n"), "Кавычки экранируются");
+        Assertions.assertTrue(text.contains("# TYPE test_queued gauge\ntest_queued 7\n"));
+
+        queued.set(9);
+        Assertions.assertTrue(registry.scrape().contains("test_queued 9\n"), "Значение читается при выгрузке");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> registry.histogram("test_queued", "Очередь"));
+    }
+
+    /**
+     * Тестирует, что наблюдения попадают в нужные корзины, а выгрузка накопленная.
+     */
+    @Test
+    public void testHistogramBuckets() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Histogram histogram = registry.histogram("test_seconds", "Задержка", "handler", "answer");
+
+        histogram.observeNanos(5_000);          // меньше первой границы 10 мкс
+        histogram.observeNanos(2_000_000);      // ровно 2 мс
+        histogram.observeNanos(2_500_000);      // 2.5 мс -> корзина 3 мс
+        histogram.observeNanos(500_000_000_000L); // больше всех границ
+
+        String text = registry.scrape();
+
+        Assertions.assertTrue(text.contains("test_seconds_bucket{handler=\"answer\",le=\"0.00001\"} 1\n"));
+        Assertions.assertTrue(text.contains("test_seconds_bucket{handler=\"answer\",le=\"0.002\"} 2\n"));
+        Assertions.assertTrue(text.contains("test_seconds_bucket{handler=\"answer\",le=\"0.003\"} 3\n"));
+        Assertions.assertTrue(text.contains("test_seconds_bucket{handler=\"answer\",le=\"100\"} 3\n"));
+        Assertions.assertTrue(text.contains("test_seconds_bucket{handler=\"answer\",le=\"+Inf\"} 4\n"));
+        Assertions.assertTrue(text.contains("test_seconds_count{handler=\"answer\"} 4\n"));
+        Assertions.assertEquals(4, histogram.getCount());
+        Assertions.assertEquals(500_004_505_000L, histogram.getSumNanos());
+    }
+
+    /**
+     * Тестирует выгрузку метрик по HTTP.
+     */
+    @Test
+    public void testServerServesMetrics() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("test_requests_total", "Запросы").inc();
+
+        MetricsServer server = new MetricsServer(0, registry);
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            URI uri = URI.create("http://127.0.0.1:" + server.getPort() + MetricsServer.PATH);
+
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            Assertions.assertEquals(200, response.statusCode());
+            Assertions.assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+            Assertions.assertTrue(response.body().contains("test_requests_total 1\n"));
+
+            HttpResponse<String> post = client.send(HttpRequest.newBuilder(uri)
+                    .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+            Assertions.assertEquals(405, post.statusCode());
+        } finally {
+            server.stop();
+        }
+    }
+}
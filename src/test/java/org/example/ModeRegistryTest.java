@@ -0,0 +1,62 @@
+package org.example;
+
+import org.example.DataMessage.Content;
+import org.example.ModeGame.DuelMode;
+import org.example.ModeGame.ModeRegistry;
+import org.example.ModeGame.SoloMode;
+import org.example.Quiz.UserData;
+import org.example.Quiz.UserState;
+import org.example.Quiz.Users;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.example.DataMessage.Constants.*;
+
+/**
+ * Тестовый класс для проверки функциональности {@link ModeRegistry}.
+ * Проверяет поиск режима по кнопке и состоянию и выбор режима через Producer.
+ */
+public class ModeRegistryTest {
+
+    /**
+     * Тестирует индексы встроенных режимов и отказ регистрировать чужую кнопку.
+     */
+    @Test
+    public void testDefaultModesAreIndexed() {
+        ModeRegistry registry = ModeRegistry.withDefaults();
+
+        Assertions.assertSame(SoloMode.PROVIDER, registry.forCallback(SOLO_BUTTON));
+        Assertions.assertSame(DuelMode.PROVIDER, registry.forCallback(DUEL_BUTTON));
+        Assertions.assertNull(registry.forCallback(MENU_BUTTON), "Кнопки меню режимам не принадлежат");
+        Assertions.assertSame(DuelMode.PROVIDER, registry.forState(UserState.DUEL_WAITING_OPPONENT));
+        Assertions.assertNull(registry.forState(UserState.QUIZ));
+        Assertions.assertSame(SoloMode.PROVIDER, registry.forType("solo"));
+
+        ModeRegistry.ModeProvider clash = new ModeRegistry.ModeProvider("team", Set.of(DUEL_BUTTON), Set.of(),
+                SoloMode::new);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> registry.register(clash));
+        Assertions.assertNull(registry.forType("team"), "Режим с чужой кнопкой не регистрируется");
+    }
+
+    /**
+     * Тестирует, что кнопка режима создает режим из реестра.
+     */
+    @Test
+    public void testModeButtonSelectsRegisteredMode(@TempDir Path dir) throws Exception {
+        Path usersFile = dir.resolve("users.json");
+        Files.writeString(usersFile, "{}");
+        Users users = new Users(usersFile.toString());
+        Producer producer = new Producer(users, "");
+        UserData userData = users.getOrCreate("chat1");
+        users.setLeaderboardName("chat1", "Игрок");
+
+        producer.produce(new Content(false, "chat1", SOLO_BUTTON));
+
+        Assertions.assertInstanceOf(SoloMode.class, userData.getCurrentMode());
+    }
+}
@@ -0,0 +1,304 @@
+package org.example;
+
+import org.example.Outbound.DeadLetterStore;
+import org.example.Outbound.OutboundSender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.io.TempDir;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.ApiResponse;
+import org.telegram.telegrambots.meta.api.objects.ResponseParameters;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Тестовый класс для проверки функциональности {@link OutboundSender}.
+ * Проверяет порядок отправки, лимиты частоты, обработку 429, повторы с задержкой,
+ * файл недоставленных сообщений и ограничение очереди.
+ */
+public class OutboundSenderTest {
+
+    private OutboundSender sender;
+
+    @AfterEach
+    public void tearDown() {
+        if (sender != null) {
+            sender.shutdown(1000);
+        }
+    }
+
+    private static SendMessage message(String chatId, String text) {
+        return SendMessage.builder().chatId(chatId).text(text).build();
+    }
+
+    /**
+     * Тестирует, что сообщения одного чата отправляются в порядке постановки.
+     */
+    @Test
+    public void testMessagesOfOneChatKeepOrder() throws Exception {
+        List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(20);
+        sender = new OutboundSender(method -> {
+            sent.add(((SendMessage) method).getText());
+            done.countDown();
+        }, 4, 100, 1000, 1000, 1000);
+
+        for (int i = 0; i < 20; i++) {
+            sender.submit("chat1", message("chat1", "msg" + i));
+        }
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 20; i++) {
+            Assertions.assertEquals("msg" + i, sent.get(i), "Порядок сообщений чата должен сохраняться");
+        }
+    }
+
+    /**
+     * Тестирует лимит сообщений на чат: после всплеска сообщения идут с задержкой.
+     */
+    @Test
+    public void testPerChatRateLimit() throws Exception {
+        List<Long> sentAt = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(4);
+        sender = new OutboundSender(method -> {
+            sentAt.add(System.nanoTime());
+            done.countDown();
+        }, 2, 100, 1000, 10, 2);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            sender.submit("chat1", message("chat1", "msg" + i));
+        }
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(sentAt.get(3) - start);
+        // 2 сообщения уходят сразу, оставшиеся 2 - по одному раз в 100 мс
+        Assertions.assertTrue(elapsedMs >= 150, "Лимит чата должен задерживать сообщения, прошло: " + elapsedMs);
+    }
+
+    /**
+     * Тестирует, что лимит одного чата не задерживает другие чаты.
+     */
+    @Test
+    public void testLimitedChatDoesNotBlockOthers() throws Exception {
+        CountDownLatch otherSent = new CountDownLatch(1);
+        sender = new OutboundSender(method -> {
+            if ("chat2".equals(((SendMessage) method).getChatId())) {
+                otherSent.countDown();
+            }
+        }, 2, 100, 1000, 0.5, 1);
+
+        for (int i = 0; i < 5; i++) {
+            sender.submit("chat1", message("chat1", "msg" + i));
+        }
+        sender.submit("chat2", message("chat2", "hello"));
+
+        Assertions.assertTrue(otherSent.await(1, TimeUnit.SECONDS),
+                "Сообщение другого чата должно уйти без ожидания лимита первого");
+    }
+
+    /**
+     * Тестирует повтор отправки после ответа 429 с retry_after.
+     */
+    @Test
+    public void testRetryAfterOn429() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch delivered = new CountDownLatch(1);
+        sender = new OutboundSender(method -> {
+            if (attempts.incrementAndGet() == 1) {
+                ApiResponse<Object> response = new ApiResponse<>(false, 429, "Too Many Requests",
+                        new ResponseParameters(null, 1), null);
+                throw new TelegramApiRequestException("Too Many Requests", response);
+            }
+            delivered.countDown();
+        }, 2, 100, 1000, 1000, 1000);
+
+        long start = System.nanoTime();
+        sender.submit("chat1", message("chat1", "result"));
+
+        Assertions.assertTrue(delivered.await(5, TimeUnit.SECONDS), "Сообщение должно быть доставлено после повтора");
+        Assertions.assertEquals(2, attempts.get());
+        Assertions.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 900,
+                "Повтор должен выполняться не раньше retry_after");
+    }
+
+    /**
+     * Тестирует, что 429 без retry_after повторяется с задержкой, а не отбрасывается как ошибка запроса.
+     */
+    @Test
+    public void testRetryOn429WithoutRetryAfter() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch delivered = new CountDownLatch(1);
+        sender = new OutboundSender(method -> {
+            if (attempts.incrementAndGet() == 1) {
+                ApiResponse<Object> response = new ApiResponse<>(false, 429, "Too Many Requests", null, null);
+                throw new TelegramApiRequestException("Too Many Requests", response);
+            }
+            delivered.countDown();
+        }, 1, 100, 1000, 1000, 1000, 3, 10, null);
+
+        sender.submit("chat1", message("chat1", "result"));
+
+        Assertions.assertTrue(delivered.await(5, TimeUnit.SECONDS), "Сообщение должно быть доставлено после повтора");
+        Assertions.assertEquals(2, attempts.get());
+        Assertions.assertEquals(1, sender.getRetriedCount());
+    }
+
+    /**
+     * Тестирует ограничение размера очереди.
+     */
+    @Test
+    public void testBoundedQueueRejectsOverflow() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        sender = new OutboundSender(method -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 1, 2, 1000, 1000, 1000);
+
+        Assertions.assertTrue(sender.submit("chat1", message("chat1", "1")));
+        Assertions.assertTrue(sender.submit("chat2", message("chat2", "2")));
+        Assertions.assertFalse(sender.submit("chat3", message("chat3", "3")),
+                "Переполненная очередь должна отклонять сообщения");
+
+        release.countDown();
+    }
+
+    /**
+     * Тестирует, что сообщение, которое не приняла переполненная или остановленная очередь,
+     * сохраняется в файл недоставленных, а не теряется.
+     */
+    @Test
+    public void testRejectedMessageIsDeadLettered(@TempDir Path dir) throws Exception {
+        DeadLetterStore store = new DeadLetterStore(dir.resolve("dead.jsonl"));
+        CountDownLatch release = new CountDownLatch(1);
+        sender = new OutboundSender(method -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 1, 1, 1000, 1000, 1000, 3, 10, store);
+
+        sender.submitOrDeadLetter("chat1", message("chat1", "1"));
+        sender.submitOrDeadLetter("chat2", message("chat2", "результат дуэли"));
+        Assertions.assertEquals(1, sender.getDeadLetteredCount(), "Переполненная очередь сохраняет сообщение");
+
+        release.countDown();
+        Assertions.assertTrue(sender.shutdown(3000));
+        sender.submitOrDeadLetter("chat3", message("chat3", "после остановки"));
+        Assertions.assertEquals(2, sender.getDeadLetteredCount(), "Остановленная очередь сохраняет сообщение");
+
+        List<String> saved = new ArrayList<>();
+        for (DeadLetterStore.DeadLetter letter : store.drain()) {
+            saved.add(letter.chatId() + ":" + ((SendMessage) letter.method()).getText());
+        }
+        Assertions.assertEquals(List.of("chat2:результат дуэли", "chat3:после остановки"), saved);
+    }
+
+    /**
+     * Тестирует повтор после сетевой ошибки с экспоненциальной задержкой.
+     */
+    @Test
+    public void testNetworkErrorIsRetried() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch delivered = new CountDownLatch(1);
+        sender = new OutboundSender(method -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new TelegramApiException("Connection reset");
+            }
+            delivered.countDown();
+        }, 2, 100, 1000, 1000, 1000, 5, 20, null);
+
+        sender.submit("chat1", message("chat1", "result"));
+
+        Assertions.assertTrue(delivered.await(5, TimeUnit.SECONDS), "Сообщение должно быть доставлено после повторов");
+        Assertions.assertEquals(3, attempts.get());
+        Assertions.assertEquals(2, sender.getRetriedCount());
+    }
+
+    /**
+     * Тестирует, что ошибка запроса (4xx) не повторяется.
+     */
+    @Test
+    public void testClientErrorIsNotRetried() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        sender = new OutboundSender(method -> {
+            attempts.incrementAndGet();
+            ApiResponse<Object> response = new ApiResponse<>(false, 400, "Bad Request: chat not found", null, null);
+            throw new TelegramApiRequestException("Bad Request", response);
+        }, 1, 100, 1000, 1000, 1000, 5, 20, null);
+
+        sender.submit("chat1", message("chat1", "result"));
+
+        Assertions.assertTrue(sender.shutdown(2000));
+        Assertions.assertEquals(1, attempts.get(), "Ошибка запроса не должна повторяться");
+        Assertions.assertEquals(0, sender.getRetriedCount());
+    }
+
+    /**
+     * Тестирует сохранение сообщения после исчерпания попыток и повторную отправку из файла.
+     */
+    @Test
+    public void testExhaustedMessageIsDeadLetteredAndReplayed(@TempDir Path dir) throws Exception {
+        DeadLetterStore store = new DeadLetterStore(dir.resolve("dead.jsonl"));
+        AtomicInteger attempts = new AtomicInteger();
+        sender = new OutboundSender(method -> {
+            attempts.incrementAndGet();
+            ApiResponse<Object> response = new ApiResponse<>(false, 502, "Bad Gateway", null, null);
+            throw new TelegramApiRequestException("Bad Gateway", response);
+        }, 1, 100, 1000, 1000, 1000, 3, 10, store);
+
+        sender.submit("chat1", message("chat1", "result"));
+
+        Assertions.assertTrue(sender.shutdown(3000), "Очередь должна освободиться после исчерпания попыток");
+        Assertions.assertEquals(3, attempts.get());
+        Assertions.assertEquals(1, sender.getDeadLetteredCount());
+
+        // Следующий запуск: сообщение отправляется из файла
+        List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch delivered = new CountDownLatch(1);
+        sender = new OutboundSender(method -> {
+            sent.add(((SendMessage) method).getChatId() + ":" + ((SendMessage) method).getText());
+            delivered.countDown();
+        }, store);
+
+        Assertions.assertEquals(1, sender.replayDeadLetters());
+        Assertions.assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(List.of("chat1:result"), sent);
+        Assertions.assertTrue(store.drain().isEmpty(), "Файл должен быть очищен после повтора");
+    }
+
+    /**
+     * Тестирует сохранение неотправленной очереди при остановке.
+     */
+    @Test
+    public void testPendingMessagesArePersistedOnShutdown(@TempDir Path dir) throws Exception {
+        DeadLetterStore store = new DeadLetterStore(dir.resolve("dead.jsonl"));
+        sender = new OutboundSender(method -> {
+            throw new TelegramApiException("Network is unreachable");
+        }, 1, 100, 1000, 1000, 1000, 10, 60_000, store);
+
+        sender.submit("chat1", message("chat1", "first"));
+        sender.submit("chat1", message("chat1", "second"));
+
+        Assertions.assertFalse(sender.shutdown(300));
+        List<DeadLetterStore.DeadLetter> letters = store.drain();
+        Assertions.assertEquals(2, letters.size());
+        Assertions.assertEquals("first", ((SendMessage) letters.get(0).method()).getText(),
+                "Порядок сообщений чата должен сохраняться");
+        Assertions.assertEquals("second", ((SendMessage) letters.get(1).method()).getText());
+    }
+}
@@ -0,0 +1,170 @@
+package org.example;
+
+import org.example.Dispatch.PipelineStage;
+import org.example.Metrics.MetricsRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Тестовый класс для проверки функциональности {@link PipelineStage}.
+ * Проверяет порядок задач чата, передачу между стадиями, ограничение очереди и метрики стадии.
+ */
+public class PipelineStageTest {
+
+    /**
+     * Тестирует, что задачи чата проходят две стадии подряд, не теряя порядка.
+     */
+    @Test
+    public void testStagesKeepChatOrder() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        PipelineStage handle = new PipelineStage("handle", 100, registry);
+        PipelineStage render = new PipelineStage("render", 100, PipelineStage.fixedPool("render", 2), registry);
+        List<Integer> rendered = Collections.synchronizedList(new ArrayList<>());
+
+        for (int i = 0; i < 200; i++) {
+            int number = i;
+            String chat = "chat" + (i % 2);
+            handle.submit(chat, () -> render.submit(chat, () -> rendered.add(number)));
+        }
+
+        Assertions.assertTrue(handle.awaitIdle(5000));
+        Assertions.assertTrue(render.awaitIdle(5000));
+        Assertions.assertEquals(200, rendered.size());
+        for (int chat = 0; chat < 2; chat++) {
+            int parity = chat;
+            List<Integer> ofChat = rendered.stream().filter(n -> n % 2 == parity).toList();
+            for (int i = 1; i < ofChat.size(); i++) {
+                Assertions.assertTrue(ofChat.get(i - 1) < ofChat.get(i), "Порядок задач чата должен сохраняться");
+            }
+        }
+        Assertions.assertEquals(0, handle.getQueueDepth());
+        Assertions.assertEquals(200, render.getServiceTime().getCount());
+
+        handle.shutdown(1000);
+        render.shutdown(1000);
+    }
+
+    /**
+     * Тестирует, что переполненная стадия не принимает задачи, а освободившаяся - снова принимает.
+     */
+    @Test
+    public void testCapacityBoundsQueue() throws Exception {
+        PipelineStage stage = new PipelineStage("handle", 2, new MetricsRegistry());
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocked = () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        Assertions.assertTrue(stage.submit("chat1", blocked));
+        Assertions.assertTrue(stage.submitAll(List.of("chat1", "chat2"), () -> {}));
+        Assertions.assertEquals(2, stage.getQueueDepth());
+        Assertions.assertFalse(stage.submit("chat3", () -> {}), "Сверх лимита очередь не растет");
+        Assertions.assertEquals(1, stage.getRejectedCount());
+
+        release.countDown();
+        Assertions.assertTrue(stage.awaitIdle(5000));
+        Assertions.assertTrue(stage.submit("chat3", () -> {}), "Освободившаяся стадия принимает задачи");
+        Assertions.assertTrue(stage.awaitIdle(5000));
+        stage.shutdown(1000);
+    }
+
+    /**
+     * Тестирует, что put при переполненной стадии ждет места ограниченное время и сообщает о неудаче,
+     * и что задача самой стадии ставится сверх лимита, не дожидаясь себя.
+     */
+    @Test
+    public void testPutWaitsForRoomInsteadOfDropping() throws Exception {
+        PipelineStage stage = new PipelineStage("handle", 1, new MetricsRegistry());
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> done = Collections.synchronizedList(new ArrayList<>());
+
+        Assertions.assertTrue(stage.put("chat1", () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            stage.putAll(List.of("chat1", "chat2"), () -> done.add("timer"), 0);
+        }, 0));
+        Assertions.assertFalse(stage.put("chat3", () -> done.add("lost"), 50), "Ожидание места ограничено");
+        Thread producer = new Thread(() -> stage.put("chat3", () -> done.add("reply"), 5000));
+        producer.start();
+        producer.join(200);
+        Assertions.assertTrue(producer.isAlive(), "При переполненной стадии put ждет места");
+
+        release.countDown();
+        producer.join(5000);
+        Assertions.assertFalse(producer.isAlive());
+        Assertions.assertTrue(stage.awaitIdle(5000));
+        Assertions.assertTrue(done.containsAll(List.of("timer", "reply")), "Задачи не теряются");
+        Assertions.assertFalse(done.contains("lost"));
+        Assertions.assertEquals(1, stage.getRejectedCount());
+        Assertions.assertEquals(0, stage.getQueueDepth());
+
+        CountDownLatch hold = new CountDownLatch(1);
+        Assertions.assertTrue(stage.submit("chat4", () -> {
+            try {
+                hold.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        Assertions.assertFalse(stage.submit("chat5", () -> {}), "Задача сверх лимита не добавляет места в стадии");
+        hold.countDown();
+        Assertions.assertTrue(stage.awaitIdle(5000));
+        stage.shutdown(1000);
+    }
+
+    /**
+     * Тестирует, что задача, которую остановленная стадия не выполнила, не занимает место в очереди навсегда.
+     */
+    @Test
+    public void testRejectedTaskReleasesCapacity() throws Exception {
+        PipelineStage stage = new PipelineStage("render", 1, PipelineStage.fixedPool("render", 1), new MetricsRegistry());
+        stage.shutdown(1000);
+
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertTrue(stage.submit("chat1", () -> {}), "Место отклоненной задачи освобождается");
+        }
+        Assertions.assertTrue(stage.awaitIdle(1000));
+        Assertions.assertEquals(0, stage.getQueueDepth());
+        Assertions.assertEquals(0, stage.getRejectedCount());
+    }
+
+    /**
+     * Тестирует выгрузку глубины очереди и времени выполнения с меткой стадии.
+     */
+    @Test
+    public void testStageMetricsAreScraped() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        PipelineStage stage = new PipelineStage("render", 10, PipelineStage.fixedPool("render", 1), registry);
+        CountDownLatch release = new CountDownLatch(1);
+
+        stage.submit("chat1", () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        stage.submit("chat1", () -> {});
+        Assertions.assertTrue(registry.scrape().contains("quiz_pipeline_queue_depth{stage=\"render\"} 2\n"));
+
+        release.countDown();
+        Assertions.assertTrue(stage.awaitIdle(5000));
+        String text = registry.scrape();
+        Assertions.assertTrue(text.contains("quiz_pipeline_queue_depth{stage=\"render\"} 0\n"));
+        Assertions.assertTrue(text.contains("quiz_pipeline_service_seconds_count{stage=\"render\"} 2\n"), text);
+        stage.shutdown(1000);
+    }
+}
@@ -0,0 +1,154 @@
+package org.example;
+
+import org.example.Dispatch.UpdateDispatcher;
+import org.example.ModeGame.Duel.DuelMatchmaker;
+import org.example.ModeGame.Duel.DuelPair;
+import org.example.ModeGame.Duel.Timer.DuelTimeoutManager;
+import org.example.ModeGame.DuelMode;
+import org.example.Quiz.Users;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Стресс-тесты одновременной работы очередей чатов и таймеров дуэлей.
+ * Проверяют, что начисления очков не теряются, а задачи одного чата не пересекаются.
+ */
+public class ProducerConcurrencyTest {
+
+    @TempDir
+    Path dir;
+
+    private UpdateDispatcher dispatcher;
+    private DuelMatchmaker matchmaker;
+    private DuelTimeoutManager timeoutManager;
+    private Users users;
+    private Producer producer;
+
+    // Сколько задач каждого чата выполняется прямо сейчас и максимум за тест
+    private final Map<String, AtomicInteger> running = new ConcurrentHashMap<>();
+    private final AtomicInteger maxRunningPerChat = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Path usersFile = dir.resolve("users.json");
+        Files.writeString(usersFile, "{}");
+        users = new Users(usersFile.toString());
+        producer = new Producer(users, "");
+        matchmaker = new DuelMatchmaker();
+        timeoutManager = new DuelTimeoutManager(matchmaker);
+        producer.setDuelMatchmaker(matchmaker);
+        producer.setDuelTimeoutManager(timeoutManager);
+        producer.startInitTimeoutNotifier();
+
+        dispatcher = new UpdateDispatcher();
+        producer.setChatExecutor((chatIds, task) -> dispatcher.dispatchAll(chatIds, tracked(chatIds, task)));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        timeoutManager.clearAll();
+        dispatcher.shutdown(1000);
+    }
+
+    /**
+     * Тестирует, что начисления из очереди чата и из таймаутов дуэлей не теряются
+     * и не выполняются одновременно для одного игрока.
+     */
+    @Test
+    public void testTimeoutsAndUpdatesDoNotLoseScore() throws Exception {
+        int rounds = 200;
+        for (String chatId : List.of("p1", "p2", "p3")) {
+            users.getOrCreate(chatId);
+            users.setLeaderboardName(chatId, chatId);
+        }
+
+        // Дуэли p1 с p2 и p1 с p3 завершаются по таймауту в потоках таймеров,
+        // одновременно завершаются викторины в очередях чатов
+        for (int i = 0; i < rounds; i++) {
+            String opponent = i % 2 == 0 ? "p2" : "p3";
+            matchmaker.registerForDuel("p1", DuelMode.TopicType.LOCAL, "history", "p1", null);
+            DuelPair pair = matchmaker.registerForDuel(opponent, DuelMode.TopicType.LOCAL, "history", opponent, null);
+            pair.savePlayerResults("p1", 1, 1000);
+            timeoutManager.startDuelTimeout(pair.getDuelId(), "p1", opponent, 0);
+
+            for (String chatId : List.of("p1", "p2", "p3")) {
+                dispatcher.dispatch(chatId, tracked(List.of(chatId), () -> users.updateUserScore(chatId, 1)));
+            }
+
+            // Следующая дуэль p1 начинается после того, как таймаут предыдущей снял пару
+            long pairDeadline = System.currentTimeMillis() + 5000;
+            while (matchmaker.getPairForPlayer("p1") != null && System.currentTimeMillis() < pairDeadline) {
+                Thread.sleep(1);
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (users.get("p1").getScore() < 2 * rounds && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertTrue(dispatcher.awaitIdle(5000));
+
+        Assertions.assertEquals(2 * rounds, users.get("p1").getScore(), "Начисления p1 не должны теряться");
+        Assertions.assertEquals(rounds, users.get("p2").getScore());
+        Assertions.assertEquals(rounds, users.get("p3").getScore());
+        Assertions.assertEquals(2 * rounds, users.get("p1").getAllScore().size(), "История не должна перезаписываться");
+        Assertions.assertEquals(1, maxRunningPerChat.get(), "Задачи одного чата не должны пересекаться");
+    }
+
+    /**
+     * Тестирует, что начисления из разных потоков без очереди тоже атомарны.
+     */
+    @Test
+    public void testConcurrentScoreUpdatesAreAtomic() throws Exception {
+        users.getOrCreate("chat1");
+        int threads = 8;
+        int perThread = 5000;
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    users.updateUserScore("chat1", 1);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        Assertions.assertEquals(threads * perThread, users.get("chat1").getScore());
+    }
+
+    /**
+     * Оборачивает задачу подсчетом одновременно выполняемых задач каждого ее чата.
+     */
+    private Runnable tracked(Collection<String> chatIds, Runnable task) {
+        return () -> {
+            for (String chatId : chatIds) {
+                int now = running.computeIfAbsent(chatId, id -> new AtomicInteger()).incrementAndGet();
+                maxRunningPerChat.accumulateAndGet(now, Math::max);
+            }
+            try {
+                task.run();
+            } finally {
+                for (String chatId : chatIds) {
+                    running.get(chatId).decrementAndGet();
+                }
+            }
+        };
+    }
+}
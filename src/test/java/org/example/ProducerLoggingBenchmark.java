@@ -0,0 +1,64 @@
+package org.example;
+
+import org.example.DataMessage.Content;
+import org.example.Logging.Level;
+import org.example.Logging.LogManager;
+import org.example.Quiz.Users;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Бенчмарк стоимости логирования на пути обработки обновления.
+ * Измеряет Producer.produce (команды /help и /menu, выбор режима) при уровне INFO и при OFF.
+ * Логи пишутся в файл во временной папке, вывод в консоль отключен,
+ * чтобы измерялась стоимость вызовов логгера, а не скорость терминала.
+ *
+ * Запуск: java -cp target/classes:target/test-classes:... org.example.ProducerLoggingBenchmark [iterations]
+ */
+public class ProducerLoggingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        Path logDir = Files.createTempDirectory("bench_logs");
+        System.setProperty("log.file", logDir.resolve("bot.log").toString());
+        System.setProperty("log.console", "false");
+
+        Path usersFile = Files.createTempFile("bench_users", ".json");
+        Files.writeString(usersFile, "{}");
+        Users users = new Users(usersFile.toString());
+        Producer producer = new Producer(users, "");
+        users.getOrCreate("bench_chat");
+        users.setLeaderboardName("bench_chat", "Bench");
+
+        // Прогрев
+        run(producer, iterations / 4, Level.INFO);
+        run(producer, iterations / 4, Level.OFF);
+
+        long infoNanos = run(producer, iterations, Level.INFO);
+        long offNanos = run(producer, iterations, Level.OFF);
+
+        System.out.printf("%n[BENCHMARK] Итераций: %d (по 3 вызова produce)%n", iterations);
+        System.out.printf("[BENCHMARK] Логирование INFO: %.2f мкс/итерация%n", infoNanos / 1e3 / iterations);
+        System.out.printf("[BENCHMARK] Логирование OFF:  %.2f мкс/итерация%n", offNanos / 1e3 / iterations);
+        System.out.printf("[BENCHMARK] Отброшено записей при переполнении буфера: %d%n", LogManager.getDroppedCount());
+
+        LogManager.setLevel(Level.INFO);
+        LogManager.flush(5000);
+        Files.deleteIfExists(usersFile);
+    }
+
+    private static long run(Producer producer, int iterations, Level level) {
+        LogManager.setLevel(level);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            producer.produce(new Content(false, "bench_chat", "/help"));
+            producer.produce(new Content(false, "bench_chat", "/menu"));
+            producer.produce(new Content(false, "bench_chat", "solo_button"));
+        }
+        long elapsed = System.nanoTime() - start;
+        LogManager.flush(10_000);
+        return elapsed;
+    }
+}
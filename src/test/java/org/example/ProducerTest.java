@@ -1,6 +1,13 @@
 package org.example;
 
 import org.example.DataMessage.Content;
+import org.example.ModeGame.Duel.DuelMatchmaker;
+import org.example.ModeGame.Duel.Timer.DuelTimeoutManager;
+import org.example.Quiz.DataQuestion;
+import org.example.Quiz.Memory.DiskMemory;
+import org.example.Quiz.Quiz;
+import org.example.Quiz.UserData;
+import org.example.Quiz.UserState;
 import org.example.Quiz.Users;
 import org.example.Tokens.TokenInterface;
 import org.example.Tokens.Tokens;
@@ -621,4 +628,196 @@ public class ProducerTest {
         Assertions.assertTrue(result[0].isOut(), "Ответ должен быть исходящим");
         Assertions.assertEquals("chat123", result[0].getChatId(), "ChatId должен соответствовать");
     }
-}
\ No newline at end of file
+
+    /**
+     * Создает зарегистрированного пользователя с активной викториной из двух вопросов.
+     */
+    private void prepareActiveQuiz(String chatId) {
+        UserData userData = users.getOrCreate(chatId);
+        users.setLeaderboardName(chatId, "TestUser");
+        DiskMemory memory = new DiskMemory();
+        memory.setData(new DataQuestion[] {
+                new DataQuestion("Первый вопрос", new String[]{"А", "Б", "В", "Г"}, 1),
+                new DataQuestion("Второй вопрос", new String[]{"А", "Б", "В", "Г"}, 2)
+        });
+        userData.setCurrentQuiz(new Quiz(memory));
+        userData.setState(UserState.QUIZ);
+    }
+
+    /**
+     * Тестирование ответа кнопкой: результат и следующий вопрос редактируют исходное сообщение.
+     */
+    @Test
+    public void testProducerAnswerButtonEditsMessage() {
+        Producer producer = new Producer(users,  TelegramToken);
+        prepareActiveQuiz("chat123");
+
+        Content answer = new Content(false, "chat123", A_BUTTON, A_BUTTON, null, 42);
+        Content[] result = producer.produce(answer);
+
+        Assertions.assertEquals(1, result.length, "Ответ должен умещаться в одно редактирование");
+        Assertions.assertTrue(result[0].isEdit(), "Ответ должен редактировать сообщение с вопросом");
+        Assertions.assertEquals(42, result[0].getMessageId());
+        Assertions.assertTrue(result[0].getText().contains("Второй вопрос"), "В сообщении должен быть следующий вопрос");
+        Assertions.assertEquals("test_answer", result[0].getKeyboardType());
+    }
+
+    /**
+     * Тестирование навигации по викторине: вопрос показывается в том же сообщении.
+     */
+    @Test
+    public void testProducerQuizNavigationEditsMessage() {
+        Producer producer = new Producer(users,  TelegramToken);
+        prepareActiveQuiz("chat123");
+
+        Content forward = new Content(false, "chat123", QUIZ_FORWARDS_BUTTON, QUIZ_FORWARDS_BUTTON, null, 7);
+        Content[] result = producer.produce(forward);
+
+        Assertions.assertEquals(1, result.length);
+        Assertions.assertTrue(result[0].isEdit(), "Навигация должна редактировать сообщение");
+        Assertions.assertEquals(7, result[0].getMessageId());
+    }
+
+    /**
+     * Тестирование ответа без id сообщения: отправляются новые сообщения, как раньше.
+     */
+    @Test
+    public void testProducerAnswerWithoutMessageIdSendsNewMessages() {
+        Producer producer = new Producer(users,  TelegramToken);
+        prepareActiveQuiz("chat123");
+
+        Content[] result = producer.produce(new Content(false, "chat123", A_BUTTON));
+
+        Assertions.assertEquals(2, result.length, "Без id сообщения должно быть 2 новых сообщения");
+        Assertions.assertFalse(result[0].isEdit());
+        Assertions.assertFalse(result[1].isEdit());
+    }
+
+    /**
+     * Создает Producer с matchmaker и менеджером таймаутов дуэлей.
+     */
+    private Producer createDuelProducer(DuelTimeoutManager timeoutManager, DuelMatchmaker matchmaker) {
+        Producer producer = new Producer(users, "");
+        producer.setDuelMatchmaker(matchmaker);
+        producer.setDuelTimeoutManager(timeoutManager);
+        return producer;
+    }
+
+    /**
+     * Регистрирует игрока и ставит его в поиск дуэли по готовой теме.
+     */
+    private Content[] joinDuel(Producer producer, String chatId, String name) {
+        users.getOrCreate(chatId);
+        users.setLeaderboardName(chatId, name);
+        producer.produce(new Content(false, chatId, DUEL_BUTTON));
+        producer.produce(new Content(false, chatId, QUIZ_BUTTON));
+        return producer.produce(new Content(false, chatId, PLAY_BUTTON));
+    }
+
+    /**
+     * Отвечает на все вопросы текущей викторины игрока и завершает ее.
+     *
+     * @return ответ Producer на завершение викторины
+     */
+    private Content[] answerAll(Producer producer, String chatId) {
+        Quiz quiz = users.get(chatId).getCurrentQuiz();
+        Assertions.assertNotNull(quiz, "Викторина дуэли должна быть начата");
+        for (int i = 0; i < 50 && !quiz.isOnFinalMessage(); i++) {
+            producer.produce(new Content(false, chatId, A_BUTTON));
+        }
+        return producer.produce(new Content(false, chatId, END_QUIZ_BUTTON));
+    }
+
+    /**
+     * Тестирует дуэль от поиска соперника до результатов: первый завершивший ждет соперника
+     * (запускается таймер ожидания), второй завершает дуэль и оба получают результаты.
+     * Ответы обработки, меняющей данные обоих игроков, приходят через очередь сообщений
+     * и при исполнителе по умолчанию, выполняющем задачу сразу.
+     */
+    @Test
+    public void testDuelPlayedThroughBothFinishers() {
+        DuelMatchmaker matchmaker = new DuelMatchmaker();
+        DuelTimeoutManager timeoutManager = new DuelTimeoutManager(matchmaker);
+        Producer producer = createDuelProducer(timeoutManager, matchmaker);
+        try {
+            joinDuel(producer, "duel1", "Первый");
+            Assertions.assertEquals(UserState.DUEL_SEARCHING, users.get("duel1").getState());
+            Content[] matched = joinDuel(producer, "duel2", "Второй");
+            Assertions.assertEquals(0, matched.length, "Ответ о начале дуэли приходит через очередь");
+            Assertions.assertEquals(UserState.QUIZ, users.get("duel1").getState());
+            Assertions.assertEquals(UserState.QUIZ, users.get("duel2").getState());
+            Assertions.assertTrue(java.util.Arrays.stream(producer.getQueuedMessages())
+                    .anyMatch(c -> "duel1".equals(c.getChatId())), "Соперник получает начало дуэли");
+            String duelId = users.get("duel1").getDuelId();
+            Assertions.assertNotNull(duelId);
+
+            Content[] firstFinished = answerAll(producer, "duel1");
+            Assertions.assertEquals(UserState.DUEL_WAITING_OPPONENT, users.get("duel1").getState());
+            Assertions.assertEquals(0, firstFinished.length);
+            Content[] waiting = producer.getQueuedMessages();
+            Assertions.assertTrue(waiting.length > 0);
+            Assertions.assertEquals("duel1", waiting[0].getChatId(), "Первый игрок получает сообщение об ожидании");
+            Assertions.assertTrue(timeoutManager.hasActiveTimeout(duelId), "Запущен таймер ожидания соперника");
+
+            Content[] secondFinished = answerAll(producer, "duel2");
+            Assertions.assertEquals(UserState.DUEL_RESULTS, users.get("duel2").getState());
+            Assertions.assertEquals(UserState.DUEL_RESULTS, users.get("duel1").getState());
+            Assertions.assertEquals(0, secondFinished.length);
+            Assertions.assertTrue(java.util.Arrays.stream(producer.getQueuedMessages()).anyMatch(c -> "duel1".equals(c.getChatId())),
+                    "Результаты получает и соперник");
+            Assertions.assertFalse(timeoutManager.hasActiveTimeout(duelId));
+            Assertions.assertNull(users.get("duel1").getDuelId());
+        } finally {
+            timeoutManager.clearAll();
+        }
+    }
+
+    /**
+     * Тестирует, что начало и завершение дуэли, меняющие данные соперника, выполняются
+     * в очередях обоих игроков, а их ответы приходят через очередь сообщений.
+     */
+    @Test
+    public void testDuelCrossPlayerHandlersRunInBothLanes() {
+        DuelMatchmaker matchmaker = new DuelMatchmaker();
+        DuelTimeoutManager timeoutManager = new DuelTimeoutManager(matchmaker);
+        Producer producer = createDuelProducer(timeoutManager, matchmaker);
+        java.util.List<java.util.Collection<String>> lanes = new java.util.ArrayList<>();
+        java.util.List<Runnable> pending = new java.util.ArrayList<>();
+        producer.setChatExecutor((chatIds, task) -> {
+            lanes.add(java.util.List.copyOf(chatIds));
+            pending.add(task);
+        });
+        try {
+            joinDuel(producer, "lane1", "Первый");
+            Content[] matched = joinDuel(producer, "lane2", "Второй");
+            Assertions.assertEquals(0, matched.length, "Ответ о начале дуэли придет через очередь");
+            Assertions.assertEquals(java.util.List.of(java.util.List.of("lane2", "lane1")), lanes);
+            Assertions.assertEquals(UserState.DUEL_SEARCHING, users.get("lane1").getState(),
+                    "Данные соперника не меняются вне его очереди");
+
+            pending.remove(0).run();
+            Assertions.assertEquals(UserState.QUIZ, users.get("lane1").getState());
+            Assertions.assertTrue(java.util.Arrays.stream(producer.getQueuedMessages())
+                    .anyMatch(c -> "lane1".equals(c.getChatId())), "Соперник получает начало дуэли");
+
+            answerAll(producer, "lane1");
+            pending.remove(0).run();
+            Assertions.assertEquals(UserState.DUEL_WAITING_OPPONENT, users.get("lane1").getState());
+
+            Content[] finished = answerAll(producer, "lane2");
+            Assertions.assertEquals(0, finished.length);
+            Assertions.assertEquals(UserState.DUEL_WAITING_OPPONENT, users.get("lane1").getState(),
+                    "Результаты сопернику выставляются только в его очереди");
+            Assertions.assertEquals(java.util.List.of("lane2", "lane1"), lanes.get(lanes.size() - 1));
+
+            pending.remove(0).run();
+            Assertions.assertEquals(UserState.DUEL_RESULTS, users.get("lane1").getState());
+            Assertions.assertEquals(UserState.DUEL_RESULTS, users.get("lane2").getState());
+            Assertions.assertNull(users.get("lane1").getDuelId());
+            Assertions.assertTrue(java.util.Arrays.stream(producer.getQueuedMessages())
+                    .anyMatch(c -> "lane1".equals(c.getChatId())), "Результаты получает и соперник");
+        } finally {
+            timeoutManager.clearAll();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.example;
 
 import org.example.Quiz.DataQuestion;
 import org.example.Quiz.Memory.DiskMemory;
+import org.example.Quiz.QuestionRenderCache;
 import org.example.Quiz.Quiz;
 import org.example.Quiz.Users;
 import org.junit.jupiter.api.AfterEach;
@@ -445,4 +446,42 @@ class QuizTest {
         Assertions.assertEquals(expectedResults, results,
                 "Результаты должны показывать 1 правильный ответ из 2 отвеченных вопросов");
     }
-}
\ No newline at end of file
+
+    /**
+     * Тестирование общего кеша текстов: викторины одной темы получают одни и те же строки.
+     */
+    @Test
+    public void testBankQuestionTextIsSharedBetweenPlayers() {
+        Quiz first = new Quiz(new DiskMemory("/space.json"));
+        Quiz second = new Quiz(new DiskMemory("/space.json"));
+
+        String firstText = first.getCurrentQuestionText();
+        long hitsBefore = QuestionRenderCache.getHitCount();
+        Assertions.assertSame(firstText, second.getCurrentQuestionText(), "Текст должен браться из кеша");
+        Assertions.assertTrue(QuestionRenderCache.getHitCount() > hitsBefore);
+
+        // Ответ меняет только выбранный вариант текста, а не другие викторины
+        first.processAnswer("B");
+        first.previousQuestion();
+        Assertions.assertTrue(first.getCurrentQuestionText().endsWith("📝 Ваш ответ: B"));
+        Assertions.assertSame(firstText, second.getCurrentQuestionText());
+    }
+
+    /**
+     * Тестирование, что вопросы, заданные вручную, и ответы текстом форматируются без кеша.
+     */
+    @Test
+    public void testCustomQuestionsAreNotCached() {
+        DiskMemory memory = new DiskMemory("/space.json");
+        memory.setData(new DataQuestion[] {
+                new DataQuestion("Свой вопрос", new String[]{"А", "Б", "В", "Г"}, 1)
+        });
+        Quiz quiz = new Quiz(memory);
+        Assertions.assertTrue(quiz.getCurrentQuestionText().contains("Свой вопрос"),
+                "После замены данных вопрос не должен браться из кеша темы");
+
+        quiz.processAnswer("мой ответ");
+        quiz.previousQuestion();
+        Assertions.assertTrue(quiz.getCurrentQuestionText().endsWith("📝 Ваш ответ: мой ответ"));
+    }
+}
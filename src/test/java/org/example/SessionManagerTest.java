@@ -0,0 +1,179 @@
+package org.example;
+
+import org.example.Quiz.DataQuestion;
+import org.example.Quiz.Memory.AiMemory;
+import org.example.Quiz.Memory.DiskMemory;
+import org.example.Quiz.Quiz;
+import org.example.Quiz.UserData;
+import org.example.Quiz.UserState;
+import org.example.Quiz.Users;
+import org.example.Session.SessionManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Тестовый класс для проверки функциональности {@link SessionManager}.
+ * Проверяет вытеснение по TTL и по количеству, сохранение и восстановление сессий после перезапуска.
+ */
+public class SessionManagerTest {
+
+    @TempDir
+    Path dir;
+
+    private Users users;
+    private final Producer.ChatExecutor inline = (chatIds, task) -> task.run();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Path usersFile = dir.resolve("users.json");
+        Files.writeString(usersFile, "{}");
+        users = new Users(usersFile.toString());
+    }
+
+    /**
+     * Тестирует, что брошенная викторина вытесняется на диск и восстанавливается при следующем обращении.
+     */
+    @Test
+    public void testIdleQuizIsSpilledAndResumed() throws Exception {
+        Path spillDir = dir.resolve("sessions");
+        SessionManager sessions = new SessionManager(users, 0, 100, spillDir);
+
+        UserData userData = users.getOrCreate("chat1");
+        Quiz quiz = new Quiz(new DiskMemory("/space.json"));
+        quiz.processAnswer("B");
+        int score = quiz.getScore();
+        userData.setCurrentQuiz(quiz);
+        userData.setState(UserState.QUIZ);
+        sessions.touch("chat1", userData);
+
+        Thread.sleep(5);
+        sessions.sweep(inline);
+
+        Assertions.assertNull(userData.getCurrentQuiz(), "Викторина должна быть вытеснена из памяти");
+        Assertions.assertEquals(UserState.MENU, userData.getState());
+        Assertions.assertEquals(0, sessions.getActiveCount());
+        Assertions.assertTrue(Files.exists(spillDir.resolve("chat1.json")));
+
+        sessions.touch("chat1", userData);
+
+        Quiz resumed = userData.getCurrentQuiz();
+        Assertions.assertNotNull(resumed, "Викторина должна восстановиться");
+        Assertions.assertEquals(UserState.QUIZ, userData.getState());
+        Assertions.assertEquals(1, resumed.getCurrentQuestionIndex());
+        Assertions.assertEquals(score, resumed.getScore());
+        Assertions.assertEquals("B", resumed.getMemory().getData()[0].getUserAnswer());
+        Assertions.assertEquals("/space.json", resumed.getMemory().getSourceKey(), "Тема снова берется из банка");
+        Assertions.assertTrue(Files.exists(spillDir.resolve("chat1.json")), "Снимок остается до следующей записи");
+        Assertions.assertEquals(1, sessions.getResumedCount());
+    }
+
+    /**
+     * Тестирует, что сверх максимума вытесняются самые давние сессии, а игроки в дуэли остаются.
+     */
+    @Test
+    public void testLeastRecentlyUsedAreEvictedOverLimit() throws Exception {
+        SessionManager sessions = new SessionManager(users, 60_000, 2, null);
+
+        for (String chatId : new String[] {"old_duel", "old", "recent", "newest"}) {
+            UserData userData = users.getOrCreate(chatId);
+            userData.setCurrentQuiz(new Quiz(new DiskMemory("/space.json")));
+            userData.setState(UserState.QUIZ);
+            sessions.touch(chatId, userData);
+            Thread.sleep(2);
+        }
+        users.get("old_duel").setQuizMode("duel");
+
+        sessions.sweep(inline);
+
+        Assertions.assertNotNull(users.get("old_duel").getCurrentQuiz(), "Игрок в дуэли не вытесняется");
+        Assertions.assertNull(users.get("old").getCurrentQuiz(), "Самая давняя сессия вытесняется");
+        Assertions.assertNotNull(users.get("recent").getCurrentQuiz());
+        Assertions.assertNotNull(users.get("newest").getCurrentQuiz());
+        Assertions.assertEquals(1, sessions.getEvictedCount());
+    }
+
+    /**
+     * Тестирует, что дуэль не восстанавливается после перезапуска: без пары соперников она не может
+     * завершиться, поэтому игрок возвращается в меню и получает сообщение, а снимок удаляется.
+     * Снимок завершенной дуэли удаляется без сообщения.
+     */
+    @Test
+    public void testDuelSessionIsDroppedOnRestart() throws Exception {
+        Path spillDir = dir.resolve("sessions");
+        SessionManager sessions = new SessionManager(users, spillDir);
+
+        DataQuestion[] questions = {
+                new DataQuestion("Вопрос 1", new String[] {"1", "2", "3", "4"}, 1),
+                new DataQuestion("Вопрос 2", new String[] {"1", "2", "3", "4"}, 2)
+        };
+        for (String chatId : new String[] {"chat1", "chat2"}) {
+            UserData userData = users.getOrCreate(chatId);
+            sessions.touch(chatId, userData);
+            Quiz quiz = new Quiz(new AiMemory(questions, "космос"));
+            quiz.processAnswer("A");
+            userData.setCurrentQuiz(quiz);
+            userData.setState(UserState.QUIZ);
+            userData.setDuelId("duel_1");
+            userData.setQuizMode("duel");
+            sessions.markDirty(chatId);
+        }
+        sessions.flushNow();
+
+        Assertions.assertEquals(2, sessions.getSnapshotCount());
+        String snapshot = Files.readString(spillDir.resolve("chat1.json"));
+        Assertions.assertTrue(snapshot.contains("duel_1"));
+        Assertions.assertFalse(snapshot.contains("answers"), "Викторина дуэли не сохраняется");
+
+        // Перезапуск: transient-поля потеряны, состояние из users_data.json осталось
+        SessionManager restarted = new SessionManager(users, spillDir);
+        UserData interrupted = new UserData();
+        interrupted.setState(UserState.QUIZ);
+        Assertions.assertTrue(restarted.touch("chat1", interrupted), "Игроку сообщается о прерванной дуэли");
+        Assertions.assertNull(interrupted.getCurrentQuiz());
+        Assertions.assertNull(interrupted.getDuelId());
+        Assertions.assertEquals(UserState.MENU, interrupted.getState());
+        Assertions.assertFalse(Files.exists(spillDir.resolve("chat1.json")));
+        Assertions.assertEquals(1, restarted.getInterruptedDuelCount());
+        Assertions.assertEquals(0, restarted.getResumedCount());
+
+        UserData finished = new UserData();
+        finished.setState(UserState.QUIZ);
+        finished.setState(UserState.DUEL_RESULTS);
+        Assertions.assertFalse(restarted.touch("chat2", finished), "Завершенная дуэль не прерывается");
+        Assertions.assertEquals(UserState.DUEL_RESULTS, finished.getState());
+        Assertions.assertFalse(Files.exists(spillDir.resolve("chat2.json")));
+        Assertions.assertEquals(1, restarted.getInterruptedDuelCount());
+    }
+
+    /**
+     * Тестирует, что без снимка состояние викторины сбрасывается в меню,
+     * а снимок завершенной сессии удаляется при сбросе.
+     */
+    @Test
+    public void testLostSessionResetsStateAndFinishedSnapshotIsDeleted() throws Exception {
+        Path spillDir = dir.resolve("sessions");
+        SessionManager sessions = new SessionManager(users, spillDir);
+
+        UserData lost = new UserData();
+        lost.setState(UserState.QUIZ);
+        sessions.touch("lost", lost);
+        Assertions.assertEquals(UserState.MENU, lost.getState(), "Состояние без данных сессии сбрасывается");
+
+        UserData userData = users.getOrCreate("chat1");
+        sessions.touch("chat1", userData);
+        userData.setCurrentQuiz(new Quiz(new DiskMemory("/space.json")));
+        sessions.markDirty("chat1");
+        sessions.flushDirty(inline);
+        Assertions.assertTrue(Files.exists(spillDir.resolve("chat1.json")));
+
+        userData.setCurrentQuiz(null);
+        sessions.markDirty("chat1");
+        sessions.flushDirty(inline);
+        Assertions.assertFalse(Files.exists(spillDir.resolve("chat1.json")), "Снимок завершенной сессии удаляется");
+    }
+}
@@ -0,0 +1,52 @@
+package org.example;
+
+import org.example.Lifecycle.ShutdownCoordinator;
+import org.example.Lifecycle.ShutdownCoordinator.Phase;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Тестовый класс для проверки функциональности {@link ShutdownCoordinator}.
+ * Проверяет порядок фаз и устойчивость к ошибкам шагов.
+ */
+public class ShutdownCoordinatorTest {
+
+    /**
+     * Тестирует выполнение шагов по фазам независимо от порядка регистрации.
+     */
+    @Test
+    public void testStepsRunInPhaseOrder() {
+        List<String> order = new ArrayList<>();
+        ShutdownCoordinator coordinator = new ShutdownCoordinator(5000);
+        coordinator.register(Phase.PERSIST_TIMERS, "timers", remaining -> order.add("timers"));
+        coordinator.register(Phase.FLUSH, "users", remaining -> order.add("users"));
+        coordinator.register(Phase.DRAIN, "queues", remaining -> order.add("queues"));
+        coordinator.register(Phase.STOP_INTAKE, "intake", remaining -> order.add("intake"));
+
+        Assertions.assertTrue(coordinator.shutdown());
+        Assertions.assertEquals(List.of("intake", "queues", "users", "timers"), order);
+
+        coordinator.shutdown();
+        Assertions.assertEquals(4, order.size(), "Повторная остановка не должна выполнять шаги");
+    }
+
+    /**
+     * Тестирует, что ошибка шага не отменяет следующие, а шаги получают оставшееся время.
+     */
+    @Test
+    public void testFailedStepDoesNotStopOthers() {
+        List<Long> budgets = new ArrayList<>();
+        ShutdownCoordinator coordinator = new ShutdownCoordinator(5000);
+        coordinator.register(Phase.DRAIN, "broken", remaining -> {
+            throw new IllegalStateException("сбой");
+        });
+        coordinator.register(Phase.FLUSH, "users", budgets::add);
+
+        Assertions.assertFalse(coordinator.shutdown(), "Ошибка шага должна отражаться в результате");
+        Assertions.assertEquals(1, budgets.size(), "Следующая фаза должна выполниться");
+        Assertions.assertTrue(budgets.get(0) > 0 && budgets.get(0) <= 5000);
+    }
+}
@@ -0,0 +1,133 @@
+package org.example;
+
+import org.example.Quiz.UserEvent;
+import org.example.Quiz.UserState;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.example.DataMessage.Constants.*;
+
+/**
+ * Бенчмарк стоимости выбора обработчика в Producer.
+ * Сравнивает прежнюю схему (сравнение строкового состояния через equals и вложенный switch по callback)
+ * с таблицей (UserState, UserEvent) на EnumMap. Обработчики пустые, измеряется только выбор.
+ *
+ * Запуск: java -cp target/classes:target/test-classes:... org.example.StateDispatchBenchmark [iterations]
+ */
+public class StateDispatchBenchmark {
+
+    private static final String[] INPUTS = {
+            A_BUTTON, QUIZ_FORWARDS_BUTTON, "/menu", "ответ", MENU_BUTTON, PLAY_BUTTON,
+            TOPIC_FORWARDS_BUTTON, END_QUIZ_BUTTON, D_BUTTON, "/start", SOLO_BUTTON, AT_THE_TOP_BUTTON
+    };
+    private static final String[] LEGACY_STATES = {
+            "quiz", "quiz", "menu", "topic_selection", "duel_waiting_opponent", "quiz"
+    };
+    private static final UserState[] STATES = {
+            UserState.QUIZ, UserState.QUIZ, UserState.MENU, UserState.TOPIC_SELECTION,
+            UserState.DUEL_WAITING_OPPONENT, UserState.QUIZ
+    };
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+
+        Map<UserState, Map<UserEvent, Integer>> table = buildTable();
+
+        // Прогрев
+        long sink = runLegacy(iterations / 4) + runTable(table, iterations / 4);
+
+        long legacyStart = System.nanoTime();
+        sink += runLegacy(iterations);
+        long legacyNanos = System.nanoTime() - legacyStart;
+
+        long tableStart = System.nanoTime();
+        sink += runTable(table, iterations);
+        long tableNanos = System.nanoTime() - tableStart;
+
+        System.out.printf("%n[BENCHMARK] Итераций: %d (контрольная сумма %d)%n", iterations, sink);
+        System.out.printf("[BENCHMARK] Строки и switch:    %.1f нс/выбор%n", (double) legacyNanos / iterations);
+        System.out.printf("[BENCHMARK] Таблица EnumMap:    %.1f нс/выбор%n", (double) tableNanos / iterations);
+    }
+
+    private static long runLegacy(int iterations) {
+        long sum = 0;
+        for (int i = 0; i < iterations; i++) {
+            sum += legacyDispatch(LEGACY_STATES[i % LEGACY_STATES.length], INPUTS[i % INPUTS.length]);
+        }
+        return sum;
+    }
+
+    private static long runTable(Map<UserState, Map<UserEvent, Integer>> table, int iterations) {
+        long sum = 0;
+        for (int i = 0; i < iterations; i++) {
+            UserEvent event = UserEvent.of(INPUTS[i % INPUTS.length]);
+            Integer handler = table.get(STATES[i % STATES.length]).get(event);
+            sum += handler != null ? handler : -1;
+        }
+        return sum;
+    }
+
+    /**
+     * Повторяет порядок проверок прежних processUserMessage, handleUserInput и handleButtonCallback.
+     */
+    private static int legacyDispatch(String state, String input) {
+        if ("duel_searching".equals(state)) {
+            return 1;
+        }
+        if ("waiting_leaderboard_name".equals(state)) {
+            return 2;
+        }
+        if ("waiting_generation_topic".equals(state)) {
+            return 3;
+        }
+        if (input.startsWith("/")) {
+            return 4;
+        }
+        if (!input.endsWith("_button")) {
+            return 5;
+        }
+        int activity = "duel_waiting_opponent".equals(state) ? 100 : 0;
+        if (!"menu".equals(state) && !"waiting_leaderboard_name".equals(state)) {
+            activity += 200;
+        }
+        switch (input) {
+            case TOPIC_FORWARDS_BUTTON, TOPIC_BACKWARDS_BUTTON -> {
+                return activity + 6;
+            }
+            case QUIZ_FORWARDS_BUTTON, QUIZ_BACKWARDS_BUTTON -> {
+                return activity + 7;
+            }
+            case A_BUTTON, B_BUTTON, C_BUTTON, D_BUTTON -> {
+                return activity + 8;
+            }
+            case AT_THE_TOP_BUTTON -> {
+                return activity + 9;
+            }
+            default -> {
+                switch (input) {
+                    case QUIZ_BUTTON: return activity + 10;
+                    case PLAY_BUTTON: return activity + 11;
+                    case MENU_BUTTON: return activity + 12;
+                    case DUEL_BUTTON: return activity + 13;
+                    case SOLO_BUTTON: return activity + 14;
+                    case GENERATION_BUTTON: return activity + 15;
+                    case END_QUIZ_BUTTON: return activity + 16;
+                    default: return activity + 17;
+                }
+            }
+        }
+    }
+
+    private static Map<UserState, Map<UserEvent, Integer>> buildTable() {
+        Map<UserState, Map<UserEvent, Integer>> table = new EnumMap<>(UserState.class);
+        for (UserState state : UserState.values()) {
+            Map<UserEvent, Integer> handlers = new EnumMap<>(UserEvent.class);
+            for (UserEvent event : UserEvent.values()) {
+                handlers.put(event, state.ordinal() * 100 + event.ordinal());
+            }
+            table.put(state, handlers);
+        }
+        return table;
+    }
+}
@@ -0,0 +1,108 @@
+package org.example;
+
+import org.example.Tracing.Span;
+import org.example.Tracing.Trace;
+import org.example.Tracing.Tracer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Тестовый класс для проверки функциональности {@link Tracer}.
+ * Проверяет вложенность участков, буфер последних трасс и запись медленных трасс.
+ */
+public class TracerTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Тестирует запись вложенных участков и участков, записанных задним числом.
+     */
+    @Test
+    public void testNestedSpans() {
+        Tracer tracer = new Tracer(16, 10_000, null);
+
+        Assertions.assertSame(Span.NOOP, tracer.span("вне трассы"), "Вне трассы участки не записываются");
+
+        String traceId;
+        try (Span trace = tracer.startTrace("update", "chat1")) {
+            traceId = tracer.currentTraceId();
+            try (Span producer = tracer.span("producer")) {
+                long lockRequested = System.nanoTime();
+                tracer.record("matchmaker.lock_wait", lockRequested);
+                try (Span disk = tracer.span("disk.read")) {
+                    Assertions.assertNotNull(disk);
+                }
+            }
+            try (Span send = tracer.span("bot.send")) {
+                Assertions.assertNotNull(send);
+            }
+        }
+        Assertions.assertNull(tracer.currentTraceId(), "Закрытие корня завершает трассу");
+
+        Trace trace = tracer.slowest(1).get(0);
+        Assertions.assertEquals(traceId, trace.id());
+        Assertions.assertEquals("chat1", trace.chatId());
+        List<Trace.SpanData> spans = trace.spans();
+        Assertions.assertEquals(List.of("producer", "matchmaker.lock_wait", "disk.read", "bot.send"),
+                spans.stream().map(Trace.SpanData::name).toList());
+        Assertions.assertEquals(List.of(1, 2, 2, 1), spans.stream().map(Trace.SpanData::depth).toList());
+        Assertions.assertTrue(spans.stream().allMatch(span -> span.durationNanos() >= 0));
+        Assertions.assertTrue(trace.format().contains("    disk.read"), "Вложенность видна в тексте трассы");
+    }
+
+    /**
+     * Тестирует, что буфер хранит только последние трассы, а запрос возвращает самые долгие из них.
+     */
+    @Test
+    public void testBufferKeepsRecentAndReportsSlowest() throws Exception {
+        Tracer tracer = new Tracer(3, 10_000, null);
+
+        for (int sleep : new int[] {30, 1, 20, 1, 10}) {
+            try (Span trace = tracer.startTrace("update_" + sleep, null)) {
+                Thread.sleep(sleep);
+            }
+        }
+
+        List<Trace> slowest = tracer.slowest(10);
+        Assertions.assertEquals(3, slowest.size(), "В буфере только последние трассы");
+        Assertions.assertEquals("update_20", slowest.get(0).name(), "Самая долгая из последних трасс");
+        Assertions.assertEquals("update_10", slowest.get(1).name());
+        Assertions.assertEquals(5, tracer.getTraceCount());
+        Assertions.assertTrue(tracer.report(1).contains("update_20"));
+    }
+
+    /**
+     * Тестирует запись медленной трассы в файл и продолжение трассы по ID.
+     */
+    @Test
+    public void testSlowTraceIsDumped() throws Exception {
+        Path file = dir.resolve("slow.log");
+        Tracer tracer = new Tracer(8, 5, file);
+
+        try (Span trace = tracer.startTrace("fast", "chat1")) {
+            Assertions.assertNotNull(trace);
+        }
+        try (Span trace = tracer.startTrace("telegram.send", "chat1", "abc123")) {
+            try (Span api = tracer.span("telegram.api")) {
+                Thread.sleep(20);
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!Files.exists(file) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+        String dumped = Files.readString(file);
+        Assertions.assertTrue(dumped.contains("trace abc123 telegram.send chat=chat1"), dumped);
+        Assertions.assertTrue(dumped.contains("telegram.api"));
+        Assertions.assertFalse(dumped.contains("fast"), "Быстрые трассы в файл не пишутся");
+        Assertions.assertEquals(1, tracer.getSlowCount());
+    }
+}
@@ -0,0 +1,95 @@
+package org.example;
+
+import org.example.DataMessage.Content;
+import org.example.Dispatch.UpdateDispatcher;
+import org.example.Quiz.Users;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Бенчмарк пропускной способности обработки обновлений.
+ * Сравнивает прежний однопоточный путь (обновления по одному) и {@link UpdateDispatcher}.
+ * Обработка обновления - это вызов Producer.produce и имитация блокирующей отправки
+ * ответа в Telegram API (sendLatencyMs на каждое исходящее сообщение).
+ *
+ * Запуск: java -cp target/classes:target/test-classes:... org.example.UpdateDispatcherBenchmark [chats] [updatesPerChat] [sendLatencyMs]
+ */
+public class UpdateDispatcherBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int chats = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int updatesPerChat = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long sendLatencyMs = args.length > 2 ? Long.parseLong(args[2]) : 20;
+
+        Path usersFile = Files.createTempFile("bench_users", ".json");
+        Files.writeString(usersFile, "{}");
+        Producer producer = new Producer(new Users(usersFile.toString()), "");
+
+        int total = chats * updatesPerChat;
+
+        // Прогрев
+        runSequential(producer, 20, 2, 0);
+        runDispatched(producer, 20, 2, 0);
+
+        long sequentialNanos = runSequential(producer, chats, updatesPerChat, sendLatencyMs);
+        long dispatchedNanos = runDispatched(producer, chats, updatesPerChat, sendLatencyMs);
+
+        double sequentialRate = total / (sequentialNanos / 1e9);
+        double dispatchedRate = total / (dispatchedNanos / 1e9);
+
+        System.out.printf("%n[BENCHMARK] Чатов: %d, обновлений на чат: %d, задержка отправки: %d мс%n",
+                chats, updatesPerChat, sendLatencyMs);
+        System.out.printf("[BENCHMARK] Однопоточный путь: %.1f обновлений/сек (%.0f мс)%n",
+                sequentialRate, sequentialNanos / 1e6);
+        System.out.printf("[BENCHMARK] UpdateDispatcher:  %.1f обновлений/сек (%.0f мс)%n",
+                dispatchedRate, dispatchedNanos / 1e6);
+        System.out.printf("[BENCHMARK] Ускорение: x%.1f%n", dispatchedRate / sequentialRate);
+
+        Files.deleteIfExists(usersFile);
+    }
+
+    private static long runSequential(Producer producer, int chats, int updatesPerChat, long sendLatencyMs) {
+        long start = System.nanoTime();
+        for (int u = 0; u < updatesPerChat; u++) {
+            for (int c = 0; c < chats; c++) {
+                handle(producer, "seq_" + c, sendLatencyMs);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long runDispatched(Producer producer, int chats, int updatesPerChat, long sendLatencyMs)
+            throws InterruptedException {
+        UpdateDispatcher dispatcher = new UpdateDispatcher();
+        long start = System.nanoTime();
+        for (int u = 0; u < updatesPerChat; u++) {
+            for (int c = 0; c < chats; c++) {
+                String chatId = "disp_" + c;
+                dispatcher.dispatch(chatId, () -> handle(producer, chatId, sendLatencyMs));
+            }
+        }
+        dispatcher.awaitIdle(600_000);
+        long elapsed = System.nanoTime() - start;
+        dispatcher.shutdown(1000);
+        return elapsed;
+    }
+
+    private static void handle(Producer producer, String chatId, long sendLatencyMs) {
+        Content[] response = producer.produce(new Content(false, chatId, "/help"));
+        for (int i = 0; i < response.length; i++) {
+            sleep(sendLatencyMs);
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
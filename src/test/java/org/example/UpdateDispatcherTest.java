@@ -0,0 +1,178 @@
+package org.example;
+
+import org.example.Dispatch.UpdateDispatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Тестовый класс для проверки функциональности {@link UpdateDispatcher}.
+ * Проверяет порядок обработки внутри одного чата и параллельность между чатами.
+ */
+public class UpdateDispatcherTest {
+
+    private UpdateDispatcher dispatcher;
+
+    @BeforeEach
+    public void setUp() {
+        dispatcher = new UpdateDispatcher();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dispatcher.shutdown(1000);
+    }
+
+    /**
+     * Тестирует, что задачи одного чата выполняются в порядке поступления.
+     */
+    @Test
+    public void testSameKeyKeepsOrder() throws Exception {
+        List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+
+        for (int i = 0; i < 200; i++) {
+            int number = i;
+            dispatcher.dispatch("chat1", () -> {
+                if (number % 10 == 0) {
+                    sleep(1);
+                }
+                processed.add(number);
+            });
+        }
+
+        Assertions.assertTrue(dispatcher.awaitIdle(5000), "Все задачи должны завершиться");
+        Assertions.assertEquals(200, processed.size());
+        for (int i = 0; i < 200; i++) {
+            Assertions.assertEquals(i, processed.get(i), "Порядок задач чата должен сохраняться");
+        }
+    }
+
+    /**
+     * Тестирует, что медленный чат не блокирует другие чаты.
+     */
+    @Test
+    public void testDifferentKeysRunInParallel() throws Exception {
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch releaseSlow = new CountDownLatch(1);
+        CountDownLatch fastDone = new CountDownLatch(1);
+
+        dispatcher.dispatch("slow_chat", () -> {
+            slowStarted.countDown();
+            try {
+                releaseSlow.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Assertions.assertTrue(slowStarted.await(2, TimeUnit.SECONDS));
+
+        dispatcher.dispatch("fast_chat", fastDone::countDown);
+
+        Assertions.assertTrue(fastDone.await(2, TimeUnit.SECONDS),
+                "Быстрый чат должен обработаться, пока медленный занят");
+        releaseSlow.countDown();
+        Assertions.assertTrue(dispatcher.awaitIdle(2000));
+    }
+
+    /**
+     * Тестирует, что ошибка в задаче не останавливает очередь чата.
+     */
+    @Test
+    public void testExceptionDoesNotBreakChain() throws Exception {
+        AtomicInteger counter = new AtomicInteger();
+
+        dispatcher.dispatch("chat1", () -> { throw new IllegalStateException("Тестовая ошибка"); });
+        dispatcher.dispatch("chat1", counter::incrementAndGet);
+
+        Assertions.assertTrue(dispatcher.awaitIdle(2000));
+        Assertions.assertEquals(1, counter.get(), "Следующая задача должна выполниться после ошибки");
+    }
+
+    /**
+     * Тестирует, что Error в задаче и отказ остановленного пула не обрывают цепочки ключей:
+     * отклоненная задача завершается ошибкой, а не зависает.
+     */
+    @Test
+    public void testErrorAndRejectionDoNotBreakChain() throws Exception {
+        AtomicInteger counter = new AtomicInteger();
+
+        dispatcher.dispatch("chat1", () -> { throw new AssertionError("Тестовая ошибка"); });
+        dispatcher.dispatchAll(List.of("chat1", "chat2"), counter::incrementAndGet);
+        dispatcher.dispatch("chat1", counter::incrementAndGet);
+        Assertions.assertTrue(dispatcher.awaitIdle(2000));
+        Assertions.assertEquals(2, counter.get(), "Задачи после Error должны выполниться");
+
+        dispatcher.shutdown(1000);
+        java.util.concurrent.CompletableFuture<Void> rejected = dispatcher.dispatch("chat1", counter::incrementAndGet);
+        java.util.concurrent.CompletableFuture<Void> rejectedAll =
+                dispatcher.dispatchAll(List.of("chat1", "chat2"), counter::incrementAndGet);
+        Assertions.assertTrue(rejected.isCompletedExceptionally(), "Отклоненная задача завершается ошибкой");
+        Assertions.assertTrue(rejectedAll.isCompletedExceptionally());
+        Assertions.assertEquals(2, counter.get());
+        Assertions.assertEquals(0, dispatcher.getPendingCount());
+        Assertions.assertEquals(0, dispatcher.getActiveKeyCount());
+    }
+
+    /**
+     * Тестирует, что после завершения задач очереди ключей очищаются.
+     */
+    @Test
+    public void testIdleKeysAreReleased() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            dispatcher.dispatch("chat" + i, () -> sleep(1));
+        }
+
+        Assertions.assertTrue(dispatcher.awaitIdle(2000));
+        Assertions.assertEquals(0, dispatcher.getPendingCount());
+        Assertions.assertEquals(0, dispatcher.getActiveKeyCount(), "Хвосты завершенных чатов должны удаляться");
+    }
+
+    /**
+     * Тестирует, что задача на несколько ключей не пересекается с задачами каждого из них.
+     */
+    @Test
+    public void testMultiKeyTaskExcludesEachKey() throws Exception {
+        int[] counters = new int[2];
+
+        for (int i = 0; i < 300; i++) {
+            dispatcher.dispatch("a", () -> increment(counters, 0));
+            dispatcher.dispatch("b", () -> increment(counters, 1));
+            // Ключи в разном порядке не должны приводить к взаимной блокировке
+            List<String> keys = i % 2 == 0 ? List.of("a", "b") : List.of("b", "a");
+            dispatcher.dispatchAll(keys, () -> {
+                increment(counters, 0);
+                increment(counters, 1);
+            });
+        }
+
+        Assertions.assertTrue(dispatcher.awaitIdle(10_000), "Все задачи должны завершиться");
+        Assertions.assertEquals(600, counters[0], "Изменения ключа a не должны теряться");
+        Assertions.assertEquals(600, counters[1], "Изменения ключа b не должны теряться");
+        Assertions.assertEquals(0, dispatcher.getActiveKeyCount());
+    }
+
+    /**
+     * Неатомарное увеличение: при одновременном выполнении изменения теряются.
+     */
+    private static void increment(int[] counters, int index) {
+        int value = counters[index];
+        Thread.yield();
+        counters[index] = value + 1;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
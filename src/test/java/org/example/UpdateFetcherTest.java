@@ -0,0 +1,189 @@
+package org.example;
+
+import org.example.Polling.UpdateFetcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import org.telegram.telegrambots.meta.api.methods.updates.GetUpdates;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Тестовый класс для проверки функциональности {@link UpdateFetcher}.
+ * Проверяет порядок и подтверждение пачек, подстройку limit и timeout,
+ * параллельность получения и обработки, повтор после ошибки.
+ */
+public class UpdateFetcherTest {
+
+    private UpdateFetcher fetcher;
+
+    @AfterEach
+    public void tearDown() {
+        if (fetcher != null) {
+            fetcher.stop(1000);
+        }
+    }
+
+    /**
+     * Источник обновлений: выдает backlog обновлений с id 1..total с учетом offset и limit.
+     */
+    private static class Backlog implements UpdateFetcher.UpdateSource {
+        final int total;
+        final List<GetUpdates> requests = Collections.synchronizedList(new ArrayList<>());
+
+        Backlog(int total) {
+            this.total = total;
+        }
+
+        @Override
+        public List<Update> fetch(GetUpdates request) throws TelegramApiException {
+            requests.add(request);
+            List<Update> result = new ArrayList<>();
+            int from = Math.max(1, request.getOffset());
+            for (int id = from; id <= total && result.size() < request.getLimit(); id++) {
+                Update update = new Update();
+                update.setUpdateId(id);
+                result.add(update);
+            }
+            if (result.isEmpty()) {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    throw new TelegramApiException("interrupted", e);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Тестирует, что обновления обрабатываются по порядку, а offset подтверждает полученные.
+     */
+    @Test
+    public void testUpdatesAreDeliveredInOrder() throws Exception {
+        Backlog backlog = new Backlog(250);
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(250);
+        fetcher = new UpdateFetcher(backlog, updates -> updates.forEach(update -> {
+            received.add(update.getUpdateId());
+            done.countDown();
+        }), 1);
+        fetcher.start();
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 250; i++) {
+            Assertions.assertEquals(i + 1, received.get(i), "Порядок обновлений должен сохраняться");
+        }
+        Assertions.assertEquals(250, fetcher.getUpdateCount());
+    }
+
+    /**
+     * Тестирует подстройку: при заполненных пачках limit растет, а timeout сбрасывается в 0.
+     */
+    @Test
+    public void testLimitGrowsUnderBacklog() throws Exception {
+        Backlog backlog = new Backlog(1000);
+        CountDownLatch done = new CountDownLatch(1000);
+        fetcher = new UpdateFetcher(backlog, updates -> updates.forEach(update -> done.countDown()), 1);
+        fetcher.start();
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(UpdateFetcher.MIN_LIMIT, backlog.requests.get(0).getLimit());
+        Assertions.assertTrue(backlog.requests.stream().anyMatch(r -> r.getLimit() == UpdateFetcher.MAX_LIMIT),
+                "При backlog limit должен вырасти до максимума");
+        Assertions.assertEquals(0, backlog.requests.get(1).getTimeout(),
+                "При заполненной пачке следующий запрос не должен ждать");
+    }
+
+    /**
+     * Тестирует, что следующая пачка запрашивается во время обработки текущей.
+     */
+    @Test
+    public void testFetchOverlapsProcessing() throws Exception {
+        Backlog backlog = new Backlog(100);
+        AtomicInteger processing = new AtomicInteger();
+        AtomicInteger overlapped = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(100);
+        fetcher = new UpdateFetcher(request -> {
+            if (processing.get() > 0) {
+                overlapped.incrementAndGet();
+            }
+            return backlog.fetch(request);
+        }, updates -> {
+            processing.incrementAndGet();
+            try {
+                Thread.sleep(30);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            processing.decrementAndGet();
+            updates.forEach(update -> done.countDown());
+        }, 1);
+        fetcher.start();
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(overlapped.get() > 0, "Запросы должны выполняться параллельно с обработкой");
+    }
+
+    /**
+     * Тестирует, что остановка не ждет запроса long polling, который не реагирует на прерывание,
+     * и что пачка, пришедшая после остановки, не обрабатывается.
+     */
+    @Test
+    public void testStopDoesNotWaitForLongPoll() throws Exception {
+        CountDownLatch polling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger processed = new AtomicInteger();
+        fetcher = new UpdateFetcher(request -> {
+            polling.countDown();
+            // Как HTTP-вызов: прерывание потока запрос не завершает
+            while (true) {
+                try {
+                    release.await();
+                    break;
+                } catch (InterruptedException ignored) {
+                }
+            }
+            Update update = new Update();
+            update.setUpdateId(1);
+            return List.of(update);
+        }, updates -> processed.addAndGet(updates.size()), 50);
+        fetcher.start();
+        Assertions.assertTrue(polling.await(2, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        fetcher.stop(5000);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assertions.assertTrue(elapsedMillis < 2000, "Остановка заняла " + elapsedMillis + " мс");
+
+        release.countDown();
+        Thread.sleep(100);
+        Assertions.assertEquals(0, processed.get(), "Пачка после остановки не обрабатывается");
+    }
+
+    /**
+     * Тестирует повтор запроса после ошибки без потери обновлений.
+     */
+    @Test
+    public void testRecoversAfterError() throws Exception {
+        Backlog backlog = new Backlog(5);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(5);
+        fetcher = new UpdateFetcher(request -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new TelegramApiException("Connection reset");
+            }
+            return backlog.fetch(request);
+        }, updates -> updates.forEach(update -> done.countDown()), 1);
+        fetcher.start();
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS), "После ошибки обновления должны быть получены");
+    }
+}
@@ -0,0 +1,81 @@
+package org.example;
+
+import org.example.Dispatch.UpdateIdTracker;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+/**
+ * Тестовый класс для проверки функциональности {@link UpdateIdTracker}.
+ * Проверяет отсев повторов, окно id и сохранение между перезапусками.
+ */
+public class UpdateIdTrackerTest {
+
+    /**
+     * Тестирует, что повторно доставленное обновление отбрасывается.
+     */
+    @Test
+    public void testDuplicateIsRejected() {
+        UpdateIdTracker tracker = new UpdateIdTracker();
+
+        Assertions.assertTrue(tracker.firstSeen(100));
+        Assertions.assertTrue(tracker.firstSeen(101));
+        Assertions.assertFalse(tracker.firstSeen(100), "Повтор отбрасывается даже до окончания обработки");
+        Assertions.assertFalse(tracker.firstSeen(101));
+    }
+
+    /**
+     * Тестирует, что id ниже окна начинает новую последовательность (Telegram сбросил update_id),
+     * а не отбрасывается как давно обработанный - в том числе после перезапуска.
+     */
+    @Test
+    public void testIdsJumpingBackwardsStartNewSequence(@TempDir Path dir) {
+        Path file = dir.resolve("update_ids.json");
+        UpdateIdTracker tracker = new UpdateIdTracker(8, file);
+
+        for (int id = 1000; id <= 1020; id++) {
+            Assertions.assertTrue(tracker.firstSeen(id));
+            tracker.completed(id);
+        }
+        Assertions.assertFalse(tracker.firstSeen(1015), "Id внутри окна помнится");
+        Assertions.assertTrue(tracker.firstSeen(5), "Id ниже окна - новая последовательность");
+        Assertions.assertTrue(tracker.firstSeen(6));
+        Assertions.assertFalse(tracker.firstSeen(5));
+        Assertions.assertTrue(tracker.firstSeen(1015), "После сброса старые id забыты");
+
+        UpdateIdTracker other = new UpdateIdTracker(8, file);
+        other.firstSeen(2000);
+        other.completed(2000);
+        other.save();
+        UpdateIdTracker restarted = new UpdateIdTracker(8, file);
+        Assertions.assertFalse(restarted.firstSeen(2000), "Сохраненный id отсеивается");
+        Assertions.assertTrue(restarted.firstSeen(7), "Сохраненный id не служит нижней границей");
+    }
+
+    /**
+     * Тестирует, что после перезапуска обработанные обновления не обрабатываются повторно,
+     * а принятые, но не обработанные - обрабатываются.
+     */
+    @Test
+    public void testCompletedIdsSurviveRestart(@TempDir Path dir) {
+        Path file = dir.resolve("update_ids.json");
+        UpdateIdTracker tracker = new UpdateIdTracker(64, file);
+        for (int id = 10; id <= 14; id++) {
+            tracker.firstSeen(id);
+        }
+        tracker.completed(10);
+        tracker.completed(11);
+        tracker.completed(13);
+        tracker.save();
+
+        UpdateIdTracker restarted = new UpdateIdTracker(64, file);
+        Assertions.assertFalse(restarted.firstSeen(10));
+        Assertions.assertFalse(restarted.firstSeen(11));
+        Assertions.assertFalse(restarted.firstSeen(13));
+        Assertions.assertTrue(restarted.firstSeen(12), "Необработанное до сбоя обновление обрабатывается");
+        Assertions.assertTrue(restarted.firstSeen(14));
+        Assertions.assertEquals(13, restarted.getLastCompleted());
+    }
+}
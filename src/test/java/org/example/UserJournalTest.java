@@ -0,0 +1,153 @@
+package org.example;
+
+import org.example.Quiz.UserJournal;
+import org.example.Quiz.UserState;
+import org.example.Quiz.Users;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Тестовый класс для проверки журнала изменений пользователей {@link UserJournal}.
+ * Проверяет восстановление без сохранения файла данных, group commit и сжатие журнала.
+ */
+public class UserJournalTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Тестирует, что изменения восстанавливаются из журнала, если файл данных не был сохранен,
+     * а оборванная при падении строка журнала пропускается.
+     */
+    @Test
+    public void testChangesSurviveWithoutSave() throws Exception {
+        Path usersFile = dir.resolve("users.json");
+        Path journalFile = dir.resolve("users.journal");
+        Files.writeString(usersFile, "{}");
+
+        Users users = new Users(usersFile.toString(), journalFile);
+        users.getOrCreate("chat1");
+        users.setLeaderboardName("chat1", "Игрок");
+        users.updateUserScore("chat1", 3);
+        users.updateUserScore("chat1", 2);
+        users.getOrCreate("chat2");
+        Assertions.assertTrue(users.getJournal().sync(1000));
+        users.close();
+        Assertions.assertEquals("{}", Files.readString(usersFile), "Файл данных не переписывается на каждое изменение");
+
+        // Процесс упал посреди записи
+        Files.writeString(journalFile, "{\"op\":\"score\",\"chatId\":\"chat1\",\"del", StandardOpenOption.APPEND);
+
+        Users restored = new Users(usersFile.toString(), journalFile);
+        Assertions.assertEquals(5, restored.get("chat1").getScore());
+        Assertions.assertEquals(2, restored.get("chat1").getAllScore().size());
+        Assertions.assertEquals("Игрок", restored.get("chat1").getLeaderboardName());
+        Assertions.assertTrue(restored.has("chat2"));
+        Assertions.assertEquals(0, Files.size(journalFile), "Примененный журнал сразу сжимается в снимок");
+        restored.close();
+
+        Users again = new Users(usersFile.toString(), journalFile);
+        Assertions.assertEquals(5, again.get("chat1").getScore(), "Повторный запуск не начисляет баллы дважды");
+        again.close();
+    }
+
+    /**
+     * Тестирует, что состояние пользователя, которого нет в журнале, переживает остановку:
+     * сброс при завершении работы пишет измененных пользователей и с журналом.
+     */
+    @Test
+    public void testStateSurvivesFlushWithJournal() throws Exception {
+        Path usersFile = dir.resolve("users.json");
+        Path journalFile = dir.resolve("users.journal");
+        Files.writeString(usersFile, "{}");
+
+        Users users = new Users(usersFile.toString(), journalFile);
+        users.getOrCreate("chat1").setState(UserState.WAITING_GENERATION_TOPIC);
+        users.updateUserScore("chat1", 2);
+        users.flush();
+        users.close();
+
+        Users restored = new Users(usersFile.toString(), journalFile);
+        Assertions.assertEquals(UserState.WAITING_GENERATION_TOPIC, restored.get("chat1").getState());
+        Assertions.assertEquals(2, restored.get("chat1").getScore(), "Журнал не применяется к сегменту повторно");
+        restored.close();
+    }
+
+    /**
+     * Тестирует, что одновременные изменения записываются пачками с общим fsync.
+     */
+    @Test
+    public void testConcurrentChangesShareFsync() throws Exception {
+        Path usersFile = dir.resolve("users.json");
+        Path journalFile = dir.resolve("users.journal");
+        Users users = new Users(usersFile.toString(), journalFile);
+        int threads = 16;
+        int perThread = 50;
+        for (int t = 0; t < threads; t++) {
+            users.getOrCreate("chat" + t);
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String chatId = "chat" + t;
+            workers.add(Thread.ofVirtual().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    users.updateUserScore(chatId, 1);
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        UserJournal journal = users.getJournal();
+        Assertions.assertEquals(threads + threads * perThread, journal.getAppendedCount());
+        Assertions.assertTrue(journal.getSyncCount() < journal.getAppendedCount(),
+                "Записи должны объединяться в пачки: " + journal.getSyncCount() + " fsync");
+        long lines = Files.readAllLines(journalFile, StandardCharsets.UTF_8).size();
+        Assertions.assertEquals(journal.getAppendedCount(), lines, "Каждое изменение - одна строка журнала");
+        users.close();
+    }
+
+    /**
+     * Тестирует, что сжатие сохраняет снимок и очищает журнал, не теряя изменений после него.
+     */
+    @Test
+    public void testCompactionRewritesSnapshot() throws Exception {
+        Path usersFile = dir.resolve("users.json");
+        Path journalFile = dir.resolve("users.journal");
+        Users users = new Users(usersFile.toString(), journalFile);
+        users.getOrCreate("chat1");
+        users.updateUserScore("chat1", 4);
+
+        users.compact();
+        Assertions.assertEquals(1, users.getCompactionCount());
+        Assertions.assertEquals(0, Files.size(journalFile));
+        Assertions.assertFalse(Files.exists(dir.resolve("users.journal.compacting")));
+        Assertions.assertTrue(Files.readString(dir.resolve("users.json.seg-000001")).contains("\"score\":4"),
+                "Сжатие сохраняет измененных пользователей в сегмент");
+
+        users.updateUserScore("chat1", 1);
+        users.close();
+
+        Users restored = new Users(usersFile.toString(), journalFile);
+        Assertions.assertEquals(5, restored.get("chat1").getScore());
+        restored.close();
+    }
+}
@@ -0,0 +1,112 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.DataMessage.Content;
+import org.example.ModeGame.Duel.DuelMatchmaker;
+import org.example.ModeGame.Duel.Timer.DuelTimeoutManager;
+import org.example.ModeGame.DuelMode;
+import org.example.Quiz.UserData;
+import org.example.Quiz.UserEvent;
+import org.example.Quiz.UserState;
+import org.example.Quiz.Users;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.example.DataMessage.Constants.*;
+
+/**
+ * Тестовый класс для проверки {@link UserState} и {@link UserEvent}.
+ * Проверяет таблицу переходов, совместимость формата файла и блокировку действий во время дуэли.
+ */
+public class UserStateTest {
+
+    /**
+     * Тестирует, что недопустимый переход отклоняется, а выход в меню разрешен всегда.
+     */
+    @Test
+    public void testTransitionTable() {
+        UserData userData = new UserData();
+        userData.setState(UserState.TOPIC_SELECTION);
+        userData.setState(UserState.DUEL_SEARCHING);
+
+        Assertions.assertFalse(UserState.DUEL_SEARCHING.canTransitionTo(UserState.TOPIC_SELECTION));
+        Assertions.assertThrows(IllegalStateException.class, () -> userData.setState(UserState.TOPIC_SELECTION));
+        Assertions.assertEquals(UserState.DUEL_SEARCHING, userData.getState(), "Состояние не меняется");
+
+        userData.setState(UserState.MENU);
+        Assertions.assertTrue(userData.isInMenu());
+    }
+
+    /**
+     * Тестирует, что без строгой проверки (как в работающем боте) недопустимый переход
+     * не бросает исключение, а отклоняется с сохранением текущего состояния.
+     */
+    @Test
+    public void testInvalidTransitionIsRejectedWithoutStrictMode() {
+        UserData userData = new UserData();
+        userData.setState(UserState.TOPIC_SELECTION);
+        userData.setState(UserState.DUEL_SEARCHING);
+
+        UserData.setStrictTransitions(false);
+        try {
+            Assertions.assertFalse(userData.setState(UserState.TOPIC_SELECTION));
+            Assertions.assertEquals(UserState.DUEL_SEARCHING, userData.getState(), "Состояние не меняется");
+            Assertions.assertTrue(userData.setState(UserState.MENU));
+        } finally {
+            UserData.setStrictTransitions(true);
+        }
+    }
+
+    /**
+     * Тестирует, что состояние хранится в файле прежним строковым кодом.
+     */
+    @Test
+    public void testStateUsesLegacyCodeInJson() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        UserData userData = new UserData();
+        userData.setState(UserState.WAITING_LEADERBOARD_NAME);
+
+        String json = mapper.writeValueAsString(userData);
+        Assertions.assertTrue(json.contains("\"state\":\"waiting_leaderboard_name\""), json);
+
+        UserData loaded = mapper.readValue("{\"state\":\"duel_waiting_opponent\",\"score\":3}", UserData.class);
+        Assertions.assertEquals(UserState.DUEL_WAITING_OPPONENT, loaded.getState(), "Загрузка минует проверку переходов");
+        Assertions.assertEquals(UserState.MENU, UserState.fromCode("unknown_state"));
+    }
+
+    /**
+     * Тестирует разбор событий и отказ начать новую игру во время поиска дуэли.
+     */
+    @Test
+    public void testNewGameIsRejectedWhileSearchingDuel(@TempDir Path dir) throws Exception {
+        Assertions.assertEquals(UserEvent.COMMAND, UserEvent.of("/start"));
+        Assertions.assertEquals(UserEvent.ANSWER, UserEvent.of(B_BUTTON));
+        Assertions.assertEquals(UserEvent.UNKNOWN_BUTTON, UserEvent.of("other_button"));
+        Assertions.assertEquals(UserEvent.TEXT, UserEvent.of("Привет"));
+
+        Path usersFile = dir.resolve("users.json");
+        Files.writeString(usersFile, "{}");
+        Users users = new Users(usersFile.toString());
+        Producer producer = new Producer(users, "");
+        DuelTimeoutManager timeoutManager = new DuelTimeoutManager(new DuelMatchmaker());
+        producer.setDuelTimeoutManager(timeoutManager);
+
+        UserData userData = users.getOrCreate("chat1");
+        users.setLeaderboardName("chat1", "Игрок");
+        userData.setState(UserState.TOPIC_SELECTION);
+        userData.setState(UserState.DUEL_SEARCHING);
+
+        // Поиск без активного таймера считается истекшим, поэтому запускаем таймер поиска
+        timeoutManager.startSearchTimeout("chat1", 60_000, DuelMode.TopicType.LOCAL, "topic");
+        Content[] response = producer.produce(new Content(false, "chat1", QUIZ_BUTTON));
+
+        Assertions.assertEquals(1, response.length);
+        Assertions.assertTrue(response[0].getText().contains("недоступно"), response[0].getText());
+        Assertions.assertEquals(UserState.DUEL_SEARCHING, userData.getState());
+        timeoutManager.clearAll();
+    }
+}
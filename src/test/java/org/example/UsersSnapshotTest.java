@@ -0,0 +1,110 @@
+package org.example;
+
+import org.example.Quiz.Users;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Тестовый класс для проверки инкрементальных снимков {@link Users}.
+ * Проверяет, что сегмент содержит только измененных пользователей, загрузку из снимка с сегментами
+ * и слияние сегментов в файл данных.
+ */
+public class UsersSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Тестирует, что в сегмент попадают только пользователи, измененные после предыдущего сегмента,
+     * и что после перезапуска данные собираются из файла данных и сегментов.
+     */
+    @Test
+    public void testSegmentContainsOnlyChangedUsers() throws Exception {
+        Path usersFile = dir.resolve("users.json");
+        Users users = new Users(usersFile.toString());
+        for (int i = 0; i < 100; i++) {
+            users.getOrCreate("chat" + i);
+        }
+        Assertions.assertEquals(100, users.writeSegment());
+        Assertions.assertEquals(0, users.writeSegment(), "Без изменений сегмент не пишется");
+
+        users.updateUserScore("chat7", 3);
+        users.setLeaderboardName("chat42", "Игрок");
+        Assertions.assertEquals(2, users.writeSegment());
+
+        String segment = Files.readString(dir.resolve("users.json.seg-000002"));
+        Assertions.assertTrue(segment.contains("chat7") && segment.contains("chat42"));
+        Assertions.assertFalse(segment.contains("\"chat1\""), "Неизмененные пользователи в сегмент не попадают");
+        Assertions.assertFalse(Files.exists(dir.resolve("users.json.seg-000002.tmp")));
+        Assertions.assertFalse(Files.exists(usersFile), "Файл данных не переписывается до слияния");
+
+        Users restored = new Users(usersFile.toString());
+        Assertions.assertEquals(100, restored.size());
+        Assertions.assertEquals(3, restored.get("chat7").getScore());
+        Assertions.assertEquals("Игрок", restored.get("chat42").getLeaderboardName());
+
+        restored.updateUserScore("chat7", 1);
+        Assertions.assertEquals(1, restored.writeSegment(), "Загруженные пользователи тоже отслеживаются");
+        Assertions.assertTrue(Files.exists(dir.resolve("users.json.seg-000003")), "Нумерация сегментов продолжается");
+    }
+
+    /**
+     * Тестирует, что слияние переписывает файл данных и удаляет сегменты,
+     * а прерванное слияние завершается при загрузке без применения устаревших сегментов.
+     */
+    @Test
+    public void testMergeReplacesSegments() throws Exception {
+        Path usersFile = dir.resolve("users.json");
+        Users users = new Users(usersFile.toString());
+        users.getOrCreate("chat1");
+        users.updateUserScore("chat1", 2);
+        users.writeSegment();
+        users.updateUserScore("chat1", 5);
+        users.writeSegment();
+
+        users.merge();
+        Assertions.assertEquals(1, users.getMergeCount());
+        Assertions.assertFalse(Files.exists(dir.resolve("users.json.seg-000001")));
+        Assertions.assertFalse(Files.exists(dir.resolve("users.json.seg-000002")));
+        Assertions.assertEquals(0, users.getDirtyCount());
+        Assertions.assertEquals(7, new Users(usersFile.toString()).get("chat1").getScore());
+
+        // Процесс упал после записи полного снимка, но до удаления сегментов
+        users.updateUserScore("chat1", 1);
+        users.writeSegment();
+        Files.writeString(dir.resolve("users.json.merged"), "{\"chat1\":{\"state\":\"MENU\",\"score\":0}}");
+
+        Users restored = new Users(usersFile.toString());
+        Assertions.assertEquals(0, restored.get("chat1").getScore(), "Сегменты до прерванного слияния не применяются");
+        Assertions.assertFalse(Files.exists(dir.resolve("users.json.merged")));
+        Assertions.assertFalse(Files.exists(dir.resolve("users.json.seg-000003")));
+    }
+
+    /**
+     * Тестирует, что сброс при остановке пишет сегмент и с журналом, и без него,
+     * и в сегмент попадают только измененные пользователи.
+     */
+    @Test
+    public void testFlushWritesSegmentWithAndWithoutJournal() throws Exception {
+        for (boolean withJournal : new boolean[] {false, true}) {
+            Path usersFile = dir.resolve(withJournal ? "journaled.json" : "plain.json");
+            Path journalFile = withJournal ? dir.resolve("journaled.journal") : null;
+            Users users = new Users(usersFile.toString(), journalFile);
+            users.getOrCreate("chat1");
+            users.getOrCreate("chat2");
+            users.writeSegment();
+
+            users.setLeaderboardName("chat2", "Игрок");
+            users.flush();
+            Assertions.assertEquals(0, users.getDirtyCount());
+            String segment = Files.readString(usersFile.resolveSibling(usersFile.getFileName() + ".seg-000002"));
+            Assertions.assertTrue(segment.contains("chat2"));
+            Assertions.assertFalse(segment.contains("chat1"), "Неизмененные пользователи в сегмент не попадают");
+            users.close();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.example;
+
+import org.example.Webhook.WebhookServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Тестовый класс для проверки функциональности {@link WebhookServer}.
+ * Отправляет записанные JSON-обновления Telegram на локальный сервер.
+ */
+public class WebhookServerTest {
+
+    private static final String SECRET = "test_secret";
+
+    private static final String MESSAGE_UPDATE = """
+            {"update_id": 1001,
+             "message": {"message_id": 5, "date": 1700000000,
+                         "chat": {"id": 12345, "type": "private"},
+                         "from": {"id": 12345, "is_bot": false, "first_name": "Test"},
+                         "text": "/start"}}
+            """;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final LinkedBlockingQueue<Update> received = new LinkedBlockingQueue<>();
+    private WebhookServer server;
+
+    @AfterEach
+    public void tearDown() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private void startServer(String secret) throws Exception {
+        server = new WebhookServer(0, "/webhook", secret, received::add);
+        server.start();
+    }
+
+    private HttpResponse<String> post(String body, String secret) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:" + server.getPort() + "/webhook"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (secret != null) {
+            request.header(WebhookServer.SECRET_HEADER, secret);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Тестирует прием корректного обновления и передачу его получателю.
+     */
+    @Test
+    public void testUpdateIsAcceptedAndDelivered() throws Exception {
+        startServer(SECRET);
+
+        HttpResponse<String> response = post(MESSAGE_UPDATE, SECRET);
+
+        Assertions.assertEquals(200, response.statusCode());
+        Update update = received.poll(2, TimeUnit.SECONDS);
+        Assertions.assertNotNull(update, "Обновление должно быть передано получателю");
+        Assertions.assertEquals(1001, update.getUpdateId());
+        Assertions.assertEquals("/start", update.getMessage().getText());
+        Assertions.assertEquals(12345L, update.getMessage().getChatId());
+        Assertions.assertEquals(1, server.getAcceptedCount());
+    }
+
+    /**
+     * Тестирует отклонение запроса с неверным секретом.
+     */
+    @Test
+    public void testWrongSecretIsRejected() throws Exception {
+        startServer(SECRET);
+
+        HttpResponse<String> response = post(MESSAGE_UPDATE, "wrong");
+
+        Assertions.assertEquals(401, response.statusCode());
+        Assertions.assertTrue(received.isEmpty(), "Обновление не должно передаваться дальше");
+    }
+
+    /**
+     * Тестирует отклонение некорректного JSON.
+     */
+    @Test
+    public void testMalformedBodyIsRejected() throws Exception {
+        startServer(null);
+
+        HttpResponse<String> response = post("{not json", null);
+
+        Assertions.assertEquals(400, response.statusCode());
+        Assertions.assertEquals(1, server.getRejectedCount());
+    }
+
+    /**
+     * Тестирует, что принимаются только POST-запросы.
+     */
+    @Test
+    public void testOnlyPostIsAllowed() throws Exception {
+        startServer(null);
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:" + server.getPort() + "/webhook"))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        Assertions.assertEquals(405, response.statusCode());
+    }
+}